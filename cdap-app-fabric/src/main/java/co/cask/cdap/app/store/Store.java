@@ -128,6 +128,15 @@ public interface Store extends RuntimeStore {
   Map<ProgramRunId, RunRecordMeta> getRuns(ProgramRunStatus status, Predicate<RunRecordMeta> filter);
 
 
+  /**
+   * Returns the programs among the given ones that have at least one running run record, checked in a single
+   * transaction.
+   *
+   * @param ids ids of the programs
+   * @return set of the programs that are running
+   */
+  Set<ProgramId> getRunningPrograms(Collection<ProgramId> ids);
+
   /**
    * Fetches the run records for given ProgramRunIds.
    * @param programRunIds  list of program RunIds to match against
@@ -195,6 +204,14 @@ public interface Store extends RuntimeStore {
   @Nullable
   ApplicationSpecification getApplication(ApplicationId id);
 
+  /**
+   * Returns the specifications of the given applications, read in a single transaction.
+   *
+   * @param ids ids of the applications
+   * @return map from application id to its specification. Applications that do not exist are not in the map.
+   */
+  Map<ApplicationId, ApplicationSpecification> getApplications(Collection<ApplicationId> ids);
+
   /**
    * Returns a collection of all application specs in the specified namespace
    *
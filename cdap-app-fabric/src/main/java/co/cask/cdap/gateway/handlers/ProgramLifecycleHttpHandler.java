@@ -21,6 +21,8 @@ import co.cask.cdap.api.app.ApplicationSpecification;
 import co.cask.cdap.api.flow.FlowSpecification;
 import co.cask.cdap.api.flow.FlowletDefinition;
 import co.cask.cdap.api.metrics.MetricStore;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.api.schedule.ScheduleSpecification;
 import co.cask.cdap.api.service.ServiceSpecification;
 import co.cask.cdap.app.mapreduce.MRJobInfoFetcher;
@@ -81,6 +83,7 @@ import co.cask.cdap.security.spi.authorization.UnauthorizedException;
 import co.cask.http.HttpResponder;
 import com.google.common.base.Charsets;
 import com.google.common.base.Function;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableMap;
@@ -110,6 +113,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -160,6 +164,7 @@ public class ProgramLifecycleHttpHandler extends AbstractAppFabricHttpHandler {
   private final MetricStore metricStore;
   private final MRJobInfoFetcher mrJobInfoFetcher;
   private final NamespaceQueryAdmin namespaceQueryAdmin;
+  private final MetricsContext batchMetricsContext;
 
   /**
    * Store manages non-runtime lifecycle.
@@ -179,7 +184,8 @@ public class ProgramLifecycleHttpHandler extends AbstractAppFabricHttpHandler {
                               PreferencesStore preferencesStore,
                               MRJobInfoFetcher mrJobInfoFetcher,
                               MetricStore metricStore,
-                              NamespaceQueryAdmin namespaceQueryAdmin) {
+                              NamespaceQueryAdmin namespaceQueryAdmin,
+                              MetricsCollectionService metricsCollectionService) {
     this.store = store;
     this.runtimeService = runtimeService;
     this.discoveryServiceClient = discoveryServiceClient;
@@ -189,6 +195,10 @@ public class ProgramLifecycleHttpHandler extends AbstractAppFabricHttpHandler {
     this.preferencesStore = preferencesStore;
     this.mrJobInfoFetcher = mrJobInfoFetcher;
     this.namespaceQueryAdmin = namespaceQueryAdmin;
+    this.batchMetricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getEntityName(),
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.APP_FABRIC_HTTP,
+      Constants.Metrics.Tag.HANDLER, ProgramLifecycleHttpHandler.class.getSimpleName()));
   }
 
   /**
@@ -895,22 +905,38 @@ public class ProgramLifecycleHttpHandler extends AbstractAppFabricHttpHandler {
   public void getStatuses(HttpRequest request, HttpResponder responder,
                           @PathParam("namespace-id") String namespaceId) throws Exception {
 
+    Stopwatch stopwatch = new Stopwatch().start();
     List<BatchProgram> programs = validateAndGetBatchInput(request, BATCH_PROGRAMS_TYPE);
 
-    List<BatchProgramStatus> statuses = new ArrayList<>(programs.size());
+    // resolve all the programs with batched store reads instead of reads per program
+    List<ProgramId> programIds = new ArrayList<>(programs.size());
+    Set<ApplicationId> appIds = new HashSet<>();
     for (BatchProgram program : programs) {
       ProgramId programId = new ProgramId(namespaceId, program.getAppId(), program.getProgramType(),
                                           program.getProgramId());
-      try {
-        ProgramStatus programStatus = lifecycleService.getProgramStatus(programId);
+      programIds.add(programId);
+      appIds.add(programId.getParent());
+    }
+    Map<ApplicationId, ApplicationSpecification> appSpecs = store.getApplications(appIds);
+    Map<ProgramId, ProgramStatus> programStatuses = lifecycleService.getProgramStatuses(appSpecs, programIds);
+
+    List<BatchProgramStatus> statuses = new ArrayList<>(programs.size());
+    for (int i = 0; i < programs.size(); i++) {
+      BatchProgram program = programs.get(i);
+      ProgramId programId = programIds.get(i);
+      ProgramStatus programStatus = programStatuses.get(programId);
+      if (programStatus != null) {
         statuses.add(new BatchProgramStatus(
           program, HttpResponseStatus.OK.getCode(), null, programStatus.name()));
-      } catch (NotFoundException e) {
+      } else {
+        NotFoundException e = appSpecs.containsKey(programId.getParent()) ?
+          new NotFoundException(programId) : new NotFoundException(programId.getParent());
         statuses.add(new BatchProgramStatus(
           program, HttpResponseStatus.NOT_FOUND.getCode(), e.getMessage(), null));
       }
     }
     responder.sendJson(HttpResponseStatus.OK, statuses);
+    emitBatchMetrics("getStatuses", programs.size(), stopwatch);
   }
 
   /**
@@ -1088,10 +1114,15 @@ public class ProgramLifecycleHttpHandler extends AbstractAppFabricHttpHandler {
   public void getInstances(HttpRequest request, HttpResponder responder,
                            @PathParam("namespace-id") String namespaceId) throws IOException, BadRequestException {
 
+    Stopwatch stopwatch = new Stopwatch().start();
     List<BatchRunnable> runnables = validateAndGetBatchInput(request, BATCH_RUNNABLES_TYPE);
 
-    // cache app specs to perform fewer store lookups
-    Map<ApplicationId, ApplicationSpecification> appSpecs = new HashMap<>();
+    // read the specs of all the apps at once to perform fewer store lookups
+    Set<ApplicationId> appIds = new HashSet<>();
+    for (BatchRunnable runnable : runnables) {
+      appIds.add(new ApplicationId(namespaceId, runnable.getAppId()));
+    }
+    Map<ApplicationId, ApplicationSpecification> appSpecs = store.getApplications(appIds);
 
     List<BatchRunnableInstances> output = new ArrayList<>(runnables.size());
     for (BatchRunnable runnable : runnables) {
@@ -1104,12 +1135,6 @@ public class ProgramLifecycleHttpHandler extends AbstractAppFabricHttpHandler {
       }
 
       ApplicationId appId = new ApplicationId(namespaceId, runnable.getAppId());
-
-      // populate spec cache if this is the first time we've seen the appid.
-      if (!appSpecs.containsKey(appId)) {
-        appSpecs.put(appId, store.getApplication(appId));
-      }
-
       ApplicationSpecification spec = appSpecs.get(appId);
       if (spec == null) {
         output.add(new BatchRunnableInstances(runnable, HttpResponseStatus.NOT_FOUND.getCode(),
@@ -1121,6 +1146,16 @@ public class ProgramLifecycleHttpHandler extends AbstractAppFabricHttpHandler {
       output.add(getProgramInstances(runnable, spec, programId.toId()));
     }
     responder.sendJson(HttpResponseStatus.OK, output);
+    emitBatchMetrics("getInstances", runnables.size(), stopwatch);
+  }
+
+  /**
+   * Emits the number of programs and the latency of a batch request.
+   */
+  private void emitBatchMetrics(String method, int size, Stopwatch stopwatch) {
+    MetricsContext context = batchMetricsContext.childContext(Constants.Metrics.Tag.METHOD, method);
+    context.increment("batch.programs", size);
+    context.gauge("batch.latency.ms", stopwatch.elapsedMillis());
   }
 
   /*
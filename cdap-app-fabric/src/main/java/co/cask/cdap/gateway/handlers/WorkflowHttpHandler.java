@@ -21,6 +21,7 @@ import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetManagementException;
 import co.cask.cdap.api.dataset.InstanceNotFoundException;
 import co.cask.cdap.api.metrics.MetricStore;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.api.schedule.SchedulableProgramType;
 import co.cask.cdap.api.schedule.ScheduleSpecification;
 import co.cask.cdap.api.workflow.NodeValue;
@@ -116,9 +117,10 @@ public class WorkflowHttpHandler extends ProgramLifecycleHttpHandler {
                       QueueAdmin queueAdmin, Scheduler scheduler, PreferencesStore preferencesStore,
                       MRJobInfoFetcher mrJobInfoFetcher, ProgramLifecycleService lifecycleService,
                       MetricStore metricStore, NamespaceQueryAdmin namespaceQueryAdmin,
-                      DatasetFramework datasetFramework, DiscoveryServiceClient discoveryServiceClient) {
+                      DatasetFramework datasetFramework, DiscoveryServiceClient discoveryServiceClient,
+                      MetricsCollectionService metricsCollectionService) {
     super(store, runtimeService, discoveryServiceClient, lifecycleService, queueAdmin, preferencesStore,
-          mrJobInfoFetcher, metricStore, namespaceQueryAdmin);
+          mrJobInfoFetcher, metricStore, namespaceQueryAdmin, metricsCollectionService);
     this.workflowClient = workflowClient;
     this.datasetFramework = datasetFramework;
     this.scheduler = scheduler;
@@ -39,6 +39,7 @@ import co.cask.cdap.proto.id.InstanceId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.authorization.AuthorizationUtil;
 import co.cask.cdap.security.impersonation.ImpersonationUtils;
 import co.cask.cdap.security.impersonation.Impersonator;
 import co.cask.cdap.security.impersonation.SecurityUtil;
@@ -48,6 +49,7 @@ import co.cask.cdap.security.spi.authorization.PrivilegesManager;
 import co.cask.cdap.security.spi.authorization.UnauthorizedException;
 import co.cask.cdap.store.NamespaceStore;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
@@ -406,15 +408,12 @@ public final class DefaultNamespaceAdmin implements NamespaceAdmin {
   public List<NamespaceMeta> list() throws Exception {
     List<NamespaceMeta> namespaces = nsStore.list();
     Principal principal = authenticationContext.getPrincipal();
-    final Predicate<EntityId> filter = authorizationEnforcer.createFilter(principal);
-    return Lists.newArrayList(
-      Iterables.filter(namespaces, new com.google.common.base.Predicate<NamespaceMeta>() {
-        @Override
-        public boolean apply(NamespaceMeta namespaceMeta) {
-          return filter.apply(namespaceMeta.getNamespaceId());
-        }
-      })
-    );
+    return AuthorizationUtil.filterVisible(namespaces, new Function<NamespaceMeta, NamespaceId>() {
+      @Override
+      public NamespaceId apply(NamespaceMeta namespaceMeta) {
+        return namespaceMeta.getNamespaceId();
+      }
+    }, authorizationEnforcer, principal);
   }
 
   /**
@@ -67,6 +67,7 @@ import co.cask.cdap.internal.app.runtime.messaging.MultiThreadMessagingContext;
 import co.cask.cdap.internal.app.runtime.plugin.PluginInstantiator;
 import co.cask.cdap.messaging.MessagingService;
 import co.cask.cdap.proto.id.ApplicationId;
+import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.ProgramId;
@@ -77,9 +78,13 @@ import org.apache.tephra.TransactionFailureException;
 import org.apache.tephra.TransactionSystemClient;
 import org.apache.twill.api.RunId;
 import org.apache.twill.discovery.DiscoveryServiceClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -90,6 +95,8 @@ import javax.annotation.Nullable;
 public abstract class AbstractContext extends AbstractServiceDiscoverer
   implements SecureStore, DatasetContext, Transactional, RuntimeContext, PluginContext, MessagingContext {
 
+  private static final Logger LOG = LoggerFactory.getLogger(AbstractContext.class);
+
   private final Program program;
   private final ProgramOptions programOptions;
   private final RunId runId;
@@ -158,8 +165,17 @@ public abstract class AbstractContext extends AbstractServiceDiscoverer
     this.runtimeArguments = Collections.unmodifiableMap(runtimeArgs);
 
     Map<String, Map<String, String>> staticDatasets = new HashMap<>();
+    List<DatasetId> datasetIds = new ArrayList<>(datasets.size());
     for (String name : datasets) {
       staticDatasets.put(name, runtimeArguments);
+      datasetIds.add(program.getId().getNamespaceId().dataset(name));
+    }
+    // fetch the declared datasets in one call, rather than one call per dataset when they are instantiated
+    try {
+      dsFramework.prefetchInstances(datasetIds, owners);
+    } catch (Exception e) {
+      // the datasets are fetched again when they are instantiated, which reports any actual problem
+      LOG.debug("Failed to prefetch datasets {} of program {}", datasets, program.getId(), e);
     }
     SystemDatasetInstantiator instantiator =
       new SystemDatasetInstantiator(dsFramework, program.getClassLoader(), owners);
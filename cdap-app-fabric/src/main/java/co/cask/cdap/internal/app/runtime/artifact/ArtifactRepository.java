@@ -48,6 +48,7 @@ import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.authorization.AuthorizationUtil;
 import co.cask.cdap.security.impersonation.EntityImpersonator;
 import co.cask.cdap.security.impersonation.Impersonator;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
@@ -234,17 +235,13 @@ public class ArtifactRepository {
       return artifacts;
     }
     Principal principal = authenticationContext.getPrincipal();
-    final Predicate<EntityId> filter = authorizationEnforcer.createFilter(principal);
-    return Lists.newArrayList(
-      Iterables.filter(artifacts, new com.google.common.base.Predicate<ArtifactDetail>() {
-        @Override
-        public boolean apply(ArtifactDetail artifactDetail) {
-          ArtifactId artifactId = artifactDetail.getDescriptor().getArtifactId();
-          return filter.apply(range.getNamespace().artifact(artifactId.getName(),
-                                                            artifactId.getVersion().getVersion()));
-        }
-      })
-    );
+    return AuthorizationUtil.filterVisible(artifacts, new Function<ArtifactDetail, EntityId>() {
+      @Override
+      public EntityId apply(ArtifactDetail artifactDetail) {
+        ArtifactId artifactId = artifactDetail.getDescriptor().getArtifactId();
+        return range.getNamespace().artifact(artifactId.getName(), artifactId.getVersion().getVersion());
+      }
+    }, authorizationEnforcer, principal);
   }
 
   /**
@@ -787,14 +784,20 @@ public class ArtifactRepository {
    */
   private List<ArtifactSummary> filterAuthorizedArtifacts(List<ArtifactSummary> artifacts, final NamespaceId namespace)
     throws Exception {
-    final Predicate<EntityId> filter = authorizationEnforcer.createFilter(authenticationContext.getPrincipal());
+    // no authorization on system artifacts, check the visibility of all other artifacts at once
+    List<EntityId> artifactIds = new ArrayList<>(artifacts.size());
+    for (ArtifactSummary artifactSummary : artifacts) {
+      if (!ArtifactScope.SYSTEM.equals(artifactSummary.getScope())) {
+        artifactIds.add(namespace.artifact(artifactSummary.getName(), artifactSummary.getVersion()));
+      }
+    }
+    final Set<EntityId> visible = authorizationEnforcer.isVisible(artifactIds, authenticationContext.getPrincipal());
     return Lists.newArrayList(
       Iterables.filter(artifacts, new com.google.common.base.Predicate<ArtifactSummary>() {
         @Override
         public boolean apply(ArtifactSummary artifactSummary) {
-          // no authorization on system artifacts
           return ArtifactScope.SYSTEM.equals(artifactSummary.getScope()) ||
-            filter.apply(namespace.artifact(artifactSummary.getName(), artifactSummary.getVersion()));
+            visible.contains(namespace.artifact(artifactSummary.getName(), artifactSummary.getVersion()));
         }
       })
     );
@@ -36,6 +36,8 @@ import co.cask.cdap.api.plugin.PluginClass;
 import co.cask.cdap.common.ArtifactAlreadyExistsException;
 import co.cask.cdap.common.ArtifactNotFoundException;
 import co.cask.cdap.common.ArtifactRangeNotFoundException;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.namespace.NamespacedLocationFactory;
 import co.cask.cdap.common.utils.ImmutablePair;
@@ -65,6 +67,9 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Splitter;
 import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -150,12 +155,21 @@ import javax.annotation.Nullable;
  *
  * With this schema we can perform a scan to look up AppClasses, a scan to look up plugins that extend a specific
  * artifact, and a scan to look up artifacts.
+ *
+ * In addition, plugins contained in an artifact are indexed so that looking up a plugin by type and name in a
+ * parent artifact does not require decoding the metadata of every version of the parent artifact, with
+ * rowkey i:{namespace}:{artifact-name}:{plugin-type}:{plugin-name}, column {artifact-version},
+ * and PluginData as the value. Every artifact version covered by the index is recorded with
+ * rowkey i:{namespace}:{artifact-name}, column {artifact-version}, and the number of plugins as the value.
+ * Artifact versions without this marker were written before the index existed and are looked up through
+ * their ArtifactData.
  */
 public class ArtifactStore {
   private static final String ARTIFACTS_PATH = "artifacts";
   private static final String ARTIFACT_PREFIX = "r";
   private static final String PLUGIN_PREFIX = "p";
   private static final String APPCLASS_PREFIX = "a";
+  private static final String PLUGIN_INDEX_PREFIX = "i";
   private static final DatasetId META_ID = NamespaceId.SYSTEM.dataset("artifact.meta");
   private static final DatasetProperties META_PROPERTIES =
     TableProperties.builder().setConflictDetection(ConflictDetection.COLUMN).build();
@@ -170,9 +184,11 @@ public class ArtifactStore {
   private final DatasetFramework datasetFramework;
   private final Transactional transactional;
   private final Impersonator impersonator;
+  private final LoadingCache<String, PluginData> pluginDataCache;
 
   @Inject
-  ArtifactStore(DatasetFramework datasetFramework,
+  ArtifactStore(CConfiguration cConf,
+                DatasetFramework datasetFramework,
                 NamespacedLocationFactory namespacedLocationFactory,
                 LocationFactory locationFactory,
                 TransactionSystemClient txClient,
@@ -188,6 +204,16 @@ public class ArtifactStore {
       RetryStrategies.retryOnConflict(20, 100)
     );
     this.impersonator = impersonator;
+    // plugin data is immutable once serialized, hence the cache is keyed by the serialized form and
+    // never needs to be invalidated
+    this.pluginDataCache = CacheBuilder.newBuilder()
+      .maximumSize(cConf.getInt(Constants.AppFabric.ARTIFACT_PLUGIN_CACHE_SIZE))
+      .build(new CacheLoader<String, PluginData>() {
+        @Override
+        public PluginData load(String json) {
+          return GSON.fromJson(json, PluginData.class);
+        }
+      });
   }
 
   /**
@@ -614,10 +640,20 @@ public class ArtifactStore {
           @Override
           public SortedMap<ArtifactDescriptor, PluginClass> call(DatasetContext context) throws Exception {
             Table metaTable = getMetaTable(context);
-            List<ArtifactDetail> parentArtifactDetails = getArtifacts(metaTable, parentArtifactRange,
-                                                                      Integer.MAX_VALUE, null);
+            ArtifactKey parentKey = new ArtifactKey(parentArtifactRange.getNamespace(), parentArtifactRange.getName());
+            Row parentRow = metaTable.get(parentKey.getRowKey());
+
+            // only the versions are needed to resolve the parent artifacts, their metadata is not decoded
+            List<Id.Artifact> parentArtifacts = new ArrayList<>();
+            for (byte[] versionBytes : parentRow.getColumns().keySet()) {
+              ArtifactVersion version = new ArtifactVersion(Bytes.toString(versionBytes));
+              if (parentArtifactRange.versionIsInRange(version)) {
+                parentArtifacts.add(Id.Artifact.from(parentArtifactRange.getNamespace().toId(),
+                                                     parentArtifactRange.getName(), version));
+              }
+            }
 
-            if (parentArtifactDetails.isEmpty()) {
+            if (parentArtifacts.isEmpty()) {
               throw new ArtifactNotFoundException(parentArtifactRange.getNamespace(), parentArtifactRange.getName());
             }
 
@@ -625,20 +661,8 @@ public class ArtifactStore {
               new TreeMap<ArtifactDescriptor, PluginClass>(Collections.<ArtifactDescriptor>reverseOrder()) :
               new TreeMap<ArtifactDescriptor, PluginClass>();
 
-            List<Id.Artifact> parentArtifacts = new ArrayList<>();
-            for (ArtifactDetail parentArtifactDetail : parentArtifactDetails) {
-              Id.Artifact parentArtifactId =
-                Id.Artifact.from(namespace.toId(), parentArtifactDetail.getDescriptor().getArtifactId());
-              parentArtifacts.add(parentArtifactId);
-
-              Set<PluginClass> parentPlugins = parentArtifactDetail.getMeta().getClasses().getPlugins();
-              for (PluginClass pluginClass : parentPlugins) {
-                if (pluginClass.getName().equals(name) && pluginClass.getType().equals(type)) {
-                  plugins.put(parentArtifactDetail.getDescriptor(), pluginClass);
-                  break;
-                }
-              }
-            }
+            addParentPluginsToMap(metaTable, parentRow, parentArtifacts, type, name, plugins);
+
             PluginKey pluginKey = new PluginKey(parentArtifactRange.getNamespace().toId(),
                                                 parentArtifactRange.getName(), type, name);
             Row row = metaTable.get(pluginKey.getRowKey());
@@ -872,6 +896,13 @@ public class ArtifactStore {
             }
           }
 
+          // delete the plugin index of artifacts in this namespace
+          try (Scanner scanner = metaTable.scan(scanPluginIndex(namespace))) {
+            while ((row = scanner.next()) != null) {
+              metaTable.delete(row.getRow());
+            }
+          }
+
           // delete plugins in this namespace from system artifacts
           // for example, if there was an artifact in this namespace that extends a system artifact
           Scan systemPluginsScan = new Scan(
@@ -922,6 +953,20 @@ public class ArtifactStore {
       }
     }
 
+    // write the index of plugins contained in the artifact itself
+    NamespaceId namespace = artifactId.getNamespace().toEntityId();
+    byte[] versionColumn = artifactCell.column;
+    ArtifactRange selfRange = new ArtifactRange(namespace, artifactId.getName(),
+                                                artifactId.getVersion(), true, artifactId.getVersion(), true);
+    for (PluginClass pluginClass : classes.getPlugins()) {
+      PluginIndexKey indexKey = new PluginIndexKey(namespace, artifactId.getName(),
+                                                   pluginClass.getType(), pluginClass.getName());
+      byte[] pluginDataBytes = Bytes.toBytes(GSON.toJson(new PluginData(pluginClass, selfRange, artifactLocation)));
+      table.put(indexKey.getRowKey(), versionColumn, pluginDataBytes);
+    }
+    table.put(new PluginIndexKey(namespace, artifactId.getName()).getRowKey(), versionColumn,
+              Bytes.toBytes(classes.getPlugins().size()));
+
     // write appClass metadata
     for (ApplicationClass appClass : classes.getApps()) {
       // a:{namespace}:{classname}
@@ -950,6 +995,15 @@ public class ArtifactStore {
       }
     }
 
+    // delete the index of plugins contained in the artifact
+    NamespaceId namespace = artifactId.getNamespace().toEntityId();
+    for (PluginClass pluginClass : oldMeta.meta.getClasses().getPlugins()) {
+      PluginIndexKey indexKey = new PluginIndexKey(namespace, artifactId.getName(),
+                                                   pluginClass.getType(), pluginClass.getName());
+      table.delete(indexKey.getRowKey(), artifactCell.column);
+    }
+    table.delete(new PluginIndexKey(namespace, artifactId.getName()).getRowKey(), artifactCell.column);
+
     // delete old appclass metadata
     for (ApplicationClass appClass : oldMeta.meta.getClasses().getApps()) {
       AppClassKey appClassKey = new AppClassKey(artifactId.getNamespace().toEntityId(), appClass.getClassName());
@@ -1059,7 +1113,7 @@ public class ArtifactStore {
     if (!Id.Namespace.SYSTEM.equals(artifactNamespace) && !artifactNamespace.equals(namespace.toId())) {
       return null;
     }
-    PluginData pluginData = GSON.fromJson(Bytes.toString(column.getValue()), PluginData.class);
+    PluginData pluginData = decodePluginData(column.getValue());
 
     // filter out plugins that don't extend this version of the parent artifact
     if (pluginData.usableBy.versionIsInRange(parentArtifactId.getVersion())) {
@@ -1071,6 +1125,45 @@ public class ArtifactStore {
     return null;
   }
 
+  // adds the plugin of the given type and name contained in each of the given parent artifacts to the map.
+  // Versions covered by the plugin index are resolved from the index rows without decoding the artifact metadata.
+  private void addParentPluginsToMap(Table table, Row parentRow, List<Id.Artifact> parentArtifacts,
+                                     String type, String name, SortedMap<ArtifactDescriptor, PluginClass> plugins) {
+    ArtifactKey parentKey = ArtifactKey.parse(parentRow.getRow());
+    Row indexedVersions = table.get(new PluginIndexKey(parentKey.namespace, parentKey.name).getRowKey());
+    Row indexedPlugins = table.get(new PluginIndexKey(parentKey.namespace, parentKey.name, type, name).getRowKey());
+
+    for (Id.Artifact parentArtifactId : parentArtifacts) {
+      byte[] versionColumn = Bytes.toBytes(parentArtifactId.getVersion().getVersion());
+      if (indexedVersions.get(versionColumn) != null) {
+        byte[] pluginDataBytes = indexedPlugins.get(versionColumn);
+        if (pluginDataBytes != null) {
+          PluginData pluginData = decodePluginData(pluginDataBytes);
+          plugins.put(new ArtifactDescriptor(
+            parentArtifactId.toArtifactId(),
+            Locations.getLocationFromAbsolutePath(locationFactory, pluginData.getArtifactLocationPath())),
+                      pluginData.pluginClass);
+        }
+        continue;
+      }
+
+      // the artifact was written before the plugin index existed
+      ArtifactData parentData = GSON.fromJson(Bytes.toString(parentRow.get(versionColumn)), ArtifactData.class);
+      for (PluginClass pluginClass : parentData.meta.getClasses().getPlugins()) {
+        if (pluginClass.getName().equals(name) && pluginClass.getType().equals(type)) {
+          plugins.put(new ArtifactDescriptor(
+            parentArtifactId.toArtifactId(),
+            Locations.getLocationFromAbsolutePath(locationFactory, parentData.getLocationPath())), pluginClass);
+          break;
+        }
+      }
+    }
+  }
+
+  private PluginData decodePluginData(byte[] pluginDataBytes) {
+    return pluginDataCache.getUnchecked(Bytes.toString(pluginDataBytes));
+  }
+
   private void addPluginsInRangeToMap(final NamespaceId namespace, List<Id.Artifact> parentArtifacts,
                                       Map<byte[], byte[]> columns,
                                       SortedMap<ArtifactDescriptor, PluginClass> plugins,
@@ -1092,7 +1185,7 @@ public class ArtifactStore {
       if (!range.apply(artifactColumn.artifactId.toEntityId())) {
         continue;
       }
-      PluginData pluginData = GSON.fromJson(Bytes.toString(column.getValue()), PluginData.class);
+      PluginData pluginData = decodePluginData(column.getValue());
 
       // filter out plugins that don't extend this version of the parent artifact
       for (Id.Artifact parentArtifactId : parentArtifacts) {
@@ -1134,6 +1227,12 @@ public class ArtifactStore {
                                   parentArtifactId.getName(), type)));
   }
 
+  private Scan scanPluginIndex(NamespaceId namespace) {
+    return new Scan(
+      Bytes.toBytes(String.format("%s:%s:", PLUGIN_INDEX_PREFIX, namespace.getNamespace())),
+      Bytes.toBytes(String.format("%s:%s;", PLUGIN_INDEX_PREFIX, namespace.getNamespace())));
+  }
+
   private Scan scanAppClasses(NamespaceId namespace) {
     return new Scan(
       Bytes.toBytes(String.format("%s:%s:", APPCLASS_PREFIX, namespace.getNamespace())),
@@ -1174,6 +1273,34 @@ public class ArtifactStore {
     }
   }
 
+  // keys of the plugin index. Keys are of the form 'i:{namespace}:{artifact-name}' for the indexed versions of an
+  // artifact and 'i:{namespace}:{artifact-name}:{plugin-type}:{plugin-name}' for a plugin in the artifact
+  private static class PluginIndexKey {
+    private final NamespaceId namespace;
+    private final String artifactName;
+    private final String type;
+    private final String name;
+
+    private PluginIndexKey(NamespaceId namespace, String artifactName) {
+      this(namespace, artifactName, null, null);
+    }
+
+    private PluginIndexKey(NamespaceId namespace, String artifactName, @Nullable String type, @Nullable String name) {
+      this.namespace = namespace;
+      this.artifactName = artifactName;
+      this.type = type;
+      this.name = name;
+    }
+
+    private byte[] getRowKey() {
+      if (type == null) {
+        return Bytes.toBytes(Joiner.on(':').join(PLUGIN_INDEX_PREFIX, namespace.getNamespace(), artifactName));
+      }
+      return Bytes.toBytes(
+        Joiner.on(':').join(PLUGIN_INDEX_PREFIX, namespace.getNamespace(), artifactName, type, name));
+    }
+  }
+
   private static class ArtifactColumn {
     private final Id.Artifact artifactId;
 
@@ -82,6 +82,11 @@ import javax.annotation.Nullable;
 
 /**
  * {@link Scheduler} that triggers program executions based on data availability in streams.
+ *
+ * By default, the size of a stream is polled from the metrics system, periodically and after receiving a
+ * stream size notification. When {@link Constants.Notification.Stream#STREAM_SIZE_SCHEDULE_PUSH_ENABLED} is set,
+ * the stream services publish the size of a stream whenever it changes, and the size carried by the notifications
+ * is used directly, without polling the metrics system.
  */
 @Singleton
 public class StreamSizeScheduler implements Scheduler {
@@ -90,6 +95,7 @@ public class StreamSizeScheduler implements Scheduler {
   private static final int POLLING_AFTER_NOTIFICATION_RETRY = 3;
 
   private final long pollingDelay;
+  private final boolean pushMode;
   private final NotificationService notificationService;
   private final MetricStore metricStore;
   private final Provider<Store> storeProvider;
@@ -123,6 +129,7 @@ public class StreamSizeScheduler implements Scheduler {
                              NamespaceQueryAdmin namespaceQueryAdmin) {
     this.pollingDelay = TimeUnit.SECONDS.toMillis(
       cConf.getLong(Constants.Notification.Stream.STREAM_SIZE_SCHEDULE_POLLING_DELAY));
+    this.pushMode = cConf.getBoolean(Constants.Notification.Stream.STREAM_SIZE_SCHEDULE_PUSH_ENABLED);
     this.notificationService = notificationService;
     this.metricStore = metricStore;
     this.storeProvider = storeProvider;
@@ -200,7 +207,7 @@ public class StreamSizeScheduler implements Scheduler {
       }
 
       try {
-        StreamSize streamSize = streamSubscriber.pollOnce();
+        StreamSize streamSize = streamSubscriber.latestStreamSize();
         streamSubscriber.sendPollingInfoToActiveTasks(streamSize);
       } catch (IOException e) {
         // Failing to poll should not make this init fail
@@ -509,7 +516,8 @@ public class StreamSizeScheduler implements Scheduler {
 
     @Override
     protected void runOneIteration() throws Exception {
-      if (activeTasks.get() == 0) {
+      // In push mode, the stream size is only obtained from the notifications
+      if (pushMode || activeTasks.get() == 0) {
         return;
       }
 
@@ -546,6 +554,14 @@ public class StreamSizeScheduler implements Scheduler {
       }
 
       lastNotification = notification;
+      if (pushMode) {
+        StreamSize streamSize = updateStreamSize(new StreamSize(notification.getSize(), notification.getTimestamp()));
+        if (activeTasks.get() > 0) {
+          sendPollingInfoToActiveTasks(streamSize);
+        }
+        return;
+      }
+
       if (activeTasks.get() <= 0) {
         return;
       }
@@ -648,7 +664,7 @@ public class StreamSizeScheduler implements Scheduler {
         }
 
         try {
-          streamSize = pollOnce();
+          streamSize = latestStreamSize();
         } catch (IOException e) {
           // Polling should not fail when creating a schedule for the first time -
           // the whole logic of stream size schedules relies on it
@@ -745,7 +761,7 @@ public class StreamSizeScheduler implements Scheduler {
       activeTasks.incrementAndGet();
 
       try {
-        StreamSize streamSize = pollOnce();
+        StreamSize streamSize = latestStreamSize();
         sendPollingInfoToActiveTasks(streamSize);
       } catch (IOException e) {
         LOG.debug("Ignoring stream events size polling after resuming schedule {} due to error",
@@ -768,7 +784,7 @@ public class StreamSizeScheduler implements Scheduler {
       scheduleTask.updateSchedule(schedule);
 
       try {
-        StreamSize streamSize = pollOnce();
+        StreamSize streamSize = latestStreamSize();
         sendPollingInfoToActiveTasks(streamSize);
       } catch (IOException e) {
         LOG.debug("Ignoring stream events size polling after resuming schedule {} due to error",
@@ -815,11 +831,28 @@ public class StreamSizeScheduler implements Scheduler {
       return streamId;
     }
 
+    /**
+     * Get the latest known size of the stream. In push mode, the size carried by the last notification is used
+     * if one was received, otherwise the stream size is polled using metrics.
+     */
+    private synchronized StreamSize latestStreamSize() throws IOException {
+      if (pushMode && lastPollingInfo != null) {
+        return lastPollingInfo;
+      }
+      return pollOnce();
+    }
+
     /**
      * Poll the stream size using metrics.
      */
     private synchronized StreamSize pollOnce() throws IOException {
-      StreamSize streamSize = queryStreamEventsSize();
+      return updateStreamSize(queryStreamEventsSize());
+    }
+
+    /**
+     * Record the latest size of the stream, resetting the schedule tasks if the stream size decreased.
+     */
+    private synchronized StreamSize updateStreamSize(StreamSize streamSize) {
       if (lastPollingInfo != null && streamSize.getSize() < lastPollingInfo.getSize()) {
         delta = null;
         for (StreamSizeScheduleTask streamSizeScheduleTask : scheduleTasks.values()) {
@@ -32,8 +32,11 @@ import co.cask.cdap.proto.id.KerberosPrincipalId;
 import com.google.common.base.Function;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -157,6 +160,16 @@ public class NameMappedDatasetFramework extends ForwardingProgramContextAwareDat
                             arguments, classLoader, classLoaderProvider, owners, accessType);
   }
 
+  @Override
+  public void prefetchInstances(Collection<DatasetId> datasetInstanceIds,
+                                @Nullable Iterable<? extends EntityId> owners) throws DatasetManagementException {
+    List<DatasetId> mappedInstanceIds = new ArrayList<>(datasetInstanceIds.size());
+    for (DatasetId datasetInstanceId : datasetInstanceIds) {
+      mappedInstanceIds.add(getMappedDatasetInstance(datasetInstanceId));
+    }
+    super.prefetchInstances(mappedInstanceIds, owners);
+  }
+
   @Override
   public void writeLineage(DatasetId datasetInstanceId, AccessType accessType) {
     super.writeLineage(getMappedDatasetInstance(datasetInstanceId), accessType);
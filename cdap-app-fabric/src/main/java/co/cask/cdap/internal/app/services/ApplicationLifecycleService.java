@@ -76,6 +76,7 @@ import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.route.store.RouteStore;
+import co.cask.cdap.security.authorization.AuthorizationUtil;
 import co.cask.cdap.security.impersonation.Impersonator;
 import co.cask.cdap.security.impersonation.OwnerAdmin;
 import co.cask.cdap.security.impersonation.SecurityUtil;
@@ -83,12 +84,12 @@ import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.spi.authorization.PrivilegesManager;
 import co.cask.cdap.security.spi.authorization.UnauthorizedException;
+import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.util.concurrent.AbstractIdleService;
@@ -215,12 +216,9 @@ public class ApplicationLifecycleService extends AbstractIdleService {
     List<ApplicationRecord> appRecords = new ArrayList<>();
     Set<ApplicationId> appIds = new HashSet<>();
     for (ApplicationSpecification appSpec : store.getAllApplications(namespace)) {
-      appIds.add(namespace.app(appSpec.getName(), appSpec.getAppVersion()));
-    }
-
-    for (ApplicationId appId : appIds) {
-      ApplicationSpecification appSpec = store.getApplication(appId);
-      if (appSpec == null) {
+      ApplicationId appId = namespace.app(appSpec.getName(), appSpec.getAppVersion());
+      // skip duplicates, which are possible for the default version until the app version upgrade completes
+      if (!appIds.add(appId)) {
         continue;
       }
 
@@ -236,13 +234,12 @@ public class ApplicationLifecycleService extends AbstractIdleService {
     }
 
     Principal principal = authenticationContext.getPrincipal();
-    final Predicate<EntityId> filter = authorizationEnforcer.createFilter(principal);
-    return Lists.newArrayList(Iterables.filter(appRecords, new com.google.common.base.Predicate<ApplicationRecord>() {
+    return AuthorizationUtil.filterVisible(appRecords, new Function<ApplicationRecord, ApplicationId>() {
       @Override
-      public boolean apply(ApplicationRecord appRecord) {
-        return filter.apply(namespace.app(appRecord.getName()));
+      public ApplicationId apply(ApplicationRecord appRecord) {
+        return namespace.app(appRecord.getName());
       }
-    }));
+    }, authorizationEnforcer, principal);
   }
 
   /**
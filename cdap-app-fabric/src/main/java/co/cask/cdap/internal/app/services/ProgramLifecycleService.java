@@ -194,6 +194,52 @@ public class ProgramLifecycleService extends AbstractIdleService {
     return getExistingAppProgramStatus(appSpec, programId);
   }
 
+  /**
+   * Returns the status of the given programs. Unlike {@link #getProgramStatus(ProgramId)}, the specifications of
+   * the applications are provided by the caller, and the run records of programs that can run as part of a workflow
+   * are checked in a single store transaction for all programs.
+   *
+   * @param appSpecs specifications of the applications the programs belong to
+   * @param programIds ids of the programs for which the status is requested
+   * @return map from program id to its status. Programs whose application is not in the given specifications or
+   *         that do not exist in their application are not in the map.
+   */
+  public Map<ProgramId, ProgramStatus> getProgramStatuses(Map<ApplicationId, ApplicationSpecification> appSpecs,
+                                                         Collection<ProgramId> programIds) throws Exception {
+    Map<ProgramId, ProgramStatus> statuses = new HashMap<>();
+    List<ProgramId> workflowPrograms = new ArrayList<>();
+    for (ProgramId programId : programIds) {
+      ApplicationSpecification appSpec = appSpecs.get(programId.getParent());
+      if (appSpec == null) {
+        continue;
+      }
+      ProgramRuntimeService.RuntimeInfo runtimeInfo = findRuntimeInfo(programId);
+      if (runtimeInfo != null) {
+        statuses.put(programId, runtimeInfo.getController().getState().getProgramStatus());
+        continue;
+      }
+      if (programId.getType() == ProgramType.WEBAPP) {
+        throw new IllegalStateException("Webapp status is not supported");
+      }
+      if (getExistingAppProgramSpecification(appSpec, programId) == null) {
+        continue;
+      }
+      ensureAccess(programId);
+      statuses.put(programId, ProgramStatus.STOPPED);
+      if (programId.getType() == ProgramType.MAPREDUCE || programId.getType() == ProgramType.SPARK) {
+        workflowPrograms.add(programId);
+      }
+    }
+
+    // MapReduce and Spark programs can be running as a part of Workflow
+    if (!workflowPrograms.isEmpty()) {
+      for (ProgramId programId : store.getRunningPrograms(workflowPrograms)) {
+        statuses.put(programId, ProgramStatus.RUNNING);
+      }
+    }
+    return statuses;
+  }
+
   /**
    * Returns the program status with no need of application existence check.
    * @param appSpec the ApplicationSpecification of the existing application
@@ -61,6 +61,7 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.Type;
 import java.nio.BufferUnderflowException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -86,12 +87,20 @@ public class AppMetadataStore extends MetadataStoreDataset {
   private static final String TYPE_RUN_RECORD_STARTED = "runRecordStarted";
   private static final String TYPE_RUN_RECORD_SUSPENDED = "runRecordSuspended";
   private static final String TYPE_RUN_RECORD_COMPLETED = "runRecordCompleted";
+  // Secondary indexes over completed run records, keyed by status and by stop time respectively
+  private static final String TYPE_RUN_RECORD_STATUS = "runRecordStatus";
+  private static final String TYPE_RUN_RECORD_STOPPED = "runRecordStopped";
+  // Last completed run record key that the index upgrade has processed
+  private static final String TYPE_RUN_RECORD_INDEX_UPGRADE = "runRecordIndexUpgrade";
+  // Number of completed run records read at a time when deleting their stop time index rows
+  private static final int DELETE_STOPPED_INDEX_BATCH_SIZE = 1000;
   private static final String TYPE_WORKFLOW_NODE_STATE = "wns";
   private static final String TYPE_WORKFLOW_TOKEN = "wft";
   private static final String TYPE_NAMESPACE = "namespace";
 
   private final CConfiguration cConf;
   private final AtomicBoolean upgradeComplete;
+  private final ApplicationMetaCache appMetaCache;
 
   private static final Function<RunRecordMeta, RunId> RUN_RECORD_META_TO_RUN_ID_FUNCTION =
     new Function<RunRecordMeta, RunId>() {
@@ -102,9 +111,18 @@ public class AppMetadataStore extends MetadataStoreDataset {
     };
 
   public AppMetadataStore(Table table, CConfiguration cConf, AtomicBoolean upgradeComplete) {
+    this(table, cConf, upgradeComplete, null);
+  }
+
+  /**
+   * Creates an instance that reuses {@link ApplicationMeta} decoded by earlier transactions through the given cache.
+   */
+  AppMetadataStore(Table table, CConfiguration cConf, AtomicBoolean upgradeComplete,
+                   @Nullable ApplicationMetaCache appMetaCache) {
     super(table);
     this.cConf = cConf;
     this.upgradeComplete = upgradeComplete;
+    this.appMetaCache = appMetaCache;
   }
 
   @Override
@@ -117,6 +135,27 @@ public class AppMetadataStore extends MetadataStoreDataset {
     return GSON.fromJson(Bytes.toString(serialized), typeOfT);
   }
 
+  @Override
+  protected <T> T deserialize(MDSKey key, byte[] serialized, Type typeOfT) {
+    if (appMetaCache == null || !ApplicationMeta.class.equals(typeOfT)) {
+      return deserialize(serialized, typeOfT);
+    }
+    ApplicationMeta appMeta = appMetaCache.get(key, serialized);
+    if (appMeta == null) {
+      appMeta = deserialize(serialized, typeOfT);
+      appMetaCache.put(key, serialized, appMeta);
+    }
+    @SuppressWarnings("unchecked")
+    T result = (T) appMeta;
+    return result;
+  }
+
+  private void invalidateAppMeta(MDSKey key) {
+    if (appMetaCache != null) {
+      appMetaCache.invalidate(key);
+    }
+  }
+
   @Nullable
   public ApplicationMeta getApplication(String namespaceId, String appId, String versionId) {
     ApplicationMeta appMeta = getFirst(new MDSKey.Builder().add(TYPE_APP_META, namespaceId, appId, versionId).build(),
@@ -132,6 +171,45 @@ public class AppMetadataStore extends MetadataStoreDataset {
     return appMeta;
   }
 
+  /**
+   * Returns the {@link ApplicationMeta} of the given applications. All applications are read with a single scan
+   * over their sorted keys.
+   */
+  public Map<ApplicationId, ApplicationMeta> getApplications(Collection<ApplicationId> appIds) {
+    Map<ApplicationId, ApplicationMeta> result = new HashMap<>();
+    if (appIds.isEmpty()) {
+      return result;
+    }
+
+    Map<MDSKey, ApplicationId> keys = new HashMap<>();
+    for (ApplicationId appId : appIds) {
+      keys.put(new MDSKey.Builder().add(TYPE_APP_META, appId.getNamespace(), appId.getApplication(),
+                                        appId.getVersion()).build(), appId);
+    }
+    Map<MDSKey, ApplicationMeta> found = listKV(keys.keySet(), ApplicationMeta.class, Integer.MAX_VALUE);
+    for (Map.Entry<MDSKey, ApplicationMeta> entry : found.entrySet()) {
+      ApplicationId appId = keys.get(entry.getKey());
+      if (appId != null) {
+        result.put(appId, entry.getValue());
+      }
+    }
+
+    // Look up the remaining default version applications which might still be stored without the version
+    if (!upgradeComplete.get()) {
+      for (ApplicationId appId : appIds) {
+        if (!result.containsKey(appId) && appId.getVersion().equals(ApplicationId.DEFAULT_VERSION)) {
+          ApplicationMeta appMeta = get(new MDSKey.Builder().add(TYPE_APP_META, appId.getNamespace(),
+                                                                 appId.getApplication()).build(),
+                                        ApplicationMeta.class);
+          if (appMeta != null) {
+            result.put(appId, appMeta);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
   public List<ApplicationMeta> getAllApplications(String namespaceId) {
     return list(new MDSKey.Builder().add(TYPE_APP_META, namespaceId).build(), ApplicationMeta.class);
   }
@@ -142,8 +220,7 @@ public class AppMetadataStore extends MetadataStoreDataset {
 
   public List<ApplicationId> getAllAppVersionsAppIds(String namespaceId, String appId) {
     List<ApplicationId> appIds = new ArrayList<>();
-    for (MDSKey key : listKV(new MDSKey.Builder().add(TYPE_APP_META, namespaceId, appId).build(),
-                             ApplicationMeta.class).keySet()) {
+    for (MDSKey key : listKeys(new MDSKey.Builder().add(TYPE_APP_META, namespaceId, appId).build())) {
       MDSKey.Splitter splitter = key.split();
       splitter.skipBytes(); // skip recordType
       splitter.skipBytes(); // skip namespaceId
@@ -161,10 +238,12 @@ public class AppMetadataStore extends MetadataStoreDataset {
       // If app meta exists for the application without a version, delete that key.
       if (appMeta != null) {
         delete(mdsKey);
+        invalidateAppMeta(mdsKey);
       }
     }
-    write(new MDSKey.Builder().add(TYPE_APP_META, namespaceId, appId, versionId).build(),
-          new ApplicationMeta(appId, spec));
+    MDSKey key = new MDSKey.Builder().add(TYPE_APP_META, namespaceId, appId, versionId).build();
+    write(key, new ApplicationMeta(appId, spec));
+    invalidateAppMeta(key);
   }
 
   public void deleteApplication(String namespaceId, String appId, String versionId) {
@@ -174,13 +253,18 @@ public class AppMetadataStore extends MetadataStoreDataset {
       // If app meta exists for the application without a version, delete only that key.
       if (appMeta != null) {
         delete(mdsKey);
+        invalidateAppMeta(mdsKey);
       }
     }
-    deleteAll(new MDSKey.Builder().add(TYPE_APP_META, namespaceId, appId, versionId).build());
+    MDSKey key = new MDSKey.Builder().add(TYPE_APP_META, namespaceId, appId, versionId).build();
+    deleteAll(key);
+    invalidateAppMeta(key);
   }
 
   public void deleteApplications(String namespaceId) {
-    deleteAll(new MDSKey.Builder().add(TYPE_APP_META, namespaceId).build());
+    MDSKey key = new MDSKey.Builder().add(TYPE_APP_META, namespaceId).build();
+    deleteAll(key);
+    invalidateAppMeta(key);
   }
 
   // todo: do we need appId? may be use from appSpec?
@@ -209,8 +293,10 @@ public class AppMetadataStore extends MetadataStoreDataset {
     // Delete the old spec since the old spec has been replaced with this one.
     if (versionLessKey != null) {
       delete(versionLessKey);
+      invalidateAppMeta(versionLessKey);
     }
     write(key, updated);
+    invalidateAppMeta(key);
   }
 
   /**
@@ -410,7 +496,51 @@ public class AppMetadataStore extends MetadataStoreDataset {
     // Since the key contains the RunId/PID in addition to the programId, it is ok to deleteAll.
     deleteAll(key);
     key = builder.add(getInvertedTsKeyPart(started.getStartTs())).add(pid).build();
-    write(key, new RunRecordMeta(started, stopTs, runStatus));
+    RunRecordMeta completed = new RunRecordMeta(started, stopTs, runStatus);
+    write(key, completed);
+    writeRunRecordIndexes(programId, completed);
+  }
+
+  /**
+   * Writes the status and stop time index rows for a completed run record.
+   */
+  private void writeRunRecordIndexes(ProgramId programId, RunRecordMeta completed) {
+    write(getStatusIndexKey(programId, completed), completed);
+    write(getStoppedIndexKey(programId, completed), completed);
+  }
+
+  private void deleteRunRecordIndexes(ProgramId programId, RunRecordMeta completed) {
+    delete(getStatusIndexKey(programId, completed));
+    delete(getStoppedIndexKey(programId, completed));
+  }
+
+  /**
+   * Key format: runRecordStatus.namespace.app.version.type.program.status.invertedStartTs.runid
+   */
+  private MDSKey getStatusIndexKey(ProgramId programId, RunRecordMeta completed) {
+    return getProgramKeyBuilder(TYPE_RUN_RECORD_STATUS, programId)
+      .add(completed.getStatus().name())
+      .add(getInvertedTsKeyPart(completed.getStartTs()))
+      .add(completed.getPid())
+      .build();
+  }
+
+  /**
+   * Key format: runRecordStopped.stopTs.namespace.app.version.type.program.runid
+   */
+  private MDSKey getStoppedIndexKey(ProgramId programId, RunRecordMeta completed) {
+    // stop time is always set on completed run records
+    long stopTs = completed.getStopTs() == null ? 0L : completed.getStopTs();
+    return new MDSKey.Builder()
+      .add(TYPE_RUN_RECORD_STOPPED)
+      .add(stopTs)
+      .add(programId.getNamespace())
+      .add(programId.getApplication())
+      .add(programId.getVersion())
+      .add(programId.getType().name())
+      .add(programId.getProgram())
+      .add(completed.getPid())
+      .build();
   }
 
   public Map<ProgramRunId, RunRecordMeta> getRuns(ProgramRunStatus status, Predicate<RunRecordMeta> filter) {
@@ -623,6 +753,12 @@ public class AppMetadataStore extends MetadataStoreDataset {
   private Map<ProgramRunId, RunRecordMeta> getHistoricalRuns(@Nullable ProgramId programId, ProgramRunStatus status,
                                                              final long startTime, final long endTime, int limit,
                                                              @Nullable Predicate<RunRecordMeta> filter) {
+    // The status index is only complete once the upgrade has backfilled it for existing run records
+    if (programId != null && !status.equals(ProgramRunStatus.ALL) && upgradeComplete.get()) {
+      MDSKey key = getProgramKeyBuilder(TYPE_RUN_RECORD_STATUS, programId).add(getIndexedStatus(status).name()).build();
+      return getHistoricalRuns(key, ProgramRunStatus.ALL, startTime, endTime, limit, null, filter);
+    }
+
     if (programId == null || !programId.getVersion().equals(ApplicationId.DEFAULT_VERSION)) {
       MDSKey key = getProgramKeyBuilder(TYPE_RUN_RECORD_COMPLETED, programId).build();
       return getHistoricalRuns(key, status, startTime, endTime, limit, null, filter);
@@ -669,6 +805,17 @@ public class AppMetadataStore extends MetadataStoreDataset {
                                      andPredicate(getPredicate(ProgramController.State.ERROR), valueFilter)));
   }
 
+  /**
+   * Returns the status under which completed runs matching the given query status are indexed. This mirrors the
+   * filtering done on the full scan, where any status other than completed or killed selects failed runs.
+   */
+  private ProgramRunStatus getIndexedStatus(ProgramRunStatus status) {
+    if (status.equals(ProgramRunStatus.COMPLETED) || status.equals(ProgramRunStatus.KILLED)) {
+      return status;
+    }
+    return ProgramController.State.ERROR.getRunStatus();
+  }
+
   private Predicate<RunRecordMeta> getPredicate(final ProgramController.State state) {
     return new Predicate<RunRecordMeta>() {
       @Override
@@ -721,6 +868,9 @@ public class AppMetadataStore extends MetadataStoreDataset {
   }
 
   public void deleteProgramHistory(String namespaceId, String appId, String versionId) {
+    deleteStoppedIndex(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId, appId).build(),
+                       new AppVersionPredicate(versionId));
+    deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_STATUS, namespaceId, appId, versionId).build());
     if (!upgradeComplete.get() && versionId.equals(ApplicationId.DEFAULT_VERSION)) {
       Predicate<MDSKey> keyPredicate = new AppVersionPredicate(ApplicationId.DEFAULT_VERSION);
       deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_STARTED, namespaceId, appId).build(), keyPredicate);
@@ -734,11 +884,38 @@ public class AppMetadataStore extends MetadataStoreDataset {
   }
 
   public void deleteProgramHistory(String namespaceId) {
+    deleteStoppedIndex(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId).build(),
+                       Predicates.<MDSKey>alwaysTrue());
+    deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_STATUS, namespaceId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_STARTED, namespaceId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_SUSPENDED, namespaceId).build());
   }
 
+  /**
+   * Deletes the stop time index rows of the completed run records under the given prefix. Since the stop time index
+   * is ordered by time first, its rows cannot be removed with a prefix delete.
+   */
+  private void deleteStoppedIndex(MDSKey completedPrefix, Predicate<MDSKey> keyFilter) {
+    MDSKey startKey = completedPrefix;
+    MDSKey stopKey = new MDSKey(Bytes.stopKeyForPrefix(completedPrefix.getKey()));
+    while (true) {
+      Map<MDSKey, RunRecordMeta> completed = listKV(startKey, stopKey, RunRecordMeta.class,
+                                                    DELETE_STOPPED_INDEX_BATCH_SIZE, keyFilter,
+                                                    Predicates.<RunRecordMeta>alwaysTrue());
+      MDSKey lastKey = null;
+      for (Map.Entry<MDSKey, RunRecordMeta> entry : completed.entrySet()) {
+        delete(getStoppedIndexKey(getProgramID(entry.getKey()), entry.getValue()));
+        lastKey = entry.getKey();
+      }
+      if (completed.size() < DELETE_STOPPED_INDEX_BATCH_SIZE) {
+        return;
+      }
+      // key for next scan is the last key + 1 from the previous scan
+      startKey = new MDSKey(Bytes.stopKeyForPrefix(lastKey.getKey()));
+    }
+  }
+
   public void createNamespace(NamespaceMeta metadata) {
     write(getNamespaceKey(metadata.getName()), metadata);
   }
@@ -805,8 +982,17 @@ public class AppMetadataStore extends MetadataStoreDataset {
     LOG.trace("Scan timeout = {}ms", scanTimeoutMills);
 
     Set<RunId> runIds = new HashSet<>();
-    Iterables.addAll(runIds, getRunningInRangeForStatus(TYPE_RUN_RECORD_COMPLETED, startTimeInSecs, endTimeInSecs,
-                                                        scanTimeoutMills));
+    if (upgradeComplete.get()) {
+      // Only completed runs that stopped at or after the start time can overlap with the range
+      MDSKey startKey = new MDSKey.Builder().add(TYPE_RUN_RECORD_STOPPED).add(startTimeInSecs).build();
+      MDSKey endKey = new MDSKey(Bytes.stopKeyForPrefix(new MDSKey.Builder().add(TYPE_RUN_RECORD_STOPPED)
+                                                          .build().getKey()));
+      Iterables.addAll(runIds, Iterables.concat(getRunningInRange(startKey, endKey, startTimeInSecs, endTimeInSecs,
+                                                                  scanTimeoutMills, Ticker.systemTicker())));
+    } else {
+      Iterables.addAll(runIds, getRunningInRangeForStatus(TYPE_RUN_RECORD_COMPLETED, startTimeInSecs, endTimeInSecs,
+                                                          scanTimeoutMills));
+    }
     Iterables.addAll(runIds, getRunningInRangeForStatus(TYPE_RUN_RECORD_SUSPENDED, startTimeInSecs, endTimeInSecs,
                                                         scanTimeoutMills));
     Iterables.addAll(runIds, getRunningInRangeForStatus(TYPE_RUN_RECORD_STARTED, startTimeInSecs, endTimeInSecs,
@@ -847,6 +1033,13 @@ public class AppMetadataStore extends MetadataStoreDataset {
   @VisibleForTesting
   List<Iterable<RunId>> getRunningInRangeForStatus(String statusKey, final long startTimeInSecs,
                                                    final long endTimeInSecs, long maxScanTimeMillis, Ticker ticker) {
+    MDSKey startKey = new MDSKey.Builder().add(statusKey).build();
+    MDSKey endKey = new MDSKey(Bytes.stopKeyForPrefix(startKey.getKey()));
+    return getRunningInRange(startKey, endKey, startTimeInSecs, endTimeInSecs, maxScanTimeMillis, ticker);
+  }
+
+  private List<Iterable<RunId>> getRunningInRange(MDSKey startKey, MDSKey endKey, final long startTimeInSecs,
+                                                  final long endTimeInSecs, long maxScanTimeMillis, Ticker ticker) {
     // Create time filter to get running programs between start and end time
     Predicate<RunRecordMeta> timeFilter = new Predicate<RunRecordMeta>() {
       @Override
@@ -860,8 +1053,6 @@ public class AppMetadataStore extends MetadataStoreDataset {
 
     // Break up scans into smaller batches to prevent transaction timeout
     List<Iterable<RunId>> batches = new ArrayList<>();
-    MDSKey startKey = new MDSKey.Builder().add(statusKey).build();
-    MDSKey endKey = new MDSKey(Bytes.stopKeyForPrefix(startKey.getKey()));
     while (true) {
       ScanFunction scanFunction = new ScanFunction(timeFilter, ticker, maxScanTimeMillis);
       scanFunction.start();
@@ -882,12 +1073,49 @@ public class AppMetadataStore extends MetadataStoreDataset {
    */
   boolean upgradeVersionKeys(int maxRows) {
     boolean upgradeDone = upgradeVersionKeys(TYPE_APP_META, ApplicationMeta.class, maxRows);
-    upgradeDone &= upgradeVersionKeys(TYPE_RUN_RECORD_COMPLETED, RunRecordMeta.class, maxRows);
+    boolean completedUpgraded = upgradeVersionKeys(TYPE_RUN_RECORD_COMPLETED, RunRecordMeta.class, maxRows);
+    upgradeDone &= completedUpgraded;
     upgradeDone &= upgradeVersionKeys(TYPE_WORKFLOW_NODE_STATE, WorkflowNodeStateDetail.class, maxRows);
     upgradeDone &= upgradeVersionKeys(TYPE_WORKFLOW_TOKEN, BasicWorkflowToken.class, maxRows);
+    // The index upgrade resumes from the last key it processed, hence it only starts once the completed run record
+    // keys no longer change, otherwise upgraded keys could be inserted before that key and never be indexed.
+    upgradeDone &= completedUpgraded && upgradeRunRecordIndexes(maxRows);
     return upgradeDone;
   }
 
+  /**
+   * Backfills the status and stop time indexes for completed run records written before the indexes existed.
+   * Each call scans at most {@code maxRows} completed run records, starting after the last key processed by the
+   * previous call, which is recorded in the table.
+   *
+   * @param maxRows maximum number of run records to be scanned in this call.
+   * @return true if all completed run records have been indexed
+   */
+  private boolean upgradeRunRecordIndexes(int maxRows) {
+    LOG.info("Upgrading {} indexes", TYPE_RUN_RECORD_COMPLETED);
+    MDSKey checkpointKey = new MDSKey.Builder().add(TYPE_RUN_RECORD_INDEX_UPGRADE).build();
+    MDSKey prefix = new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED).build();
+    String checkpoint = get(checkpointKey, String.class);
+    MDSKey startKey = checkpoint == null
+      ? prefix : new MDSKey(Bytes.stopKeyForPrefix(Bytes.fromHexString(checkpoint)));
+    MDSKey stopKey = new MDSKey(Bytes.stopKeyForPrefix(prefix.getKey()));
+
+    Map<MDSKey, RunRecordMeta> completed = listKV(startKey, stopKey, RunRecordMeta.class, maxRows,
+                                                  Predicates.<RunRecordMeta>alwaysTrue());
+    MDSKey lastKey = null;
+    for (Map.Entry<MDSKey, RunRecordMeta> entry : completed.entrySet()) {
+      ProgramId programId = getProgramID(entry.getKey());
+      if (get(getStatusIndexKey(programId, entry.getValue()), RunRecordMeta.class) == null) {
+        writeRunRecordIndexes(programId, entry.getValue());
+      }
+      lastKey = entry.getKey();
+    }
+    if (lastKey != null) {
+      write(checkpointKey, Bytes.toHexString(lastKey.getKey()));
+    }
+    return completed.size() < maxRows;
+  }
+
   /**
    * Upgrades the rowkeys for the given record type.
    *
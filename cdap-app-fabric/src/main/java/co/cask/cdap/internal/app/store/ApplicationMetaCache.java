@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.store;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.data2.dataset2.lib.table.MDSKey;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.Iterator;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded cache of {@link ApplicationMeta} decoded from the app metadata table, keyed by row key.
+ * Each entry is versioned by a hash of the serialized value it was decoded from, so a row that was
+ * rewritten by another process or transaction is always decoded again instead of being served stale.
+ */
+final class ApplicationMetaCache {
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private final Cache<MDSKey, VersionedMeta> cache;
+
+  ApplicationMetaCache(int maxSize) {
+    this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+  }
+
+  /**
+   * Returns the cached {@link ApplicationMeta} for the given row if it was decoded from the same serialized value,
+   * or {@code null} otherwise.
+   */
+  @Nullable
+  ApplicationMeta get(MDSKey key, byte[] serialized) {
+    VersionedMeta entry = cache.getIfPresent(key);
+    if (entry == null || !entry.version.equals(HASH_FUNCTION.hashBytes(serialized))) {
+      return null;
+    }
+    return entry.meta;
+  }
+
+  void put(MDSKey key, byte[] serialized, ApplicationMeta meta) {
+    cache.put(key, new VersionedMeta(HASH_FUNCTION.hashBytes(serialized), meta));
+  }
+
+  /**
+   * Removes all entries for rows having the given key as prefix.
+   */
+  void invalidate(MDSKey prefix) {
+    byte[] prefixBytes = prefix.getKey();
+    Iterator<MDSKey> iterator = cache.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      byte[] key = iterator.next().getKey();
+      if (Bytes.startsWith(key, prefixBytes)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private static final class VersionedMeta {
+    private final HashCode version;
+    private final ApplicationMeta meta;
+
+    VersionedMeta(HashCode version, ApplicationMeta meta) {
+      this.version = version;
+      this.meta = meta;
+    }
+  }
+}
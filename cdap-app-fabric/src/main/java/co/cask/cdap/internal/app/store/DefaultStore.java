@@ -93,6 +93,8 @@ import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -123,6 +125,7 @@ public class DefaultStore implements Store {
   private final Transactional transactional;
   private final AtomicBoolean upgradeComplete;
   private final LoadingCache<byte[], Boolean> upgradeCacheLoader;
+  private final ApplicationMetaCache appMetaCache;
 
   @Inject
   public DefaultStore(CConfiguration conf, DatasetFramework framework, TransactionSystemClient txClient) {
@@ -139,6 +142,7 @@ public class DefaultStore implements Store {
     this.upgradeCacheLoader = CacheBuilder.newBuilder()
       .expireAfterWrite(1, TimeUnit.MINUTES)
       .build(new DefaultStoreUpgradeCacheLoader(transactional, dsFramework, configuration, upgradeComplete));
+    this.appMetaCache = new ApplicationMetaCache(conf.getInt(Constants.AppFabric.APP_SPEC_CACHE_SIZE));
   }
 
   // Returns true if the upgrade flag is set. Upgrade could have completed earlier than this since this flag is
@@ -161,7 +165,7 @@ public class DefaultStore implements Store {
                                                                                      DatasetManagementException {
     Table table = DatasetsUtil.getOrCreateDataset(datasetContext, dsFramework, APP_META_INSTANCE_ID,
                                                   Table.class.getName(), DatasetProperties.EMPTY);
-    return new AppMetadataStore(table, configuration, upgradeComplete);
+    return new AppMetadataStore(table, configuration, upgradeComplete, appMetaCache);
   }
 
   private WorkflowDataset getWorkflowDataset(DatasetContext datasetContext) throws IOException,
@@ -428,6 +432,23 @@ public class DefaultStore implements Store {
     });
   }
 
+  @Override
+  public Set<ProgramId> getRunningPrograms(final Collection<ProgramId> ids) {
+    return Transactions.executeUnchecked(transactional, new TxCallable<Set<ProgramId>>() {
+      @Override
+      public Set<ProgramId> call(DatasetContext context) throws Exception {
+        AppMetadataStore metaStore = getAppMetadataStore(context);
+        Set<ProgramId> running = new HashSet<>();
+        for (ProgramId id : ids) {
+          if (!metaStore.getRuns(id, ProgramRunStatus.RUNNING, 0L, Long.MAX_VALUE, 1, null).isEmpty()) {
+            running.add(id);
+          }
+        }
+        return running;
+      }
+    });
+  }
+
   @Override
   public Map<ProgramRunId, RunRecordMeta> getRuns(final Set<ProgramRunId> programRunIds) {
     return Transactions.executeUnchecked(transactional, new TxCallable<Map<ProgramRunId, RunRecordMeta>>() {
@@ -721,6 +742,21 @@ public class DefaultStore implements Store {
     });
   }
 
+  @Override
+  public Map<ApplicationId, ApplicationSpecification> getApplications(final Collection<ApplicationId> ids) {
+    return Transactions.executeUnchecked(transactional, new TxCallable<Map<ApplicationId, ApplicationSpecification>>() {
+      @Override
+      public Map<ApplicationId, ApplicationSpecification> call(DatasetContext context) throws Exception {
+        Map<ApplicationId, ApplicationSpecification> specs = new HashMap<>();
+        for (Map.Entry<ApplicationId, ApplicationMeta> entry
+          : getAppMetadataStore(context).getApplications(ids).entrySet()) {
+          specs.put(entry.getKey(), entry.getValue().getSpec());
+        }
+        return specs;
+      }
+    });
+  }
+
   @Override
   public Collection<ApplicationSpecification> getAllApplications(final NamespaceId id) {
     return Transactions.executeUnchecked(transactional, new TxCallable<Collection<ApplicationSpecification>>() {
@@ -16,7 +16,6 @@
 
 package co.cask.cdap.metadata;
 
-import co.cask.cdap.api.Predicate;
 import co.cask.cdap.common.InvalidMetadataException;
 import co.cask.cdap.common.NotFoundException;
 import co.cask.cdap.common.conf.CConfiguration;
@@ -27,18 +26,18 @@ import co.cask.cdap.data2.metadata.dataset.SortInfo;
 import co.cask.cdap.data2.metadata.store.MetadataStore;
 import co.cask.cdap.proto.EntityScope;
 import co.cask.cdap.proto.element.EntityTypeSimpleName;
-import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.NamespacedEntityId;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
 import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
 import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.authorization.AuthorizationUtil;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import com.google.common.base.CharMatcher;
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 
 import java.util.Map;
@@ -61,6 +60,14 @@ public class DefaultMetadataAdmin implements MetadataAdmin {
     .or(CharMatcher.is('-'))
     .or(CharMatcher.WHITESPACE);
 
+  private static final Function<MetadataSearchResultRecord, NamespacedEntityId> SEARCH_RESULT_TO_ENTITY_ID =
+    new Function<MetadataSearchResultRecord, NamespacedEntityId>() {
+      @Override
+      public NamespacedEntityId apply(MetadataSearchResultRecord metadataSearchResultRecord) {
+        return metadataSearchResultRecord.getEntityId();
+      }
+    };
+
   private final MetadataStore metadataStore;
   private final CConfiguration cConf;
   private final EntityExistenceVerifier entityExistenceVerifier;
@@ -184,16 +191,11 @@ public class DefaultMetadataAdmin implements MetadataAdmin {
   private MetadataSearchResponse filterAuthorizedSearchResult(MetadataSearchResponse results)
     throws Exception {
     Principal principal = authenticationContext.getPrincipal();
-    final Predicate<EntityId> filter = authorizationEnforcer.createFilter(principal);
     return new MetadataSearchResponse(
       results.getSort(), results.getOffset(), results.getLimit(), results.getNumCursors(), results.getTotal(),
       ImmutableSet.copyOf(
-        Iterables.filter(results.getResults(), new com.google.common.base.Predicate<MetadataSearchResultRecord>() {
-          @Override
-          public boolean apply(MetadataSearchResultRecord metadataSearchResultRecord) {
-            return filter.apply(metadataSearchResultRecord.getEntityId());
-          }
-        })
+        AuthorizationUtil.filterVisible(results.getResults(), SEARCH_RESULT_TO_ENTITY_ID,
+                                        authorizationEnforcer, principal)
       ),
       results.getCursors(), results.isShowHidden(), results.getEntityScope());
   }
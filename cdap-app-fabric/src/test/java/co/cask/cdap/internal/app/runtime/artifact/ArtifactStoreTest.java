@@ -324,6 +324,46 @@ public class ArtifactStoreTest {
     }
   }
 
+  @Test
+  public void testParentPluginIndex() throws Exception {
+    PluginClass plugin1 = new PluginClass("atype", "plugin1", "", "c.c.c.plugin1", "cfg",
+      ImmutableMap.<String, PluginPropertyField>of());
+    PluginClass plugin2 = new PluginClass("atype", "plugin2", "", "c.c.c.plugin2", "cfg",
+      ImmutableMap.<String, PluginPropertyField>of());
+
+    // write a parent snapshot artifact that contains plugin1
+    Id.Artifact parentId = Id.Artifact.from(Id.Namespace.DEFAULT, "parent", "1.0.0-SNAPSHOT");
+    writeArtifact(parentId, new ArtifactMeta(ArtifactClasses.builder().addPlugin(plugin1).build()), "content");
+    ArtifactDetail detail = artifactStore.getArtifact(parentId);
+    Assert.assertEquals(ImmutableMap.of(detail.getDescriptor(), plugin1),
+      artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, plugin1.getType(), plugin1.getName(),
+                                     null, Integer.MAX_VALUE, ArtifactSortOrder.UNORDERED));
+
+    // overwrite the snapshot so that it only contains plugin2
+    writeArtifact(parentId, new ArtifactMeta(ArtifactClasses.builder().addPlugin(plugin2).build()), "content2");
+    detail = artifactStore.getArtifact(parentId);
+    Assert.assertEquals(ImmutableMap.of(detail.getDescriptor(), plugin2),
+      artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, plugin2.getType(), plugin2.getName(),
+                                     null, Integer.MAX_VALUE, ArtifactSortOrder.UNORDERED));
+    try {
+      artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, plugin1.getType(), plugin1.getName(),
+                                     null, Integer.MAX_VALUE, ArtifactSortOrder.UNORDERED);
+      Assert.fail();
+    } catch (PluginNotExistsException e) {
+      // expected
+    }
+
+    // after deletion, the parent artifact should not be found anymore
+    artifactStore.delete(parentId);
+    try {
+      artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, plugin2.getType(), plugin2.getName(),
+                                     null, Integer.MAX_VALUE, ArtifactSortOrder.UNORDERED);
+      Assert.fail();
+    } catch (ArtifactNotFoundException e) {
+      // expected
+    }
+  }
+
   @Test
   public void testNamespaceIsolation() throws Exception {
     Id.Namespace namespace1 = Id.Namespace.from("ns1");
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.schedule;
+
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.stream.notification.StreamSizeNotification;
+import co.cask.cdap.notifications.service.NotificationService;
+import co.cask.cdap.proto.Id;
+import co.cask.cdap.proto.id.NotificationFeedId;
+import co.cask.cdap.test.XSlowTests;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the {@link StreamSizeScheduler} relying only on the stream sizes pushed through notifications.
+ */
+@Category(XSlowTests.class)
+public class StreamSizeSchedulerPushTest extends SchedulerTestBase {
+
+  private static NotificationService notificationService;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    CCONF.setBoolean(Constants.Notification.Stream.STREAM_SIZE_SCHEDULE_PUSH_ENABLED, true);
+    SchedulerTestBase.init();
+    notificationService = injector.getInstance(NotificationService.class);
+  }
+
+  @AfterClass
+  public static void resetPushMode() {
+    CCONF.setBoolean(Constants.Notification.Stream.STREAM_SIZE_SCHEDULE_PUSH_ENABLED, false);
+  }
+
+  @Override
+  protected StreamMetricsPublisher createMetricsPublisher(final Id.Stream streamId) {
+    final NotificationFeedId feed = new NotificationFeedId(
+      streamId.getNamespaceId(),
+      Constants.Notification.Stream.STREAM_FEED_CATEGORY,
+      streamId.getId() + "Size");
+
+    // No metrics are emitted, the scheduler should only rely on the size carried by the notifications
+    return new StreamMetricsPublisher() {
+
+      long totalSize;
+
+      @Override
+      public void increment(long size) throws Exception {
+        totalSize += size;
+        notificationService.publish(feed, new StreamSizeNotification(System.currentTimeMillis(), totalSize));
+      }
+    };
+  }
+}
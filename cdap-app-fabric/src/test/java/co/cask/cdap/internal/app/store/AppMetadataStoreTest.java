@@ -16,13 +16,21 @@
 
 package co.cask.cdap.internal.app.store;
 
+import co.cask.cdap.AllProgramsApp;
+import co.cask.cdap.WordCountApp;
+import co.cask.cdap.api.app.ApplicationSpecification;
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetProperties;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.common.app.RunIds;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.data2.dataset2.lib.table.MDSKey;
 import co.cask.cdap.data2.transaction.TransactionExecutorFactory;
 import co.cask.cdap.internal.AppFabricTestHelper;
+import co.cask.cdap.internal.app.deploy.Specifications;
 import co.cask.cdap.proto.ProgramRunStatus;
 import co.cask.cdap.proto.ProgramType;
 import co.cask.cdap.proto.id.ApplicationId;
@@ -44,6 +52,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +60,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Test AppMetadataStore.
@@ -287,6 +297,269 @@ public class AppMetadataStoreTest {
     });
   }
 
+  @Test
+  public void testRunRecordIndexes() throws Exception {
+    DatasetId storeTable = NamespaceId.DEFAULT.dataset("testRunRecordIndexes");
+    datasetFramework.addInstance(Table.class.getName(), storeTable, DatasetProperties.EMPTY);
+
+    Table table = datasetFramework.getDataset(storeTable, ImmutableMap.<String, String>of(), null);
+    Assert.assertNotNull(table);
+    final AtomicBoolean upgradeComplete = new AtomicBoolean(false);
+    final AppMetadataStore metadataStoreDataset = new AppMetadataStore(table, cConf, upgradeComplete);
+    TransactionExecutor txnl = txExecutorFactory.createExecutor(
+      Collections.singleton((TransactionAware) metadataStoreDataset));
+
+    final ProgramId program = NamespaceId.DEFAULT.app("app").program(ProgramType.WORKFLOW, "program");
+    final ProgramRunStatus[] stopStatuses = {
+      ProgramRunStatus.COMPLETED, ProgramRunStatus.KILLED, ProgramRunStatus.FAILED
+    };
+    for (int i = 0; i < 30; ++i) {
+      final RunId runId = RunIds.generate((i + 1) * 10000);
+      final ProgramRunStatus status = stopStatuses[i % stopStatuses.length];
+      txnl.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          long startTs = RunIds.getTime(runId, TimeUnit.SECONDS);
+          metadataStoreDataset.recordProgramStart(program, runId.getId(), startTs, null, null, null);
+          metadataStoreDataset.recordProgramStop(program, runId.getId(), startTs + 5, status, null);
+        }
+      });
+    }
+
+    // Collect the results using full scans, before the indexes are used
+    final Map<ProgramRunStatus, Set<ProgramRunId>> expected = new HashMap<>();
+    final Set<RunId> expectedInRange = new HashSet<>();
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (ProgramRunStatus status : stopStatuses) {
+          Map<ProgramRunId, RunRecordMeta> runs = metadataStoreDataset.getRuns(program, status, 0, Long.MAX_VALUE,
+                                                                               Integer.MAX_VALUE, null);
+          Assert.assertEquals(10, runs.size());
+          expected.put(status, runs.keySet());
+        }
+        expectedInRange.addAll(metadataStoreDataset.getRunningInRange(100, 200));
+      }
+    });
+    Assert.assertFalse(expectedInRange.isEmpty());
+
+    // Indexes are already present for new records, so the upgrade should have nothing to do
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        Assert.assertTrue(metadataStoreDataset.upgradeVersionKeys(Integer.MAX_VALUE));
+      }
+    });
+    upgradeComplete.set(true);
+
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (ProgramRunStatus status : stopStatuses) {
+          Map<ProgramRunId, RunRecordMeta> runs = metadataStoreDataset.getRuns(program, status, 0, Long.MAX_VALUE,
+                                                                               Integer.MAX_VALUE, null);
+          Assert.assertEquals(expected.get(status), runs.keySet());
+          for (RunRecordMeta meta : runs.values()) {
+            Assert.assertEquals(status, meta.getStatus());
+          }
+        }
+        // Limit and time range are honored on the index scan
+        Assert.assertEquals(2, metadataStoreDataset.getRuns(program, ProgramRunStatus.COMPLETED, 0, Long.MAX_VALUE,
+                                                            2, null).size());
+        Assert.assertEquals(expectedInRange, metadataStoreDataset.getRunningInRange(100, 200));
+      }
+    });
+
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        metadataStoreDataset.deleteProgramHistory(program.getNamespace(), program.getApplication(),
+                                                  program.getVersion());
+      }
+    });
+
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (ProgramRunStatus status : stopStatuses) {
+          Assert.assertTrue(metadataStoreDataset.getRuns(program, status, 0, Long.MAX_VALUE,
+                                                         Integer.MAX_VALUE, null).isEmpty());
+        }
+        Assert.assertTrue(metadataStoreDataset.getRunningInRange(0, Long.MAX_VALUE).isEmpty());
+      }
+    });
+  }
+
+  @Test
+  public void testUpgradeRunRecordIndexes() throws Exception {
+    DatasetId storeTable = NamespaceId.DEFAULT.dataset("testUpgradeRunRecordIndexes");
+    datasetFramework.addInstance(Table.class.getName(), storeTable, DatasetProperties.EMPTY);
+
+    final Table table = datasetFramework.getDataset(storeTable, ImmutableMap.<String, String>of(), null);
+    Assert.assertNotNull(table);
+    final AtomicBoolean upgradeComplete = new AtomicBoolean(false);
+    final AppMetadataStore metadataStoreDataset = new AppMetadataStore(table, cConf, upgradeComplete);
+    TransactionExecutor txnl = txExecutorFactory.createExecutor(
+      Collections.singleton((TransactionAware) metadataStoreDataset));
+
+    final ProgramId program = NamespaceId.DEFAULT.app("app").program(ProgramType.WORKFLOW, "program");
+    final ProgramRunStatus[] stopStatuses = {
+      ProgramRunStatus.COMPLETED, ProgramRunStatus.KILLED, ProgramRunStatus.FAILED
+    };
+    // Write completed run records in both the current and the old key format
+    for (int i = 0; i < 30; ++i) {
+      final RunId runId = RunIds.generate((i + 1) * 10000);
+      final ProgramRunStatus status = stopStatuses[i % stopStatuses.length];
+      final boolean oldFormat = i % 2 == 0;
+      txnl.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          long startTs = RunIds.getTime(runId, TimeUnit.SECONDS);
+          if (oldFormat) {
+            metadataStoreDataset.recordProgramStartOldFormat(program, runId.getId(), startTs, null, null, null);
+            metadataStoreDataset.recordProgramStopOldFormat(program, runId.getId(), startTs + 5, status, null);
+          } else {
+            metadataStoreDataset.recordProgramStart(program, runId.getId(), startTs, null, null, null);
+            metadataStoreDataset.recordProgramStop(program, runId.getId(), startTs + 5, status, null);
+          }
+        }
+      });
+    }
+
+    // Remove the index rows, as for run records written before the indexes existed
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (String indexType : new String[] { "runRecordStatus", "runRecordStopped" }) {
+          byte[] prefix = new MDSKey.Builder().add(indexType).build().getKey();
+          try (Scanner scanner = table.scan(prefix, Bytes.stopKeyForPrefix(prefix))) {
+            Row row;
+            while ((row = scanner.next()) != null) {
+              table.delete(row.getRow());
+            }
+          }
+        }
+      }
+    });
+
+    // Collect the results using full scans, before the indexes are used
+    final Map<ProgramRunStatus, Set<ProgramRunId>> expected = new HashMap<>();
+    final Set<RunId> expectedInRange = new HashSet<>();
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (ProgramRunStatus status : stopStatuses) {
+          Map<ProgramRunId, RunRecordMeta> runs = metadataStoreDataset.getRuns(program, status, 0, Long.MAX_VALUE,
+                                                                               Integer.MAX_VALUE, null);
+          Assert.assertEquals(10, runs.size());
+          expected.put(status, runs.keySet());
+        }
+        expectedInRange.addAll(metadataStoreDataset.getRunningInRange(100, 200));
+      }
+    });
+    Assert.assertFalse(expectedInRange.isEmpty());
+
+    // Upgrade in several passes, each in its own transaction
+    final AtomicBoolean done = new AtomicBoolean(false);
+    int passes = 0;
+    while (!done.get()) {
+      Assert.assertTrue("Upgrade did not complete", ++passes <= 30);
+      txnl.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          done.set(metadataStoreDataset.upgradeVersionKeys(7));
+        }
+      });
+    }
+    Assert.assertTrue(passes > 2);
+    upgradeComplete.set(true);
+
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (ProgramRunStatus status : stopStatuses) {
+          Map<ProgramRunId, RunRecordMeta> runs = metadataStoreDataset.getRuns(program, status, 0, Long.MAX_VALUE,
+                                                                               Integer.MAX_VALUE, null);
+          Assert.assertEquals(expected.get(status), runs.keySet());
+        }
+        Assert.assertEquals(expectedInRange, metadataStoreDataset.getRunningInRange(100, 200));
+        // Nothing is left to be upgraded
+        Assert.assertTrue(metadataStoreDataset.upgradeVersionKeys(7));
+      }
+    });
+  }
+
+  @Test
+  public void testApplicationMetaCache() throws Exception {
+    DatasetId storeTable = NamespaceId.DEFAULT.dataset("testApplicationMetaCache");
+    datasetFramework.addInstance(Table.class.getName(), storeTable, DatasetProperties.EMPTY);
+
+    Table table = datasetFramework.getDataset(storeTable, ImmutableMap.<String, String>of(), null);
+    Assert.assertNotNull(table);
+    final AppMetadataStore cachedStore = new AppMetadataStore(table, cConf, new AtomicBoolean(true),
+                                                              new ApplicationMetaCache(10));
+    final AppMetadataStore otherStore = new AppMetadataStore(table, cConf, new AtomicBoolean(true));
+    TransactionExecutor txnl = txExecutorFactory.createExecutor(
+      Collections.singleton((TransactionAware) cachedStore));
+    TransactionExecutor otherTxnl = txExecutorFactory.createExecutor(
+      Collections.singleton((TransactionAware) otherStore));
+
+    final ApplicationId appId = NamespaceId.DEFAULT.app("WordCountApp");
+    final ApplicationSpecification spec = Specifications.from(new WordCountApp());
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        cachedStore.writeApplication(appId.getNamespace(), appId.getApplication(), appId.getVersion(), spec);
+      }
+    });
+
+    // Repeated reads of an unchanged row return the same decoded instance
+    final AtomicReference<ApplicationMeta> first = new AtomicReference<>();
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        first.set(cachedStore.getApplication(appId.getNamespace(), appId.getApplication(), appId.getVersion()));
+        Assert.assertNotNull(first.get());
+        Assert.assertSame(first.get(), cachedStore.getAllApplications(appId.getNamespace()).get(0));
+      }
+    });
+
+    // A change made without going through the cache is still observed since the cached entry is versioned
+    final ApplicationSpecification updatedSpec = Specifications.from(new AllProgramsApp());
+    otherTxnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        otherStore.updateAppSpec(appId.getNamespace(), appId.getApplication(), appId.getVersion(), updatedSpec);
+      }
+    });
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        ApplicationMeta meta = cachedStore.getApplication(appId.getNamespace(), appId.getApplication(),
+                                                          appId.getVersion());
+        Assert.assertNotNull(meta);
+        Assert.assertNotSame(first.get(), meta);
+        Assert.assertEquals(updatedSpec.getName(), meta.getSpec().getName());
+        Assert.assertEquals(Collections.singletonList(appId),
+                            cachedStore.getAllAppVersionsAppIds(appId.getNamespace(), appId.getApplication()));
+      }
+    });
+
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        cachedStore.deleteApplication(appId.getNamespace(), appId.getApplication(), appId.getVersion());
+      }
+    });
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        Assert.assertNull(cachedStore.getApplication(appId.getNamespace(), appId.getApplication(),
+                                                     appId.getVersion()));
+      }
+    });
+  }
+
   private static class CountingTicker extends Ticker {
     private final long elementsPerMillis;
     private int numProcessed = 0;
@@ -72,6 +72,7 @@ import co.cask.cdap.proto.id.ProgramRunId;
 import co.cask.cdap.proto.id.ScheduleId;
 import co.cask.cdap.store.DefaultNamespaceStore;
 import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
@@ -436,6 +437,30 @@ public class DefaultStoreTest {
     assertWordCountAppSpecAndInMetadataStore(stored);
   }
 
+  @Test
+  public void testBatchReads() throws Exception {
+    ApplicationId wordCountId = new ApplicationId("account1", "application1");
+    ApplicationId fooId = new ApplicationId("account1", "application2");
+    ApplicationId missingId = new ApplicationId("account1", "application3");
+    store.addApplication(wordCountId, Specifications.from(new WordCountApp()));
+    store.addApplication(fooId, Specifications.from(new FooApp()));
+
+    Map<ApplicationId, ApplicationSpecification> specs =
+      store.getApplications(ImmutableList.of(wordCountId, fooId, missingId));
+    Assert.assertEquals(ImmutableSet.of(wordCountId, fooId), specs.keySet());
+    Assert.assertEquals("WordCountApp", specs.get(wordCountId).getName());
+    Assert.assertEquals("FooApp", specs.get(fooId).getName());
+
+    ProgramId running = fooId.flow("flow1");
+    ProgramId stopped = wordCountId.flow("WordCountFlow");
+    RunId runId = RunIds.generate();
+    store.setStart(running, runId.getId(), runIdToSecs(runId));
+    Assert.assertEquals(ImmutableSet.of(running), store.getRunningPrograms(ImmutableList.of(running, stopped)));
+
+    store.setStop(running, runId.getId(), runIdToSecs(runId) + 1, ProgramRunStatus.COMPLETED);
+    Assert.assertTrue(store.getRunningPrograms(ImmutableList.of(running, stopped)).isEmpty());
+  }
+
   @Test
   public void testUpdateChangedApplication() throws Exception {
     ApplicationId id = new ApplicationId("account1", "application1");
@@ -161,6 +161,8 @@ public final class Constants {
     public static final String MAPREDUCE_INCLUDE_CUSTOM_CLASSES = "mapreduce.include.custom.format.classes";
     public static final String PROGRAM_RUNID_CORRECTOR_INTERVAL_SECONDS = "app.program.runid.corrector.interval";
     public static final String SYSTEM_ARTIFACTS_DIR = "app.artifact.dir";
+    public static final String ARTIFACT_PLUGIN_CACHE_SIZE = "app.artifact.plugin.cache.size";
+    public static final String APP_SPEC_CACHE_SIZE = "app.spec.cache.size";
     public static final String PROGRAM_EXTRA_CLASSPATH = "app.program.extra.classpath";
     public static final String SPARK_YARN_CLIENT_REWRITE = "app.program.spark.yarn.client.rewrite.enabled";
     public static final String SPARK_COMPAT = "app.program.spark.compat";
@@ -316,6 +318,15 @@ public final class Constants {
 
     public static final String DATASET_UNCHECKED_UPGRADE = "dataset.unchecked.upgrade";
 
+    /** Seconds that dataset instance metadata is cached by the dataset service client; 0 disables the cache. */
+    public static final String CLIENT_CACHE_TTL_SECS = "dataset.client.cache.ttl.secs";
+    /** Maximum number of dataset instance metadata entries cached by the dataset service client. */
+    public static final String CLIENT_CACHE_SIZE = "dataset.client.cache.size";
+    /** Maximum number of resolved dataset types cached per process; 0 disables the cache. */
+    public static final String TYPE_CACHE_SIZE = "dataset.type.cache.size";
+    /** Seconds after the last access that a resolved dataset type is removed from the cache. */
+    public static final String TYPE_CACHE_EXPIRATION_SECS = "dataset.type.cache.expiration.secs";
+
     /**
      * Constants for PartitionedFileSet's DynamicPartitioner
      */
@@ -525,14 +536,29 @@ public final class Constants {
     public static final String QUEUE_SIZE = "metrics.processor.queue.size";
 
     public static final String ENTITY_TABLE_NAME = "metrics.data.entity.tableName";
+    public static final String ENTITY_CACHE_SIZE = "metrics.data.entity.cache.size";
+    public static final String ENTITY_CACHE_PRELOAD = "metrics.data.entity.cache.preload";
+    public static final String ENTITY_ID_BATCH_SIZE = "metrics.data.entity.id.batch.size";
     public static final String METRICS_TABLE_PREFIX = "metrics.data.table.prefix";
     public static final String TIME_SERIES_TABLE_ROLL_TIME = "metrics.data.table.ts.rollTime";
 
     // Key prefix for retention seconds. The actual key is suffixed by the table resolution.
     public static final String RETENTION_SECONDS = "metrics.data.table.retention.resolution";
 
+    public static final String ROLLUP_ENABLED = "metrics.rollup.enabled";
+    public static final String ROLLUP_DELAY_SECS = "metrics.rollup.delay.secs";
+    public static final String ROLLUP_INITIAL_LOOKBACK_SECS = "metrics.rollup.initial.lookback.secs";
+    public static final String ROLLUP_INTERVAL_SECS = "metrics.rollup.interval.secs";
+
     public static final String SERVER_ADDRESS = "metrics.query.bind.address";
     public static final String SERVER_PORT = "metrics.query.bind.port";
+    public static final String QUERY_BATCH_THREADS = "metrics.query.batch.threads";
+    public static final String QUERY_RESPONSE_CHUNK_BYTES = "metrics.query.response.chunk.bytes";
+    public static final String QUERY_RESULT_CACHE_SIZE = "metrics.query.result.cache.size";
+    public static final String QUERY_RESULT_CACHE_EXPIRY_SECS = "metrics.query.result.cache.expiry.secs";
+    public static final String QUERY_RESULT_CACHE_GRACE_SECS = "metrics.query.result.cache.grace.secs";
+    public static final String QUERY_SCAN_PARALLELISM = "metrics.query.scan.parallelism";
+    public static final String QUERY_SCAN_THREADS = "metrics.query.scan.threads";
 
     public static final String TOPIC_PREFIX = "metrics.topic.prefix";
     public static final String KAFKA_TOPIC_PREFIX = "metrics.kafka.topic.prefix";
@@ -796,6 +822,8 @@ public final class Constants {
     public static final String TOKEN_DIGEST_KEY_EXPIRATION = "security.token.digest.key.expiration.ms";
     /** Parent znode used for secret key distribution in ZooKeeper. */
     public static final String DIST_KEY_PARENT_ZNODE = "security.token.distributed.parent.znode";
+    /** Maximum number of validated access tokens to cache, or zero to validate every token on every request. */
+    public static final String TOKEN_VALIDATION_CACHE_SIZE = "security.token.validation.cache.size";
     /** Deprecated. Use AUTH_SERVER_BIND_ADDRESS instead. **/
     @Deprecated
     public static final String AUTH_SERVER_ADDRESS = "security.auth.server.address";
@@ -1036,6 +1064,7 @@ public final class Constants {
       public static final String STREAM_INTERNAL_FEED_CATEGORY = "streamInternal";
       public static final String STREAM_HEARTBEAT_FEED_NAME = "heartbeat";
       public static final String STREAM_SIZE_SCHEDULE_POLLING_DELAY = "stream.size.schedule.polling.delay";
+      public static final String STREAM_SIZE_SCHEDULE_PUSH_ENABLED = "stream.size.schedule.push.enabled";
     }
   }
 
@@ -1061,6 +1090,8 @@ public final class Constants {
   public static final String CFG_DATA_LEVELDB_BLOCKSIZE = "data.local.storage.blocksize";
   public static final String CFG_DATA_LEVELDB_CACHESIZE = "data.local.storage.cachesize";
   public static final String CFG_DATA_LEVELDB_FSYNC = "data.local.storage.fsync";
+  public static final String CFG_DATA_LEVELDB_MAX_OPEN_TABLES = "data.local.storage.max.open.tables";
+  public static final String CFG_DATA_LEVELDB_TABLE_IDLE_MILLIS = "data.local.storage.table.idle.close.millis";
 
   /**
    * Defaults for Data Fabric.
@@ -1069,6 +1100,8 @@ public final class Constants {
   public static final int DEFAULT_DATA_LEVELDB_BLOCKSIZE = 1024;
   public static final long DEFAULT_DATA_LEVELDB_CACHESIZE = 1024 * 1024 * 100;
   public static final boolean DEFAULT_DATA_LEVELDB_FSYNC = true;
+  public static final int DEFAULT_DATA_LEVELDB_MAX_OPEN_TABLES = 0;
+  public static final long DEFAULT_DATA_LEVELDB_TABLE_IDLE_MILLIS = 60000L;
 
   /**
    * Config for Log Collection.
@@ -1170,6 +1203,8 @@ public final class Constants {
     public static final String ENABLED = "audit.enabled";
     public static final String TOPIC = "audit.topic";
     public static final String PUBLISH_TIMEOUT_MS = "audit.publish.timeout.ms";
+    public static final String PUBLISH_QUEUE_SIZE = "audit.publish.queue.size";
+    public static final String PUBLISH_BATCH_SIZE = "audit.publish.batch.size";
   }
 
   /**
@@ -1178,6 +1213,8 @@ public final class Constants {
   public static final class MessagingSystem {
     public static final String LOCAL_DATA_DIR = "messaging.local.data.dir";
     public static final String LOCAL_DATA_CLEANUP_FREQUENCY = "messaging.local.data.cleanup.frequency.secs";
+    public static final String LOCAL_DATA_CLEANUP_MAX_DELETES_PER_SEC =
+      "messaging.local.data.cleanup.max.deletes.per.sec";
 
     public static final String CACHE_SIZE_MB = "messaging.cache.size.mb";
 
@@ -1198,6 +1235,13 @@ public final class Constants {
     public static final String HTTP_SERVER_EXECUTOR_THREADS = "messaging.http.server.executor.threads";
     public static final String HTTP_SERVER_MAX_REQUEST_SIZE_MB = "messaging.http.server.max.request.size.mb";
     public static final String HTTP_SERVER_CONSUME_CHUNK_SIZE = "messaging.http.server.consume.chunk.size";
+    public static final String HTTP_SERVER_MAX_POLL_WAIT_MS = "messaging.http.server.max.poll.wait.ms";
+    public static final String HTTP_SERVER_POLL_WAIT_THREADS = "messaging.http.server.poll.wait.threads";
+
+    public static final String PUBLISHER_BATCH_SIZE = "messaging.publisher.batch.size";
+    public static final String PUBLISHER_BATCH_BYTES = "messaging.publisher.batch.bytes";
+    public static final String PUBLISHER_LINGER_MS = "messaging.publisher.linger.ms";
+    public static final String PUBLISHER_MAX_INFLIGHT = "messaging.publisher.max.inflight";
 
 
     public static final String CONTAINER_VIRTUAL_CORES = "messaging.container.num.cores";
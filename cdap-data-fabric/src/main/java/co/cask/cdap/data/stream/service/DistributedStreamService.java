@@ -105,6 +105,7 @@ public class DistributedStreamService extends AbstractStreamService {
   private Cancellable leaderListenerCancellable;
 
   private final ConcurrentMap<StreamId, StreamSizeAggregator> aggregators;
+  private final boolean pushSizeUpdates;
   private Cancellable heartbeatsSubscription;
 
   private Supplier<Discoverable> discoverableSupplier;
@@ -142,6 +143,7 @@ public class DistributedStreamService extends AbstractStreamService {
     this.leaderListeners = Sets.newHashSet();
     this.instanceId = cConf.getInt(Constants.Stream.CONTAINER_INSTANCE_ID);
     this.aggregators = Maps.newConcurrentMap();
+    this.pushSizeUpdates = cConf.getBoolean(Constants.Notification.Stream.STREAM_SIZE_SCHEDULE_PUSH_ENABLED);
   }
 
   @Override
@@ -564,7 +566,7 @@ public class DistributedStreamService extends AbstractStreamService {
 
   /**
    * Aggregate the sizes of all stream writers. A notification is published if the aggregated
-   * size is higher than a threshold.
+   * size is higher than a threshold, or whenever it changed if stream size schedules rely on pushed sizes.
    */
   private final class StreamSizeAggregator implements Cancellable {
 
@@ -634,7 +636,8 @@ public class DistributedStreamService extends AbstractStreamService {
       }
 
       LOG.trace("Check notification publishing: sum is {}, baseCount is {}", sum, streamBaseCount);
-      if (sum - streamBaseCount.get() > toBytes(streamThresholdMB.get())) {
+      long threshold = pushSizeUpdates ? 0L : toBytes(streamThresholdMB.get());
+      if (sum - streamBaseCount.get() > threshold) {
         try {
           publishNotification(sum);
         } finally {
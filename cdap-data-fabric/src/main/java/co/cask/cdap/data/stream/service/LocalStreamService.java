@@ -18,6 +18,7 @@ package co.cask.cdap.data.stream.service;
 
 import co.cask.cdap.api.data.stream.StreamSpecification;
 import co.cask.cdap.api.metrics.MetricStore;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.stream.notification.StreamSizeNotification;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
@@ -52,9 +53,11 @@ public class LocalStreamService extends AbstractStreamService {
   private final StreamWriterSizeCollector streamWriterSizeCollector;
   private final StreamMetaStore streamMetaStore;
   private final ConcurrentMap<StreamId, StreamSizeAggregator> aggregators;
+  private final boolean pushSizeUpdates;
 
   @Inject
-  public LocalStreamService(StreamCoordinatorClient streamCoordinatorClient,
+  public LocalStreamService(CConfiguration cConf,
+                            StreamCoordinatorClient streamCoordinatorClient,
                             StreamFileJanitorService janitorService,
                             StreamMetaStore streamMetaStore,
                             StreamAdmin streamAdmin,
@@ -67,6 +70,7 @@ public class LocalStreamService extends AbstractStreamService {
     this.streamWriterSizeCollector = streamWriterSizeCollector;
     this.notificationService = notificationService;
     this.aggregators = Maps.newConcurrentMap();
+    this.pushSizeUpdates = cConf.getBoolean(Constants.Notification.Stream.STREAM_SIZE_SCHEDULE_PUSH_ENABLED);
   }
 
   @Override
@@ -159,7 +163,7 @@ public class LocalStreamService extends AbstractStreamService {
 
   /**
    * Aggregate the sizes of all stream writers. A notification is published if the aggregated
-   * size is higher than a threshold.
+   * size is higher than a threshold, or whenever it changed if stream size schedules rely on pushed sizes.
    */
   private final class StreamSizeAggregator implements Cancellable {
     private final long streamInitSize;
@@ -202,7 +206,8 @@ public class LocalStreamService extends AbstractStreamService {
      */
     public void checkAggregatedSize() {
       long sum = streamInitSize + streamWriterSizeCollector.getTotalCollected(streamId);
-      if (!published || sum - streamBaseCount.get() > toBytes(streamThresholdMB.get())) {
+      long threshold = pushSizeUpdates ? 0L : toBytes(streamThresholdMB.get());
+      if (!published || sum - streamBaseCount.get() > threshold) {
         try {
           publishNotification(sum);
         } finally {
@@ -0,0 +1,270 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.audit;
+
+import co.cask.cdap.api.messaging.TopicNotFoundException;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.service.RetryStrategies;
+import co.cask.cdap.common.service.RetryStrategy;
+import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.MessagingServices;
+import co.cask.cdap.proto.audit.AuditMessage;
+import co.cask.cdap.proto.audit.AuditPayload;
+import co.cask.cdap.proto.audit.AuditType;
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.TopicId;
+import co.cask.cdap.security.spi.authentication.SecurityRequestContext;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+import org.apache.twill.common.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link AuditPublisher} that publishes to TMS asynchronously. Audit messages are put into a bounded queue
+ * and published in batches by a single background thread, so that the caller does not wait for the messaging
+ * system. Since the messages are published in the order they were queued, the order of changes to an entity is
+ * preserved.
+ *
+ * <p>
+ * If the queue is full, the caller is blocked until there is room in the queue, for at most the publish timeout.
+ * Messages that cannot be queued within that time, or that cannot be published within the publish timeout, are
+ * dropped and counted in the {@code audit.dropped} metric.
+ * </p>
+ *
+ * <p>
+ * The publisher has to be started before messages are published. When it is stopped, the messages still in the
+ * queue are published before it terminates, and messages published after that are dropped.
+ * </p>
+ */
+public final class AsyncAuditPublisher extends AbstractExecutionThreadService implements AuditPublisher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncAuditPublisher.class);
+  private static final Gson GSON = new Gson();
+  private static final long POLL_TIMEOUT_MILLIS = 100L;
+
+  private final MessagingService messagingService;
+  private final TopicId auditTopic;
+  private final RetryStrategy retryStrategy;
+  private final long publishTimeoutMillis;
+  private final int batchSize;
+  private final BlockingQueue<QueuedMessage> queue;
+  private final AtomicLong dropped;
+  private volatile MetricsContext metricsContext;
+  // set once the queue is drained for the last time during shutdown
+  private volatile boolean closed;
+
+  @Inject
+  AsyncAuditPublisher(CConfiguration cConf, MessagingService messagingService) {
+    this(messagingService, NamespaceId.SYSTEM.topic(cConf.get(Constants.Audit.TOPIC)),
+         cConf.getLong(Constants.Audit.PUBLISH_TIMEOUT_MS),
+         cConf.getInt(Constants.Audit.PUBLISH_QUEUE_SIZE), cConf.getInt(Constants.Audit.PUBLISH_BATCH_SIZE));
+  }
+
+  @VisibleForTesting
+  AsyncAuditPublisher(MessagingService messagingService, TopicId auditTopic,
+                      long publishTimeoutMillis, int queueSize, int batchSize) {
+    Preconditions.checkArgument(queueSize > 0, "Audit publish queue size must be greater than zero.");
+    Preconditions.checkArgument(batchSize > 0, "Audit publish batch size must be greater than zero.");
+    this.messagingService = messagingService;
+    this.auditTopic = auditTopic;
+    this.publishTimeoutMillis = publishTimeoutMillis;
+    this.retryStrategy = RetryStrategies.timeLimit(publishTimeoutMillis, TimeUnit.MILLISECONDS,
+                                                   RetryStrategies.exponentialDelay(10, 200, TimeUnit.MILLISECONDS));
+    this.batchSize = batchSize;
+    this.queue = new LinkedBlockingQueue<>(queueSize);
+    this.dropped = new AtomicLong();
+  }
+
+  @SuppressWarnings("unused")
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsContext = metricsCollectionService.getContext(
+      ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+                      Constants.Metrics.Tag.COMPONENT, "audit"));
+  }
+
+  @Override
+  public void publish(EntityId entityId, AuditType auditType, AuditPayload auditPayload) {
+    // The user has to be captured in the calling thread, since it is a thread local
+    String userId = Objects.firstNonNull(SecurityRequestContext.getUserId(), "");
+    AuditMessage auditMessage = new AuditMessage(System.currentTimeMillis(), entityId, userId, auditType, auditPayload);
+    LOG.trace("Queueing audit message {}", auditMessage);
+
+    if (closed) {
+      LOG.warn("Dropping audit message {} because the audit publisher is stopped", auditMessage);
+      drop(1);
+      return;
+    }
+    try {
+      QueuedMessage message = new QueuedMessage(auditMessage);
+      if (!queue.offer(message, publishTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        LOG.warn("Dropping audit message {} because the audit publish queue is full", auditMessage);
+        drop(1);
+      } else if (closed && queue.remove(message)) {
+        // the publisher stopped after the message was queued, and did not pick it up in its last drain
+        LOG.warn("Dropping audit message {} because the audit publisher is stopped", auditMessage);
+        drop(1);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.warn("Interrupted while queueing audit message {}", auditMessage);
+      drop(1);
+    }
+  }
+
+  /**
+   * Returns the number of audit messages that were dropped.
+   */
+  @VisibleForTesting
+  long getDroppedCount() {
+    return dropped.get();
+  }
+
+  @Override
+  protected void run() {
+    List<QueuedMessage> batch = new ArrayList<>(batchSize);
+    while (isRunning()) {
+      QueuedMessage message;
+      try {
+        message = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        break;
+      }
+      if (message == null) {
+        continue;
+      }
+      batch.add(message);
+      queue.drainTo(batch, batchSize - 1);
+      publishBatch(batch);
+      batch.clear();
+    }
+  }
+
+  @Override
+  protected void shutDown() {
+    // publish what is left in the queue. Messages that cannot be published within the timeout are dropped
+    drainQueue();
+    closed = true;
+    // messages queued concurrently with setting the closed flag are either drained here or dropped by publish()
+    drainQueue();
+    LOG.debug("Audit publisher stopped, {} audit messages dropped in total", dropped.get());
+  }
+
+  @Override
+  protected Executor executor() {
+    return new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        Thread thread = Threads.createDaemonThreadFactory("audit-publisher").newThread(command);
+        thread.start();
+      }
+    };
+  }
+
+  private void drainQueue() {
+    List<QueuedMessage> batch = new ArrayList<>(batchSize);
+    while (queue.drainTo(batch, batchSize) > 0) {
+      publishBatch(batch);
+      batch.clear();
+    }
+  }
+
+  /**
+   * Publishes a batch of queued messages, and counts them as dropped if they cannot be published.
+   */
+  private void publishBatch(List<QueuedMessage> batch) {
+    byte[][] payloads = new byte[batch.size()][];
+    for (int i = 0; i < payloads.length; i++) {
+      payloads[i] = GSON.toJson(batch.get(i).getMessage()).getBytes(StandardCharsets.UTF_8);
+    }
+    try {
+      MessagingServices.publishWithRetry(messagingService, auditTopic, retryStrategy, payloads);
+      emitPublishMetrics(batch);
+    } catch (TopicNotFoundException e) {
+      LOG.error("Missing topic for audit publish: {}", auditTopic);
+      drop(batch.size());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.warn("Interrupted while publishing {} audit messages", batch.size());
+      drop(batch.size());
+    } catch (Exception e) {
+      LOG.error("Got exception publishing {} audit messages, starting with {}. Exception:",
+                batch.size(), batch.get(0).getMessage(), e);
+      drop(batch.size());
+    }
+  }
+
+  private void emitPublishMetrics(List<QueuedMessage> batch) {
+    MetricsContext context = metricsContext;
+    if (context == null) {
+      return;
+    }
+    // the first message of the batch has been queued the longest
+    long now = System.currentTimeMillis();
+    context.increment("audit.published", batch.size());
+    context.gauge("audit.publish.latency.ms", now - batch.get(0).getQueuedTime());
+    context.gauge("audit.queue.size", queue.size());
+  }
+
+  private void drop(int count) {
+    dropped.addAndGet(count);
+    MetricsContext context = metricsContext;
+    if (context != null) {
+      context.increment("audit.dropped", count);
+    }
+  }
+
+  /**
+   * An {@link AuditMessage} together with the time it was queued.
+   */
+  private static final class QueuedMessage {
+    private final AuditMessage message;
+    private final long queuedTime;
+
+    QueuedMessage(AuditMessage message) {
+      this.message = message;
+      this.queuedTime = System.currentTimeMillis();
+    }
+
+    AuditMessage getMessage() {
+      return message;
+    }
+
+    long getQueuedTime() {
+      return queuedTime;
+    }
+  }
+}
@@ -79,9 +79,28 @@ public class AuditModule extends RuntimeModule {
     @Override
     public AuditPublisher get() {
       if (cConf.getBoolean(Constants.Audit.ENABLED, false)) {
+        if (cConf.getInt(Constants.Audit.PUBLISH_QUEUE_SIZE, 0) > 0) {
+          return startAsyncPublisher(injector.getInstance(AsyncAuditPublisher.class));
+        }
         return injector.getInstance(DefaultAuditPublisher.class);
       }
       return injector.getInstance(NoOpAuditPublisher.class);
     }
+
+    /**
+     * Starts the given publisher, and stops it when the process shuts down, so that the queued audit messages are
+     * published before the process exits. The publisher is shared by all services of the process, hence it is not
+     * stopped by any of them.
+     */
+    private AuditPublisher startAsyncPublisher(final AsyncAuditPublisher publisher) {
+      publisher.startAndWait();
+      Runtime.getRuntime().addShutdownHook(new Thread("audit-publisher-shutdown") {
+        @Override
+        public void run() {
+          publisher.stopAndWait();
+        }
+      });
+      return publisher;
+    }
   }
 }
@@ -40,7 +40,12 @@ import co.cask.common.http.HttpMethod;
 import co.cask.common.http.HttpRequest;
 import co.cask.common.http.HttpResponse;
 import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -56,8 +61,13 @@ import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.ConnectException;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
@@ -69,6 +79,7 @@ class DatasetServiceClient {
   private static final Gson GSON = new Gson();
   private static final Type SUMMARY_LIST_TYPE = new TypeToken<List<DatasetSpecificationSummary>>() { }.getType();
   private static final Type DATASET_NAME_TYPE = new TypeToken<Set<String>>() { }.getType();
+  private static final Type DATASET_META_MAP_TYPE = new TypeToken<Map<String, DatasetMeta>>() { }.getType();
 
   private final RemoteClient remoteClient;
   private final NamespaceId namespaceId;
@@ -77,6 +88,8 @@ class DatasetServiceClient {
   private final boolean authorizationEnabled;
   private final AuthenticationContext authenticationContext;
   private final String masterShortUserName;
+  // null if caching is disabled
+  private final Cache<InstanceCacheKey, DatasetMeta> instanceCache;
 
   DatasetServiceClient(final DiscoveryServiceClient discoveryClient, NamespaceId namespaceId,
                        CConfiguration cConf, AuthenticationContext authenticationContext) {
@@ -98,22 +111,18 @@ class DatasetServiceClient {
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
+    long cacheTTLSecs = cConf.getLong(Constants.Dataset.CLIENT_CACHE_TTL_SECS);
+    this.instanceCache = cacheTTLSecs <= 0 ? null : CacheBuilder.newBuilder()
+      .expireAfterWrite(cacheTTLSecs, TimeUnit.SECONDS)
+      .maximumSize(cConf.getInt(Constants.Dataset.CLIENT_CACHE_SIZE))
+      .<InstanceCacheKey, DatasetMeta>build();
   }
 
   @Nullable
   public DatasetMeta getInstance(String instanceName, @Nullable Iterable<? extends EntityId> owners)
     throws DatasetManagementException {
 
-    String query = "";
-    if (owners != null) {
-      Set<String> ownerParams = Sets.newHashSet();
-      for (EntityId owner : owners) {
-        ownerParams.add("owner=" + owner.toString());
-      }
-      query = ownerParams.isEmpty() ? "" : "?" + Joiner.on("&").join(ownerParams);
-    }
-
-    HttpResponse response = doGet("datasets/" + instanceName + query);
+    HttpResponse response = doGet("datasets/" + instanceName + toOwnerQuery(owners));
     if (HttpResponseStatus.NOT_FOUND.getCode() == response.getResponseCode()) {
       return null;
     }
@@ -130,6 +139,93 @@ class DatasetServiceClient {
     return getInstance(instanceName, null);
   }
 
+  /**
+   * Same as {@link #getInstance(String, Iterable)}, except that the result may come from the cache of this client.
+   * This should only be used to instantiate datasets, where a stale result for at most the configured
+   * {@link Constants.Dataset#CLIENT_CACHE_TTL_SECS} is acceptable.
+   */
+  @Nullable
+  DatasetMeta getCachedInstance(String instanceName, @Nullable Iterable<? extends EntityId> owners)
+    throws DatasetManagementException {
+    if (instanceCache == null) {
+      return getInstance(instanceName, owners);
+    }
+    InstanceCacheKey key = new InstanceCacheKey(instanceName, owners, getUserId());
+    DatasetMeta meta = instanceCache.getIfPresent(key);
+    if (meta == null) {
+      meta = getInstance(instanceName, owners);
+      if (meta != null) {
+        instanceCache.put(key, meta);
+      }
+    }
+    return meta;
+  }
+
+  /**
+   * Gets the {@link DatasetMeta} of multiple dataset instances, with a single call to the dataset service for all
+   * instances that are not in the cache of this client.
+   *
+   * @return a map from instance name to {@link DatasetMeta}, only containing the instances that exist
+   */
+  Map<String, DatasetMeta> getCachedInstances(Collection<String> instanceNames,
+                                              @Nullable Iterable<? extends EntityId> owners)
+    throws DatasetManagementException {
+    Map<String, DatasetMeta> result = new HashMap<>();
+    String userId = getUserId();
+    Set<String> missing = new LinkedHashSet<>();
+    for (String instanceName : instanceNames) {
+      DatasetMeta meta = instanceCache == null
+        ? null : instanceCache.getIfPresent(new InstanceCacheKey(instanceName, owners, userId));
+      if (meta == null) {
+        missing.add(instanceName);
+      } else {
+        result.put(instanceName, meta);
+      }
+    }
+    if (missing.isEmpty()) {
+      return result;
+    }
+
+    HttpResponse response = doPost("datasets" + toOwnerQuery(owners), GSON.toJson(missing));
+    if (HttpResponseStatus.OK.getCode() != response.getResponseCode()) {
+      throw new DatasetManagementException(String.format("Cannot retrieve dataset instances %s info, details: %s",
+                                                         missing, response));
+    }
+    Map<String, DatasetMeta> fetched = GSON.fromJson(response.getResponseBodyAsString(), DATASET_META_MAP_TYPE);
+    for (Map.Entry<String, DatasetMeta> entry : fetched.entrySet()) {
+      if (instanceCache != null) {
+        instanceCache.put(new InstanceCacheKey(entry.getKey(), owners, userId), entry.getValue());
+      }
+      result.put(entry.getKey(), entry.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * Removes all cached {@link DatasetMeta} of the given dataset instance.
+   */
+  void invalidateInstance(final String instanceName) {
+    if (instanceCache == null) {
+      return;
+    }
+    // there can be multiple entries for different owners and users
+    Iterables.removeIf(instanceCache.asMap().keySet(), new Predicate<InstanceCacheKey>() {
+      @Override
+      public boolean apply(InstanceCacheKey key) {
+        return key.instanceName.equals(instanceName);
+      }
+    });
+  }
+
+  /**
+   * Removes all cached {@link DatasetMeta}.
+   */
+  void invalidateInstances() {
+    if (instanceCache != null) {
+      instanceCache.invalidateAll();
+    }
+  }
+
   Collection<DatasetSpecificationSummary> getAllInstances() throws DatasetManagementException {
     HttpResponse response = doGet("datasets");
     if (HttpResponseStatus.OK.getCode() != response.getResponseCode()) {
@@ -181,6 +277,7 @@ class DatasetServiceClient {
 
     HttpResponse response = doPut("datasets/" + datasetInstanceName + "/properties",
                                   GSON.toJson(props.getProperties()));
+    invalidateInstance(datasetInstanceName);
 
     if (HttpResponseStatus.NOT_FOUND.getCode() == response.getResponseCode()) {
       throw new InstanceNotFoundException(datasetInstanceName);
@@ -208,6 +305,7 @@ class DatasetServiceClient {
 
   public void deleteInstance(String datasetInstanceName) throws DatasetManagementException {
     HttpResponse response = doDelete("datasets/" + datasetInstanceName);
+    invalidateInstance(datasetInstanceName);
     if (HttpResponseStatus.NOT_FOUND.getCode() == response.getResponseCode()) {
       throw new InstanceNotFoundException(datasetInstanceName);
     }
@@ -226,6 +324,7 @@ class DatasetServiceClient {
    */
   Set<String> deleteInstances() throws DatasetManagementException {
     HttpResponse response = doDelete("datasets");
+    invalidateInstances();
     if (HttpResponseStatus.OK.getCode() != response.getResponseCode()) {
       throw new DatasetManagementException(String.format("Failed to delete instances, details: %s", response));
     }
@@ -239,6 +338,8 @@ class DatasetServiceClient {
       .addHeader("X-Class-Name", className)
       .withBody(Locations.newInputSupplier(jarLocation));
     HttpResponse response = doRequest(requestBuilder);
+    // the type meta of cached instances may have changed
+    invalidateInstances();
 
     if (HttpResponseStatus.CONFLICT.getCode() == response.getResponseCode()) {
       throw new ModuleConflictException(String.format("Failed to add module %s due to conflict, details: %s",
@@ -252,6 +353,7 @@ class DatasetServiceClient {
 
   public void deleteModule(String moduleName) throws DatasetManagementException {
     HttpResponse response = doDelete("modules/" + moduleName);
+    invalidateInstances();
 
     if (HttpResponseStatus.CONFLICT.getCode() == response.getResponseCode()) {
       throw new ModuleConflictException(String.format("Failed to delete module %s due to conflict, details: %s",
@@ -265,6 +367,7 @@ class DatasetServiceClient {
 
   void deleteModules() throws DatasetManagementException {
     HttpResponse response = doDelete("modules");
+    invalidateInstances();
 
     if (HttpResponseStatus.OK.getCode() != response.getResponseCode()) {
       throw new DatasetManagementException(String.format("Failed to delete modules, details: %s", response));
@@ -290,6 +393,10 @@ class DatasetServiceClient {
     return doRequest(remoteClient.requestBuilder(HttpMethod.POST, resource));
   }
 
+  private HttpResponse doPost(String resource, String body) throws DatasetManagementException {
+    return doRequest(remoteClient.requestBuilder(HttpMethod.POST, resource).withBody(body));
+  }
+
   private HttpResponse doDelete(String resource) throws DatasetManagementException {
     return doRequest(remoteClient.requestBuilder(HttpMethod.DELETE, resource));
   }
@@ -305,9 +412,29 @@ class DatasetServiceClient {
     }
   }
 
+  private static String toOwnerQuery(@Nullable Iterable<? extends EntityId> owners) {
+    if (owners == null) {
+      return "";
+    }
+    Set<String> ownerParams = Sets.newHashSet();
+    for (EntityId owner : owners) {
+      ownerParams.add("owner=" + owner.toString());
+    }
+    return ownerParams.isEmpty() ? "" : "?" + Joiner.on("&").join(ownerParams);
+  }
+
   private HttpRequest.Builder addUserIdHeader(HttpRequest.Builder builder) throws DatasetManagementException {
+    String userId = getUserId();
+    return userId == null ? builder : builder.addHeader(Constants.Security.Headers.USER_ID, userId);
+  }
+
+  /**
+   * Returns the user id to send with requests to the dataset service, or {@code null} if authorization is disabled.
+   */
+  @Nullable
+  private String getUserId() throws DatasetManagementException {
     if (!securityEnabled || !authorizationEnabled) {
-      return builder;
+      return null;
     }
 
     String currUserShortName;
@@ -340,6 +467,46 @@ class DatasetServiceClient {
         userId = currUserShortName;
       }
     }
-    return builder.addHeader(Constants.Security.Headers.USER_ID, userId);
+    return userId;
+  }
+
+  /**
+   * Key of the {@link DatasetMeta} cache. The owners and the user are part of the key because the dataset service
+   * checks access for them.
+   */
+  private static final class InstanceCacheKey {
+    private final String instanceName;
+    private final Set<String> owners;
+    private final String userId;
+
+    InstanceCacheKey(String instanceName, @Nullable Iterable<? extends EntityId> owners, @Nullable String userId) {
+      this.instanceName = instanceName;
+      this.owners = new HashSet<>();
+      if (owners != null) {
+        for (EntityId owner : owners) {
+          this.owners.add(owner.toString());
+        }
+      }
+      this.userId = userId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      InstanceCacheKey other = (InstanceCacheKey) o;
+      return instanceName.equals(other.instanceName)
+        && owners.equals(other.owners)
+        && Objects.equal(userId, other.userId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(instanceName, owners, userId);
+    }
   }
 }
@@ -48,10 +48,13 @@ import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.google.common.io.ByteStreams;
 import com.google.inject.Inject;
@@ -65,9 +68,12 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
@@ -83,6 +89,8 @@ public class RemoteDatasetFramework implements DatasetFramework {
   private final CConfiguration cConf;
   private final LoadingCache<NamespaceId, DatasetServiceClient> clientCache;
   private final DatasetDefinitionRegistryFactory registryFactory;
+  // null if caching is disabled
+  private final Cache<DatasetTypeKey, DatasetType> typeCache;
 
   @Inject
   public RemoteDatasetFramework(final CConfiguration cConf, final DiscoveryServiceClient discoveryClient,
@@ -96,6 +104,12 @@ public class RemoteDatasetFramework implements DatasetFramework {
       }
     });
     this.registryFactory = registryFactory;
+    int typeCacheSize = cConf.getInt(Constants.Dataset.TYPE_CACHE_SIZE);
+    // entries expire so that class loaders of finished programs can be garbage collected
+    this.typeCache = typeCacheSize <= 0 ? null : CacheBuilder.newBuilder()
+      .maximumSize(typeCacheSize)
+      .expireAfterAccess(cConf.getLong(Constants.Dataset.TYPE_CACHE_EXPIRATION_SECS), TimeUnit.SECONDS)
+      .<DatasetTypeKey, DatasetType>build();
   }
 
   @Override
@@ -106,6 +120,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
       try {
         clientCache.getUnchecked(moduleId.getParent())
           .addModule(moduleId.getEntityName(), moduleClass.getName(), deploymentJar);
+        invalidateTypes();
       } finally {
         try {
           deploymentJar.delete();
@@ -127,16 +142,19 @@ public class RemoteDatasetFramework implements DatasetFramework {
                         Location jarLocation) throws DatasetManagementException {
     clientCache.getUnchecked(moduleId.getParent())
       .addModule(moduleId.getEntityName(), DatasetModules.getDatasetModuleClass(module).getName(), jarLocation);
+    invalidateTypes();
   }
 
   @Override
   public void deleteModule(DatasetModuleId moduleId) throws DatasetManagementException {
     clientCache.getUnchecked(moduleId.getParent()).deleteModule(moduleId.getEntityName());
+    invalidateTypes();
   }
 
   @Override
   public void deleteAllModules(NamespaceId namespaceId) throws DatasetManagementException {
     clientCache.getUnchecked(namespaceId).deleteModules();
+    invalidateTypes();
   }
 
   @Override
@@ -249,7 +267,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                           @Nullable Iterable<? extends EntityId> owners, AccessType accessType)
     throws DatasetManagementException, IOException {
 
-    DatasetMeta datasetMeta = clientCache.getUnchecked(id.getParent()).getInstance(id.getEntityName(), owners);
+    DatasetMeta datasetMeta = clientCache.getUnchecked(id.getParent()).getCachedInstance(id.getEntityName(), owners);
     if (datasetMeta == null) {
       return null;
     }
@@ -258,11 +276,37 @@ public class RemoteDatasetFramework implements DatasetFramework {
     return (T) type.getDataset(DatasetContext.from(id.getNamespace()), datasetMeta.getSpec(), arguments);
   }
 
+  /**
+   * Fetches the specifications and type metadata of the given dataset instances, with one call to the dataset
+   * service per namespace, so that instantiating these datasets afterwards with the same owners does not need
+   * another call for each of them as long as they stay cached.
+   *
+   * @param datasetInstanceIds the dataset instances to fetch
+   * @param owners the owners that will use the dataset instances
+   */
+  @Override
+  public void prefetchInstances(Collection<DatasetId> datasetInstanceIds,
+                                @Nullable Iterable<? extends EntityId> owners) throws DatasetManagementException {
+    Multimap<NamespaceId, String> instancesByNamespace = LinkedHashMultimap.create();
+    for (DatasetId datasetInstanceId : datasetInstanceIds) {
+      instancesByNamespace.put(datasetInstanceId.getParent(), datasetInstanceId.getEntityName());
+    }
+    for (Map.Entry<NamespaceId, Collection<String>> entry : instancesByNamespace.asMap().entrySet()) {
+      clientCache.getUnchecked(entry.getKey()).getCachedInstances(entry.getValue(), owners);
+    }
+  }
+
   @Override
   public void writeLineage(DatasetId datasetInstanceId, AccessType accessType) {
     // no-op. The RemoteDatasetFramework doesn't need to do anything. The lineage should be recorded before this point.
   }
 
+  private void invalidateTypes() {
+    if (typeCache != null) {
+      typeCache.invalidateAll();
+    }
+  }
+
   private Location createDeploymentJar(Class<?> clz) throws IOException {
     File tempDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
                             cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
@@ -363,7 +407,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
       classLoader = Objects.firstNonNull(Thread.currentThread().getContextClassLoader(), getClass().getClassLoader());
     }
 
-    DatasetDefinitionRegistry registry = registryFactory.create();
+    List<ClassLoader> moduleClassLoaders = new ArrayList<>(datasetTypeMeta.getModules().size());
     for (DatasetModuleMeta moduleMeta : datasetTypeMeta.getModules()) {
       // adding dataset module jar to classloader
       try {
@@ -373,9 +417,26 @@ public class RemoteDatasetFramework implements DatasetFramework {
                   moduleMeta, datasetTypeMeta, e);
         throw Throwables.propagate(e);
       }
+      moduleClassLoaders.add(classLoader);
+    }
+
+    // The definitions only depend on the module classes, hence they can be reused for all instances of the type
+    // that are loaded with the same classloaders. This saves loading the modules and resolving all embedded
+    // definitions for every dataset instantiation.
+    DatasetTypeKey key = null;
+    if (typeCache != null) {
+      key = new DatasetTypeKey(datasetTypeMeta, moduleClassLoaders);
+      DatasetType type = typeCache.getIfPresent(key);
+      if (type != null) {
+        return (T) type;
+      }
+    }
 
+    DatasetDefinitionRegistry registry = registryFactory.create();
+    for (int i = 0; i < moduleClassLoaders.size(); i++) {
+      DatasetModuleMeta moduleMeta = datasetTypeMeta.getModules().get(i);
       try {
-        DatasetDefinitionRegistries.register(moduleMeta.getClassName(), classLoader, registry);
+        DatasetDefinitionRegistries.register(moduleMeta.getClassName(), moduleClassLoaders.get(i), registry);
       } catch (Exception e) {
         LOG.error("Was not able to load dataset module class {} while trying to load type {}",
                   moduleMeta.getClassName(), datasetTypeMeta, e);
@@ -386,6 +447,64 @@ public class RemoteDatasetFramework implements DatasetFramework {
     // contract of DatasetTypeMeta is that the last module returned by getModules() is the one
     // that announces the dataset's type. The classloader for the returned DatasetType must be the classloader
     // for that last module.
-    return (T) new DatasetType(registry.get(datasetTypeMeta.getName()), classLoader);
+    DatasetType type = new DatasetType(registry.get(datasetTypeMeta.getName()), classLoader);
+    if (key != null) {
+      typeCache.put(key, type);
+    }
+    return (T) type;
+  }
+
+  /**
+   * Key for caching {@link DatasetType}. Class loaders are compared by identity, since the same module class
+   * loaded by different class loaders results in different definitions.
+   */
+  private static final class DatasetTypeKey {
+    private final String typeName;
+    private final List<String> moduleClassNames;
+    private final List<String> moduleJarLocations;
+    private final List<ClassLoader> moduleClassLoaders;
+
+    DatasetTypeKey(DatasetTypeMeta typeMeta, List<ClassLoader> moduleClassLoaders) {
+      this.typeName = typeMeta.getName();
+      this.moduleClassNames = new ArrayList<>(typeMeta.getModules().size());
+      this.moduleJarLocations = new ArrayList<>(typeMeta.getModules().size());
+      for (DatasetModuleMeta moduleMeta : typeMeta.getModules()) {
+        moduleClassNames.add(moduleMeta.getClassName());
+        moduleJarLocations.add(moduleMeta.getJarLocationPath());
+      }
+      this.moduleClassLoaders = moduleClassLoaders;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      DatasetTypeKey other = (DatasetTypeKey) o;
+      if (!typeName.equals(other.typeName)
+        || !moduleClassNames.equals(other.moduleClassNames)
+        || !moduleJarLocations.equals(other.moduleJarLocations)
+        || moduleClassLoaders.size() != other.moduleClassLoaders.size()) {
+        return false;
+      }
+      for (int i = 0; i < moduleClassLoaders.size(); i++) {
+        if (moduleClassLoaders.get(i) != other.moduleClassLoaders.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = Objects.hashCode(typeName, moduleClassNames, moduleJarLocations);
+      for (ClassLoader moduleClassLoader : moduleClassLoaders) {
+        hash = 31 * hash + System.identityHashCode(moduleClassLoader);
+      }
+      return hash;
+    }
   }
 }
@@ -42,6 +42,7 @@ import java.io.Reader;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 class ConversionHelpers {
@@ -134,6 +135,18 @@ class ConversionHelpers {
     }
   }
 
+  static Set<String> getDatasetNames(HttpRequest request) throws BadRequestException {
+    Reader reader = new InputStreamReader(new ChannelBufferInputStream(request.getContent()), Charsets.UTF_8);
+    try {
+      Set<String> names = GSON.fromJson(reader, new TypeToken<Set<String>>() {
+      }.getType());
+      Preconditions.checkNotNull(names, "The names of the dataset instances must be specified.");
+      return names;
+    } catch (JsonSyntaxException | NullPointerException e) {
+      throw new BadRequestException(e.getMessage());
+    }
+  }
+
   static String toJson(Map<String, String> properties) {
     return GSON.toJson(properties);
   }
@@ -35,6 +35,9 @@ import com.google.inject.Inject;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -53,6 +56,8 @@ import javax.ws.rs.QueryParam;
 @Path(Constants.Gateway.API_VERSION_3 + "/namespaces/{namespace-id}")
 public class DatasetInstanceHandler extends AbstractHttpHandler {
 
+  private static final Type DATASET_META_MAP_TYPE = new TypeToken<Map<String, DatasetMeta>>() { }.getType();
+
   private final DatasetInstanceService instanceService;
 
   @Inject
@@ -89,6 +94,31 @@ public class DatasetInstanceHandler extends AbstractHttpHandler {
                        DatasetMeta.class);
   }
 
+  /**
+   * Gets the {@link DatasetMeta} for multiple dataset instances in one call. The request body is a JSON array of
+   * dataset instance names. The response is a JSON object from instance name to {@link DatasetMeta}, which only
+   * contains the instances that exist.
+   *
+   * @param namespaceId namespace of the dataset instances
+   * @param owners a list of owners of the dataset instances, in the same form as for {@link #get}
+   */
+  @POST
+  @Path("/data/datasets")
+  public void getAll(HttpRequest request, HttpResponder responder,
+                     @PathParam("namespace-id") String namespaceId,
+                     @QueryParam("owner") List<String> owners) throws Exception {
+    List<DatasetId> instances = new ArrayList<>();
+    for (String name : ConversionHelpers.getDatasetNames(request)) {
+      instances.add(ConversionHelpers.toDatasetInstanceId(namespaceId, name));
+    }
+    Map<String, DatasetMeta> result = new LinkedHashMap<>();
+    for (Map.Entry<DatasetId, DatasetMeta> entry :
+      instanceService.getAll(instances, ConversionHelpers.strings2ProgramIds(owners)).entrySet()) {
+      result.put(entry.getKey().getEntityName(), entry.getValue());
+    }
+    responder.sendJson(HttpResponseStatus.OK, result, DATASET_META_MAP_TYPE);
+  }
+
   /**
    * Creates a new dataset instance.
    *
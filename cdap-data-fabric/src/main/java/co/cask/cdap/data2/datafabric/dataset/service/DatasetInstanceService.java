@@ -46,16 +46,17 @@ import co.cask.cdap.proto.id.KerberosPrincipalId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.authorization.AuthorizationUtil;
 import co.cask.cdap.security.impersonation.OwnerAdmin;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.spi.authorization.PrivilegesManager;
 import co.cask.cdap.security.spi.authorization.UnauthorizedException;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
@@ -66,6 +67,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -136,13 +138,12 @@ public class DatasetInstanceService {
     Principal principal = authenticationContext.getPrincipal();
     ensureNamespaceExists(namespace);
     Collection<DatasetSpecification> datasets = instanceManager.getAll(namespace);
-    final Predicate<EntityId> filter = authorizationEnforcer.createFilter(principal);
-    return Lists.newArrayList(Iterables.filter(datasets, new com.google.common.base.Predicate<DatasetSpecification>() {
+    return AuthorizationUtil.filterVisible(datasets, new Function<DatasetSpecification, DatasetId>() {
       @Override
-      public boolean apply(DatasetSpecification spec) {
-        return filter.apply(namespace.dataset(spec.getName()));
+      public DatasetId apply(DatasetSpecification spec) {
+        return namespace.dataset(spec.getName());
       }
-    }));
+    }, authorizationEnforcer, principal);
   }
 
   /**
@@ -175,6 +176,44 @@ public class DatasetInstanceService {
     return datasetMeta;
   }
 
+  /**
+   * Gets multiple dataset instances with a single authorization check. Instances that do not exist are omitted
+   * from the result.
+   *
+   * @param instances instances to get
+   * @param owners the {@link EntityId entities} that will be using the dataset instances
+   * @return a map from dataset instance to its {@link DatasetMeta}, for all instances that exist
+   * @throws UnauthorizedException if perimeter security and authorization are enabled, and the current user does not
+   *  have any privileges on one of the existing #instances
+   */
+  Map<DatasetId, DatasetMeta> getAll(Collection<DatasetId> instances, List<? extends EntityId> owners)
+    throws Exception {
+    Map<DatasetId, DatasetMeta> result = new LinkedHashMap<>();
+    for (DatasetId instance : instances) {
+      try {
+        result.put(instance, metaCache.get(instance));
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof NotFoundException) {
+          continue;
+        }
+        if ((cause instanceof Exception) && (cause instanceof HttpErrorStatusProvider)) {
+          throw (Exception) cause;
+        }
+        throw e;
+      }
+    }
+    // Only return the above metas if authorization succeeds for all of them
+    Principal principal = authenticationContext.getPrincipal();
+    Set<DatasetId> visible = authorizationEnforcer.isVisible(result.keySet(), principal);
+    for (DatasetId instance : result.keySet()) {
+      if (!visible.contains(instance)) {
+        throw new UnauthorizedException(principal, instance);
+      }
+    }
+    return result;
+  }
+
   /**
    * Read the dataset meta data (instance and type) from MDS.
    */
@@ -56,6 +56,7 @@ import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.authorization.AuthorizationUtil;
 import co.cask.cdap.security.impersonation.Impersonator;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
@@ -64,10 +65,10 @@ import co.cask.cdap.security.spi.authorization.UnauthorizedException;
 import co.cask.http.BodyConsumer;
 import co.cask.http.HttpResponder;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
 import com.google.common.base.Splitter;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.io.Files;
 import com.google.common.util.concurrent.AbstractIdleService;
@@ -181,15 +182,12 @@ public class DatasetTypeService extends AbstractIdleService {
     });
 
     Principal principal = authenticationContext.getPrincipal();
-    final Predicate<EntityId> authFilter = authorizationEnforcer.createFilter(principal);
-    Iterable<DatasetModuleMeta> authorizedDatasetModules =
-      Iterables.filter(allModules, new com.google.common.base.Predicate<DatasetModuleMeta>() {
-        @Override
-        public boolean apply(DatasetModuleMeta datasetModuleMeta) {
-          return authFilter.apply(namespaceId.datasetModule(datasetModuleMeta.getName()));
-        }
-      });
-    return Lists.newArrayList(authorizedDatasetModules);
+    return AuthorizationUtil.filterVisible(allModules, new Function<DatasetModuleMeta, DatasetModuleId>() {
+      @Override
+      public DatasetModuleId apply(DatasetModuleMeta datasetModuleMeta) {
+        return namespaceId.datasetModule(datasetModuleMeta.getName());
+      }
+    }, authorizationEnforcer, principal);
   }
 
   /**
@@ -316,16 +314,12 @@ public class DatasetTypeService extends AbstractIdleService {
     });
 
     Principal principal = authenticationContext.getPrincipal();
-    final Predicate<EntityId> authFilter = authorizationEnforcer.createFilter(principal);
-    Iterable<DatasetTypeMeta> authorizedDatasetTypes =
-      Iterables.filter(allTypes, new com.google.common.base.Predicate<DatasetTypeMeta>() {
-        @Override
-        public boolean apply(DatasetTypeMeta datasetTypeMeta) {
-          DatasetTypeId datasetTypeId = namespaceId.datasetType(datasetTypeMeta.getName());
-          return authFilter.apply(datasetTypeId);
-        }
-      });
-    return Lists.newArrayList(authorizedDatasetTypes);
+    return AuthorizationUtil.filterVisible(allTypes, new Function<DatasetTypeMeta, DatasetTypeId>() {
+      @Override
+      public DatasetTypeId apply(DatasetTypeMeta datasetTypeMeta) {
+        return namespaceId.datasetType(datasetTypeMeta.getName());
+      }
+    }, authorizationEnforcer, principal);
   }
 
   /**
@@ -338,6 +338,17 @@ public interface DatasetFramework {
                                    AccessType accessType)
     throws DatasetManagementException, IOException;
 
+  /**
+   * Fetches the given dataset instances ahead of their use, so that getting them afterwards with the same owners
+   * is faster. This is only a hint, and implementations for which fetching them one by one is cheap ignore it.
+   *
+   * @param datasetInstanceIds the dataset instances to fetch
+   * @param owners the owners that will use the dataset instances
+   * @throws DatasetManagementException
+   */
+  void prefetchInstances(Collection<DatasetId> datasetInstanceIds, @Nullable Iterable<? extends EntityId> owners)
+    throws DatasetManagementException;
+
   /**
    * Write lineage for a particular dataset instance.
    *
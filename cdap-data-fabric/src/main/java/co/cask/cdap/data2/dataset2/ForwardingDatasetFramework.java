@@ -172,6 +172,12 @@ public class ForwardingDatasetFramework implements DatasetFramework {
     return delegate.getDataset(datasetInstanceId, arguments, classLoader, classLoaderProvider, owners, accessType);
   }
 
+  @Override
+  public void prefetchInstances(Collection<DatasetId> datasetInstanceIds,
+                                @Nullable Iterable<? extends EntityId> owners) throws DatasetManagementException {
+    delegate.prefetchInstances(datasetInstanceIds, owners);
+  }
+
   @Override
   public void writeLineage(DatasetId datasetInstanceId, AccessType accessType) {
     delegate.writeLineage(datasetInstanceId, accessType);
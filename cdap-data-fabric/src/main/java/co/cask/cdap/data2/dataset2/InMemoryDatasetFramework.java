@@ -477,6 +477,12 @@ public class InMemoryDatasetFramework implements DatasetFramework {
     }
   }
 
+  @Override
+  public void prefetchInstances(Collection<DatasetId> datasetInstanceIds,
+                                @Nullable Iterable<? extends EntityId> owners) {
+    // no-op. The instances are in memory already
+  }
+
   @Override
   public void writeLineage(DatasetId datasetInstanceId, AccessType accessType) {
     // no-op. The InMemoryDatasetFramework doesn't need to do anything.
@@ -0,0 +1,312 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
+import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanResult;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates the {@link FactScanResult}s of a {@link CubeQuery} into {@link TimeSeries}, grouped by the group by
+ * dimensions of the query.
+ *
+ * <p>
+ * The values of the group by dimensions are dictionary encoded, so that each scanned row is mapped to its group
+ * with a single lookup of an array of value ids. The data points of each time series are kept sorted by timestamp
+ * in primitive arrays, instead of maps of boxed timestamps and values, and are only converted to
+ * {@link TimeValue}s while being interpolated and limited for the result.
+ * </p>
+ */
+final class CubeQueryAggregator {
+
+  private final CubeQuery query;
+  private final String[] groupByDimensions;
+  // dictionary of values for each group by dimension, and the values by id
+  private final List<Map<String, Integer>> dictionaries;
+  private final List<List<String>> dictionaryValues;
+  private final String[] measureNames;
+  private final AggregationFunction[] functions;
+  private final Map<String, Integer> measureIndexes;
+
+  // group key -> group id, and the dimension values of each group id
+  private final Map<GroupKey, Integer> groupIds;
+  private final List<Map<String, String>> groups;
+  // time series by group id * number of measures + measure index, null if there is no data point for it
+  private final List<SeriesValues> series;
+  // group key of the current row. Only copied when a new group is found.
+  private final GroupKey currentKey;
+
+  CubeQueryAggregator(CubeQuery query) {
+    this.query = query;
+    this.groupByDimensions = query.getGroupByDimensions().toArray(new String[query.getGroupByDimensions().size()]);
+    this.dictionaries = Lists.newArrayListWithCapacity(groupByDimensions.length);
+    this.dictionaryValues = Lists.newArrayListWithCapacity(groupByDimensions.length);
+    for (int i = 0; i < groupByDimensions.length; i++) {
+      dictionaries.add(Maps.<String, Integer>newHashMap());
+      dictionaryValues.add(Lists.<String>newArrayList());
+    }
+    int measures = query.getMeasurements().size();
+    this.measureNames = new String[measures];
+    this.functions = new AggregationFunction[measures];
+    this.measureIndexes = Maps.newHashMap();
+    int i = 0;
+    for (Map.Entry<String, AggregationFunction> entry : query.getMeasurements().entrySet()) {
+      measureNames[i] = entry.getKey();
+      functions[i] = entry.getValue();
+      measureIndexes.put(entry.getKey(), i++);
+    }
+    this.groupIds = Maps.newHashMap();
+    this.groups = Lists.newArrayList();
+    this.series = Lists.newArrayList();
+    this.currentKey = new GroupKey(new int[groupByDimensions.length]);
+  }
+
+  /**
+   * Adds the data points of a scanned row to the time series of its group and measure.
+   *
+   * @return {@code false} if the row was skipped because it has a {@code null} value for a group by dimension
+   */
+  boolean add(FactScanResult result) {
+    List<DimensionValue> dimensionValues = result.getDimensionValues();
+    for (int i = 0; i < groupByDimensions.length; i++) {
+      int valueId = -1;
+      for (DimensionValue dimensionValue : dimensionValues) {
+        if (groupByDimensions[i].equals(dimensionValue.getName())) {
+          if (dimensionValue.getValue() == null) {
+            // Currently, we do NOT return null as grouped by value.
+            // Depending on whether dimension is required or not the records with null value in it may or may not be
+            // in aggregation. At this moment, the choosing of the aggregation for query doesn't look at this, so
+            // potentially null may or may not be included in results, depending on the aggregation selected
+            // querying. We don't want to produce inconsistent results varying due to different aggregations selected,
+            // so don't return nulls in any of those cases.
+            return false;
+          }
+          Map<String, Integer> dictionary = dictionaries.get(i);
+          Integer id = dictionary.get(dimensionValue.getValue());
+          if (id == null) {
+            id = dictionary.size();
+            dictionary.put(dimensionValue.getValue(), id);
+            dictionaryValues.get(i).add(dimensionValue.getValue());
+          }
+          valueId = id;
+          break;
+        }
+      }
+      currentKey.valueIds[i] = valueId;
+    }
+    currentKey.updateHashCode();
+
+    Integer measureIndex = measureIndexes.get(result.getMeasureName());
+    SeriesValues values = null;
+    for (TimeValue timeValue : result) {
+      if (values == null) {
+        if (measureIndex == null || functions[measureIndex] == null) {
+          // should never happen: developer error
+          throw new RuntimeException("Unknown MeasureType: null");
+        }
+        values = getSeriesValues(measureIndex);
+      }
+      values.add(timeValue.getTimestamp(), timeValue.getValue());
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of groups that have data points.
+   */
+  int getGroupCount() {
+    return groups.size();
+  }
+
+  /**
+   * Returns the aggregated time series, with the interpolator and limit of the query applied.
+   */
+  Collection<TimeSeries> getTimeSeries() {
+    List<TimeSeries> result = Lists.newArrayList();
+    for (int groupId = 0; groupId < groups.size(); groupId++) {
+      for (int measureIndex = 0; measureIndex < measureNames.length; measureIndex++) {
+        SeriesValues values = series.get(groupId * measureNames.length + measureIndex);
+        if (values == null) {
+          continue;
+        }
+        // interpolate while iterating over the sorted values, only creating the data points within the limit
+        Iterator<TimeValue> timeValueItor =
+          new TimeSeriesInterpolator(values, query.getInterpolator(), query.getResolution()).iterator();
+        List<TimeValue> resultTimeValues = Lists.newArrayListWithCapacity(Math.min(values.size, query.getLimit()));
+        int count = 0;
+        while (timeValueItor.hasNext()) {
+          resultTimeValues.add(timeValueItor.next());
+          if (++count >= query.getLimit()) {
+            break;
+          }
+        }
+        result.add(new TimeSeries(measureNames[measureIndex], groups.get(groupId), resultTimeValues));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the values of the given measure for the group of the current row, creating them if needed.
+   */
+  private SeriesValues getSeriesValues(int measureIndex) {
+    Integer groupId = groupIds.get(currentKey);
+    if (groupId == null) {
+      groupId = groups.size();
+      groupIds.put(currentKey.copy(), groupId);
+      // using tree map, to have the same dimension values in the same order for all groups
+      Map<String, String> groupDimensions = Maps.newTreeMap();
+      for (int i = 0; i < groupByDimensions.length; i++) {
+        int valueId = currentKey.valueIds[i];
+        if (valueId >= 0) {
+          groupDimensions.put(groupByDimensions[i], dictionaryValues.get(i).get(valueId));
+        }
+      }
+      groups.add(groupDimensions);
+      for (int i = 0; i < measureNames.length; i++) {
+        series.add(null);
+      }
+    }
+    int index = groupId * measureNames.length + measureIndex;
+    SeriesValues values = series.get(index);
+    if (values == null) {
+      values = new SeriesValues(functions[measureIndex]);
+      series.set(index, values);
+    }
+    return values;
+  }
+
+  /**
+   * Ids of the values of the group by dimensions of a group, -1 for a dimension that is not present.
+   */
+  private static final class GroupKey {
+    private final int[] valueIds;
+    private int hashCode;
+
+    GroupKey(int[] valueIds) {
+      this.valueIds = valueIds;
+      updateHashCode();
+    }
+
+    void updateHashCode() {
+      hashCode = Arrays.hashCode(valueIds);
+    }
+
+    GroupKey copy() {
+      return new GroupKey(Arrays.copyOf(valueIds, valueIds.length));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o || (o instanceof GroupKey && Arrays.equals(valueIds, ((GroupKey) o).valueIds));
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * Data points of a time series, sorted by timestamp, with at most one value per timestamp.
+   */
+  private static final class SeriesValues implements Iterable<TimeValue> {
+    private final AggregationFunction function;
+    private long[] timestamps = new long[16];
+    private long[] values = new long[16];
+    private int size;
+
+    SeriesValues(AggregationFunction function) {
+      this.function = function;
+    }
+
+    void add(long timestamp, long value) {
+      int index;
+      if (size == 0 || timestamp > timestamps[size - 1]) {
+        // the common case, since the columns of a row are in timestamp order
+        index = -size - 1;
+      } else if (timestamp == timestamps[size - 1]) {
+        index = size - 1;
+      } else {
+        index = Arrays.binarySearch(timestamps, 0, size, timestamp);
+      }
+
+      if (index >= 0) {
+        values[index] = aggregate(values[index], value);
+        return;
+      }
+
+      int insertAt = -index - 1;
+      if (size == timestamps.length) {
+        timestamps = Arrays.copyOf(timestamps, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      if (insertAt < size) {
+        System.arraycopy(timestamps, insertAt, timestamps, insertAt + 1, size - insertAt);
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+      }
+      timestamps[insertAt] = timestamp;
+      values[insertAt] = value;
+      size++;
+    }
+
+    private long aggregate(long current, long value) {
+      switch (function) {
+        case SUM:
+          return current + value;
+        case MAX:
+          return Math.max(current, value);
+        case MIN:
+          return Math.min(current, value);
+        case LATEST:
+          return value;
+        default:
+          // should never happen: developer error
+          throw new RuntimeException("Unknown MeasureType: " + function);
+      }
+    }
+
+    @Override
+    public Iterator<TimeValue> iterator() {
+      return new AbstractIterator<TimeValue>() {
+        private int index;
+
+        @Override
+        protected TimeValue computeNext() {
+          if (index >= size) {
+            return endOfData();
+          }
+          TimeValue timeValue = new TimeValue(timestamps[index], values[index]);
+          index++;
+          return timeValue;
+        }
+      };
+    }
+  }
+}
@@ -16,7 +16,6 @@
 
 package co.cask.cdap.data2.dataset2.lib.cube;
 
-import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
 import co.cask.cdap.api.dataset.lib.cube.Cube;
 import co.cask.cdap.api.dataset.lib.cube.CubeDeleteQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeExploreQuery;
@@ -24,7 +23,6 @@ import co.cask.cdap.api.dataset.lib.cube.CubeFact;
 import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
 import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
 import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
-import co.cask.cdap.api.dataset.lib.cube.TimeValue;
 import co.cask.cdap.api.dataset.metrics.MeteredDataset;
 import co.cask.cdap.api.metrics.MetricsCollector;
 import co.cask.cdap.common.utils.ImmutablePair;
@@ -33,14 +31,11 @@ import co.cask.cdap.data2.dataset2.lib.timeseries.FactScan;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanResult;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanner;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
-import com.google.common.collect.HashBasedTable;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
-import com.google.common.collect.Table;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +46,7 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import javax.annotation.Nullable;
 
@@ -65,6 +61,8 @@ public class DefaultCube implements Cube, MeteredDataset {
   private static final int MAX_RECORDS_TO_SCAN = 100 * 1000;
 
   private final Map<Integer, FactTable> resolutionToFactTable;
+  // fact tables that facts are written to when added, excluding the ones that are filled by rollup
+  private final List<FactTable> addFactTables;
   private final Map<String, ? extends Aggregation> aggregations;
   private final Map<String, AggregationAlias> aggregationAliasMap;
 
@@ -74,10 +72,28 @@ public class DefaultCube implements Cube, MeteredDataset {
   public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
                      Map<String, ? extends Aggregation> aggregations,
                      Map<String, AggregationAlias> aggregationAliasMap) {
+    this(resolutions, factTableSupplier, aggregations, aggregationAliasMap, Collections.<Integer>emptySet());
+  }
+
+  /**
+   * Creates a {@link DefaultCube} that does not write the facts added to the given rollup resolutions. The fact
+   * tables of those resolutions are filled with {@link #rollup(String, int, int, long, long)} instead.
+   */
+  public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
+                     Map<String, ? extends Aggregation> aggregations,
+                     Map<String, AggregationAlias> aggregationAliasMap,
+                     Set<Integer> rollupResolutions) {
     this.aggregations = aggregations;
     this.resolutionToFactTable = Maps.newHashMap();
+    this.addFactTables = Lists.newArrayList();
     for (int resolution : resolutions) {
-      resolutionToFactTable.put(resolution, factTableSupplier.get(resolution, 3600));
+      FactTable factTable = factTableSupplier.get(resolution, 3600);
+      resolutionToFactTable.put(resolution, factTable);
+      if (!rollupResolutions.contains(resolution)) {
+        // gauges must be known to roll up the facts
+        factTable.setRegisterGauges(!rollupResolutions.isEmpty());
+        addFactTables.add(factTable);
+      }
     }
     this.aggregationAliasMap = aggregationAliasMap;
   }
@@ -113,7 +129,7 @@ public class DefaultCube implements Cube, MeteredDataset {
       }
     }
 
-    for (FactTable table : resolutionToFactTable.values()) {
+    for (FactTable table : addFactTables) {
       table.add(toWrite);
     }
 
@@ -121,7 +137,7 @@ public class DefaultCube implements Cube, MeteredDataset {
     incrementMetric("cube.cubeFact.added.count", facts.size());
     incrementMetric("cube.tsFact.created.count", toWrite.size());
     incrementMetric("cube.tsFact.created.dimValues.count", dimValuesCount);
-    incrementMetric("cube.tsFact.added.count", toWrite.size() * resolutionToFactTable.size());
+    incrementMetric("cube.tsFact.added.count", toWrite.size() * addFactTables.size());
   }
 
   @Override
@@ -210,12 +226,13 @@ public class DefaultCube implements Cube, MeteredDataset {
     // 3) execute scan query
     FactTable table = resolutionToFactTable.get(query.getResolution());
     FactScanner scanner = table.scan(scan);
-    Table<Map<String, String>, String, Map<Long, Long>> resultMap = getTimeSeries(query, scanner);
+    CubeQueryAggregator aggregator = getTimeSeries(query, scanner);
 
     incrementMetric("cube.query.request.success.count", 1);
-    incrementMetric("cube.query.result.size", resultMap.size());
 
-    Collection<TimeSeries> timeSeries = convertToQueryResult(query, resultMap);
+    // there is one time series for each group and measure with data points, which the result size has always counted
+    Collection<TimeSeries> timeSeries = aggregator.getTimeSeries();
+    incrementMetric("cube.query.result.size", timeSeries.size());
     incrementMetric("cube.query.result.timeseries.count", timeSeries.size());
 
     return timeSeries;
@@ -240,6 +257,45 @@ public class DefaultCube implements Cube, MeteredDataset {
     }
   }
 
+  /**
+   * Rolls up the facts of an aggregation in the time range [startTs, endTs) from the fact table of a resolution
+   * into the fact table of a coarser resolution. See {@link FactTable#rollup(FactTable, List, long, long)}.
+   *
+   * @param aggregation name of the aggregation
+   * @param sourceResolution resolution to roll up from
+   * @param resolution resolution to roll up to
+   * @param startTs start of the time range, in seconds, inclusive
+   * @param endTs end of the time range, in seconds, exclusive
+   */
+  public void rollup(String aggregation, int sourceResolution, int resolution, long startTs, long endTs) {
+    Aggregation agg = aggregations.get(aggregation);
+    Preconditions.checkArgument(agg != null, "Aggregation %s is not found in cube aggregations: %s",
+                                aggregation, aggregations.keySet());
+    FactTable sourceTable = resolutionToFactTable.get(sourceResolution);
+    FactTable table = resolutionToFactTable.get(resolution);
+    Preconditions.checkArgument(sourceTable != null && table != null,
+                                "There's no fact table for resolution %s or %s", sourceResolution, resolution);
+    int rows = sourceTable.rollup(table, agg.getDimensionNames(), startTs, endTs);
+    incrementMetric("cube.rollup.request.count", 1);
+    incrementMetric("cube.rollup.res." + resolution + ".rows.count", rows);
+  }
+
+  /**
+   * Deletes the facts of a resolution before the given time by key range, which is much cheaper than
+   * {@link #delete(CubeDeleteQuery)}, but keeps some facts before the given time.
+   * See {@link FactTable#deleteBefore(List, long)}.
+   *
+   * @param resolution resolution to delete the facts of
+   * @param endTs the time before which to delete, in seconds
+   */
+  public void deleteBefore(int resolution, long endTs) {
+    FactTable table = resolutionToFactTable.get(resolution);
+    Preconditions.checkArgument(table != null, "There's no fact table for resolution %s", resolution);
+    for (Aggregation agg : aggregations.values()) {
+      table.deleteBefore(agg.getDimensionNames(), endTs);
+    }
+  }
+
   @Override
   public Collection<DimensionValue> findDimensionValues(CubeExploreQuery query) {
     LOG.trace("Searching for next-level context, query: {}", query);
@@ -329,107 +385,23 @@ public class DefaultCube implements Cube, MeteredDataset {
     return currentBest;
   }
 
-  private Table<Map<String, String>, String, Map<Long, Long>> getTimeSeries(CubeQuery query, FactScanner scanner) {
-    // {dimension values, measure} -> {time -> value}s
-    Table<Map<String, String>, String, Map<Long, Long>> result = HashBasedTable.create();
+  private CubeQueryAggregator getTimeSeries(CubeQuery query, FactScanner scanner) {
+    CubeQueryAggregator aggregator = new CubeQueryAggregator(query);
 
     int count = 0;
     while (scanner.hasNext()) {
       FactScanResult next = scanner.next();
       incrementMetric("cube.query.scan.records.count", 1);
 
-      boolean skip = false;
-      // using tree map, as we are using it as a key for a map
-      Map<String, String> seriesDimensions = Maps.newTreeMap();
-      for (String dimensionName : query.getGroupByDimensions()) {
-        // todo: use Map<String, String> instead of List<DimensionValue> into a String, String, everywhere
-        for (DimensionValue dimensionValue : next.getDimensionValues()) {
-          if (dimensionName.equals(dimensionValue.getName())) {
-            if (dimensionValue.getValue() == null) {
-              // Currently, we do NOT return null as grouped by value.
-              // Depending on whether dimension is required or not the records with null value in it may or may not be
-              // in aggregation. At this moment, the choosing of the aggregation for query doesn't look at this, so
-              // potentially null may or may not be included in results, depending on the aggregation selected
-              // querying. We don't want to produce inconsistent results varying due to different aggregations selected,
-              // so don't return nulls in any of those cases.
-              skip = true;
-              continue;
-            }
-            seriesDimensions.put(dimensionName, dimensionValue.getValue());
-            break;
-          }
-        }
-      }
-
-      if (skip) {
+      if (!aggregator.add(next)) {
         incrementMetric("cube.query.scan.skipped.count", 1);
         continue;
       }
-
-      for (TimeValue timeValue : next) {
-        Map<Long, Long> timeValues = result.get(seriesDimensions, next.getMeasureName());
-        if (timeValues == null) {
-          result.put(seriesDimensions, next.getMeasureName(), Maps.<Long, Long>newHashMap());
-        }
-
-        AggregationFunction function = query.getMeasurements().get(next.getMeasureName());
-        if (AggregationFunction.SUM == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value == null ? 0 : value;
-          value += timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MAX == function) {
-          Long value = result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value > timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MIN == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value < timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.LATEST == function) {
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), timeValue.getValue());
-        } else {
-          // should never happen: developer error
-          throw new RuntimeException("Unknown MeasureType: " + function);
-        }
-      }
       if (++count >= MAX_RECORDS_TO_SCAN) {
         break;
       }
     }
-    return result;
-  }
-
-  private Collection<TimeSeries> convertToQueryResult(CubeQuery query,
-                                                      Table<Map<String, String>, String,
-                                                        Map<Long, Long>> resultTable) {
-
-    List<TimeSeries> result = Lists.newArrayList();
-    // iterating each groupValue dimensions
-    for (Map.Entry<Map<String, String>, Map<String, Map<Long, Long>>> row : resultTable.rowMap().entrySet()) {
-      // iterating each measure
-      for (Map.Entry<String, Map<Long, Long>> measureEntry : row.getValue().entrySet()) {
-        // generating time series for a grouping and a measure
-        int count = 0;
-        List<TimeValue> timeValues = Lists.newArrayList();
-        for (Map.Entry<Long, Long> timeValue : measureEntry.getValue().entrySet()) {
-          timeValues.add(new TimeValue(timeValue.getKey(), timeValue.getValue()));
-        }
-        Collections.sort(timeValues);
-        PeekingIterator<TimeValue> timeValueItor = Iterators.peekingIterator(
-          new TimeSeriesInterpolator(timeValues, query.getInterpolator(), query.getResolution()).iterator());
-        List<TimeValue> resultTimeValues = Lists.newArrayList();
-        while (timeValueItor.hasNext()) {
-          TimeValue timeValue = timeValueItor.next();
-          resultTimeValues.add(new TimeValue(timeValue.getTimestamp(), timeValue.getValue()));
-          if (++count >= query.getLimit()) {
-            break;
-          }
-        }
-        result.add(new TimeSeries(measureEntry.getKey(), row.getKey(), resultTimeValues));
-      }
-    }
-    return result;
+    return aggregator;
   }
 
   @Override
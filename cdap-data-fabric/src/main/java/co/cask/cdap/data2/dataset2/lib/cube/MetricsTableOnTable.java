@@ -25,6 +25,8 @@ import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.data2.dataset2.lib.table.MetricsTable;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.SortedMap;
@@ -109,6 +111,11 @@ class MetricsTableOnTable implements MetricsTable {
     return table.scan(new Scan(start, stop, filter));
   }
 
+  @Override
+  public List<byte[]> getSplits() {
+    return Collections.emptyList();
+  }
+
   @Override
   public void close() throws IOException {
     table.close();
@@ -19,11 +19,9 @@ package co.cask.cdap.data2.dataset2.lib.cube;
 import co.cask.cdap.api.dataset.lib.cube.Interpolator;
 import co.cask.cdap.api.dataset.lib.cube.TimeValue;
 import com.google.common.collect.AbstractIterator;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
 
-import java.util.Collection;
 import java.util.Iterator;
 import javax.annotation.Nullable;
 
@@ -45,16 +43,19 @@ import javax.annotation.Nullable;
  *   t1  t2  t3  t4  t5
  *   5   -   -   -   3
  *   5   5   5   5   3
+ *
+ * The given data points must be sorted by timestamp. They are read lazily while iterating, so that only the
+ * data points that are consumed get interpolated.
  */
 class TimeSeriesInterpolator implements Iterable<TimeValue> {
 
-  private final Collection<TimeValue> timeSeries;
+  private final Iterable<TimeValue> timeSeries;
   @Nullable
   private final Interpolator interpolator;
   private final int resolution;
 
-  TimeSeriesInterpolator(Collection<TimeValue> timeValues, @Nullable Interpolator interpolator, int resolution) {
-    this.timeSeries = ImmutableList.copyOf(timeValues);
+  TimeSeriesInterpolator(Iterable<TimeValue> timeValues, @Nullable Interpolator interpolator, int resolution) {
+    this.timeSeries = timeValues;
     this.interpolator = interpolator;
     this.resolution = resolution;
   }
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.partitioned;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.PartitionFilter;
+import co.cask.cdap.api.dataset.lib.Partitioning;
+import co.cask.cdap.api.dataset.lib.Partitioning.FieldType;
+
+import java.util.Arrays;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Computes where a scan of the partitions table can skip to, given the row key of a partition that does not match
+ * a {@link PartitionFilter}. The bounds of the filter are encoded once per field, and compared with the fields of
+ * the row key in their encoded form, so that a scan can jump over all rows that share a prefix of non-matching
+ * fields, instead of decoding and testing every one of them.
+ *
+ * <p>
+ * Because string fields are variable length, the position of a field in the row key is only known after all
+ * preceding fields are read. This is why the skipping is done while scanning, rather than with a fuzzy row filter.
+ * </p>
+ */
+final class PartitionSkipScan {
+
+  /**
+   * Returned by {@link #getSkipKey(byte[])} if no more rows after the given row can match the filter.
+   */
+  static final byte[] END_OF_SCAN = new byte[0];
+
+  private final FieldType[] fieldTypes;
+  // encoded bounds for each field, null if the field has no such bound
+  private final byte[][] lowerBounds;
+  private final byte[][] upperBounds;
+  // whether the upper bound of each field is inclusive, which is the case for single value conditions
+  private final boolean[] upperInclusive;
+
+  private PartitionSkipScan(FieldType[] fieldTypes, byte[][] lowerBounds,
+                            byte[][] upperBounds, boolean[] upperInclusive) {
+    this.fieldTypes = fieldTypes;
+    this.lowerBounds = lowerBounds;
+    this.upperBounds = upperBounds;
+    this.upperInclusive = upperInclusive;
+  }
+
+  /**
+   * Creates a {@link PartitionSkipScan} for the given filter, or returns {@code null} if the filter has no
+   * conditions on the fields of the partitioning, or if its bounds are incompatible with the partitioning.
+   */
+  @Nullable
+  static PartitionSkipScan create(@Nullable PartitionFilter filter, Partitioning partitioning) {
+    if (filter == null) {
+      return null;
+    }
+    Map<String, FieldType> fields = partitioning.getFields();
+    FieldType[] fieldTypes = new FieldType[fields.size()];
+    byte[][] lowerBounds = new byte[fields.size()][];
+    byte[][] upperBounds = new byte[fields.size()][];
+    boolean[] upperInclusive = new boolean[fields.size()];
+
+    boolean hasCondition = false;
+    int i = 0;
+    try {
+      for (Map.Entry<String, FieldType> entry : fields.entrySet()) {
+        FieldType fieldType = entry.getValue();
+        fieldTypes[i] = fieldType;
+        PartitionFilter.Condition<? extends Comparable> condition = filter.getCondition(entry.getKey());
+        if (condition != null) {
+          hasCondition = true;
+          if (condition.getLower() != null) {
+            lowerBounds[i] = FieldTypes.toBytes(condition.getLower(), fieldType);
+          }
+          if (condition.isSingleValue()) {
+            upperBounds[i] = lowerBounds[i];
+            upperInclusive[i] = true;
+          } else if (condition.getUpper() != null) {
+            upperBounds[i] = FieldTypes.toBytes(condition.getUpper(), fieldType);
+          }
+        }
+        i++;
+      }
+    } catch (IllegalArgumentException e) {
+      // the bounds don't fit the partitioning, leave it to the filter to reject the partitions
+      return null;
+    }
+    return hasCondition ? new PartitionSkipScan(fieldTypes, lowerBounds, upperBounds, upperInclusive) : null;
+  }
+
+  /**
+   * Returns the row key to continue the scan from if the given row key does not match the bounds of the filter.
+   *
+   * @param rowKey the row key of a partition
+   * @return {@code null} if all fields of the row key are within the bounds of the filter, {@link #END_OF_SCAN}
+   *         if no row after the given row can match, or otherwise a row key greater than the given row key
+   *         such that no row in between can match
+   */
+  @Nullable
+  byte[] getSkipKey(byte[] rowKey) {
+    int offset = 0;
+    for (int i = 0; i < fieldTypes.length; i++) {
+      if (i > 0) {
+        // skip the \0 separator. If it is missing, leave it to the parsing of the row key to reject the row
+        if (offset >= rowKey.length || rowKey[offset] != 0) {
+          return null;
+        }
+        offset++;
+      }
+      int length = FieldTypes.determineLengthInBytes(rowKey, offset, fieldTypes[i]);
+      if (offset + length > rowKey.length) {
+        return null;
+      }
+
+      if (lowerBounds[i] != null
+        && Bytes.compareTo(rowKey, offset, length, lowerBounds[i], 0, lowerBounds[i].length) < 0) {
+        // skip to the lower bound of this field, keeping the preceding fields
+        return Bytes.concat(Arrays.copyOf(rowKey, offset), lowerBounds[i]);
+      }
+      if (upperBounds[i] != null) {
+        int cmp = Bytes.compareTo(rowKey, offset, length, upperBounds[i], 0, upperBounds[i].length);
+        if (cmp > 0 || (cmp == 0 && !upperInclusive[i])) {
+          // skip to the next value of the preceding fields. The prefix ends with the \0 separator for i > 0
+          byte[] skipKey = i == 0 ? null : Bytes.stopKeyForPrefix(Arrays.copyOf(rowKey, offset));
+          return skipKey == null ? END_OF_SCAN : skipKey;
+        }
+      }
+      offset += length;
+    }
+    return null;
+  }
+}
@@ -605,12 +605,27 @@ public class PartitionedFileSetDataset extends AbstractDataset implements Partit
   private void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer, boolean decodeMetadata,
                              @Nullable byte[] startKey, @Nullable byte[] endKey, long limit) {
     long count = 0L;
-    try (Scanner scanner = partitionsTable.scan(startKey, endKey)) {
+    // used to skip over ranges of rows that cannot match the filter, based on all fields of the partitioning
+    PartitionSkipScan skipScan = PartitionSkipScan.create(filter, partitioning);
+    Scanner scanner = partitionsTable.scan(startKey, endKey);
+    try {
       while (count < limit) {
         Row row = scanner.next();
         if (row == null) {
           break;
         }
+        if (skipScan != null) {
+          byte[] skipKey = skipScan.getSkipKey(row.getRow());
+          if (skipKey == PartitionSkipScan.END_OF_SCAN || (skipKey != null && endKey != null
+            && Bytes.compareTo(skipKey, endKey) >= 0)) {
+            break;
+          }
+          if (skipKey != null) {
+            scanner.close();
+            scanner = partitionsTable.scan(skipKey, endKey);
+            continue;
+          }
+        }
         PartitionKey key;
         try {
           key = parseRowKey(row.getRow(), partitioning);
@@ -633,6 +648,8 @@ public class PartitionedFileSetDataset extends AbstractDataset implements Partit
       if (count == 0) {
         warnIfInvalidPartitionFilter(filter, partitioning);
       }
+    } finally {
+      scanner.close();
     }
   }
 
@@ -1092,7 +1109,8 @@ public class PartitionedFileSetDataset extends AbstractDataset implements Partit
       if (condition == null) {
         break; // this field is not present; we can't include any more fields in the stop key
       }
-      Comparable upperValue = condition.getUpper();
+      // a single value condition has no upper bound, its value is the upper bound
+      Comparable upperValue = condition.isSingleValue() ? condition.getValue() : condition.getUpper();
       if (upperValue == null) {
         break; // this field is not present; we can't include any more fields in the stop key
       }
@@ -73,6 +73,14 @@ public class MetadataStoreDataset extends AbstractDataset {
     return gson.fromJson(Bytes.toString(serialized), typeOfT);
   }
 
+  /**
+   * Deserializes the value stored in the row with the given key. Subclasses can override this to reuse values
+   * previously decoded from the same row.
+   */
+  protected <T> T deserialize(MDSKey key, byte[] serialized, Type typeOfT) {
+    return deserialize(serialized, typeOfT);
+  }
+
   public boolean exists(MDSKey id) {
     Row row = table.get(id.getKey());
     if (row.isEmpty()) {
@@ -99,7 +107,7 @@ public class MetadataStoreDataset extends AbstractDataset {
       return null;
     }
 
-    return deserialize(value, typeOfT);
+    return deserialize(id, value, typeOfT);
   }
 
   // returns first that matches
@@ -118,7 +126,7 @@ public class MetadataStoreDataset extends AbstractDataset {
           return null;
         }
 
-        return deserialize(value, typeOfT);
+        return deserialize(new MDSKey(row.getRow()), value, typeOfT);
       } finally {
         scan.close();
       }
@@ -143,6 +151,20 @@ public class MetadataStoreDataset extends AbstractDataset {
     return Lists.newArrayList(listKV(startId, stopId, typeOfT, limit, filter).values());
   }
 
+  // lists keys of all that has same first id parts, without deserializing the values
+  public List<MDSKey> listKeys(MDSKey id) {
+    List<MDSKey> keys = new ArrayList<>();
+    try (Scanner scan = table.scan(id.getKey(), Bytes.stopKeyForPrefix(id.getKey()))) {
+      Row next;
+      while ((next = scan.next()) != null) {
+        if (next.get(COLUMN) != null) {
+          keys.add(new MDSKey(next.getRow()));
+        }
+      }
+    }
+    return keys;
+  }
+
   // returns mapping of all that has same first id parts
   public <T> Map<MDSKey, T> listKV(MDSKey id, Type typeOfT) {
     return listKV(id, typeOfT, Integer.MAX_VALUE);
@@ -180,7 +202,7 @@ public class MetadataStoreDataset extends AbstractDataset {
           if (columnValue == null) {
             continue;
           }
-          T value = deserialize(columnValue, typeOfT);
+          T value = deserialize(key, columnValue, typeOfT);
 
           KeyValue<T> kv = new KeyValue<>(key, value);
           // Combined Filter doesn't pass
@@ -210,7 +232,7 @@ public class MetadataStoreDataset extends AbstractDataset {
           if (columnValue == null) {
             continue;
           }
-          T value = deserialize(columnValue, typeOfT);
+          T value = deserialize(key, columnValue, typeOfT);
 
           // Key Filter doesn't pass
           if (keyFilter != null && !keyFilter.apply(key)) {
@@ -297,9 +319,9 @@ public class MetadataStoreDataset extends AbstractDataset {
         if (columnValue == null) {
           continue;
         }
-        T value = deserialize(columnValue, typeOfT);
-
         MDSKey key = new MDSKey(next.getRow());
+        T value = deserialize(key, columnValue, typeOfT);
+
         //noinspection ConstantConditions
         if (!function.apply(new KeyValue<>(key, value))) {
           break;
@@ -19,6 +19,7 @@ package co.cask.cdap.data2.dataset2.lib.table;
 import co.cask.cdap.api.dataset.Dataset;
 import co.cask.cdap.api.dataset.table.Scanner;
 
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.SortedMap;
@@ -84,12 +85,20 @@ public interface MetricsTable extends Dataset {
   void delete(byte[] row, byte[][] columns);
 
   /**
-   * Get a scanner for a table.
+   * Get a scanner for a table. It must be safe to call this concurrently with other operations on the table,
+   * since a fact table can scan the key ranges of the splits of the table in parallel.
    * @param start the row key of the first row to scan. If null, the scan begins at the first row of the table.
    * @param stop the row key of the last row to scan. If null, the scan goes to the last row of the table.
    * @param filter if non-null, a fuzzy row filter used to efficiently skip over entire rows.
    */
   Scanner scan(@Nullable byte[] start, @Nullable byte[] stop, @Nullable FuzzyRowFilter filter);
 
+  /**
+   * Returns the row keys at which the table is split into separately served key ranges, such as HBase regions.
+   * @return the split keys in ascending order, not including the start of the first split. Empty if the table
+   *         is not split.
+   */
+  List<byte[]> getSplits();
+
 }
 
@@ -31,6 +31,8 @@ import co.cask.cdap.data2.util.hbase.HBaseTableUtil;
 import co.cask.cdap.data2.util.hbase.PutBuilder;
 import co.cask.cdap.data2.util.hbase.ScanBuilder;
 import co.cask.cdap.proto.id.NamespaceId;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.client.Delete;
@@ -41,12 +43,16 @@ import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 
 /**
@@ -54,14 +60,22 @@ import javax.annotation.Nullable;
  */
 public class HBaseMetricsTable implements MetricsTable {
 
+  private static final Logger LOG = LoggerFactory.getLogger(HBaseMetricsTable.class);
+
   private final HBaseTableUtil tableUtil;
+  private final Configuration hConf;
   private final TableId tableId;
   private final HTable hTable;
   private final byte[] columnFamily;
+  // region boundaries change rarely, so they are only looked up once a minute
+  private final Supplier<List<byte[]>> splits;
+  // whether a scan currently reads through hTable; scans that overlap with it get an HTable of their own
+  private final AtomicBoolean sharedTableScanning = new AtomicBoolean();
 
   public HBaseMetricsTable(DatasetContext datasetContext, DatasetSpecification spec,
                            Configuration hConf, HBaseTableUtil tableUtil) throws IOException {
     this.tableUtil = tableUtil;
+    this.hConf = hConf;
     this.tableId = tableUtil.createHTableId(new NamespaceId(datasetContext.getNamespaceId()), spec.getName());
     HTable hTable = tableUtil.createHTable(hConf, tableId);
     // todo: make configurable
@@ -69,6 +83,25 @@ public class HBaseMetricsTable implements MetricsTable {
     hTable.setAutoFlushTo(false);
     this.hTable = hTable;
     this.columnFamily = TableProperties.getColumnFamilyBytes(spec.getProperties());
+    this.splits = Suppliers.memoizeWithExpiration(new Supplier<List<byte[]>>() {
+      @Override
+      public List<byte[]> get() {
+        // with its own HTable, since this can be called concurrently with operations on hTable
+        try (HTable regionsTable = createHTable()) {
+          byte[][] startKeys = regionsTable.getStartKeys();
+          // the first region starts with the empty key
+          List<byte[]> result = Lists.newArrayListWithCapacity(startKeys.length);
+          for (byte[] startKey : startKeys) {
+            if (startKey.length > 0) {
+              result.add(startKey);
+            }
+          }
+          return result;
+        } catch (IOException e) {
+          throw new DataSetException("Failed to get the regions of table " + tableId, e);
+        }
+      }
+    }, 1, TimeUnit.MINUTES);
   }
 
   @Override
@@ -232,19 +265,49 @@ public class HBaseMetricsTable implements MetricsTable {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * Scans read through the shared HTable. HTable is not thread safe though, so a scan that starts while another
+   * scan is still open, such as the split ranges that a fact table scans in parallel, uses an HTable of its own,
+   * which shares the HBase connection and which is closed with the scanner.
+   * </p>
+   */
   @Override
   public Scanner scan(@Nullable byte[] startRow, @Nullable byte[] stopRow,
                       @Nullable FuzzyRowFilter filter) {
     ScanBuilder scanBuilder = tableUtil.buildScan();
     configureRangeScan(scanBuilder, startRow, stopRow, filter);
+    final boolean shared = sharedTableScanning.compareAndSet(false, true);
+    HTable scanTable = shared ? hTable : null;
     try {
-      ResultScanner resultScanner = hTable.getScanner(scanBuilder.build());
-      return new HBaseScanner(resultScanner, columnFamily);
+      if (scanTable == null) {
+        scanTable = createHTable();
+      }
+      ResultScanner resultScanner = scanTable.getScanner(scanBuilder.build());
+      final HTable closeTable = scanTable;
+      return new HBaseScanner(resultScanner, columnFamily) {
+        @Override
+        public void close() {
+          try {
+            super.close();
+          } finally {
+            releaseScanTable(closeTable, shared);
+          }
+        }
+      };
     } catch (IOException e) {
+      releaseScanTable(scanTable, shared);
       throw new DataSetException("Scan failed on table " + tableId, e);
     }
   }
 
+  @Override
+  public List<byte[]> getSplits() {
+    return splits.get();
+  }
+
   private ScanBuilder configureRangeScan(ScanBuilder scan, @Nullable byte[] startRow, @Nullable byte[] stopRow,
                                          @Nullable FuzzyRowFilter filter) {
     // todo: should be configurable
@@ -271,4 +334,23 @@ public class HBaseMetricsTable implements MetricsTable {
   public void close() throws IOException {
     hTable.close();
   }
+
+  private HTable createHTable() throws IOException {
+    return tableUtil.createHTable(hConf, tableId);
+  }
+
+  private void releaseScanTable(@Nullable HTable table, boolean shared) {
+    if (shared) {
+      sharedTableScanning.set(false);
+      return;
+    }
+    if (table == null) {
+      return;
+    }
+    try {
+      table.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close HTable for table {}", tableId, e);
+    }
+  }
 }
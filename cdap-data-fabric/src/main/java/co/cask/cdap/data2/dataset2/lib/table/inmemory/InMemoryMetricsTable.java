@@ -28,6 +28,8 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.SortedMap;
@@ -126,6 +128,11 @@ public class InMemoryMetricsTable implements MetricsTable {
     return new InMemoryScanner(rows.entrySet().iterator(), filter, null);
   }
 
+  @Override
+  public List<byte[]> getSplits() {
+    return Collections.emptyList();
+  }
+
   private NavigableMap<byte[], NavigableMap<byte[], byte[]>> getLatest(
     NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> versionedRows) {
     NavigableMap<byte[], NavigableMap<byte[], byte[]>> rows = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
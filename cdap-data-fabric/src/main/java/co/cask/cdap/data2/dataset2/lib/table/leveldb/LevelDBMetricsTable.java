@@ -29,6 +29,8 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.SortedMap;
@@ -153,6 +155,11 @@ public class LevelDBMetricsTable implements MetricsTable {
     }
   }
 
+  @Override
+  public List<byte[]> getSplits() {
+    return Collections.emptyList();
+  }
+
   @Override
   public void close() throws IOException {
     // Do nothing
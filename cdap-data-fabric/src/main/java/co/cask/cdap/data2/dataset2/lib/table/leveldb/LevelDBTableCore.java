@@ -26,7 +26,9 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Striped;
 import org.apache.tephra.Transaction;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
@@ -40,8 +42,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.concurrent.locks.Lock;
 import javax.annotation.Nullable;
 
 /**
@@ -77,10 +81,13 @@ public class LevelDBTableCore {
 
   private final String tableName;
   private final LevelDBTableService service;
+  // locks rows for read-modify-write operations, shared by all cores of the same table
+  private final Striped<Lock> rowLocks;
 
   public LevelDBTableCore(String tableName, LevelDBTableService service) throws IOException {
     this.tableName = tableName;
     this.service = service;
+    this.rowLocks = service.getRowLocks(tableName);
   }
 
   private DB getDB() throws IOException {
@@ -92,48 +99,83 @@ public class LevelDBTableCore {
   }
 
 
-  public synchronized boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
-    byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
-    // verify
-    if (oldValue == null && existing != null) {
-      return false;
-    }
-    if (oldValue != null && (existing == null || !Bytes.equals(oldValue, existing))) {
-      return false;
-    }
-    // write
-    if (newValue == null) {
-      // to-do
-      deleteColumn(row, column);
-    } else {
-      persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)), System.currentTimeMillis());
-    }
-    return true;
-  }
-
-  public synchronized Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws IOException {
-    Map<byte[], Long> result = getResultMap(row, increments);
-    Map<byte[], byte[]> replacing = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    for (Map.Entry<byte[], Long> entry : result.entrySet()) {
-      replacing.put(entry.getKey(), Bytes.toBytes(entry.getValue()));
+  public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
+    Lock lock = getRowLock(row);
+    lock.lock();
+    try {
+      byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
+      // verify
+      if (oldValue == null && existing != null) {
+        return false;
+      }
+      if (oldValue != null && (existing == null || !Bytes.equals(oldValue, existing))) {
+        return false;
+      }
+      // write
+      if (newValue == null) {
+        // to-do
+        deleteColumn(row, column);
+      } else {
+        persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)),
+                System.currentTimeMillis());
+      }
+      return true;
+    } finally {
+      lock.unlock();
     }
-    persist(ImmutableMap.of(row, replacing), System.currentTimeMillis());
-    return result;
   }
 
-
-  public synchronized void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
-    Map<byte[], Map<byte[], byte[]>> resultMap = Maps.newHashMap();
-    for (NavigableMap.Entry<byte[], NavigableMap<byte[], Long>> row : updates.entrySet()) {
-      NavigableMap<byte[], Long> increments = row.getValue();
+  public Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws IOException {
+    Lock lock = getRowLock(row);
+    lock.lock();
+    try {
+      Map<byte[], Long> result = getResultMap(row, increments);
       Map<byte[], byte[]> replacing = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      Map<byte[], Long> result = getResultMap(row.getKey(), increments);
       for (Map.Entry<byte[], Long> entry : result.entrySet()) {
         replacing.put(entry.getKey(), Bytes.toBytes(entry.getValue()));
       }
-      resultMap.put(row.getKey(), replacing);
+      persist(ImmutableMap.of(row, replacing), System.currentTimeMillis());
+      return result;
+    } finally {
+      lock.unlock();
     }
-    persist(resultMap, System.currentTimeMillis());
+  }
+
+  public void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
+    // bulkGet returns the locks in a consistent order, so that concurrent batches cannot deadlock
+    List<Integer> rowHashes = Lists.newArrayListWithCapacity(updates.size());
+    for (byte[] row : updates.keySet()) {
+      rowHashes.add(Bytes.hashCode(row));
+    }
+    Iterable<Lock> locks = rowLocks.bulkGet(rowHashes);
+    List<Lock> acquired = Lists.newArrayListWithCapacity(updates.size());
+    try {
+      for (Lock lock : locks) {
+        lock.lock();
+        acquired.add(lock);
+      }
+      Map<byte[], Map<byte[], byte[]>> resultMap = Maps.newHashMap();
+      for (NavigableMap.Entry<byte[], NavigableMap<byte[], Long>> row : updates.entrySet()) {
+        NavigableMap<byte[], Long> increments = row.getValue();
+        Map<byte[], byte[]> replacing = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        Map<byte[], Long> result = getResultMap(row.getKey(), increments);
+        for (Map.Entry<byte[], Long> entry : result.entrySet()) {
+          replacing.put(entry.getKey(), Bytes.toBytes(entry.getValue()));
+        }
+        resultMap.put(row.getKey(), replacing);
+      }
+      persist(resultMap, System.currentTimeMillis());
+    } finally {
+      // a stripe can appear multiple times if rows hash to the same stripe, each lock call is matched by an unlock
+      for (Lock lock : Lists.reverse(acquired)) {
+        lock.unlock();
+      }
+    }
+  }
+
+  private Lock getRowLock(byte[] row) {
+    // byte arrays don't implement hashCode based on their content
+    return rowLocks.get(Bytes.hashCode(row));
   }
 
   private Map<byte[], Long> getResultMap(byte[] row, Map<byte[], Long> increments) throws IOException {
@@ -200,10 +242,17 @@ public class LevelDBTableCore {
       Arrays.sort(columns, Bytes.BYTES_COMPARATOR);
     }
 
-    DBIterator iterator = getDB().iterator();
-    seekToStart(iterator, startRow);
-    byte[] endKey = stopRow == null ? null : createEndKey(stopRow);
-    return new LevelDBScanner(iterator, endKey, filter, columns, tx);
+    // the table must stay open while the scanner is in use
+    LevelDBTableService.TableLease lease = service.acquireTable(tableName);
+    try {
+      DBIterator iterator = lease.getDB().iterator();
+      seekToStart(iterator, startRow);
+      byte[] endKey = stopRow == null ? null : createEndKey(stopRow);
+      return new LevelDBScanner(lease, iterator, endKey, filter, columns, tx);
+    } catch (RuntimeException e) {
+      lease.close();
+      throw e;
+    }
   }
 
   /**
@@ -328,9 +377,11 @@ public class LevelDBTableCore {
 
   public void deleteRows(byte[] prefix) throws IOException {
     Preconditions.checkNotNull(prefix, "prefix must not be null");
-    DB db = getDB();
-    WriteBatch batch = db.createWriteBatch();
-    try (DBIterator iterator = db.iterator()) {
+    // the table must stay open while iterating, which may take long for large prefixes
+    try (LevelDBTableService.TableLease lease = service.acquireTable(tableName);
+         DBIterator iterator = lease.getDB().iterator()) {
+      DB db = lease.getDB();
+      WriteBatch batch = db.createWriteBatch();
       iterator.seek(createStartKey(prefix));
       while (iterator.hasNext()) {
         Map.Entry<byte[], byte[]> entry = iterator.next();
@@ -356,9 +407,11 @@ public class LevelDBTableCore {
     Iterator<byte[]> rows = toDelete.iterator();
     byte[] currentRow = rows.next();
     byte[] startKey = createStartKey(currentRow);
-    DB db = getDB();
-    WriteBatch batch = db.createWriteBatch();
-    try (DBIterator iterator = db.iterator()) {
+    // the table must stay open while iterating, which may take long for many rows
+    try (LevelDBTableService.TableLease lease = service.acquireTable(tableName);
+         DBIterator iterator = lease.getDB().iterator()) {
+      DB db = lease.getDB();
+      WriteBatch batch = db.createWriteBatch();
       iterator.seek(startKey);
       if (!iterator.hasNext()) {
         return; // nothing in the db to delete
@@ -382,9 +435,9 @@ public class LevelDBTableCore {
           entry = iterator.hasNext() ? iterator.next() : null;
         }
       }
+      // delete all the entries that were found
+      db.write(batch, getWriteOptions());
     }
-    // delete all the entries that were found
-    db.write(batch, getWriteOptions());
   }
 
   public void deleteRange(byte[] startRow, byte[] stopRow, @Nullable FuzzyRowFilter filter, @Nullable byte[][] columns)
@@ -397,7 +450,9 @@ public class LevelDBTableCore {
       Arrays.sort(columns, Bytes.BYTES_COMPARATOR);
     }
 
-    DB db = getDB();
+    // the table must stay open while deleting, which may take long for large ranges
+    LevelDBTableService.TableLease lease = service.acquireTable(tableName);
+    DB db = lease.getDB();
     DBIterator iterator = db.iterator();
     seekToStart(iterator, startRow);
     byte[] endKey = stopRow == null ? null : createEndKey(stopRow);
@@ -405,7 +460,8 @@ public class LevelDBTableCore {
     DBIterator deleteIterator = db.iterator();
     seekToStart(deleteIterator, startRow);
     final int deletesPerRound = 1024; // todo make configurable
-    try (Scanner scanner = new LevelDBScanner(iterator, endKey, filter, columns, null)) {
+    // closing the scanner closes the lease
+    try (Scanner scanner = new LevelDBScanner(lease, iterator, endKey, filter, columns, null)) {
       Row rowValues;
       WriteBatch batch = db.createWriteBatch();
       int deletesInBatch = 0;
@@ -485,14 +541,16 @@ public class LevelDBTableCore {
    */
   private static class LevelDBScanner implements Scanner {
 
+    private final LevelDBTableService.TableLease lease;
     private final Transaction tx;
     private byte[] endKey;
     private final DBIterator iterator;
     private final byte[][] columns;
     private final FuzzyRowFilter filter;
 
-    LevelDBScanner(DBIterator iterator, byte[] endKey,
+    LevelDBScanner(LevelDBTableService.TableLease lease, DBIterator iterator, byte[] endKey,
                    @Nullable FuzzyRowFilter filter, @Nullable byte[][] columns, @Nullable Transaction tx) {
+      this.lease = lease;
       this.tx = tx;
       this.endKey = endKey;
       this.iterator = iterator;
@@ -540,6 +598,8 @@ public class LevelDBTableCore {
       } catch (Exception e) {
         LOG.warn("Error closing LevelDB iterator", e);
         // but what else can we do? nothing.
+      } finally {
+        lease.close();
       }
     }
   }
@@ -25,7 +25,10 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.Striped;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.iq80.leveldb.DB;
@@ -35,14 +38,22 @@ import org.iq80.leveldb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
 
@@ -53,13 +64,21 @@ import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
 public class LevelDBTableService {
 
   private static final Logger LOG = LoggerFactory.getLogger(LevelDBTableService.class);
+  // number of lock stripes for the rows of each table
+  private static final int ROW_LOCK_STRIPES = 64;
 
   private int blockSize;
   private long cacheSize;
   private String basePath;
   private WriteOptions writeOptions;
+  private int maxOpenTables;
+  private long tableIdleMillis;
 
-  private final ConcurrentMap<String, DB> tables = Maps.newConcurrentMap();
+  private final ConcurrentMap<String, TableHandle> tables = Maps.newConcurrentMap();
+  private final AtomicLong handleHits = new AtomicLong();
+  private final AtomicLong handleMisses = new AtomicLong();
+  private final AtomicLong idleTablesClosed = new AtomicLong();
+  private final ConcurrentMap<String, Striped<Lock>> rowLocks = Maps.newConcurrentMap();
 
   /**
    * To avoid database locking issues make sure that the single LevelDBTableService instance
@@ -89,6 +108,10 @@ public class LevelDBTableService {
     cacheSize = config.getLong(Constants.CFG_DATA_LEVELDB_CACHESIZE, Constants.DEFAULT_DATA_LEVELDB_CACHESIZE);
     writeOptions = new WriteOptions().sync(
       config.getBoolean(Constants.CFG_DATA_LEVELDB_FSYNC, Constants.DEFAULT_DATA_LEVELDB_FSYNC));
+    maxOpenTables = config.getInt(Constants.CFG_DATA_LEVELDB_MAX_OPEN_TABLES,
+                                  Constants.DEFAULT_DATA_LEVELDB_MAX_OPEN_TABLES);
+    tableIdleMillis = config.getLong(Constants.CFG_DATA_LEVELDB_TABLE_IDLE_MILLIS,
+                                     Constants.DEFAULT_DATA_LEVELDB_TABLE_IDLE_MILLIS);
   }
 
   /**
@@ -156,32 +179,131 @@ public class LevelDBTableService {
     return writeOptions;
   }
 
+  /**
+   * Returns the striped row locks of a table. They are shared by all clients of the table in this process,
+   * to make read-modify-write operations on a row atomic without serializing operations on unrelated rows.
+   */
+  public Striped<Lock> getRowLocks(String tableName) {
+    Striped<Lock> locks = rowLocks.get(tableName);
+    if (locks == null) {
+      Striped<Lock> newLocks = Striped.lock(ROW_LOCK_STRIPES);
+      locks = rowLocks.putIfAbsent(tableName, newLocks);
+      if (locks == null) {
+        locks = newLocks;
+      }
+    }
+    return locks;
+  }
+
+  /**
+   * Returns the {@link DB} of a table, opening it if needed. If the number of open tables is limited, the returned
+   * {@link DB} must only be used for a short operation, since the table may be closed after being idle. Use
+   * {@link #acquireTable(String)} for long lived usage, such as iterators.
+   */
   public DB getTable(String tableName) throws IOException {
-    DB db = tables.get(tableName);
-    if (db == null) {
-      synchronized (tables) {
-        db = tables.get(tableName);
-        if (db == null) {
-          db = openTable(tableName);
-          tables.put(tableName, db);
+    return getHandle(tableName, false).db;
+  }
+
+  /**
+   * Returns a {@link TableLease} for the {@link DB} of a table. The table is not closed for being idle until the
+   * lease is closed.
+   */
+  public TableLease acquireTable(String tableName) throws IOException {
+    return new TableLease(getHandle(tableName, true));
+  }
+
+  /**
+   * Gets the statistics of the open table handles.
+   */
+  public HandleStats getHandleStats() {
+    return new HandleStats(tables.size(), handleHits.get(), handleMisses.get(), idleTablesClosed.get());
+  }
+
+  private TableHandle getHandle(String tableName, boolean pin) throws IOException {
+    while (true) {
+      TableHandle handle = tables.get(tableName);
+      if (handle == null) {
+        synchronized (tables) {
+          handle = tables.get(tableName);
+          if (handle == null) {
+            handle = new TableHandle(openTable(tableName));
+            tables.put(tableName, handle);
+            handleMisses.incrementAndGet();
+            closeIdleTables();
+          }
         }
+      } else {
+        handleHits.incrementAndGet();
       }
+      if (handle.use(pin)) {
+        return handle;
+      }
+      // the table was closed concurrently for being idle, it will be opened again
     }
-    return db;
   }
 
   public void ensureTableExists(String tableName) throws IOException {
-    DB db = tables.get(tableName);
-    if (db == null) {
+    TableHandle handle = tables.get(tableName);
+    if (handle == null) {
       synchronized (tables) {
-        db = tables.get(tableName);
-        if (db == null) {
+        handle = tables.get(tableName);
+        if (handle == null) {
           createTable(tableName);
+          closeIdleTables();
+        }
+      }
+    }
+  }
+
+  /**
+   * Closes the least recently used tables that are idle, until the number of open tables is within the limit.
+   * Must be called while holding the lock on {@link #tables}.
+   */
+  private void closeIdleTables() {
+    if (maxOpenTables <= 0 || tables.size() <= maxOpenTables) {
+      return;
+    }
+    // take a snapshot of the access times, since they change while sorting
+    final Map<String, Long> accessTimes = Maps.newHashMap();
+    for (Map.Entry<String, TableHandle> entry : tables.entrySet()) {
+      accessTimes.put(entry.getKey(), entry.getValue().lastAccess);
+    }
+    List<String> tableNames = Lists.newArrayList(accessTimes.keySet());
+    Collections.sort(tableNames, new Comparator<String>() {
+      @Override
+      public int compare(String name1, String name2) {
+        return Longs.compare(accessTimes.get(name1), accessTimes.get(name2));
+      }
+    });
+
+    int toClose = tables.size() - maxOpenTables;
+    long now = System.currentTimeMillis();
+    for (String tableName : tableNames) {
+      if (toClose <= 0) {
+        break;
+      }
+      TableHandle handle = tables.get(tableName);
+      if (handle != null && handle.tryClose(now, tableIdleMillis)) {
+        tables.remove(tableName, handle);
+        try {
+          handle.db.close();
+        } catch (IOException e) {
+          LOG.warn("Failed to close idle LevelDB table {}", tableName, e);
         }
+        idleTablesClosed.incrementAndGet();
+        toClose--;
       }
     }
   }
 
+  /**
+   * Returns the block cache size of each table. If the number of open tables is limited, the configured cache
+   * size is divided among them.
+   */
+  private long getTableCacheSize() {
+    return maxOpenTables > 0 ? cacheSize / maxOpenTables : cacheSize;
+  }
+
   private DB openTable(String tableName) throws IOException {
     String dbPath = getDBPath(basePath, tableName);
 
@@ -190,7 +312,7 @@ public class LevelDBTableService {
     options.errorIfExists(false);
     options.comparator(new KeyValueDBComparator());
     options.blockSize(blockSize);
-    options.cacheSize(cacheSize);
+    options.cacheSize(getTableCacheSize());
 
     // unfortunately, with the java version of leveldb, with createIfMissing set to false, factory.open will
     // see that there is no table and throw an exception, but it wont clean up after itself and will leave a
@@ -200,9 +322,7 @@ public class LevelDBTableService {
     if (!dbDir.exists()) {
       throw new IOException("Database " + dbPath + " does not exist and the create if missing option is disabled");
     }
-    DB db = factory.open(dbDir, options);
-    tables.put(tableName, db);
-    return db;
+    return factory.open(dbDir, options);
   }
 
   private void createTable(String name) throws IOException {
@@ -213,16 +333,18 @@ public class LevelDBTableService {
     options.errorIfExists(false);
     options.comparator(new KeyValueDBComparator());
     options.blockSize(blockSize);
-    options.cacheSize(cacheSize);
+    options.cacheSize(getTableCacheSize());
 
     DB db = factory.open(new File(dbPath), options);
-    tables.put(name, db);
+    TableHandle handle = new TableHandle(db);
+    handle.use(false);
+    tables.put(name, handle);
   }
 
   public void dropTable(String name) throws IOException {
-    DB db = tables.remove(name);
-    if (db != null) {
-      db.close();
+    TableHandle handle = tables.remove(name);
+    if (handle != null) {
+      handle.db.close();
     }
     String dbPath = getDBPath(basePath, name);
     factory.destroy(new File(dbPath), new Options());
@@ -280,4 +402,117 @@ public class LevelDBTableService {
       return diskSizeBytes;
     }
   }
+
+  /**
+   * Statistics of the open table handles.
+   */
+  public static final class HandleStats {
+    private final int openTables;
+    private final long hits;
+    private final long misses;
+    private final long idleTablesClosed;
+
+    public HandleStats(int openTables, long hits, long misses, long idleTablesClosed) {
+      this.openTables = openTables;
+      this.hits = hits;
+      this.misses = misses;
+      this.idleTablesClosed = idleTablesClosed;
+    }
+
+    /**
+     * Returns the number of tables that are currently open.
+     */
+    public int getOpenTables() {
+      return openTables;
+    }
+
+    /**
+     * Returns the number of table lookups that found the table open.
+     */
+    public long getHits() {
+      return hits;
+    }
+
+    /**
+     * Returns the number of table lookups that had to open the table.
+     */
+    public long getMisses() {
+      return misses;
+    }
+
+    /**
+     * Returns the number of tables that were closed for being idle.
+     */
+    public long getIdleTablesClosed() {
+      return idleTablesClosed;
+    }
+  }
+
+  /**
+   * Gives access to the {@link DB} of a table, which is not closed for being idle until the lease is closed.
+   */
+  public static final class TableLease implements Closeable {
+    private final TableHandle handle;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private TableLease(TableHandle handle) {
+      this.handle = handle;
+    }
+
+    public DB getDB() {
+      return handle.db;
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        handle.pins.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * An open table, with the information needed to decide whether it can be closed for being idle.
+   */
+  private static final class TableHandle {
+    private final DB db;
+    // number of open leases
+    private final AtomicInteger pins = new AtomicInteger();
+    private volatile long lastAccess;
+    private volatile boolean closed;
+
+    private TableHandle(DB db) {
+      this.db = db;
+    }
+
+    /**
+     * Records a use of this table. Returns false if the table was closed, in which case it must be opened again.
+     */
+    private boolean use(boolean pin) {
+      lastAccess = System.currentTimeMillis();
+      if (pin) {
+        pins.incrementAndGet();
+      }
+      // checked after updating the access time and pins, which are checked by tryClose after setting closed
+      if (closed) {
+        if (pin) {
+          pins.decrementAndGet();
+        }
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Marks this table as closed if it has no leases and was not used for the given idle time.
+     */
+    private boolean tryClose(long now, long idleMillis) {
+      closed = true;
+      if (pins.get() > 0 || now - lastAccess < idleMillis) {
+        closed = false;
+        return false;
+      }
+      return true;
+    }
+  }
 }
@@ -16,17 +16,25 @@
 package co.cask.cdap.data2.dataset2.lib.timeseries;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.api.metrics.MetricsCollector;
 import co.cask.cdap.data2.dataset2.lib.table.MetricsTable;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import javax.annotation.Nullable;
 
@@ -44,6 +52,11 @@ import javax.annotation.Nullable;
  * <h5>Entity mapping rows</h5>
  * Each entity would have two rows. One is keyed by {@code [type].[entityName]} and have one "id" column which
  * stores the unique ID. The other is a reverse map from {@code [type].id} to entity name in "name" column.
+ *
+ * <h5>Caching</h5>
+ * Both mappings are cached in memory, bounded by the cache size. The caches can be filled with {@link #preload()}
+ * from the reverse mapping rows in a single scan. New IDs can be reserved in batches from the generator row, so
+ * that a single increment serves multiple new entities of the same type.
  */
 public final class EntityTable implements Closeable {
 
@@ -55,13 +68,18 @@ public final class EntityTable implements Closeable {
   private static final byte[] DOT = { '.' };
   // max number of distinct values of entity of a single type
   private static final long MAX_ID_COUNT = 0x1000000L;
+  private static final int DEFAULT_CACHE_SIZE = 100000;
 
   private final MetricsTable table;
   private final LoadingCache<EntityName, Long> entityCache;
   private final LoadingCache<EntityId, EntityName> idCache;
   private final long maxId;
   private final int size;
-
+  private final int cacheSize;
+  private final int idBatchSize;
+  // ranges of IDs reserved from the generator rows, by entity type
+  private final ConcurrentMap<String, IdRange> idRanges;
+  private volatile MetricsCollector metrics;
 
   /**
    * Creates an EntityTable with max id = 16777215.
@@ -72,21 +90,91 @@ public final class EntityTable implements Closeable {
     this(table, MAX_ID_COUNT);
   }
 
+  /**
+   * Creates an EntityTable with max id = 16777215.
+   *
+   * See {@link #EntityTable(MetricsTable, long, int, int)}.
+   */
+  public EntityTable(MetricsTable table, int cacheSize, int idBatchSize) {
+    this(table, MAX_ID_COUNT, cacheSize, idBatchSize);
+  }
+
+  /**
+   * Creates an EntityTable that caches up to 100000 mappings and generates one ID at a time.
+   *
+   * See {@link #EntityTable(MetricsTable, long, int, int)}.
+   */
+  EntityTable(MetricsTable table, long maxId) {
+    this(table, maxId, DEFAULT_CACHE_SIZE, 1);
+  }
+
   /**
    * Creates an EntityTable backed by the given {@link MetricsTable}.
    *
    * @param table The storage table
    * @param maxId Maximum ID (exclusive) that can be generated.
+   * @param cacheSize Maximum number of entries in each of the name to ID and the ID to name caches.
+   * @param idBatchSize Number of IDs to reserve with each increment of the generator row. IDs that are reserved
+   *                    but not assigned when this instance is discarded are never used.
    */
-  EntityTable(MetricsTable table, long maxId) {
+  EntityTable(MetricsTable table, long maxId, int cacheSize, int idBatchSize) {
     Preconditions.checkArgument(table != null, "Table cannot be null.");
     Preconditions.checkArgument(maxId > 0, "maxId must be > 0.");
+    Preconditions.checkArgument(cacheSize > 0, "cacheSize must be > 0.");
+    Preconditions.checkArgument(idBatchSize > 0, "idBatchSize must be > 0.");
 
     this.table = table;
-    this.entityCache = CacheBuilder.newBuilder().build(createEntityCacheLoader());
-    this.idCache = CacheBuilder.newBuilder().build(createIdCacheLoader());
+    this.entityCache = CacheBuilder.newBuilder()
+      .maximumSize(cacheSize)
+      .removalListener(createEvictionListener("entityTable.name.cache.evict.count"))
+      .build(createEntityCacheLoader());
+    this.idCache = CacheBuilder.newBuilder()
+      .maximumSize(cacheSize)
+      .removalListener(createEvictionListener("entityTable.id.cache.evict.count"))
+      .build(createIdCacheLoader());
     this.maxId = maxId;
     this.size = computeSize(maxId);
+    this.cacheSize = cacheSize;
+    this.idBatchSize = idBatchSize;
+    this.idRanges = Maps.newConcurrentMap();
+  }
+
+  /**
+   * Sets the {@link MetricsCollector} for reporting the cache evictions.
+   */
+  public void setMetricsCollector(MetricsCollector metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Fills the caches with the mappings stored in the table, up to the cache size, so that the lookups after a
+   * restart don't have to read the table one entity at a time.
+   *
+   * @return the number of mappings loaded
+   */
+  public int preload() {
+    int count = 0;
+    try (Scanner scanner = table.scan(null, null, null)) {
+      Row row;
+      while (count < cacheSize && (row = scanner.next()) != null) {
+        // Only the reverse mapping rows are used. The forward mapping of a recycled ID can be stale,
+        // while a reverse mapping row always matches the forward mapping row of the name it contains.
+        byte[] name = row.get(NAME);
+        byte[] rowKey = row.getRow();
+        int typeLength = rowKey.length - Bytes.SIZEOF_LONG - DOT.length;
+        if (name == null || typeLength < 0 || rowKey[typeLength] != DOT[0]) {
+          continue;
+        }
+        String type = Bytes.toString(rowKey, 0, typeLength);
+        long id = Bytes.toLong(rowKey, typeLength + DOT.length);
+        EntityName entityName = new EntityName(type, Bytes.toString(name));
+        entityCache.put(entityName, id);
+        idCache.put(new EntityId(id, type), entityName);
+        count++;
+      }
+    }
+    LOG.debug("Preloaded {} entity mappings", count);
+    return count;
   }
 
   /**
@@ -101,6 +189,27 @@ public final class EntityTable implements Closeable {
     return entityCache.getUnchecked(new EntityName(type, name)) % maxId;
   }
 
+  /**
+   * Returns the unique id for the given name if it has been assigned already, without assigning a new one.
+   * @param type The type of the entity.
+   * @param name The name of the entity.
+   * @return Unique ID or {@code null} if there is no ID assigned to the given name.
+   */
+  @Nullable
+  public Long findId(String type, String name) {
+    EntityName entityName = new EntityName(type, name);
+    Long id = entityCache.getIfPresent(entityName);
+    if (id == null) {
+      byte[] result = table.get(Bytes.toBytes(type + '.' + name), ID);
+      if (result == null) {
+        return null;
+      }
+      id = Bytes.toLong(result);
+      entityCache.put(entityName, id);
+    }
+    return id % maxId;
+  }
+
   /**
    * Returns the entity name for the given id and type.
    * @param id The id to lookup
@@ -141,18 +250,7 @@ public final class EntityTable implements Closeable {
         }
 
         // Not found, generate a new ID
-        byte[] maxIdRowKey = Bytes.toBytes(key.getType() + ".maxId");
-        long newId = table.incrementAndGet(maxIdRowKey, MAX_ID, 1L);
-
-        /* we recycle the id's after reaching max-id to let the id's start from 1 again.
-        this most likely won't happen for any entity other than run-id,
-        Even for run-id - its okay to recycle, as we would have truncated the old data when we reach 16777215 runs,
-        as our max TTL is 30 days currently. The reasoning is the likelihood for running 16777215 programs
-        under 30 days is low. For mapping the id -> name , we use (id % maxId) */
-        if (newId % maxId == 0) {
-          newId = 1L;
-          table.swap(maxIdRowKey, MAX_ID, Bytes.toBytes(maxId), Bytes.toBytes(newId));
-        }
+        long newId = nextId(key.getType());
 
         if (key.getName() == null || key.getName().isEmpty()) {
           LOG.warn("Adding mapping for " + (key.getName() == null ? "null" : "empty") + " name, " +
@@ -203,6 +301,64 @@ public final class EntityTable implements Closeable {
     };
   }
 
+  /**
+   * Returns the next ID for the given type from the reserved range, reserving a new range if it is used up.
+   */
+  private long nextId(String type) {
+    IdRange range = idRanges.get(type);
+    if (range == null) {
+      range = new IdRange();
+      IdRange existing = idRanges.putIfAbsent(type, range);
+      range = existing == null ? range : existing;
+    }
+    synchronized (range) {
+      if (range.next > range.end) {
+        reserveIds(type, range);
+      }
+      return range.next++;
+    }
+  }
+
+  /**
+   * Reserves the next batch of IDs for the given type by incrementing the generator row.
+   */
+  private void reserveIds(String type, IdRange range) {
+    byte[] maxIdRowKey = Bytes.toBytes(type + ".maxId");
+    while (true) {
+      long end = table.incrementAndGet(maxIdRowKey, MAX_ID, idBatchSize);
+      long start = end - idBatchSize + 1;
+
+      /* we recycle the id's after reaching max-id to let the id's start from 1 again.
+      this most likely won't happen for any entity other than run-id,
+      Even for run-id - its okay to recycle, as we would have truncated the old data when we reach 16777215 runs,
+      as our max TTL is 30 days currently. The reasoning is the likelihood for running 16777215 programs
+      under 30 days is low. For mapping the id -> name , we use (id % maxId) */
+      if (end >= maxId) {
+        // If the swap fails, another caller has incremented past max-id as well and will reset it
+        table.swap(maxIdRowKey, MAX_ID, Bytes.toBytes(end), Bytes.toBytes(0L));
+        if (start >= maxId) {
+          continue;
+        }
+        end = maxId - 1;
+      }
+      range.next = start;
+      range.end = end;
+      return;
+    }
+  }
+
+  private RemovalListener<Object, Object> createEvictionListener(final String metricName) {
+    return new RemovalListener<Object, Object>() {
+      @Override
+      public void onRemoval(RemovalNotification<Object, Object> notification) {
+        MetricsCollector metrics = EntityTable.this.metrics;
+        if (metrics != null && notification.getCause() == RemovalCause.SIZE) {
+          metrics.increment(metricName, 1);
+        }
+      }
+    };
+  }
+
   static int computeSize() {
     return computeSize(MAX_ID_COUNT);
   }
@@ -276,6 +432,14 @@ public final class EntityTable implements Closeable {
     }
   }
 
+  /**
+   * Range of IDs reserved for a type. IDs from {@code next} to {@code end}, inclusive, are not assigned yet.
+   */
+  private static final class IdRange {
+    private long next = 1;
+    private long end = 0;
+  }
+
   /**
    * Private class to hold both entity ID and the type.
    */
@@ -39,6 +39,7 @@ public class FactCodec {
   // encoding types
   private static final String TYPE_MEASURE_NAME = "measureName";
   private static final String TYPE_DIMENSIONS_GROUP = "tagsGroup";
+  private static final String TYPE_GAUGE_MEASURE_NAME = "gaugeMeasureName";
 
   private final EntityTable entityTable;
 
@@ -105,6 +106,36 @@ public class FactCodec {
     return entityTable.getId(TYPE_MEASURE_NAME, measureName);
   }
 
+  /**
+   * Builds the row key for the same dimension values and measure name as the given row key, which can be created by
+   * a codec of another resolution that uses the same entity table, at a different timestamp.
+   * @param rowKey row key to take the dimension values and measure name from
+   * @param ts timestamp
+   * @return row key
+   */
+  public byte[] createRowKey(byte[] rowKey, long ts) {
+    byte[] result = Arrays.copyOf(rowKey, rowKey.length);
+    // timebase is encoded as int after the encoded agg group
+    Bytes.putInt(result, VERSION.length + entityTable.getIdSize(), getTimeBase(roundToResolution(ts)));
+    return result;
+  }
+
+  /**
+   * Records that the measure with the given name is a gauge. See {@link #isGauge(String)}.
+   * @param measureName measure name
+   */
+  public void registerGauge(String measureName) {
+    entityTable.getId(TYPE_GAUGE_MEASURE_NAME, measureName);
+  }
+
+  /**
+   * Returns whether the measure with the given name was recorded as a gauge with {@link #registerGauge(String)}.
+   * @param measureName measure name
+   */
+  public boolean isGauge(String measureName) {
+    return entityTable.findId(TYPE_GAUGE_MEASURE_NAME, measureName) != null;
+  }
+
   private byte[] createRowKey(List<DimensionValue> dimensionValues, String measureName, long ts, boolean stopKey,
                               boolean anyAggGroup) {
     // Row key format:
@@ -227,9 +258,15 @@ public class FactCodec {
   }
 
   public String getMeasureName(byte[] rowKey) {
+    return entityTable.getName(getMeasureEntityId(rowKey), TYPE_MEASURE_NAME);
+  }
+
+  /**
+   * Returns the id of the measure name from the entity table for the given row key.
+   */
+  public long getMeasureEntityId(byte[] rowKey) {
     // last encoded is measure name
-    long encoded = readEncoded(rowKey, rowKey.length - entityTable.getIdSize());
-    return entityTable.getName(encoded, TYPE_MEASURE_NAME);
+    return readEncoded(rowKey, rowKey.length - entityTable.getIdSize());
   }
 
   public List<DimensionValue> getDimensionValues(byte[] rowKey) {
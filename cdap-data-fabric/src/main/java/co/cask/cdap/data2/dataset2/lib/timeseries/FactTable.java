@@ -46,6 +46,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.Nullable;
 
 /**
@@ -60,6 +61,8 @@ public final class FactTable implements Closeable {
   // hard limits on some ops to stay on safe side
   private static final int MAX_RECORDS_TO_SCAN_DURING_SEARCH = 10 * 1000 * 1000;
   private static final int MAX_SCANS_DURING_SEARCH = 10 * 1000;
+  // number of rows read from a key range at a time when scanning the splits of the table concurrently
+  private static final int SPLIT_SCAN_BATCH_SIZE = 1000;
 
   private static final Function<byte[], Long> BYTES_TO_LONG = new Function<byte[], Long>() {
     @Override
@@ -85,9 +88,15 @@ public final class FactTable implements Closeable {
 
   private final String putCountMetric;
   private final String incrementCountMetric;
+  private final String scanCountMetric;
+  private final String scanSplitCountMetric;
 
   @Nullable
   private MetricsCollector metrics;
+  @Nullable
+  private ExecutorService scanExecutor;
+  private int scanParallelism = 1;
+  private volatile boolean registerGauges;
 
   /**
    * Creates an instance of {@link FactTable}.
@@ -112,10 +121,33 @@ public final class FactTable implements Closeable {
     this.rollTime = rollTime;
     this.putCountMetric = "factTable." + resolution + ".put.count";
     this.incrementCountMetric = "factTable." + resolution + ".increment.count";
+    this.scanCountMetric = "factTable." + resolution + ".scan.count";
+    this.scanSplitCountMetric = "factTable." + resolution + ".scan.split.count";
   }
 
   public void setMetricsCollector(MetricsCollector metrics) {
     this.metrics = metrics;
+    entityTable.setMetricsCollector(metrics);
+  }
+
+  /**
+   * Enables scanning the key ranges of the splits of the underlying table concurrently in {@link #scan(FactScan)}.
+   * The underlying table must support concurrent scans.
+   *
+   * @param executor executor to scan the key ranges with
+   * @param parallelism maximum number of key ranges to scan concurrently for a single scan
+   */
+  public void setScanExecutor(ExecutorService executor, int parallelism) {
+    this.scanExecutor = executor;
+    this.scanParallelism = parallelism;
+  }
+
+  /**
+   * Sets whether to record the names of the gauge measures of the facts added, which is required for rolling up
+   * the facts with {@link #rollup(FactTable, List, long, long)}.
+   */
+  public void setRegisterGauges(boolean registerGauges) {
+    this.registerGauges = registerGauges;
   }
 
   public void add(List<Fact> facts) {
@@ -131,6 +163,9 @@ public final class FactTable implements Closeable {
           inc(incrementsTable, rowKey, column, measurement.getValue());
         } else {
           set(gaugesTable, rowKey, column, Bytes.toBytes(measurement.getValue()));
+          if (registerGauges) {
+            codec.registerGauge(measurement.getName());
+          }
         }
       }
     }
@@ -164,7 +199,8 @@ public final class FactTable implements Closeable {
   }
 
   public FactScanner scan(FactScan scan) {
-    return new FactScanner(getScanner(scan), codec, scan.getStartTs(), scan.getEndTs(), scan.getMeasureNames());
+    return new FactScanner(getScanner(scan, true), codec, scan.getStartTs(), scan.getEndTs(),
+                           scan.getMeasureNames());
   }
 
   private List<String> getSortedMeasures(Collection<String> measures) {
@@ -180,7 +216,7 @@ public final class FactTable implements Closeable {
     return measureNames;
   }
 
-  private Scanner getScanner(FactScan scan) {
+  private Scanner getScanner(FactScan scan, boolean splitScan) {
 
     // sort the measures based on their entity ids and based on that get the start and end row key metric names
     List<String> measureNames = getSortedMeasures(scan.getMeasureNames());
@@ -211,7 +247,164 @@ public final class FactTable implements Closeable {
                 timeSeriesTable, scan, toPrettyLog(startRow), toPrettyLog(endRow), fuzzyRowFilter);
     }
 
-    return timeSeriesTable.scan(startRow, endRow, fuzzyRowFilter);
+    if (splitScan && metrics != null) {
+      metrics.increment(scanCountMetric, 1);
+    }
+    List<ImmutablePair<byte[], byte[]>> ranges = splitScan && scanExecutor != null && scanParallelism > 1
+      ? getSplitRanges(startRow, endRow) : ImmutableList.<ImmutablePair<byte[], byte[]>>of();
+    if (ranges.size() <= 1) {
+      return timeSeriesTable.scan(startRow, endRow, fuzzyRowFilter);
+    }
+
+    if (metrics != null) {
+      metrics.increment(scanSplitCountMetric, ranges.size());
+    }
+    final FuzzyRowFilter filter = fuzzyRowFilter;
+    return new SplitScanner(ranges, new Function<ImmutablePair<byte[], byte[]>, Scanner>() {
+      @Override
+      public Scanner apply(ImmutablePair<byte[], byte[]> range) {
+        return timeSeriesTable.scan(range.getFirst(), range.getSecond(), filter);
+      }
+    }, scanExecutor, scanParallelism, SPLIT_SCAN_BATCH_SIZE);
+  }
+
+  /**
+   * Divides the given key range at the split keys of the underlying table, so that each key range is served
+   * by a single split.
+   */
+  private List<ImmutablePair<byte[], byte[]>> getSplitRanges(byte[] startRow, @Nullable byte[] stopRow) {
+    List<ImmutablePair<byte[], byte[]>> ranges = new ArrayList<>();
+    byte[] rangeStart = startRow;
+    for (byte[] splitKey : timeSeriesTable.getSplits()) {
+      if (stopRow != null && Bytes.compareTo(splitKey, stopRow) >= 0) {
+        break;
+      }
+      if (Bytes.compareTo(splitKey, rangeStart) > 0) {
+        ranges.add(new ImmutablePair<>(rangeStart, splitKey));
+        rangeStart = splitKey;
+      }
+    }
+    ranges.add(new ImmutablePair<>(rangeStart, stopRow));
+    return ranges;
+  }
+
+  /**
+   * Rolls up the facts of an aggregation in the time range [startTs, endTs) into a table of a coarser resolution.
+   * Counters are summed up and for gauges the latest value is kept, for each time bucket of the target table. The
+   * values in the target table are overwritten, so rolling up the same time range again gives the same result.
+   * Gauges are only recognized if they were added with {@link #setRegisterGauges(boolean)} enabled.
+   *
+   * @param target the table to write the rolled up facts to, which must use the same entity table as this table
+   * @param dimensionNames names of the dimensions of the aggregation
+   * @param startTs start of the time range, in seconds, inclusive
+   * @param endTs end of the time range, in seconds, exclusive
+   * @return number of rows written to the target table
+   */
+  public int rollup(FactTable target, List<String> dimensionNames, long startTs, long endTs) {
+    Preconditions.checkArgument(target.entityTable == entityTable, "Fact tables must use the same entity table.");
+    Preconditions.checkArgument(target.resolution > resolution && target.resolution % resolution == 0,
+                                "Resolution %s cannot be rolled up to resolution %s", resolution, target.resolution);
+    Preconditions.checkArgument(startTs % target.resolution == 0 && endTs % target.resolution == 0,
+                                "Time range must be aligned to the target resolution %s", target.resolution);
+    if (startTs >= endTs) {
+      return 0;
+    }
+
+    List<DimensionValue> dimensionValues = Lists.newArrayList();
+    for (String dimensionName : dimensionNames) {
+      dimensionValues.add(new DimensionValue(dimensionName, null));
+    }
+    // all rows of the aggregation in the time range are in this key range, as the time base follows the agg group
+    byte[] startRow = codec.createStartRowKey(dimensionValues, null, startTs, false);
+    byte[] endRow = Bytes.stopKeyForPrefix(codec.createEndRowKey(dimensionValues, null, endTs - 1, false));
+
+    // row key -> column -> {value, timestamp of the value} in the target table
+    NavigableMap<byte[], NavigableMap<byte[], long[]>> rollups = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    Map<Long, Boolean> gauges = new HashMap<>();
+    try (Scanner scanner = timeSeriesTable.scan(startRow, endRow, null)) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        byte[] rowKey = row.getRow();
+        long measureId = codec.getMeasureEntityId(rowKey);
+        Boolean gauge = gauges.get(measureId);
+        if (gauge == null) {
+          gauge = codec.isGauge(codec.getMeasureName(rowKey));
+          gauges.put(measureId, gauge);
+        }
+
+        long bucketTs = -1L;
+        NavigableMap<byte[], long[]> targetColumns = null;
+        byte[] targetColumn = null;
+        // columns are sorted by time, so consecutive columns mostly fall into the same time bucket
+        for (Map.Entry<byte[], byte[]> column : row.getColumns().entrySet()) {
+          long ts = codec.getTimestamp(rowKey, column.getKey());
+          if (ts < startTs || ts >= endTs) {
+            continue;
+          }
+          if (ts / target.resolution * target.resolution != bucketTs) {
+            bucketTs = ts / target.resolution * target.resolution;
+            byte[] targetRowKey = target.codec.createRowKey(rowKey, bucketTs);
+            targetColumns = rollups.get(targetRowKey);
+            if (targetColumns == null) {
+              targetColumns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+              rollups.put(targetRowKey, targetColumns);
+            }
+            targetColumn = target.codec.createColumn(bucketTs);
+          }
+
+          long value = Bytes.toLong(column.getValue());
+          long[] rollup = targetColumns.get(targetColumn);
+          if (rollup == null) {
+            targetColumns.put(targetColumn, new long[] { value, ts });
+          } else if (!gauge) {
+            rollup[0] += value;
+          } else if (ts >= rollup[1]) {
+            rollup[0] = value;
+            rollup[1] = ts;
+          }
+        }
+      }
+    }
+
+    NavigableMap<byte[], NavigableMap<byte[], Long>> puts = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    for (Map.Entry<byte[], NavigableMap<byte[], long[]>> rollupRow : rollups.entrySet()) {
+      NavigableMap<byte[], Long> columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      for (Map.Entry<byte[], long[]> rollupColumn : rollupRow.getValue().entrySet()) {
+        columns.put(rollupColumn.getKey(), rollupColumn.getValue()[0]);
+      }
+      puts.put(rollupRow.getKey(), columns);
+    }
+    target.timeSeriesTable.put(puts);
+    if (target.metrics != null) {
+      target.metrics.increment(target.putCountMetric, puts.size());
+    }
+    return puts.size();
+  }
+
+  /**
+   * Deletes the rows of an aggregation that only contain facts before the given time. The rows are deleted by
+   * key range, without filtering the facts, so facts before the given time may remain in the row that contains
+   * the given time. This is meant for applying a retention period, for which {@link #delete(FactScan)} is much
+   * more expensive.
+   *
+   * @param dimensionNames names of the dimensions of the aggregation
+   * @param endTs the time before which to delete, in seconds
+   */
+  public void deleteBefore(List<String> dimensionNames, long endTs) {
+    List<DimensionValue> dimensionValues = Lists.newArrayList();
+    for (String dimensionName : dimensionNames) {
+      dimensionValues.add(new DimensionValue(dimensionName, null));
+    }
+    // all rows of the aggregation with a time base before the one of endTs
+    byte[] startRow = codec.createStartRowKey(dimensionValues, null, 0, false);
+    byte[] endRow = codec.createStartRowKey(dimensionValues, null, endTs, false);
+    try (Scanner scanner = timeSeriesTable.scan(startRow, endRow, null)) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        Set<byte[]> columns = row.getColumns().keySet();
+        timeSeriesTable.delete(row.getRow(), columns.toArray(new byte[columns.size()][]));
+      }
+    }
   }
 
   /**
@@ -219,7 +412,7 @@ public final class FactTable implements Closeable {
    * @param scan specifies deletion criteria
    */
   public void delete(FactScan scan) {
-    try (Scanner scanner = getScanner(scan)) {
+    try (Scanner scanner = getScanner(scan, false)) {
       Row row;
       while ((row = scanner.next()) != null) {
         List<byte[]> columns = Lists.newArrayList();
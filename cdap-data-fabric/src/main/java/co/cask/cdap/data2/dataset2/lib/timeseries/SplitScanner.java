@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.timeseries;
+
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.common.utils.ImmutablePair;
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Scanner} that scans consecutive key ranges of a table concurrently, and returns their rows in the order
+ * of the ranges, which is the row key order if the ranges are in ascending order.
+ *
+ * <p>
+ * Rows are read in batches by tasks on the given executor. Besides the range that is currently being returned,
+ * one batch is read ahead for each of the following ranges up to the given parallelism, which bounds the number
+ * of rows held in memory to the parallelism times the batch size. Since the tasks never wait for the consumer,
+ * the executor may run them in the calling thread when it is saturated.
+ * </p>
+ */
+final class SplitScanner implements Scanner {
+
+  private final ExecutorService executor;
+  private final int parallelism;
+  private final int batchSize;
+  private final List<Range> ranges;
+
+  private int current;
+  private Iterator<Row> currentBatch = Collections.emptyIterator();
+
+  /**
+   * Creates a scanner for the given key ranges.
+   *
+   * @param ranges the start (inclusive) and stop (exclusive) row keys of each range, {@code null} for unbounded
+   * @param scannerFactory creates the scanner of a range
+   * @param executor executor for reading the rows of the ranges
+   * @param parallelism number of ranges to read concurrently
+   * @param batchSize number of rows to read from a range per task
+   */
+  SplitScanner(List<ImmutablePair<byte[], byte[]>> ranges,
+               Function<ImmutablePair<byte[], byte[]>, Scanner> scannerFactory,
+               ExecutorService executor, int parallelism, int batchSize) {
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.batchSize = batchSize;
+    this.ranges = Lists.newArrayListWithCapacity(ranges.size());
+    for (ImmutablePair<byte[], byte[]> range : ranges) {
+      this.ranges.add(new Range(range, scannerFactory));
+    }
+    readAhead();
+  }
+
+  @Nullable
+  @Override
+  public Row next() {
+    while (!currentBatch.hasNext()) {
+      if (current >= ranges.size()) {
+        return null;
+      }
+      Range range = ranges.get(current);
+      if (range.exhausted) {
+        range.close();
+        current++;
+        readAhead();
+        continue;
+      }
+      currentBatch = range.nextBatch().iterator();
+      // read the next batch of the current range while the rows of this batch are consumed
+      range.readAhead();
+    }
+    return currentBatch.next();
+  }
+
+  @Override
+  public void close() {
+    for (int i = current; i < ranges.size(); i++) {
+      ranges.get(i).close();
+    }
+    current = ranges.size();
+    currentBatch = Collections.emptyIterator();
+  }
+
+  private void readAhead() {
+    for (int i = current; i < Math.min(current + parallelism, ranges.size()); i++) {
+      ranges.get(i).readAhead();
+    }
+  }
+
+  /**
+   * A key range with its scanner and the pending read of its next batch. Only one batch of a range is read at
+   * a time, so the scanner of a range is never used concurrently.
+   */
+  private final class Range {
+    private final ImmutablePair<byte[], byte[]> keyRange;
+    private final Function<ImmutablePair<byte[], byte[]>, Scanner> scannerFactory;
+    private Scanner scanner;
+    private Future<List<Row>> pending;
+    // only updated by the read tasks, and read after the completion of the task
+    private volatile boolean exhausted;
+
+    Range(ImmutablePair<byte[], byte[]> keyRange, Function<ImmutablePair<byte[], byte[]>, Scanner> scannerFactory) {
+      this.keyRange = keyRange;
+      this.scannerFactory = scannerFactory;
+    }
+
+    void readAhead() {
+      if (pending != null || exhausted) {
+        return;
+      }
+      pending = executor.submit(new Callable<List<Row>>() {
+        @Override
+        public List<Row> call() throws Exception {
+          return readBatch();
+        }
+      });
+    }
+
+    List<Row> nextBatch() {
+      readAhead();
+      try {
+        return Uninterruptibles.getUninterruptibly(pending);
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      } finally {
+        pending = null;
+      }
+    }
+
+    void close() {
+      if (pending != null) {
+        // if the read already started, wait for it, so that the scanner is not closed while being used
+        if (!pending.cancel(false)) {
+          try {
+            Uninterruptibles.getUninterruptibly(pending);
+          } catch (ExecutionException e) {
+            // ignore, since the scanner is closed anyway
+          }
+        }
+        pending = null;
+      }
+      if (scanner != null) {
+        scanner.close();
+        scanner = null;
+      }
+      exhausted = true;
+    }
+
+    private List<Row> readBatch() {
+      if (scanner == null) {
+        scanner = scannerFactory.apply(keyRange);
+      }
+      List<Row> rows = Lists.newArrayListWithCapacity(batchSize);
+      Row row;
+      while (rows.size() < batchSize && (row = scanner.next()) != null) {
+        rows.add(row);
+      }
+      if (rows.size() < batchSize) {
+        exhausted = true;
+      }
+      return rows;
+    }
+  }
+}
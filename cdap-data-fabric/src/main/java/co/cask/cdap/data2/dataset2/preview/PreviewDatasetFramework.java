@@ -302,6 +302,12 @@ public class PreviewDatasetFramework implements DatasetFramework {
     }
   }
 
+  @Override
+  public void prefetchInstances(Collection<DatasetId> datasetInstanceIds,
+                                @Nullable Iterable<? extends EntityId> owners) {
+    // no-op. Preview runs get their datasets from two frameworks, and are not sensitive to startup time
+  }
+
   @Override
   public void writeLineage(DatasetId datasetInstanceId, AccessType accessType) {
     // no-op
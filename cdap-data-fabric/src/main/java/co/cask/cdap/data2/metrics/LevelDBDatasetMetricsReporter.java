@@ -91,6 +91,18 @@ public class LevelDBDatasetMetricsReporter extends AbstractScheduledService impl
     if (tableStats.size() > 0) {
       report(tableStats);
     }
+    report(ldbService.getHandleStats());
+  }
+
+  private void report(LevelDBTableService.HandleStats handleStats) {
+    MetricsContext collector =
+      metricsService.getContext(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace()));
+    collector.gauge("dataset.leveldb.tables.open", handleStats.getOpenTables());
+    collector.gauge("dataset.leveldb.tables.idle.closed", handleStats.getIdleTablesClosed());
+    long lookups = handleStats.getHits() + handleStats.getMisses();
+    if (lookups > 0) {
+      collector.gauge("dataset.leveldb.tables.hit.percent", handleStats.getHits() * 100 / lookups);
+    }
   }
 
   private void report(Map<TableId, LevelDBTableService.TableStats> datasetStat) throws DatasetManagementException {
@@ -59,6 +59,7 @@ import co.cask.cdap.proto.id.StreamViewId;
 import co.cask.cdap.proto.notification.NotificationFeedInfo;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.authorization.AuthorizationUtil;
 import co.cask.cdap.security.impersonation.Impersonator;
 import co.cask.cdap.security.impersonation.OwnerAdmin;
 import co.cask.cdap.security.impersonation.SecurityUtil;
@@ -67,11 +68,10 @@ import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.spi.authorization.PrivilegesManager;
 import co.cask.cdap.security.spi.authorization.UnauthorizedException;
 import com.google.common.base.Charsets;
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.io.CharStreams;
@@ -286,15 +286,13 @@ public class FileStreamAdmin implements StreamAdmin {
 
   @Override
   public List<StreamSpecification> listStreams(final NamespaceId namespaceId) throws Exception {
-    final Predicate<EntityId> filter = authorizationEnforcer.createFilter(authenticationContext.getPrincipal());
     List<StreamSpecification> streamSpecifications = streamMetaStore.listStreams(namespaceId);
-    return Lists.newArrayList(Iterables.filter(streamSpecifications,
-                                               new com.google.common.base.Predicate<StreamSpecification>() {
+    return AuthorizationUtil.filterVisible(streamSpecifications, new Function<StreamSpecification, StreamId>() {
       @Override
-      public boolean apply(StreamSpecification spec) {
-        return filter.apply(namespaceId.stream(spec.getName()));
+      public StreamId apply(StreamSpecification spec) {
+        return namespaceId.stream(spec.getName());
       }
-    }));
+    }, authorizationEnforcer, authenticationContext.getPrincipal());
   }
 
   @Override
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.audit;
+
+import co.cask.cdap.api.messaging.TopicNotFoundException;
+import co.cask.cdap.messaging.MessageFetcher;
+import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.RollbackDetail;
+import co.cask.cdap.messaging.StoreRequest;
+import co.cask.cdap.messaging.TopicMetadata;
+import co.cask.cdap.proto.audit.AuditPayload;
+import co.cask.cdap.proto.audit.AuditType;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.TopicId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link AsyncAuditPublisher}.
+ */
+public class AsyncAuditPublisherTest {
+
+  private static final TopicId TOPIC = NamespaceId.SYSTEM.topic("audit");
+
+  @Test
+  public void testBatchedPublish() throws Exception {
+    RecordingMessagingService messagingService = new RecordingMessagingService(new CountDownLatch(0));
+    AsyncAuditPublisher publisher = new AsyncAuditPublisher(messagingService, TOPIC, 2000, 100, 10);
+    publisher.startAndWait();
+
+    NamespaceId namespace = new NamespaceId("ns");
+    for (int i = 0; i < 50; i++) {
+      publisher.publish(namespace.dataset("ds" + i), AuditType.CREATE, AuditPayload.EMPTY_PAYLOAD);
+    }
+
+    List<String> payloads = messagingService.waitForPayloads(50);
+    // messages are published in order, in batches of at most the batch size
+    for (int i = 0; i < 50; i++) {
+      Assert.assertTrue(payloads.get(i), payloads.get(i).contains("\"ds" + i + "\""));
+    }
+    for (int size : messagingService.getRequestSizes()) {
+      Assert.assertTrue(size <= 10);
+    }
+    Assert.assertEquals(0, publisher.getDroppedCount());
+    publisher.stopAndWait();
+  }
+
+  @Test
+  public void testDropWhenQueueFull() throws Exception {
+    CountDownLatch publishLatch = new CountDownLatch(1);
+    RecordingMessagingService messagingService = new RecordingMessagingService(publishLatch);
+    AsyncAuditPublisher publisher = new AsyncAuditPublisher(messagingService, TOPIC, 100, 2, 1);
+    publisher.startAndWait();
+
+    // the first message blocks the publisher thread, the next two fill up the queue, and the rest are dropped
+    NamespaceId namespace = new NamespaceId("ns");
+    for (int i = 0; i < 6; i++) {
+      publisher.publish(namespace.dataset("ds" + i), AuditType.CREATE, AuditPayload.EMPTY_PAYLOAD);
+    }
+    Assert.assertTrue(publisher.getDroppedCount() > 0);
+
+    publishLatch.countDown();
+    List<String> payloads = messagingService.waitForPayloads(6 - (int) publisher.getDroppedCount());
+    Assert.assertTrue(payloads.get(0).contains("\"ds0\""));
+    publisher.stopAndWait();
+  }
+
+  @Test
+  public void testDrainOnStop() throws Exception {
+    CountDownLatch publishLatch = new CountDownLatch(1);
+    RecordingMessagingService messagingService = new RecordingMessagingService(publishLatch);
+    AsyncAuditPublisher publisher = new AsyncAuditPublisher(messagingService, TOPIC, 2000, 10, 1);
+    publisher.startAndWait();
+
+    // the publisher thread is blocked by the first message, the rest stay in the queue
+    NamespaceId namespace = new NamespaceId("ns");
+    for (int i = 0; i < 5; i++) {
+      publisher.publish(namespace.dataset("ds" + i), AuditType.CREATE, AuditPayload.EMPTY_PAYLOAD);
+    }
+
+    // stopping publishes all queued messages
+    publishLatch.countDown();
+    publisher.stopAndWait();
+    List<String> payloads = messagingService.waitForPayloads(5);
+    for (int i = 0; i < 5; i++) {
+      Assert.assertTrue(payloads.get(i), payloads.get(i).contains("\"ds" + i + "\""));
+    }
+    Assert.assertEquals(0, publisher.getDroppedCount());
+
+    // messages published after stop are dropped
+    publisher.publish(namespace.dataset("ds5"), AuditType.CREATE, AuditPayload.EMPTY_PAYLOAD);
+    Assert.assertEquals(1, publisher.getDroppedCount());
+  }
+
+  /**
+   * A {@link MessagingService} that records the payloads of all publish calls, after waiting for a latch.
+   */
+  private static final class RecordingMessagingService implements MessagingService {
+
+    private final CountDownLatch publishLatch;
+    private final List<String> payloads = new ArrayList<>();
+    private final List<Integer> requestSizes = new ArrayList<>();
+
+    RecordingMessagingService(CountDownLatch publishLatch) {
+      this.publishLatch = publishLatch;
+    }
+
+    synchronized List<String> waitForPayloads(int count) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (payloads.size() < count && System.currentTimeMillis() < deadline) {
+        wait(100);
+      }
+      Assert.assertEquals(count, payloads.size());
+      return new ArrayList<>(payloads);
+    }
+
+    synchronized List<Integer> getRequestSizes() {
+      return new ArrayList<>(requestSizes);
+    }
+
+    @Override
+    public RollbackDetail publish(StoreRequest request) throws TopicNotFoundException, IOException {
+      try {
+        publishLatch.await();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      synchronized (this) {
+        int size = 0;
+        while (request.hasNext()) {
+          payloads.add(new String(request.next(), StandardCharsets.UTF_8));
+          size++;
+        }
+        requestSizes.add(size);
+        notifyAll();
+      }
+      return null;
+    }
+
+    @Override
+    public void createTopic(TopicMetadata topicMetadata) {
+      // no-op
+    }
+
+    @Override
+    public void updateTopic(TopicMetadata topicMetadata) {
+      // no-op
+    }
+
+    @Override
+    public void deleteTopic(TopicId topicId) {
+      // no-op
+    }
+
+    @Override
+    public TopicMetadata getTopic(TopicId topicId) throws TopicNotFoundException {
+      throw new TopicNotFoundException(topicId.getNamespace(), topicId.getTopic());
+    }
+
+    @Override
+    public List<TopicId> listTopics(NamespaceId namespaceId) {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public MessageFetcher prepareFetch(TopicId topicId) throws TopicNotFoundException {
+      throw new TopicNotFoundException(topicId.getNamespace(), topicId.getTopic());
+    }
+
+    @Override
+    public void storePayload(StoreRequest request) {
+      // no-op
+    }
+
+    @Override
+    public void rollback(TopicId topicId, RollbackDetail rollbackDetail) {
+      // no-op
+    }
+  }
+}
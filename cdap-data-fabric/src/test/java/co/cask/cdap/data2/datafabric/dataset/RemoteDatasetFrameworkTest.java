@@ -16,9 +16,13 @@
 
 package co.cask.cdap.data2.datafabric.dataset;
 
+import co.cask.cdap.api.dataset.DatasetDefinition;
 import co.cask.cdap.api.dataset.DatasetManagementException;
+import co.cask.cdap.api.dataset.DatasetProperties;
+import co.cask.cdap.api.dataset.lib.KeyValueTable;
 import co.cask.cdap.api.dataset.module.DatasetDefinitionRegistry;
 import co.cask.cdap.api.dataset.module.DatasetModule;
+import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.conf.CConfigurationUtil;
 import co.cask.cdap.common.conf.Constants;
@@ -39,6 +43,7 @@ import co.cask.cdap.data2.datafabric.dataset.service.executor.DatasetOpExecutor;
 import co.cask.cdap.data2.datafabric.dataset.service.executor.DatasetOpExecutorService;
 import co.cask.cdap.data2.datafabric.dataset.service.executor.InMemoryDatasetOpExecutor;
 import co.cask.cdap.data2.datafabric.dataset.service.executor.LocalDatasetOpExecutor;
+import co.cask.cdap.data2.datafabric.dataset.type.ConstantClassLoaderProvider;
 import co.cask.cdap.data2.datafabric.dataset.type.DatasetTypeManager;
 import co.cask.cdap.data2.dataset2.AbstractDatasetFrameworkTest;
 import co.cask.cdap.data2.dataset2.DatasetDefinitionRegistryFactory;
@@ -56,7 +61,9 @@ import co.cask.cdap.data2.transaction.TransactionExecutorFactory;
 import co.cask.cdap.data2.transaction.TransactionSystemClientService;
 import co.cask.cdap.explore.client.DiscoveryExploreClient;
 import co.cask.cdap.explore.client.ExploreFacade;
+import co.cask.cdap.proto.DatasetTypeMeta;
 import co.cask.cdap.proto.NamespaceMeta;
+import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.security.auth.context.AuthenticationContextModules;
 import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
@@ -68,6 +75,7 @@ import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.spi.authorization.PrivilegesManager;
 import co.cask.http.HttpHandler;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
@@ -89,6 +97,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.HashSet;
 import java.util.concurrent.TimeUnit;
 
@@ -229,6 +239,63 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     }
   }
 
+  @Test
+  public void testPrefetchAndCache() throws Exception {
+    DatasetId table1 = NAMESPACE_ID.dataset("table1");
+    DatasetId table2 = NAMESPACE_ID.dataset("table2");
+    framework.addModule(NAMESPACE_ID.datasetModule("inMemory"), new InMemoryTableModule());
+    framework.addModule(NAMESPACE_ID.datasetModule("core"), new CoreDatasetsModule());
+    try {
+      framework.addInstance(Table.class.getName(), table1, DatasetProperties.EMPTY);
+      framework.addInstance(Table.class.getName(), table2, DatasetProperties.EMPTY);
+
+      // instances that don't exist are ignored
+      framework.prefetchInstances(ImmutableList.of(table1, table2, NAMESPACE_ID.dataset("nonexistent")), null);
+      Assert.assertNotNull(framework.getDataset(table1, DatasetDefinition.NO_ARGUMENTS, null));
+      Assert.assertNotNull(framework.getDataset(table2, DatasetDefinition.NO_ARGUMENTS, null));
+
+      // deleting an instance through the framework removes it from the cache
+      framework.deleteInstance(table2);
+      Assert.assertNull(framework.getDataset(table2, DatasetDefinition.NO_ARGUMENTS, null));
+      Assert.assertNotNull(framework.getDataset(table1, DatasetDefinition.NO_ARGUMENTS, null));
+
+      framework.deleteAllInstances(NAMESPACE_ID);
+      Assert.assertNull(framework.getDataset(table1, DatasetDefinition.NO_ARGUMENTS, null));
+    } finally {
+      framework.deleteAllInstances(NAMESPACE_ID);
+      framework.deleteAllModules(NAMESPACE_ID);
+    }
+  }
+
+  @Test
+  public void testDatasetTypeCache() throws Exception {
+    framework.addModule(NAMESPACE_ID.datasetModule("inMemory"), new InMemoryTableModule());
+    framework.addModule(NAMESPACE_ID.datasetModule("core"), new CoreDatasetsModule());
+    try {
+      DatasetTypeMeta typeMeta = framework.getTypeInfo(NAMESPACE_ID.datasetType(KeyValueTable.class.getName()));
+      Assert.assertNotNull(typeMeta);
+      ClassLoader classLoader = getClass().getClassLoader();
+
+      // the resolved type is reused for the same class loaders
+      DatasetType type = framework.getDatasetType(typeMeta, classLoader, new ConstantClassLoaderProvider(classLoader));
+      Assert.assertSame(type, framework.getDatasetType(typeMeta, classLoader,
+                                                       new ConstantClassLoaderProvider(classLoader)));
+
+      // but not for different ones
+      ClassLoader otherClassLoader = new URLClassLoader(new URL[0], classLoader);
+      Assert.assertNotSame(type, framework.getDatasetType(typeMeta, otherClassLoader,
+                                                          new ConstantClassLoaderProvider(otherClassLoader)));
+
+      // and not after a module change
+      framework.deleteModule(NAMESPACE_ID.datasetModule("core"));
+      framework.addModule(NAMESPACE_ID.datasetModule("core"), new CoreDatasetsModule());
+      Assert.assertNotSame(type, framework.getDatasetType(typeMeta, classLoader,
+                                                          new ConstantClassLoaderProvider(classLoader)));
+    } finally {
+      framework.deleteAllModules(NAMESPACE_ID);
+    }
+  }
+
   private void createNamespace (NamespaceId namespaceId) throws Exception {
     // since the namespace admin here is an in memory one we need to create the location explicitly
     namespacedLocationFactory.get(namespaceId).mkdirs();
@@ -366,6 +366,40 @@ public class DatasetInstanceHandlerTest extends DatasetServiceTestBase {
     }
   }
 
+  @Test
+  public void testGetMultiple() throws Exception {
+    try {
+      deployModule("module1", TestModule1.class);
+      deployModule("module2", TestModule2.class);
+      Assert.assertEquals(HttpStatus.SC_OK,
+                          createInstance("dataset1", "datasetType2", DatasetProperties.EMPTY).getResponseCode());
+      Assert.assertEquals(HttpStatus.SC_OK,
+                          createInstance("dataset2", "datasetType1", DatasetProperties.EMPTY).getResponseCode());
+
+      // instances that don't exist are left out of the result
+      HttpRequest request = HttpRequest.post(getUrl("/data/datasets"))
+        .withBody(GSON.toJson(Arrays.asList("dataset1", "dataset2", "nonexistent"))).build();
+      HttpResponse response = HttpRequests.execute(request);
+      Assert.assertEquals(HttpStatus.SC_OK, response.getResponseCode());
+      Map<String, DatasetMeta> metas = ObjectResponse.<Map<String, DatasetMeta>>fromJsonBody(
+        response, new TypeToken<Map<String, DatasetMeta>>() { }.getType()).getResponseObject();
+      Assert.assertEquals(2, metas.size());
+      for (String name : Arrays.asList("dataset1", "dataset2")) {
+        DatasetMeta expected = getInstanceObject(name).getResponseObject();
+        Assert.assertEquals(expected.getSpec(), metas.get(name).getSpec());
+        Assert.assertEquals(expected.getType().getName(), metas.get(name).getType().getName());
+      }
+
+      // a request without a list of names is rejected
+      response = HttpRequests.execute(HttpRequest.post(getUrl("/data/datasets")).withBody("").build());
+      Assert.assertEquals(HttpStatus.SC_BAD_REQUEST, response.getResponseCode());
+    } finally {
+      // cleanup
+      deleteInstances();
+      Assert.assertEquals(HttpStatus.SC_OK, deleteModules().getResponseCode());
+    }
+  }
+
   @Test
   public void testNotFound() throws IOException {
     NamespaceId nonExistent = new NamespaceId("nonexistent");
@@ -51,7 +51,9 @@ import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -412,6 +414,19 @@ public class DatasetClassRewriterTest {
         }
       };
     }
+
+    @Override
+    public void enforce(Collection<? extends EntityId> entities, Principal principal,
+                        Set<Action> actions) throws Exception {
+      for (EntityId entity : entities) {
+        enforce(entity, principal, actions);
+      }
+    }
+
+    @Override
+    public <T extends EntityId> Set<T> isVisible(Collection<T> entities, Principal principal) throws Exception {
+      return new LinkedHashSet<>(entities);
+    }
   }
 
   private static final class AuthorizationRecorder implements AuthorizationEnforcer {
@@ -445,6 +460,19 @@ public class DatasetClassRewriterTest {
       };
     }
 
+    @Override
+    public void enforce(Collection<? extends EntityId> entities, Principal principal,
+                        Set<Action> actions) throws Exception {
+      for (EntityId entity : entities) {
+        enforce(entity, principal, actions);
+      }
+    }
+
+    @Override
+    public <T extends EntityId> Set<T> isVisible(Collection<T> entities, Principal principal) throws Exception {
+      return new LinkedHashSet<>(entities);
+    }
+
     List<Privilege> getPrivileges() {
       return privileges;
     }
@@ -0,0 +1,248 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
+import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.api.dataset.lib.cube.Interpolators;
+import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanResult;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link CubeQueryAggregator}.
+ */
+public class CubeQueryAggregatorTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CubeQueryAggregatorTest.class);
+
+  @Test
+  public void testAggregation() {
+    CubeQuery query = new CubeQuery(null, 0, 100, 1, Integer.MAX_VALUE,
+                                    ImmutableMap.of("sum", AggregationFunction.SUM, "max", AggregationFunction.MAX,
+                                                    "min", AggregationFunction.MIN,
+                                                    "latest", AggregationFunction.LATEST),
+                                    ImmutableMap.<String, String>of(), ImmutableList.of("app"), null);
+    // rows of the same group are not in timestamp order, since the rows of the "run" dimension are aggregated
+    List<FactScanResult> rows = ImmutableList.of(
+      row("sum", "a1", "r1", 2, 1, 4, 1),
+      row("sum", "a1", "r2", 1, 1, 2, 1, 3, 1),
+      row("sum", "a2", "r1", 2, 5),
+      row("max", "a1", "r1", 2, 7, 4, 1),
+      row("max", "a1", "r2", 2, 3, 4, 9),
+      row("min", "a1", "r1", 2, 7, 4, 1),
+      row("min", "a1", "r2", 2, 3, 4, 9),
+      row("latest", "a1", "r1", 2, 7, 4, 1),
+      row("latest", "a1", "r2", 2, 3),
+      // skipped, since grouped by a null value
+      row("sum", null, "r1", 2, 100)
+    );
+
+    CubeQueryAggregator aggregator = new CubeQueryAggregator(query);
+    int added = 0;
+    for (FactScanResult row : rows) {
+      if (aggregator.add(row)) {
+        added++;
+      }
+    }
+    Assert.assertEquals(rows.size() - 1, added);
+    Assert.assertEquals(2, aggregator.getGroupCount());
+
+    Map<String, String> a1 = ImmutableMap.of("app", "a1");
+    Map<String, String> a2 = ImmutableMap.of("app", "a2");
+    Assert.assertEquals(ImmutableSet.of(
+      new TimeSeries("sum", a1, timeValues(1, 1, 2, 2, 3, 1, 4, 1)),
+      new TimeSeries("sum", a2, timeValues(2, 5)),
+      new TimeSeries("max", a1, timeValues(2, 7, 4, 9)),
+      new TimeSeries("min", a1, timeValues(2, 3, 4, 1)),
+      new TimeSeries("latest", a1, timeValues(2, 3, 4, 1))
+    ), ImmutableSet.copyOf(aggregator.getTimeSeries()));
+  }
+
+  @Test
+  public void testInterpolationAndLimit() {
+    CubeQuery query = new CubeQuery(null, 0, 100, 10, 3, ImmutableMap.of("sum", AggregationFunction.SUM),
+                                    ImmutableMap.<String, String>of(), ImmutableList.<String>of(),
+                                    new Interpolators.Step());
+    CubeQueryAggregator aggregator = new CubeQueryAggregator(query);
+    aggregator.add(row("sum", "a1", "r1", 10, 1, 50, 2));
+    Assert.assertEquals(ImmutableList.of(new TimeSeries("sum", ImmutableMap.<String, String>of(),
+                                                        timeValues(10, 1, 20, 1, 30, 1))),
+                        ImmutableList.copyOf(aggregator.getTimeSeries()));
+  }
+
+  @Test
+  public void testGroupByWithManyValues() {
+    CubeQuery query = new CubeQuery(null, 0, 40 * 60, 60, Integer.MAX_VALUE,
+                                    ImmutableMap.of("count", AggregationFunction.SUM),
+                                    ImmutableMap.<String, String>of(), ImmutableList.of("program"), null);
+
+    // like the fact table, rows of 20 minutes with one column per minute. For the second run, the rows of the
+    // second 20 minutes come first, so that values are also inserted before the existing ones
+    CubeQueryAggregator aggregator = new CubeQueryAggregator(query);
+    for (int program = 0; program < 3; program++) {
+      for (int run = 0; run < 2; run++) {
+        for (int part : run == 0 ? new int[] { 0, 1 } : new int[] { 1, 0 }) {
+          List<TimeValue> timeValues = Lists.newArrayList();
+          for (int minute = part * 20; minute < part * 20 + 20; minute++) {
+            timeValues.add(new TimeValue(minute * 60, program * 100 + run + minute));
+          }
+          aggregator.add(new FactScanResult("count", ImmutableList.of(new DimensionValue("program", "p" + program),
+                                                                      new DimensionValue("run", "r" + run)),
+                                            timeValues));
+        }
+      }
+    }
+    Assert.assertEquals(3, aggregator.getGroupCount());
+
+    // the sum of both runs is 2 * (program * 100 + minute) + 1 at each minute
+    ImmutableSet.Builder<TimeSeries> expected = ImmutableSet.builder();
+    for (int program = 0; program < 3; program++) {
+      List<TimeValue> timeValues = Lists.newArrayList();
+      for (int minute = 0; minute < 40; minute++) {
+        timeValues.add(new TimeValue(minute * 60, 2 * (program * 100 + minute) + 1));
+      }
+      expected.add(new TimeSeries("count", ImmutableMap.of("program", "p" + program), timeValues));
+    }
+    Assert.assertEquals(expected.build(), ImmutableSet.copyOf(aggregator.getTimeSeries()));
+  }
+
+  /**
+   * Compares the time of aggregating a large group by query, like grouping all metrics of a day at minute resolution
+   * by program, with the aggregation into a Guava Table of boxed values that {@link DefaultCube} used before.
+   * Ignored since it only logs the times, run it manually to measure.
+   */
+  @Ignore
+  @Test
+  public void testGroupByPerformance() {
+    int programs = 100;
+    int runs = 5;
+    int minutes = 24 * 60;
+    CubeQuery query = new CubeQuery(null, 0, minutes * 60, 60, Integer.MAX_VALUE,
+                                    ImmutableMap.of("count", AggregationFunction.SUM),
+                                    ImmutableMap.<String, String>of(), ImmutableList.of("program"), null);
+
+    // like the fact table, one row per hour with one column per minute, in the order of the dimension values
+    List<FactScanResult> rows = Lists.newArrayList();
+    for (int program = 0; program < programs; program++) {
+      for (int run = 0; run < runs; run++) {
+        for (int hour = 0; hour < 24; hour++) {
+          List<TimeValue> timeValues = Lists.newArrayListWithCapacity(60);
+          for (int minute = 0; minute < 60; minute++) {
+            timeValues.add(new TimeValue((hour * 60 + minute) * 60, program + run + minute));
+          }
+          rows.add(new FactScanResult("count", ImmutableList.of(new DimensionValue("program", "p" + program),
+                                                                new DimensionValue("run", "r" + run)), timeValues));
+        }
+      }
+    }
+
+    // the first iterations warm up the JIT
+    for (int i = 0; i < 10; i++) {
+      Stopwatch stopwatch = new Stopwatch().start();
+      Collection<TimeSeries> expected = aggregateBoxed(query, rows);
+      long boxedMillis = stopwatch.elapsedTime(TimeUnit.MILLISECONDS);
+
+      stopwatch = new Stopwatch().start();
+      CubeQueryAggregator aggregator = new CubeQueryAggregator(query);
+      for (FactScanResult row : rows) {
+        aggregator.add(row);
+      }
+      Collection<TimeSeries> actual = aggregator.getTimeSeries();
+      long primitiveMillis = stopwatch.elapsedTime(TimeUnit.MILLISECONDS);
+
+      LOG.info("Iteration {}: aggregated {} data points into {} time series: boxed table {} ms, " +
+                 "primitive arrays {} ms", i, programs * runs * minutes, actual.size(), boxedMillis, primitiveMillis);
+      Assert.assertEquals(ImmutableSet.copyOf(expected), ImmutableSet.copyOf(actual));
+    }
+  }
+
+  /**
+   * Aggregates the given rows into a table of boxed timestamps and values by group and measure, the same way
+   * as {@link DefaultCube} did before {@link CubeQueryAggregator}.
+   */
+  private Collection<TimeSeries> aggregateBoxed(CubeQuery query, List<FactScanResult> rows) {
+    Table<Map<String, String>, String, Map<Long, Long>> table = HashBasedTable.create();
+    for (FactScanResult row : rows) {
+      Map<String, String> group = Maps.newTreeMap();
+      for (String dimensionName : query.getGroupByDimensions()) {
+        for (DimensionValue dimensionValue : row.getDimensionValues()) {
+          if (dimensionName.equals(dimensionValue.getName())) {
+            group.put(dimensionName, dimensionValue.getValue());
+          }
+        }
+      }
+      for (TimeValue timeValue : row) {
+        Map<Long, Long> values = table.get(group, row.getMeasureName());
+        if (values == null) {
+          values = Maps.newHashMap();
+          table.put(group, row.getMeasureName(), values);
+        }
+        Long value = values.get(timeValue.getTimestamp());
+        values.put(timeValue.getTimestamp(), (value == null ? 0 : value) + timeValue.getValue());
+      }
+    }
+
+    List<TimeSeries> result = Lists.newArrayList();
+    for (Table.Cell<Map<String, String>, String, Map<Long, Long>> cell : table.cellSet()) {
+      List<TimeValue> timeValues = Lists.newArrayList();
+      for (Map.Entry<Long, Long> entry : cell.getValue().entrySet()) {
+        timeValues.add(new TimeValue(entry.getKey(), entry.getValue()));
+      }
+      Collections.sort(timeValues);
+      Iterator<TimeValue> iterator =
+        new TimeSeriesInterpolator(timeValues, query.getInterpolator(), query.getResolution()).iterator();
+      result.add(new TimeSeries(cell.getColumnKey(), cell.getRowKey(), Lists.newArrayList(iterator)));
+    }
+    return result;
+  }
+
+  private FactScanResult row(String measureName, String app, String run, long... timeValues) {
+    return new FactScanResult(measureName, ImmutableList.of(new DimensionValue("app", app),
+                                                            new DimensionValue("run", run)),
+                              timeValues(timeValues));
+  }
+
+  private List<TimeValue> timeValues(long... longs) {
+    List<TimeValue> timeValues = Lists.newArrayList();
+    for (int i = 0; i < longs.length; i += 2) {
+      timeValues.add(new TimeValue(longs[i], longs[i + 1]));
+    }
+    return timeValues;
+  }
+}
@@ -29,6 +29,7 @@ import org.apache.tephra.TransactionExecutor;
 import org.junit.ClassRule;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.SortedMap;
@@ -164,6 +165,11 @@ public class MetricsTableOnTableTest extends MetricsTableTest {
       });
     }
 
+    @Override
+    public List<byte[]> getSplits() {
+      return delegate.getSplits();
+    }
+
     @Override
     public void close() throws IOException {
       delegate.close();
@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.partitioned;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.PartitionFilter;
+import co.cask.cdap.api.dataset.lib.PartitionKey;
+import co.cask.cdap.api.dataset.lib.Partitioning;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Tests for {@link PartitionSkipScan}.
+ */
+public class PartitionSkipScanTest {
+
+  private static final Partitioning PARTITIONING = Partitioning.builder()
+    .addStringField("date")
+    .addIntField("region")
+    .addStringField("source")
+    .build();
+
+  @Test
+  public void testNoConditions() {
+    Assert.assertNull(PartitionSkipScan.create(null, PARTITIONING));
+    Assert.assertNull(PartitionSkipScan.create(PartitionFilter.builder().addValueCondition("x", 1).build(),
+                                               PARTITIONING));
+  }
+
+  @Test
+  public void testSkipScan() {
+    // all partitions in row key order
+    NavigableSet<byte[]> rowKeys = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    for (String date : new String[] { "2017-01-01", "2017-01-02", "2017-01-03" }) {
+      for (int region = -2; region < 3; region++) {
+        for (String source : new String[] { "a", "ab", "b", "c" }) {
+          rowKeys.add(PartitionedFileSetDataset.generateRowKey(
+            PartitionKey.builder().addField("date", date).addField("region", region).addField("source", source)
+              .build(), PARTITIONING));
+        }
+      }
+    }
+
+    List<PartitionFilter> filters = Lists.newArrayList(
+      PartitionFilter.builder().addValueCondition("region", 1).build(),
+      PartitionFilter.builder().addValueCondition("source", "ab").build(),
+      PartitionFilter.builder().addRangeCondition("region", -1, 1).addValueCondition("source", "b").build(),
+      PartitionFilter.builder().addRangeCondition("date", "2017-01-02", null)
+        .addRangeCondition("source", "ab", "c").build(),
+      PartitionFilter.builder().addRangeCondition("date", null, "2017-01-02")
+        .addRangeCondition("region", 0, null).build()
+    );
+
+    for (PartitionFilter filter : filters) {
+      PartitionSkipScan skipScan = PartitionSkipScan.create(filter, PARTITIONING);
+      Assert.assertNotNull(skipScan);
+
+      // simulate a scan with skipping, and compare with the rows matched by the filter
+      List<PartitionKey> expected = Lists.newArrayList();
+      for (byte[] rowKey : rowKeys) {
+        PartitionKey key = PartitionedFileSetDataset.parseRowKey(rowKey, PARTITIONING);
+        if (filter.match(key)) {
+          expected.add(key);
+        }
+      }
+
+      List<PartitionKey> actual = Lists.newArrayList();
+      int rowsRead = 0;
+      byte[] rowKey = rowKeys.first();
+      while (rowKey != null) {
+        rowsRead++;
+        byte[] skipKey = skipScan.getSkipKey(rowKey);
+        if (skipKey == PartitionSkipScan.END_OF_SCAN) {
+          break;
+        }
+        if (skipKey != null) {
+          Assert.assertTrue(Bytes.compareTo(skipKey, rowKey) > 0);
+          rowKey = rowKeys.ceiling(skipKey);
+          continue;
+        }
+        PartitionKey key = PartitionedFileSetDataset.parseRowKey(rowKey, PARTITIONING);
+        Assert.assertTrue(filter.match(key));
+        actual.add(key);
+        rowKey = rowKeys.higher(rowKey);
+      }
+      Assert.assertEquals(filter.toString(), expected, actual);
+      Assert.assertTrue(filter.toString(), rowsRead < rowKeys.size());
+    }
+  }
+}
@@ -17,6 +17,8 @@
 package co.cask.cdap.data2.dataset2.lib.table.leveldb;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.guice.ConfigModule;
@@ -112,6 +114,44 @@ public class LevelDBTableServiceTest {
     Assert.assertEquals(table2Size, service.getTableStats().get(tableId2).getDiskSizeBytes());
   }
 
+  @Test
+  public void testIdleTablesClosed() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_DATA_LEVELDB_DIR, tmpFolder.newFolder().getAbsolutePath());
+    cConf.setInt(Constants.CFG_DATA_LEVELDB_MAX_OPEN_TABLES, 2);
+    cConf.setLong(Constants.CFG_DATA_LEVELDB_TABLE_IDLE_MILLIS, 0L);
+    LevelDBTableService pooledService = new LevelDBTableService();
+    pooledService.setConfiguration(cConf);
+
+    byte[] column = Bytes.toBytes("c");
+    for (int i = 0; i < 4; i++) {
+      pooledService.ensureTableExists("table" + i);
+      new LevelDBTableCore("table" + i, pooledService).put(Bytes.toBytes("row"), column, Bytes.toBytes(i), 0L);
+      Assert.assertTrue(pooledService.getHandleStats().getOpenTables() <= 2);
+    }
+    Assert.assertTrue(pooledService.getHandleStats().getIdleTablesClosed() >= 2);
+
+    // tables that were closed are opened again transparently
+    for (int i = 0; i < 4; i++) {
+      LevelDBTableCore core = new LevelDBTableCore("table" + i, pooledService);
+      Assert.assertEquals(i, Bytes.toInt(
+        core.getRow(Bytes.toBytes("row"), new byte[][] { column }, null, null, -1, null).get(column)));
+    }
+
+    // a table with an open scanner is not closed while other tables are opened
+    LevelDBTableCore core = new LevelDBTableCore("table0", pooledService);
+    try (Scanner scanner = core.scan(null, null, null, null, null)) {
+      for (int i = 1; i < 4; i++) {
+        new LevelDBTableCore("table" + i, pooledService)
+          .getRow(Bytes.toBytes("row"), new byte[][] { column }, null, null, -1, null);
+      }
+      Row row = scanner.next();
+      Assert.assertNotNull(row);
+      Assert.assertEquals(0, Bytes.toInt(row.get(column)));
+    }
+    Assert.assertTrue(pooledService.getHandleStats().getMisses() > 0);
+  }
+
   private void writeSome(String tableName) throws IOException {
     LevelDBTableCore table = new LevelDBTableCore(tableName, service);
     Random r = new Random();
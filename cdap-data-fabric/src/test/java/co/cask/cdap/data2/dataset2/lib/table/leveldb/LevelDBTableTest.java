@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data2.dataset2.lib.table.leveldb;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.DatasetSpecification;
@@ -31,6 +32,9 @@ import co.cask.cdap.data2.dataset2.lib.table.BufferingTableTest;
 import co.cask.cdap.security.auth.context.AuthenticationContextModules;
 import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
 import co.cask.cdap.security.authorization.AuthorizationTestModule;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import org.junit.Assert;
@@ -40,7 +44,14 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * test for LevelDB tables.
@@ -112,4 +123,53 @@ public class LevelDBTableTest extends BufferingTableTest<LevelDBTable> {
       service.list().contains(tableName);
     }
   }
+
+  @Test
+  public void testConcurrentIncrements() throws Exception {
+    final String tableName = "concurrentIncrements";
+    final byte[] column = Bytes.toBytes("c");
+    final int threads = 8;
+    final int increments = 500;
+    service.ensureTableExists(tableName);
+
+    // each thread uses its own core, increments a shared row, its own row, and both rows in a batch
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = Lists.newArrayList();
+      for (int i = 0; i < threads; i++) {
+        final byte[] ownRow = Bytes.toBytes("row" + i);
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            LevelDBTableCore core = new LevelDBTableCore(tableName, service);
+            for (int j = 0; j < increments; j++) {
+              core.increment(Bytes.toBytes("shared"), ImmutableMap.of(column, 1L));
+              core.increment(ownRow, ImmutableMap.of(column, 1L));
+              NavigableMap<byte[], NavigableMap<byte[], Long>> batch = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+              for (byte[] row : new byte[][] { Bytes.toBytes("shared"), ownRow }) {
+                NavigableMap<byte[], Long> columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+                columns.put(column, 1L);
+                batch.put(row, columns);
+              }
+              core.increment(batch);
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    LevelDBTableCore core = new LevelDBTableCore(tableName, service);
+    Assert.assertEquals(2L * threads * increments, Bytes.toLong(
+      core.getRow(Bytes.toBytes("shared"), new byte[][] { column }, null, null, -1, null).get(column)));
+    for (int i = 0; i < threads; i++) {
+      Assert.assertEquals(2L * increments, Bytes.toLong(
+        core.getRow(Bytes.toBytes("row" + i), new byte[][] { column }, null, null, -1, null).get(column)));
+    }
+  }
 }
@@ -15,12 +15,21 @@
  */
 package co.cask.cdap.data2.dataset2.lib.timeseries;
 
+import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.data2.dataset2.lib.table.MetricsTable;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import javax.annotation.Nullable;
+
 /**
  *
  */
@@ -74,6 +83,62 @@ public class EntityTableTest {
     }
   }
 
+  @Test
+  public void testBatchIdAllocation() throws Exception {
+    InMemoryTableService.create("testBatchId");
+    MetricsTable table = new InMemoryMetricsTable("testBatchId");
+
+    // Reserve 7 ids at a time, with ids recycled after 100
+    EntityTable entityTable = new EntityTable(table, 101, 1000, 7);
+    for (long i = 1; i <= 10; i++) {
+      Assert.assertEquals(i, entityTable.getId("app", "app" + i));
+    }
+
+    // Another instance reserves ids after the ones reserved by the first instance
+    EntityTable otherTable = new EntityTable(table, 101, 1000, 7);
+    Assert.assertEquals(15L, otherTable.getId("app", "other"));
+    Assert.assertEquals(11L, entityTable.getId("app", "app11"));
+    Assert.assertEquals(15L, entityTable.getId("app", "other"));
+
+    // Ids are recycled from 1 after reaching the max id
+    for (long i = 12; i <= 300; i++) {
+      entityTable.getId("app", "app" + i);
+    }
+    for (long i = 1; i <= 100; i++) {
+      long id = entityTable.getId("app", "app" + (200 + i));
+      Assert.assertTrue(id > 0 && id < 101);
+      Assert.assertEquals("app" + (200 + i), entityTable.getName(id, "app"));
+    }
+  }
+
+  @Test
+  public void testPreload() throws Exception {
+    InMemoryTableService.create("testPreload");
+    MetricsTable table = new InMemoryMetricsTable("testPreload");
+
+    EntityTable entityTable = new EntityTable(table);
+    for (int i = 1; i <= 10; i++) {
+      Assert.assertEquals((long) i, entityTable.getId("app", "app" + i));
+      Assert.assertEquals((long) i, entityTable.getId("my.type", "name" + i));
+    }
+
+    // The mappings are loaded with a single scan and don't need to be read again
+    CountingMetricsTable countingTable = new CountingMetricsTable(table);
+    entityTable = new EntityTable(countingTable);
+    Assert.assertEquals(20, entityTable.preload());
+    int reads = countingTable.getReadCount();
+    for (int i = 1; i <= 10; i++) {
+      Assert.assertEquals((long) i, entityTable.getId("app", "app" + i));
+      Assert.assertEquals("app" + i, entityTable.getName(i, "app"));
+      Assert.assertEquals((long) i, entityTable.getId("my.type", "name" + i));
+      Assert.assertEquals("name" + i, entityTable.getName(i, "my.type"));
+    }
+    Assert.assertEquals(reads, countingTable.getReadCount());
+
+    // Preload stops at the cache size
+    Assert.assertEquals(5, new EntityTable(table, 5, 1).preload());
+  }
+
   @Test
   public void testGetName() throws Exception {
     InMemoryTableService.create("testGetName");
@@ -91,4 +156,77 @@ public class EntityTableTest {
       Assert.assertEquals("app" + i, entityTable.getName(i, "app"));
     }
   }
+
+  /**
+   * A {@link MetricsTable} that counts the number of reads of single cells.
+   */
+  private static final class CountingMetricsTable implements MetricsTable {
+    private final MetricsTable delegate;
+    private int readCount;
+
+    private CountingMetricsTable(MetricsTable delegate) {
+      this.delegate = delegate;
+    }
+
+    int getReadCount() {
+      return readCount;
+    }
+
+    @Nullable
+    @Override
+    public byte[] get(byte[] row, byte[] column) {
+      readCount++;
+      return delegate.get(row, column);
+    }
+
+    @Override
+    public void put(SortedMap<byte[], ? extends SortedMap<byte[], Long>> updates) {
+      delegate.put(updates);
+    }
+
+    @Override
+    public void putBytes(SortedMap<byte[], ? extends SortedMap<byte[], byte[]>> updates) {
+      delegate.putBytes(updates);
+    }
+
+    @Override
+    public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) {
+      return delegate.swap(row, column, oldValue, newValue);
+    }
+
+    @Override
+    public void increment(byte[] row, Map<byte[], Long> increments) {
+      delegate.increment(row, increments);
+    }
+
+    @Override
+    public void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) {
+      delegate.increment(updates);
+    }
+
+    @Override
+    public long incrementAndGet(byte[] row, byte[] column, long delta) {
+      return delegate.incrementAndGet(row, column, delta);
+    }
+
+    @Override
+    public void delete(byte[] row, byte[][] columns) {
+      delegate.delete(row, columns);
+    }
+
+    @Override
+    public Scanner scan(@Nullable byte[] start, @Nullable byte[] stop, @Nullable FuzzyRowFilter filter) {
+      return delegate.scan(start, stop, filter);
+    }
+
+    @Override
+    public List<byte[]> getSplits() {
+      return delegate.getSplits();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
 }
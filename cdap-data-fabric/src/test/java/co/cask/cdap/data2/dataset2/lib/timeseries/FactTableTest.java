@@ -35,10 +35,13 @@ import com.google.common.collect.Table;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Test base for {@link co.cask.cdap.data2.dataset2.lib.timeseries.FactTable}.
@@ -562,6 +565,105 @@ public class FactTableTest {
     Assert.assertEquals(3, splitsWithRows.size());
   }
 
+  @Test
+  public void testSplitScan() throws Exception {
+    InMemoryTableService.create("splitScanEntityTable");
+    InMemoryTableService.create("splitScanDataTable");
+    int resolution = 10;
+    int rollTimebaseInterval = 2;
+
+    // a table that is split at every 7th row written
+    final List<byte[]> splitKeys = Lists.newArrayList();
+    InMemoryMetricsTable metricsTable = new InMemoryMetricsTable("splitScanDataTable") {
+      @Override
+      public List<byte[]> getSplits() {
+        return splitKeys;
+      }
+    };
+    FactTable table = new FactTable(metricsTable, new EntityTable(new InMemoryMetricsTable("splitScanEntityTable")),
+                                    resolution, rollTimebaseInterval);
+
+    long ts = ((System.currentTimeMillis() / 1000) / resolution) * resolution;
+    long[] values = new long[100];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i;
+      writeInc(table, "metric", ts + i * resolution, i, "dim1", "value1");
+      writeInc(table, "metric", ts + i * resolution, i, "dim1", "value2");
+    }
+
+    Scanner scanner = metricsTable.scan(null, null, null);
+    Row row;
+    int rows = 0;
+    while ((row = scanner.next()) != null) {
+      if (++rows % 7 == 0) {
+        splitKeys.add(row.getRow());
+      }
+    }
+    scanner.close();
+    Assert.assertTrue(splitKeys.size() > 10);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      table.setScanExecutor(executor, 3);
+      Table<String, List<DimensionValue>, List<TimeValue>> expected = HashBasedTable.create();
+      expected.put("metric", dimValues("dim1", "value1"), timeValues(ts, resolution, values));
+      expected.put("metric", dimValues("dim1", "value2"), timeValues(ts, resolution, values));
+      assertScan(table, expected, new FactScan(ts, ts + 99 * resolution, "metric", dimValues("dim1", null)));
+
+      // a scan within a part of the time range
+      expected = HashBasedTable.create();
+      expected.put("metric", dimValues("dim1", "value2"),
+                   timeValues(ts + 20 * resolution, resolution, Arrays.copyOfRange(values, 20, 61)));
+      assertScan(table, expected,
+                 new FactScan(ts + 20 * resolution, ts + 60 * resolution, "metric", dimValues("dim1", "value2")));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testRollup() throws Exception {
+    InMemoryTableService.create("rollupEntityTable");
+    InMemoryTableService.create("rollupDataTable1");
+    InMemoryTableService.create("rollupDataTable60");
+    EntityTable entityTable = new EntityTable(new InMemoryMetricsTable("rollupEntityTable"));
+    FactTable table = new FactTable(new InMemoryMetricsTable("rollupDataTable1"), entityTable, 1, 3600);
+    table.setRegisterGauges(true);
+    FactTable rollupTable = new FactTable(new InMemoryMetricsTable("rollupDataTable60"), entityTable, 60, 60);
+
+    // a counter and a gauge every second for 3 minutes
+    long ts = ((System.currentTimeMillis() / 1000) / 3600) * 3600;
+    for (int i = 0; i < 180; i++) {
+      table.add(ImmutableList.of(new Fact(ts + i, dimValues("dim1", "value1"),
+                                          ImmutableList.of(new Measurement("counter", MeasureType.COUNTER, 1),
+                                                           new Measurement("gauge", MeasureType.GAUGE, i)))));
+    }
+
+    // roll up the first 2 minutes, one row per minute and measure in the rollup table
+    List<String> dimensionNames = ImmutableList.of("dim1");
+    Assert.assertEquals(4, table.rollup(rollupTable, dimensionNames, ts, ts + 120));
+    FactScan scan = new FactScan(ts, ts + 179, ImmutableList.of("counter", "gauge"), dimValues("dim1", null));
+    Table<String, List<DimensionValue>, List<TimeValue>> expected = HashBasedTable.create();
+    expected.put("counter", dimValues("dim1", "value1"), timeValues(ts, 60, 60, 60));
+    expected.put("gauge", dimValues("dim1", "value1"), timeValues(ts, 60, 59, 119));
+    assertScan(rollupTable, expected, scan);
+
+    // rolling up the same minutes again doesn't change them
+    Assert.assertEquals(6, table.rollup(rollupTable, dimensionNames, ts, ts + 180));
+    expected.put("counter", dimValues("dim1", "value1"), timeValues(ts, 60, 60, 60, 60));
+    expected.put("gauge", dimValues("dim1", "value1"), timeValues(ts, 60, 59, 119, 179));
+    assertScan(rollupTable, expected, scan);
+
+    // delete the rows before the second minute, and all rows of the hour of the finer resolution
+    rollupTable.deleteBefore(dimensionNames, ts + 60);
+    expected.put("counter", dimValues("dim1", "value1"), timeValues(ts + 60, 60, 60, 60));
+    expected.put("gauge", dimValues("dim1", "value1"), timeValues(ts + 60, 60, 119, 179));
+    assertScan(rollupTable, expected, scan);
+
+    table.deleteBefore(dimensionNames, ts + 3600);
+    assertScan(table, HashBasedTable.<String, List<DimensionValue>, List<TimeValue>>create(), scan);
+  }
+
   private List<TimeValue> timeValues(long ts, int resolution, long... values) {
     List<TimeValue> timeValues = Lists.newArrayList();
     for (int i = 0; i < values.length; i++) {
@@ -16,13 +16,24 @@
 
 package co.cask.cdap.hive.datasets;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.batch.RecordScannable;
 import co.cask.cdap.api.data.batch.RecordScanner;
 import co.cask.cdap.api.data.batch.Split;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.lib.KeyValueTable;
+import co.cask.cdap.api.dataset.lib.ObjectMappedTable;
+import co.cask.cdap.api.dataset.lib.ObjectMappedTableProperties;
+import co.cask.cdap.api.dataset.table.Table;
+import co.cask.cdap.api.dataset.table.TableProperties;
+import co.cask.cdap.explore.HiveUtilities;
 import com.google.common.base.Throwables;
 import com.google.gson.Gson;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
 import org.apache.hadoop.hive.shims.ShimLoader;
 import org.apache.hadoop.io.ObjectWritable;
 import org.apache.hadoop.io.Text;
@@ -35,18 +46,28 @@ import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
 
 /**
  * Map reduce input format to read from datasets that implement RecordScannable.
+ * For {@link Table}, {@link ObjectMappedTable} and {@link KeyValueTable} datasets, predicates of the query on the
+ * row key column are used to only create splits for the range of row keys that can match.
  */
 public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
+  private static final Logger LOG = LoggerFactory.getLogger(DatasetInputFormat.class);
   private static final Gson GSON = new Gson();
+  // name of the row key column of a KeyValueTable, from the fields of KeyValue
+  private static final String KEY_VALUE_TABLE_KEY_COLUMN = "key";
 
   @Override
   public InputSplit[] getSplits(JobConf jobConf, int numSplits) throws IOException {
@@ -61,7 +82,7 @@ public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
         JobContext jobContext = ShimLoader.getHadoopShims().newJobContext(job);
         Path[] tablePaths = FileInputFormat.getInputPaths(jobContext);
 
-        List<Split> dsSplits = recordScannable.getSplits();
+        List<Split> dsSplits = getSplits(datasetAccessor, recordScannable, jobConf);
 
         InputSplit[] inputSplits = new InputSplit[dsSplits.size()];
         for (int i = 0; i < dsSplits.size(); i++) {
@@ -72,6 +93,77 @@ public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
     }
   }
 
+  /**
+   * Gets the splits of the dataset, restricted to the row key range that can match the query predicate
+   * if the dataset type supports it.
+   */
+  private List<Split> getSplits(DatasetAccessor datasetAccessor, RecordScannable<?> recordScannable,
+                                Configuration conf) {
+    RowKeyRange range = getRowKeyRange(datasetAccessor, recordScannable, conf);
+    if (range == null || range.isAll()) {
+      return recordScannable.getSplits();
+    }
+    if (range.isEmpty()) {
+      LOG.debug("Query predicate on dataset {} cannot match any row key.", datasetAccessor.getDatasetId());
+      return Collections.emptyList();
+    }
+
+    LOG.debug("Scanning row keys from {} to {} of dataset {}.",
+              range.getStart() == null ? null : Bytes.toStringBinary(range.getStart()),
+              range.getStop() == null ? null : Bytes.toStringBinary(range.getStop()), datasetAccessor.getDatasetId());
+    if (recordScannable instanceof Table) {
+      return ((Table) recordScannable).getSplits(-1, range.getStart(), range.getStop());
+    }
+    if (recordScannable instanceof ObjectMappedTable) {
+      return ((ObjectMappedTable<?>) recordScannable).getSplits(-1, range.getStart(), range.getStop());
+    }
+    return ((KeyValueTable) recordScannable).getSplits(-1, range.getStart(), range.getStop());
+  }
+
+  /**
+   * Derives the row key range to scan from the query predicate in the configuration, or returns {@code null}
+   * if there is no predicate or the dataset cannot be scanned by row key range.
+   */
+  @Nullable
+  private RowKeyRange getRowKeyRange(DatasetAccessor datasetAccessor, RecordScannable<?> recordScannable,
+                                     Configuration conf) {
+    // the conf contains a 'hive.io.filter.expr.serialized' key which contains the serialized form of ExprNodeDesc
+    String serializedExpr = conf.get(TableScanDesc.FILTER_EXPR_CONF_STR);
+    if (serializedExpr == null) {
+      return null;
+    }
+    try {
+      String rowKeyColumn;
+      Schema.Type rowKeyType;
+      if (recordScannable instanceof KeyValueTable) {
+        rowKeyColumn = KEY_VALUE_TABLE_KEY_COLUMN;
+        rowKeyType = Schema.Type.BYTES;
+      } else if (recordScannable instanceof ObjectMappedTable) {
+        Map<String, String> properties = datasetAccessor.getDatasetSpec().getProperties();
+        rowKeyColumn = ObjectMappedTableProperties.getRowKeyExploreName(properties);
+        rowKeyType = ObjectMappedTableProperties.getRowKeyExploreType(properties);
+      } else if (recordScannable instanceof Table) {
+        DatasetSpecification spec = datasetAccessor.getDatasetSpec();
+        rowKeyColumn = TableProperties.getRowFieldName(spec.getProperties());
+        Schema schema = TableProperties.getSchema(spec.getProperties());
+        Schema.Field rowField = (rowKeyColumn == null || schema == null) ? null : schema.getField(rowKeyColumn);
+        if (rowField == null) {
+          return null;
+        }
+        Schema rowSchema = rowField.getSchema();
+        rowKeyType = rowSchema.isNullable() ? rowSchema.getNonNullable().getType() : rowSchema.getType();
+      } else {
+        return null;
+      }
+
+      ExprNodeGenericFuncDesc expr = HiveUtilities.deserializeExpression(serializedExpr, conf);
+      return RowKeyRange.fromPredicate(expr, rowKeyColumn, rowKeyType);
+    } catch (Throwable t) {
+      LOG.warn("Exception analyzing query predicate. A full table scan will be performed.", t);
+      return null;
+    }
+  }
+
   @Override
   public RecordReader<Void, ObjectWritable> getRecordReader(final InputSplit split, JobConf jobConf, Reporter reporter)
     throws IOException {
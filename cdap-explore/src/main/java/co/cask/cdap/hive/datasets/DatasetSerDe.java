@@ -95,7 +95,7 @@ public class DatasetSerDe implements SerDe {
       getDatasetSchema(conf, datasetId);
     }
 
-    this.deserializer = new ObjectDeserializer(properties, schema);
+    this.deserializer = new ObjectDeserializer(properties, schema, 0, conf);
     ArrayList<String> columnNames = Lists.newArrayList(StringUtils.split(properties.getProperty("columns"), ","));
     this.serializer = new ObjectSerializer(columnNames);
     this.objectInspector = deserializer.getInspector();
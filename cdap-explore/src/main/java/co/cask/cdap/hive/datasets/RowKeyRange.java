@@ -0,0 +1,251 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.hive.datasets;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.common.collect.Lists;
+import org.apache.hadoop.hive.common.type.HiveChar;
+import org.apache.hadoop.hive.common.type.HiveVarchar;
+import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
+import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFBetween;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPAnd;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Range of row keys to scan, derived from the predicates of a Hive query on the column that maps to the row key.
+ * The range is always a superset of the rows matching the predicate, since Hive still evaluates the full predicate
+ * on every row returned.
+ */
+final class RowKeyRange {
+
+  private static final byte[] ZERO = new byte[] { 0 };
+
+  private final byte[] start;
+  private final byte[] stop;
+
+  RowKeyRange(@Nullable byte[] start, @Nullable byte[] stop) {
+    this.start = start;
+    this.stop = stop;
+  }
+
+  /**
+   * Returns the start row key, inclusive, or {@code null} to start from the first row.
+   */
+  @Nullable
+  byte[] getStart() {
+    return start;
+  }
+
+  /**
+   * Returns the stop row key, exclusive, or {@code null} to scan to the last row.
+   */
+  @Nullable
+  byte[] getStop() {
+    return stop;
+  }
+
+  /**
+   * Returns whether the range is unbounded on both ends.
+   */
+  boolean isAll() {
+    return start == null && stop == null;
+  }
+
+  /**
+   * Returns whether the range cannot contain any row.
+   */
+  boolean isEmpty() {
+    return start != null && stop != null && Bytes.compareTo(start, stop) >= 0;
+  }
+
+  /**
+   * Derives the row key range from a Hive predicate. Only the conditions that are combined with AND at the top
+   * level of the predicate are used. Range conditions are only used for row keys of type string or bytes, for which
+   * the row key byte order matches the order of the Hive values. For integral row keys only equality is used.
+   *
+   * @param predicate the predicate of the Hive query
+   * @param rowKeyColumn name of the Hive column that maps to the row key
+   * @param rowKeyType schema type of the row key column
+   * @return the range of row keys that can match the predicate
+   */
+  static RowKeyRange fromPredicate(ExprNodeDesc predicate, String rowKeyColumn, Schema.Type rowKeyType) {
+    IndexPredicateAnalyzer analyzer = new IndexPredicateAnalyzer();
+    for (CompareOp op : CompareOp.values()) {
+      analyzer.addComparisonOp(op.getOpClassName());
+    }
+    analyzer.clearAllowedColumnNames();
+    // Hive column names are always lowercase
+    analyzer.allowColumnName(rowKeyColumn.toLowerCase());
+
+    List<IndexSearchCondition> conditions = Lists.newArrayList();
+    analyzer.analyzePredicate(expandBetween(predicate), conditions);
+
+    byte[] start = null;
+    byte[] stop = null;
+    for (IndexSearchCondition condition : conditions) {
+      CompareOp op = CompareOp.from(condition.getComparisonOp());
+      ExprNodeConstantDesc constant = condition.getConstantDesc();
+      byte[] key = constant == null ? null : toRowKey(constant.getValue(), rowKeyType);
+      if (op == null || key == null) {
+        continue;
+      }
+      if (op != CompareOp.EQUAL && rowKeyType != Schema.Type.STRING && rowKeyType != Schema.Type.BYTES) {
+        // byte order of integral and floating point row keys doesn't match the numeric order for negative values
+        continue;
+      }
+
+      // the smallest row key that is greater than the key is the key followed by a zero byte
+      byte[] nextKey = Bytes.concat(key, ZERO);
+      switch (op) {
+        case EQUAL:
+          start = max(start, key);
+          stop = min(stop, nextKey);
+          break;
+        case EQUAL_OR_GREATER:
+          start = max(start, key);
+          break;
+        case GREATER:
+          start = max(start, nextKey);
+          break;
+        case EQUAL_OR_LESS:
+          stop = min(stop, nextKey);
+          break;
+        case LESS:
+          stop = min(stop, key);
+          break;
+      }
+    }
+    return new RowKeyRange(start, stop);
+  }
+
+  /**
+   * Rewrites {@code col BETWEEN a AND b} into {@code col >= a AND col <= b} in the top level conjunction of the
+   * given predicate, so that the bounds can be picked up by the {@link IndexPredicateAnalyzer}.
+   */
+  private static ExprNodeDesc expandBetween(ExprNodeDesc predicate) {
+    if (!(predicate instanceof ExprNodeGenericFuncDesc)) {
+      return predicate;
+    }
+    ExprNodeGenericFuncDesc funcDesc = (ExprNodeGenericFuncDesc) predicate;
+    List<ExprNodeDesc> children = funcDesc.getChildren();
+
+    if (funcDesc.getGenericUDF() instanceof GenericUDFOPAnd) {
+      List<ExprNodeDesc> expanded = Lists.newArrayListWithCapacity(children.size());
+      for (ExprNodeDesc child : children) {
+        expanded.add(expandBetween(child));
+      }
+      return new ExprNodeGenericFuncDesc(funcDesc.getTypeInfo(), funcDesc.getGenericUDF(), expanded);
+    }
+
+    // children of between are: invert flag, value, lower bound, upper bound
+    if (funcDesc.getGenericUDF() instanceof GenericUDFBetween && children.size() == 4
+      && children.get(0) instanceof ExprNodeConstantDesc
+      && Boolean.FALSE.equals(((ExprNodeConstantDesc) children.get(0)).getValue())) {
+      ExprNodeDesc lower = new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo,
+                                                       new GenericUDFOPEqualOrGreaterThan(),
+                                                       Lists.newArrayList(children.get(1), children.get(2)));
+      ExprNodeDesc upper = new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo,
+                                                       new GenericUDFOPEqualOrLessThan(),
+                                                       Lists.newArrayList(children.get(1), children.get(3)));
+      return new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, new GenericUDFOPAnd(),
+                                         Lists.newArrayList(lower, upper));
+    }
+    return predicate;
+  }
+
+  /**
+   * Encodes a Hive constant the same way the row key of the given type is encoded in the dataset, or returns
+   * {@code null} if the constant cannot be encoded.
+   */
+  @Nullable
+  private static byte[] toRowKey(@Nullable Object value, Schema.Type rowKeyType) {
+    if (value == null) {
+      return null;
+    }
+    switch (rowKeyType) {
+      case STRING:
+        // Hive compares a string with a non-string constant by converting both to numbers, which has a different
+        // order than the bytes of the string
+        return (value instanceof String || value instanceof HiveChar || value instanceof HiveVarchar)
+          ? Bytes.toBytes(value.toString()) : null;
+      case BYTES:
+        return value instanceof byte[] ? (byte[]) value : null;
+      case INT:
+        return (value instanceof Integer || value instanceof Short || value instanceof Byte)
+          ? Bytes.toBytes(((Number) value).intValue()) : null;
+      case LONG:
+        return (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+          ? Bytes.toBytes(((Number) value).longValue()) : null;
+      default:
+        return null;
+    }
+  }
+
+  @Nullable
+  private static byte[] max(@Nullable byte[] current, byte[] key) {
+    return (current == null || Bytes.compareTo(key, current) > 0) ? key : current;
+  }
+
+  @Nullable
+  private static byte[] min(@Nullable byte[] current, byte[] key) {
+    return (current == null || Bytes.compareTo(key, current) < 0) ? key : current;
+  }
+
+  private enum CompareOp {
+    EQUAL(GenericUDFOPEqual.class.getName()),
+    EQUAL_OR_GREATER(GenericUDFOPEqualOrGreaterThan.class.getName()),
+    EQUAL_OR_LESS(GenericUDFOPEqualOrLessThan.class.getName()),
+    GREATER(GenericUDFOPGreaterThan.class.getName()),
+    LESS(GenericUDFOPLessThan.class.getName());
+
+    private final String opClassName;
+
+    CompareOp(String opClassName) {
+      this.opClassName = opClassName;
+    }
+
+    String getOpClassName() {
+      return opClassName;
+    }
+
+    /**
+     * Returns a {@link CompareOp} by matching the given class name or {@code null} if there is none matching.
+     */
+    @Nullable
+    static CompareOp from(String opClassName) {
+      for (CompareOp op : values()) {
+        if (op.getOpClassName().equals(opClassName)) {
+          return op;
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -24,7 +24,9 @@ import co.cask.cdap.hive.objectinspector.ObjectInspectorFactory;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.typeinfo.ListTypeInfo;
@@ -37,16 +39,23 @@ import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
 
 /**
  * Helper class for translating objects that fit a cdap {@link Schema} into objects
  * that Hive can understand.
+ * <p>
+ * The translation for a schema and a list of Hive columns is compiled once into a tree of {@link Projector},
+ * which resolves schema fields and reflected record fields up front. Columns not projected by the Hive query are
+ * never read from the records and are returned as {@code null}.
+ * </p>
  */
 public class ObjectDeserializer {
   private final List<String> fieldNames;
@@ -55,6 +64,12 @@ public class ObjectDeserializer {
   // we can almost do without the schema. The problem is that everything in Hive is lowercase,
   // but when we look up record fields we need the case sensitive field name.
   private final Schema schema;
+  // whether each of the fields is read by the query, or null if all fields are read
+  private final boolean[] projected;
+
+  // compiled lazily, since instances are also created just to get the inspector, without a schema
+  private Projector fieldProjector;
+  private Projector recordProjector;
 
   /**
    * Creates an ObjectTranslator that will be able to deserialize objects that fit a {@link Schema} into objects
@@ -75,9 +90,21 @@ public class ObjectDeserializer {
    * @param fieldOffset Ignore columns before the offset when flattening records
    */
   public ObjectDeserializer(Properties properties, Schema schema, int fieldOffset) {
+    this(properties, schema, fieldOffset, null);
+  }
+
+  /**
+   * Creates an ObjectTranslator that only reads the columns projected by the Hive query described by the given
+   * configuration. Columns that are not projected are translated to {@code null}.
+   *
+   * @param properties Properties object passed to a SerDe during initialization that contains the table columns
+   * @param fieldOffset Ignore columns before the offset when flattening records
+   * @param conf Configuration passed to a SerDe during initialization, or null if it was not provided
+   */
+  public ObjectDeserializer(Properties properties, Schema schema, int fieldOffset, @Nullable Configuration conf) {
     this(Lists.newArrayList(properties.getProperty(serdeConstants.LIST_COLUMNS).split(",")),
          TypeInfoUtils.getTypeInfosFromTypeString(properties.getProperty(serdeConstants.LIST_COLUMN_TYPES)),
-         schema, fieldOffset);
+         schema, fieldOffset, getProjectedColumns(conf));
   }
 
   public ObjectDeserializer(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema) {
@@ -86,12 +113,19 @@ public class ObjectDeserializer {
 
   @VisibleForTesting
   ObjectDeserializer(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema, int fieldOffset) {
+    this(fieldNames, fieldTypes, schema, fieldOffset, null);
+  }
+
+  @VisibleForTesting
+  ObjectDeserializer(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema, int fieldOffset,
+                     @Nullable List<Integer> projectedColumns) {
     this.fieldNames = fieldNames.subList(fieldOffset, fieldNames.size());
     this.fieldTypes = fieldTypes.subList(fieldOffset, fieldTypes.size());
     // inspector should still use all names and types passed in. This is in case there are some fields that are
     // determined outside of this class, such as the stream case where timestamp and headers are read elsewhere
     this.inspector = createInspector(fieldNames, fieldTypes);
     this.schema = schema;
+    this.projected = getProjectedFields(projectedColumns, fieldOffset, this.fieldNames.size());
   }
 
   /**
@@ -114,9 +148,12 @@ public class ObjectDeserializer {
    */
   public Object deserialize(Object obj) throws NoSuchFieldException, IllegalAccessException {
     if (fieldTypes.size() == 1) {
-      return deserializeField(obj, fieldTypes.get(0), schema);
+      if (fieldProjector == null) {
+        fieldProjector = compile(fieldTypes.get(0), schema);
+      }
+      return fieldProjector.project(obj);
     } else {
-      return flattenRecord(obj, fieldNames, fieldTypes, schema);
+      return translateRecord(obj);
     }
   }
 
@@ -129,89 +166,85 @@ public class ObjectDeserializer {
    * @throws NoSuchFieldException
    * @throws IllegalAccessException
    */
+  @SuppressWarnings("unchecked")
   public List<Object> translateRecord(Object obj) throws NoSuchFieldException, IllegalAccessException {
-    return flattenRecord(obj, fieldNames, fieldTypes, schema);
+    if (recordProjector == null) {
+      recordProjector = new NullCheckingProjector(new RecordProjector(fieldNames, fieldTypes, schema, projected),
+                                                  schema.isNullable());
+    }
+    return (List<Object>) recordProjector.project(obj);
   }
 
-  private List<Object> flattenRecord(Object obj, List<String> fieldNames, List<TypeInfo> fieldTypes,
-                                     Schema schema) throws NoSuchFieldException, IllegalAccessException {
-    boolean isNullable = schema.isNullable();
-    if (obj == null) {
-      if (isNullable) {
-        return null;
-      } else {
-        throw new UnexpectedFormatException("Non-nullable field is null.");
-      }
-    }
-    if (isNullable) {
-      schema = schema.getNonNullable();
+  /**
+   * Returns the ids of the columns read by the Hive query described by the given configuration, or {@code null} if
+   * all columns are read.
+   */
+  @Nullable
+  private static List<Integer> getProjectedColumns(@Nullable Configuration conf) {
+    if (conf == null || ColumnProjectionUtils.isReadAllColumns(conf)) {
+      return null;
     }
+    List<Integer> columnIds = ColumnProjectionUtils.getReadColumnIDs(conf);
+    // Hive doesn't always set the column ids even if it doesn't ask for all columns, e.g. for count(*)
+    return columnIds.isEmpty() ? null : columnIds;
+  }
 
-    Map<String, Schema.Field> fieldMap = getFieldMap(schema);
-    List<Object> objectFields = Lists.newArrayListWithCapacity(fieldNames.size());
-    for (int i = 0; i < fieldNames.size(); i++) {
-      String hiveName = fieldNames.get(i);
-      TypeInfo fieldType = fieldTypes.get(i);
-      Schema.Field schemaField = fieldMap.get(hiveName);
-      // use the name from the schema field in case it is not all lowercase
-      Object recordField = getRecordField(obj, schemaField.getName());
-      objectFields.add(deserializeField(recordField, fieldType, schemaField.getSchema()));
+  @Nullable
+  private static boolean[] getProjectedFields(@Nullable List<Integer> projectedColumns, int fieldOffset,
+                                              int numFields) {
+    if (projectedColumns == null) {
+      return null;
     }
-    return objectFields;
+    boolean[] projected = new boolean[numFields];
+    for (int columnId : projectedColumns) {
+      int fieldId = columnId - fieldOffset;
+      if (fieldId >= 0 && fieldId < numFields) {
+        projected[fieldId] = true;
+      }
+    }
+    return projected;
   }
 
   /**
-   * Translate a field that fits a {@link Schema} field into a type that Hive understands.
+   * Compiles the translation of a field that fits a {@link Schema} field into a type that Hive understands.
    * For example, a ByteBuffer is allowed by schema but Hive only understands byte arrays, so all ByteBuffers must
    * be changed into byte arrays. Reflection is used to examine java objects if the expected hive type is a struct.
    *
-   * @param field value of the field to deserialize.
    * @param typeInfo type of the field as expected by Hive.
    * @param schema schema of the field.
-   * @return translated field.
-   * @throws NoSuchFieldException if a struct field was expected but not found in the object.
-   * @throws IllegalAccessException if a struct field was not accessible.
+   * @return projector that translates the field.
    */
-  private Object deserializeField(Object field, TypeInfo typeInfo,
-                                  Schema schema) throws NoSuchFieldException, IllegalAccessException {
+  private static Projector compile(TypeInfo typeInfo, Schema schema) {
     boolean isNullable = schema.isNullable();
-    if (field == null) {
-      if (isNullable) {
-        return null;
-      } else {
-        throw new UnexpectedFormatException("Non-nullable field was null.");
-      }
-    }
-    if (isNullable) {
-      schema = schema.getNonNullable();
-    }
+    Schema nonNullable = isNullable ? schema.getNonNullable() : schema;
 
+    Projector projector;
     switch (typeInfo.getCategory()) {
       case PRIMITIVE:
-        return deserializePrimitive(field, (PrimitiveTypeInfo) typeInfo);
+        projector = new PrimitiveProjector((PrimitiveTypeInfo) typeInfo);
+        break;
       case LIST:
-        // HIVE!! some versions will turn bytes into array<tinyint> instead of binary... so special case it.
-        // TODO: remove once CDAP-1556 is done
-        ListTypeInfo listTypeInfo = (ListTypeInfo) typeInfo;
-        if (isByteArray(listTypeInfo) && !(field instanceof Collection)) {
-          return deserializeByteArray(field);
-        }
-        return deserializeList(field, (ListTypeInfo) typeInfo, schema.getComponentSchema());
+        projector = new ListProjector((ListTypeInfo) typeInfo, nonNullable);
+        break;
       case MAP:
-        return deserializeMap(field, (MapTypeInfo) typeInfo, schema.getMapSchema());
+        projector = new MapProjector((MapTypeInfo) typeInfo, nonNullable.getMapSchema());
+        break;
       case STRUCT:
         StructTypeInfo structTypeInfo = (StructTypeInfo) typeInfo;
-        ArrayList<String> innerFieldNames = structTypeInfo.getAllStructFieldNames();
-        ArrayList<TypeInfo> innerFieldTypes = structTypeInfo.getAllStructFieldTypeInfos();
-        return flattenRecord(field, innerFieldNames, innerFieldTypes, schema);
+        projector = new RecordProjector(structTypeInfo.getAllStructFieldNames(),
+                                        structTypeInfo.getAllStructFieldTypeInfos(), nonNullable, null);
+        break;
       case UNION:
         // TODO: decide what to do here
-        return field;
+        projector = IDENTITY_PROJECTOR;
+        break;
+      default:
+        projector = NULL_PROJECTOR;
     }
-    return null;
+    return new NullCheckingProjector(projector, isNullable);
   }
 
-  private boolean isByteArray(ListTypeInfo typeInfo) {
+  private static boolean isByteArray(ListTypeInfo typeInfo) {
     TypeInfo elementType = typeInfo.getListElementTypeInfo();
     return (elementType.getCategory().equals(ObjectInspector.Category.PRIMITIVE) &&
       ((PrimitiveTypeInfo) elementType).getPrimitiveCategory().equals(PrimitiveObjectInspector.PrimitiveCategory.BYTE));
@@ -219,7 +252,7 @@ public class ObjectDeserializer {
 
   // Hive's object inspector will try to cast to Object[] so we can't return a byte[]...
   // TODO: remove once once CDAP-1556 is done
-  private Byte[] deserializeByteArray(Object primitive) {
+  private static Byte[] deserializeByteArray(Object primitive) {
     // byte[], ByteBuffer, and UUID get mapped to bytes
     byte[] raw;
     if (primitive instanceof ByteBuffer) {
@@ -250,8 +283,8 @@ public class ObjectDeserializer {
    * See {@link co.cask.cdap.internal.io.AbstractSchemaGenerator} for the full mapping.
    * TODO: refactor so that changes don't have to be made both here and in AbstractSchemaGenerator
    */
-  private Object deserializePrimitive(Object primitive, PrimitiveTypeInfo typeInfo) {
-    switch (typeInfo.getPrimitiveCategory()) {
+  private static Object deserializePrimitive(Object primitive, PrimitiveObjectInspector.PrimitiveCategory category) {
+    switch (category) {
       case STRING:
         // URI, URL, and String all get mapped to string
         // Avro's utf8 also requires .toString()
@@ -279,67 +312,197 @@ public class ObjectDeserializer {
     return primitive;
   }
 
-  private Object deserializeList(Object listField, ListTypeInfo typeInfo,
-                                 Schema elementSchema) throws NoSuchFieldException, IllegalAccessException {
-    TypeInfo listElementType = typeInfo.getListElementTypeInfo();
-    List<Object> hiveList = Lists.newArrayList();
-    if (listField instanceof Collection) {
-      for (Object obj : (Collection<?>) listField) {
-        hiveList.add(deserializeField(obj, listElementType, elementSchema));
-      }
-    } else {
-      for (int i = 0; i < Array.getLength(listField); i++) {
-        hiveList.add(deserializeField(Array.get(listField, i), listElementType, elementSchema));
-      }
+  private ObjectInspector createInspector(List<String> fieldNames, List<TypeInfo> fieldTypes) {
+    List<ObjectInspector> fieldInspectors = Lists.newArrayListWithCapacity(fieldTypes.size());
+    for (TypeInfo typeInfo : fieldTypes) {
+      fieldInspectors.add(TypeInfoUtils.getStandardJavaObjectInspectorFromTypeInfo(typeInfo));
     }
+    return ObjectInspectorFactory.getStandardStructObjectInspector(fieldNames, fieldInspectors);
+  }
 
-    return hiveList;
+  /**
+   * Translates a non-null value that fits a schema into the object layout expected by Hive.
+   */
+  private interface Projector {
+    Object project(Object value) throws NoSuchFieldException, IllegalAccessException;
   }
 
-  @SuppressWarnings("unchecked")
-  private Object deserializeMap(Object mapField, MapTypeInfo typeInfo, Map.Entry<Schema, Schema> mapSchema)
-    throws NoSuchFieldException, IllegalAccessException {
-
-    Map<Object, Object> ourMap = (Map) mapField;
-    TypeInfo keyType = typeInfo.getMapKeyTypeInfo();
-    TypeInfo valType = typeInfo.getMapValueTypeInfo();
-    Schema keySchema = mapSchema.getKey();
-    Schema valSchema = mapSchema.getValue();
-    Map translatedMap = Maps.newHashMap();
-    for (Map.Entry entry : ourMap.entrySet()) {
-      translatedMap.put(deserializeField(entry.getKey(), keyType, keySchema),
-                        deserializeField(entry.getValue(), valType, valSchema));
+  private static final Projector IDENTITY_PROJECTOR = new Projector() {
+    @Override
+    public Object project(Object value) {
+      return value;
+    }
+  };
+
+  private static final Projector NULL_PROJECTOR = new Projector() {
+    @Override
+    public Object project(Object value) {
+      return null;
+    }
+  };
+
+  /**
+   * Handles null values according to the nullability of the schema before delegating to another projector.
+   */
+  private static final class NullCheckingProjector implements Projector {
+    private final Projector delegate;
+    private final boolean nullable;
+
+    NullCheckingProjector(Projector delegate, boolean nullable) {
+      this.delegate = delegate;
+      this.nullable = nullable;
+    }
+
+    @Override
+    public Object project(Object value) throws NoSuchFieldException, IllegalAccessException {
+      if (value == null) {
+        if (nullable) {
+          return null;
+        }
+        throw new UnexpectedFormatException("Non-nullable field was null.");
+      }
+      return delegate.project(value);
     }
-    return translatedMap;
   }
 
-  // get a field from the object using the get method if the object is a StructuredRecord,
-  // or using reflection if it is not.
-  private Object getRecordField(Object record, String fieldName)
-    throws NoSuchFieldException, IllegalAccessException {
-    if (record instanceof StructuredRecord) {
-      return ((StructuredRecord) record).get(fieldName);
+  private static final class PrimitiveProjector implements Projector {
+    private final PrimitiveObjectInspector.PrimitiveCategory category;
+
+    PrimitiveProjector(PrimitiveTypeInfo typeInfo) {
+      this.category = typeInfo.getPrimitiveCategory();
+    }
+
+    @Override
+    public Object project(Object value) {
+      return deserializePrimitive(value, category);
     }
-    Class recordClass = record.getClass();
-    Field field = recordClass.getDeclaredField(fieldName);
-    field.setAccessible(true);
-    return field.get(record);
   }
 
-  // get a map from the expected hive name of a field in the schema to the field in the schema.
-  private Map<String, Schema.Field> getFieldMap(Schema schema) {
-    Map<String, Schema.Field> fieldMap = Maps.newHashMap();
-    for (Schema.Field field : schema.getFields()) {
-      fieldMap.put(field.getName().toLowerCase(), field);
+  private static final class ListProjector implements Projector {
+    private final boolean byteArray;
+    private final Projector elementProjector;
+
+    ListProjector(ListTypeInfo typeInfo, Schema schema) {
+      // HIVE!! some versions will turn bytes into array<tinyint> instead of binary... so special case it.
+      // TODO: remove once CDAP-1556 is done
+      this.byteArray = isByteArray(typeInfo);
+      this.elementProjector = schema.getType() == Schema.Type.ARRAY ?
+        compile(typeInfo.getListElementTypeInfo(), schema.getComponentSchema()) : null;
+    }
+
+    @Override
+    public Object project(Object value) throws NoSuchFieldException, IllegalAccessException {
+      if (byteArray && !(value instanceof Collection)) {
+        return deserializeByteArray(value);
+      }
+      List<Object> hiveList = Lists.newArrayList();
+      if (value instanceof Collection) {
+        for (Object obj : (Collection<?>) value) {
+          hiveList.add(elementProjector.project(obj));
+        }
+      } else {
+        int length = Array.getLength(value);
+        for (int i = 0; i < length; i++) {
+          hiveList.add(elementProjector.project(Array.get(value, i)));
+        }
+      }
+      return hiveList;
     }
-    return fieldMap;
   }
 
-  private ObjectInspector createInspector(List<String> fieldNames, List<TypeInfo> fieldTypes) {
-    List<ObjectInspector> fieldInspectors = Lists.newArrayListWithCapacity(fieldTypes.size());
-    for (TypeInfo typeInfo : fieldTypes) {
-      fieldInspectors.add(TypeInfoUtils.getStandardJavaObjectInspectorFromTypeInfo(typeInfo));
+  private static final class MapProjector implements Projector {
+    private final Projector keyProjector;
+    private final Projector valueProjector;
+
+    MapProjector(MapTypeInfo typeInfo, Map.Entry<Schema, Schema> mapSchema) {
+      this.keyProjector = compile(typeInfo.getMapKeyTypeInfo(), mapSchema.getKey());
+      this.valueProjector = compile(typeInfo.getMapValueTypeInfo(), mapSchema.getValue());
+    }
+
+    @Override
+    public Object project(Object value) throws NoSuchFieldException, IllegalAccessException {
+      Map<?, ?> ourMap = (Map<?, ?>) value;
+      Map<Object, Object> translatedMap = Maps.newHashMap();
+      for (Map.Entry<?, ?> entry : ourMap.entrySet()) {
+        translatedMap.put(keyProjector.project(entry.getKey()), valueProjector.project(entry.getValue()));
+      }
+      return translatedMap;
+    }
+  }
+
+  /**
+   * Flattens a record into a list of fields. Record fields are read using the get method if the object is
+   * a {@link StructuredRecord}, or using reflection otherwise. Reflected fields are resolved once per record class.
+   */
+  private static final class RecordProjector implements Projector {
+    private final String[] recordFieldNames;
+    private final Projector[] fieldProjectors;
+    private final ConcurrentMap<Class<?>, Field[]> classFields;
+
+    RecordProjector(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema,
+                    @Nullable boolean[] projected) {
+      if (schema.isNullable()) {
+        schema = schema.getNonNullable();
+      }
+      // get a map from the expected hive name of a field in the schema to the field in the schema.
+      Map<String, Schema.Field> fieldMap = Maps.newHashMap();
+      for (Schema.Field field : schema.getFields()) {
+        fieldMap.put(field.getName().toLowerCase(), field);
+      }
+
+      this.recordFieldNames = new String[fieldNames.size()];
+      this.fieldProjectors = new Projector[fieldNames.size()];
+      for (int i = 0; i < fieldNames.size(); i++) {
+        if (projected != null && !projected[i]) {
+          continue;
+        }
+        String hiveName = fieldNames.get(i);
+        Schema.Field schemaField = fieldMap.get(hiveName);
+        if (schemaField == null) {
+          throw new UnexpectedFormatException("Field '" + hiveName + "' is not in the schema " + schema);
+        }
+        // use the name from the schema field in case it is not all lowercase
+        recordFieldNames[i] = schemaField.getName();
+        fieldProjectors[i] = compile(fieldTypes.get(i), schemaField.getSchema());
+      }
+      this.classFields = Maps.newConcurrentMap();
+    }
+
+    @Override
+    public Object project(Object value) throws NoSuchFieldException, IllegalAccessException {
+      Object[] objectFields = new Object[fieldProjectors.length];
+      if (value instanceof StructuredRecord) {
+        StructuredRecord record = (StructuredRecord) value;
+        for (int i = 0; i < fieldProjectors.length; i++) {
+          if (fieldProjectors[i] != null) {
+            objectFields[i] = fieldProjectors[i].project(record.get(recordFieldNames[i]));
+          }
+        }
+      } else {
+        Field[] fields = getFields(value.getClass());
+        for (int i = 0; i < fieldProjectors.length; i++) {
+          if (fieldProjectors[i] != null) {
+            objectFields[i] = fieldProjectors[i].project(fields[i].get(value));
+          }
+        }
+      }
+      return Arrays.asList(objectFields);
+    }
+
+    private Field[] getFields(Class<?> recordClass) throws NoSuchFieldException {
+      Field[] fields = classFields.get(recordClass);
+      if (fields != null) {
+        return fields;
+      }
+      fields = new Field[recordFieldNames.length];
+      for (int i = 0; i < recordFieldNames.length; i++) {
+        if (recordFieldNames[i] != null) {
+          fields[i] = recordClass.getDeclaredField(recordFieldNames[i]);
+          fields[i].setAccessible(true);
+        }
+      }
+      classFields.putIfAbsent(recordClass, fields);
+      return fields;
     }
-    return ObjectInspectorFactory.getStandardStructObjectInspector(fieldNames, fieldInspectors);
   }
 }
@@ -102,7 +102,7 @@ public class StreamSerDe implements SerDe {
         this.streamFormat = (AbstractStreamEventRecordFormat) RecordFormats.createInitializedFormat(formatSpec);
         schema = formatSpec.getSchema();
       }
-      this.deserializer = new ObjectDeserializer(properties, schema, BODY_OFFSET);
+      this.deserializer = new ObjectDeserializer(properties, schema, BODY_OFFSET, conf);
       this.inspector = deserializer.getInspector();
     } catch (UnsupportedTypeException e) {
       // this should have been validated up front when schema was set on the stream.
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.hive.datasets;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.common.collect.Lists;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFBetween;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPAnd;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPOr;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RowKeyRange}.
+ */
+public class RowKeyRangeTest {
+
+  @Test
+  public void testStringRange() {
+    // rowkey > 'a' and rowkey < 'c'
+    RowKeyRange range = RowKeyRange.fromPredicate(
+      and(compare(new GenericUDFOPGreaterThan(), "rowkey", "a"), compare(new GenericUDFOPLessThan(), "rowkey", "c")),
+      "rowkey", Schema.Type.STRING);
+    Assert.assertArrayEquals(new byte[] { 'a', 0 }, range.getStart());
+    Assert.assertArrayEquals(Bytes.toBytes("c"), range.getStop());
+    Assert.assertFalse(range.isEmpty());
+
+    // rowkey between 'b' and 'd'
+    range = RowKeyRange.fromPredicate(between("rowkey", "b", "d"), "rowKey", Schema.Type.STRING);
+    Assert.assertArrayEquals(Bytes.toBytes("b"), range.getStart());
+    Assert.assertArrayEquals(new byte[] { 'd', 0 }, range.getStop());
+
+    // rowkey = 'b' and rowkey > 'c' cannot match
+    range = RowKeyRange.fromPredicate(
+      and(compare(new GenericUDFOPEqual(), "rowkey", "b"), compare(new GenericUDFOPGreaterThan(), "rowkey", "c")),
+      "rowkey", Schema.Type.STRING);
+    Assert.assertTrue(range.isEmpty());
+  }
+
+  @Test
+  public void testUnusablePredicates() {
+    // predicate on another column
+    Assert.assertTrue(RowKeyRange.fromPredicate(compare(new GenericUDFOPEqual(), "other", "a"),
+                                                "rowkey", Schema.Type.STRING).isAll());
+    // disjunction
+    ExprNodeDesc or = new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, new GenericUDFOPOr(),
+                                                  Lists.newArrayList(compare(new GenericUDFOPEqual(), "rowkey", "a"),
+                                                                     compare(new GenericUDFOPEqual(), "rowkey", "b")));
+    Assert.assertTrue(RowKeyRange.fromPredicate(or, "rowkey", Schema.Type.STRING).isAll());
+    // range on a long row key, whose byte order does not match the numeric order
+    Assert.assertTrue(RowKeyRange.fromPredicate(compare(new GenericUDFOPLessThan(), "id", 5L),
+                                                "id", Schema.Type.LONG).isAll());
+    // equality on a long row key can be used
+    RowKeyRange range = RowKeyRange.fromPredicate(compare(new GenericUDFOPEqual(), "id", 5L), "id", Schema.Type.LONG);
+    Assert.assertArrayEquals(Bytes.toBytes(5L), range.getStart());
+    Assert.assertArrayEquals(Bytes.concat(Bytes.toBytes(5L), new byte[] { 0 }), range.getStop());
+    // numeric constant on a string row key, which Hive compares as numbers, e.g. '05' = 5 and '10' > 5
+    for (GenericUDF op : new GenericUDF[] { new GenericUDFOPEqual(), new GenericUDFOPGreaterThan() }) {
+      ExprNodeDesc predicate = new ExprNodeGenericFuncDesc(
+        TypeInfoFactory.booleanTypeInfo, op,
+        Lists.newArrayList(new ExprNodeColumnDesc(TypeInfoFactory.stringTypeInfo, "rowkey", "t", false),
+                           new ExprNodeConstantDesc(TypeInfoFactory.intTypeInfo, 5)));
+      Assert.assertTrue(RowKeyRange.fromPredicate(predicate, "rowkey", Schema.Type.STRING).isAll());
+    }
+  }
+
+  private ExprNodeDesc compare(GenericUDF op, String column, Object value) {
+    return new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, op,
+                                       Lists.newArrayList(column(column, value), constant(value)));
+  }
+
+  private ExprNodeDesc between(String column, Object lower, Object upper) {
+    ExprNodeDesc invert = new ExprNodeConstantDesc(TypeInfoFactory.booleanTypeInfo, false);
+    return new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, new GenericUDFBetween(),
+                                       Lists.newArrayList(invert, column(column, lower),
+                                                          constant(lower), constant(upper)));
+  }
+
+  private ExprNodeDesc and(ExprNodeDesc left, ExprNodeDesc right) {
+    return new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, new GenericUDFOPAnd(),
+                                       Lists.newArrayList(left, right));
+  }
+
+  private ExprNodeDesc column(String column, Object value) {
+    return new ExprNodeColumnDesc(typeOf(value), column, "t", false);
+  }
+
+  private ExprNodeDesc constant(Object value) {
+    return new ExprNodeConstantDesc(typeOf(value), value);
+  }
+
+  private TypeInfo typeOf(Object value) {
+    return value instanceof Long ? TypeInfoFactory.longTypeInfo : TypeInfoFactory.stringTypeInfo;
+  }
+}
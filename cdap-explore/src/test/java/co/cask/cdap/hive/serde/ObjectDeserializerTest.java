@@ -335,6 +335,33 @@ public class ObjectDeserializerTest {
     assertSimpleRecordEquals(expected, translated);
   }
 
+  @Test
+  public void testFlattenProjectedColumns() throws Exception {
+    SimpleRecord simpleRecord = new SimpleRecord(new URI("http://abc.com"), new URL("http://123.com"));
+    List<String> fieldNames = Lists.newArrayList("ts");
+    fieldNames.addAll(HiveSimpleRecord.getFieldNames());
+    List<TypeInfo> fieldTypes = Lists.<TypeInfo>newArrayList(TypeInfoFactory.longTypeInfo);
+    fieldTypes.addAll(HiveSimpleRecord.getFieldTypes());
+    List<Object> expected = new HiveSimpleRecord(simpleRecord).getAsList();
+    // the projected column ids include the offset, columns before the offset are read elsewhere
+    ObjectDeserializer translator = new ObjectDeserializer(fieldNames, fieldTypes,
+                                                           schemaGenerator.generate(SimpleRecord.class), 1,
+                                                           Lists.newArrayList(0, 1, 9));
+
+    // translate twice to make sure the compiled translation can be reused
+    for (int i = 0; i < 2; i++) {
+      List<Object> translated = translator.translateRecord(simpleRecord);
+      Assert.assertEquals(expected.size(), translated.size());
+      for (int j = 0; j < expected.size(); j++) {
+        if (j == 0 || j == 8) {
+          Assert.assertEquals(expected.get(j), translated.get(j));
+        } else {
+          Assert.assertNull(translated.get(j));
+        }
+      }
+    }
+  }
+
   @Test
   public void testFlattenSimpleStructuredRecord() throws Exception {
     SimpleRecord simpleRecord = new SimpleRecord(new URI("http://abc.com"), new URL("http://123.com"));
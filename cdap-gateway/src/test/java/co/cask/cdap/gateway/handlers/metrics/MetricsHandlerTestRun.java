@@ -673,17 +673,19 @@ public class MetricsHandlerTestRun extends MetricsSuiteTestBase {
 
   private  void batchTest(Map<String, QueryRequestFormat> jsonBatch,
                           ImmutableMap<String, QueryResult> expected) throws Exception {
-    String url = "/v3/metrics/query";
-    Map<String, MetricQueryResult> results =
-      post(url, GSON.toJson(jsonBatch), new TypeToken<Map<String, MetricQueryResult>>() { }.getType());
-
-    // check we have all the keys
-    Assert.assertEquals(expected.keySet(), results.keySet());
-    for (Map.Entry<String, MetricQueryResult> entry : results.entrySet()) {
-      ImmutableList<TimeSeriesSummary> expectedTimeSeriesSummary = expected.get(entry.getKey()).getExpectedList();
-      MetricQueryResult actualQueryResult = entry.getValue();
-      compareQueryResults(expectedTimeSeriesSummary, actualQueryResult);
-      Assert.assertEquals(expected.get(entry.getKey()).getExpectedResolution(), actualQueryResult.getResolution());
+    // the chunked response must have the same content
+    for (String url : ImmutableList.of("/v3/metrics/query", "/v3/metrics/query?chunked=true")) {
+      Map<String, MetricQueryResult> results =
+        post(url, GSON.toJson(jsonBatch), new TypeToken<Map<String, MetricQueryResult>>() { }.getType());
+
+      // check we have all the keys
+      Assert.assertEquals(expected.keySet(), results.keySet());
+      for (Map.Entry<String, MetricQueryResult> entry : results.entrySet()) {
+        ImmutableList<TimeSeriesSummary> expectedTimeSeriesSummary = expected.get(entry.getKey()).getExpectedList();
+        MetricQueryResult actualQueryResult = entry.getValue();
+        compareQueryResults(expectedTimeSeriesSummary, actualQueryResult);
+        Assert.assertEquals(expected.get(entry.getKey()).getExpectedResolution(), actualQueryResult.getResolution());
+      }
     }
   }
 
@@ -775,6 +777,10 @@ public class MetricsHandlerTestRun extends MetricsSuiteTestBase {
   private void verifyRangeQueryResult(String url, long nonZeroPointsCount, long expectedSum) throws Exception {
     MetricQueryResult queryResult = post(url, MetricQueryResult.class);
     verifyTimeSeries(queryResult.getSeries()[0], nonZeroPointsCount, expectedSum);
+
+    // the chunked response must have the same content
+    queryResult = post(url + "&chunked=true", MetricQueryResult.class);
+    verifyTimeSeries(queryResult.getSeries()[0], nonZeroPointsCount, expectedSum);
   }
 
   private void verifyTimeSeries(MetricQueryResult.TimeSeries timeSeries, long nonZeroPointsCount, long expectedSum) {
@@ -46,6 +46,7 @@ import co.cask.cdap.metrics.runtime.KafkaMetricsProcessorRuntimeService;
 import co.cask.cdap.metrics.runtime.MessagingMetricsProcessorRuntimeService;
 import co.cask.cdap.metrics.store.DefaultMetricDatasetFactory;
 import co.cask.cdap.metrics.store.MetricDatasetFactory;
+import co.cask.cdap.metrics.store.MetricsRollupService;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.security.auth.context.AuthenticationContextModules;
 import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
@@ -78,6 +79,7 @@ public final class MetricsProcessorTwillRunnable extends AbstractMasterTwillRunn
   private static final Logger LOG = LoggerFactory.getLogger(MetricsProcessorTwillRunnable.class);
 
   private Injector injector;
+  private int instanceId;
 
   public MetricsProcessorTwillRunnable(String name, String cConfName, String hConfName) {
     super(name, cConfName, hConfName);
@@ -89,6 +91,7 @@ public final class MetricsProcessorTwillRunnable extends AbstractMasterTwillRunn
     // Set the hostname of the machine so that cConf can be used to start internal services
     LOG.info("{} Setting host name to {}", name, context.getHost().getCanonicalHostName());
 
+    instanceId = context.getInstanceId();
     injector = createGuiceInjector(getCConfiguration(), getConfiguration());
     injector.getInstance(LogAppenderInitializer.class).initialize();
     LoggingContextAccessor.setLoggingContext(new ServiceLoggingContext(NamespaceId.SYSTEM.getNamespace(),
@@ -103,6 +106,10 @@ public final class MetricsProcessorTwillRunnable extends AbstractMasterTwillRunn
     services.add(injector.getInstance(KafkaMetricsProcessorRuntimeService.class));
     services.add(injector.getInstance(MessagingMetricsProcessorRuntimeService.class));
     services.add(injector.getInstance(MetricsProcessorStatusService.class));
+    // rolling up is idempotent, but there is no need to do it in more than one instance
+    if (instanceId == 0 && getCConfiguration().getBoolean(Constants.Metrics.ROLLUP_ENABLED)) {
+      services.add(injector.getInstance(MetricsRollupService.class));
+    }
   }
 
   @VisibleForTesting
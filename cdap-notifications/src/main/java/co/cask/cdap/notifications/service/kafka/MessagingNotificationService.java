@@ -16,6 +16,7 @@
 
 package co.cask.cdap.notifications.service.kafka;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
@@ -25,7 +26,7 @@ import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.transaction.TransactionSystemClientService;
 import co.cask.cdap.messaging.MessageFetcher;
 import co.cask.cdap.messaging.MessagingService;
-import co.cask.cdap.messaging.client.StoreRequestBuilder;
+import co.cask.cdap.messaging.client.BatchingMessagePublisher;
 import co.cask.cdap.messaging.data.RawMessage;
 import co.cask.cdap.notifications.feeds.NotificationFeedException;
 import co.cask.cdap.notifications.feeds.NotificationFeedManager;
@@ -37,9 +38,10 @@ import co.cask.cdap.notifications.service.NotificationService;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.NotificationFeedId;
 import co.cask.cdap.proto.id.TopicId;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.inject.Inject;
 import org.apache.twill.common.Cancellable;
 import org.apache.twill.common.Threads;
@@ -48,7 +50,6 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -61,12 +62,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class MessagingNotificationService extends AbstractNotificationService {
   private static final Logger LOG = LoggerFactory.getLogger(MessagingNotificationService.class);
 
+  private final CConfiguration cConf;
   private final MessagingService messagingService;
   private final TopicId notificationTopic;
   private final AtomicBoolean needFetch;
 
-  // Executor to publish notifications to TMS
-  private ListeningExecutorService publishingExecutor;
+  // Publisher that batches notifications to TMS
+  private BatchingMessagePublisher publisher;
   private ScheduledExecutorService subscribeExecutor;
 
   @Inject
@@ -74,6 +76,7 @@ public class MessagingNotificationService extends AbstractNotificationService {
                                TransactionSystemClientService transactionSystemClient,
                                NotificationFeedManager feedManager, MessagingService messagingService) {
     super(dsFramework, transactionSystemClient, feedManager);
+    this.cConf = cConf;
     this.messagingService = messagingService;
     this.needFetch = new AtomicBoolean(false);
     this.notificationTopic = NamespaceId.SYSTEM.topic(cConf.get(Constants.Notification.TOPIC));
@@ -82,15 +85,14 @@ public class MessagingNotificationService extends AbstractNotificationService {
   @Override
   protected void startUp() throws Exception {
     super.startUp();
-    publishingExecutor = MoreExecutors.listeningDecorator(
-      Executors.newSingleThreadExecutor(Threads.createDaemonThreadFactory("notification-publisher")));
+    publisher = new BatchingMessagePublisher(messagingService, cConf, null);
     subscribeExecutor = Executors.newSingleThreadScheduledExecutor(
       Threads.createDaemonThreadFactory("notification-subscriber"));
   }
 
   @Override
   protected void shutDown() throws Exception {
-    publishingExecutor.shutdownNow();
+    publisher.close();
     subscribeExecutor.shutdownNow();
     super.shutDown();
   }
@@ -99,18 +101,25 @@ public class MessagingNotificationService extends AbstractNotificationService {
   public <N> ListenableFuture<N> publish(final NotificationFeedId feed, final N notification,
                                          final Type notificationType) throws NotificationException {
     LOG.trace("Publishing on notification feed [{}]: {}", feed, notification);
-    return publishingExecutor.submit(new Callable<N>() {
-      @Override
-      public N call() throws Exception {
-        try {
-          NotificationMessage message = new NotificationMessage(feed, GSON.toJsonTree(notification, notificationType));
-          messagingService.publish(StoreRequestBuilder.of(notificationTopic).addPayloads(GSON.toJson(message)).build());
-          return notification;
-        } catch (Exception e) {
-          throw new NotificationException(e);
+    final SettableFuture<N> result = SettableFuture.create();
+    try {
+      NotificationMessage message = new NotificationMessage(feed, GSON.toJsonTree(notification, notificationType));
+      ListenableFuture<Void> future = publisher.publish(notificationTopic, Bytes.toBytes(GSON.toJson(message)));
+      Futures.addCallback(future, new FutureCallback<Void>() {
+        @Override
+        public void onSuccess(Void ignored) {
+          result.set(notification);
         }
-      }
-    });
+
+        @Override
+        public void onFailure(Throwable t) {
+          result.setException(new NotificationException(t));
+        }
+      });
+    } catch (Exception e) {
+      result.setException(new NotificationException(e));
+    }
+    return result;
   }
 
   @Override
@@ -22,8 +22,10 @@ import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.proto.security.Privilege;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
@@ -75,4 +77,32 @@ public abstract class AbstractAuthorizer implements Authorizer {
       }
     };
   }
+
+  /**
+   * Default implementation of {@link AuthorizationEnforcer#enforce(Collection, Principal, Set)} that enforces
+   * authorization on each entity separately.
+   */
+  @Override
+  public void enforce(Collection<? extends EntityId> entities, Principal principal,
+                      Set<Action> actions) throws Exception {
+    for (EntityId entity : entities) {
+      enforce(entity, principal, actions);
+    }
+  }
+
+  /**
+   * Default implementation of {@link AuthorizationEnforcer#isVisible(Collection, Principal)} that applies the filter
+   * returned by {@link #createFilter(Principal)} to each entity.
+   */
+  @Override
+  public <T extends EntityId> Set<T> isVisible(Collection<T> entities, Principal principal) throws Exception {
+    Predicate<EntityId> filter = createFilter(principal);
+    Set<T> result = new LinkedHashSet<>();
+    for (T entity : entities) {
+      if (filter.apply(entity)) {
+        result.add(entity);
+      }
+    }
+    return result;
+  }
 }
@@ -22,6 +22,7 @@ import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -62,4 +63,30 @@ public interface AuthorizationEnforcer {
    * @return a set of {@link EntityId entities} that the specified user has access to
    */
   Predicate<EntityId> createFilter(Principal principal) throws Exception;
+
+  /**
+   * Enforces authorization for the specified {@link Principal} for the specified {@link Action actions} on all of the
+   * specified {@link EntityId entities}. This is equivalent to calling {@link #enforce(EntityId, Principal, Set)}
+   * for each entity, but allows implementations to look up the privileges of the principal only once.
+   *
+   * @param entities the {@link EntityId entities} on which authorization is to be enforced
+   * @param principal the {@link Principal} that performs the actions
+   * @param actions the {@link Action actions} being performed
+   * @throws UnauthorizedException if the principal is not authorized to perform the specified actions on any of the
+   *                               entities
+   * @throws Exception if any other errors occurred while performing the authorization enforcement check
+   */
+  void enforce(Collection<? extends EntityId> entities, Principal principal, Set<Action> actions) throws Exception;
+
+  /**
+   * Returns the subset of the specified {@link EntityId entities} that the specified {@link Principal} has access
+   * (READ/WRITE/ADMIN/ALL) to. This is equivalent to applying the {@link Predicate} returned by
+   * {@link #createFilter(Principal)} to each entity, but allows implementations to resolve the privileges of entities
+   * that share a parent only once.
+   *
+   * @param entities the {@link EntityId entities} to filter
+   * @param principal the {@link Principal} for which to filter
+   * @return the entities that the specified principal has access to, in the iteration order of the given entities
+   */
+  <T extends EntityId> Set<T> isVisible(Collection<T> entities, Principal principal) throws Exception;
 }
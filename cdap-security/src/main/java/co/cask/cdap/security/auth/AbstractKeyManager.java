@@ -29,7 +29,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.crypto.KeyGenerator;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
@@ -53,6 +55,8 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
    */
   protected long keyExpirationPeriod = 0;
 
+  private final List<Runnable> keyChangeListeners = new CopyOnWriteArrayList<>();
+
 
   /**
    * An AbstractKeyManager that has common functionality of all keymanagers.
@@ -125,9 +129,29 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
     addKey(keyIdentifier);
     this.currentKey = keyIdentifier;
     LOG.info("Changed current key to {}", currentKey);
+    notifyKeyChange();
     return keyIdentifier;
   }
 
+  @Override
+  public void addKeyChangeListener(Runnable listener) {
+    keyChangeListeners.add(listener);
+  }
+
+  /**
+   * Calls all listeners registered through {@link #addKeyChangeListener(Runnable)}. Subclasses must call this
+   * method whenever they change the current key or remove a key other than through {@link #generateKey()}.
+   */
+  protected final void notifyKeyChange() {
+    for (Runnable listener : keyChangeListeners) {
+      try {
+        listener.run();
+      } catch (Throwable t) {
+        LOG.error("Exception notifying key change listener {}", listener, t);
+      }
+    }
+  }
+
   @Override
   public final <T> void validateMAC(Codec<T> codec, Signed<T> signedMessage)
     throws InvalidDigestException, InvalidKeyException {
@@ -16,60 +16,145 @@
 
 package co.cask.cdap.security.auth;
 
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Codec;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
 
 /**
  * This class validates the accessToken and returns the different states
  * of accessToken validation.
+ *
+ * <p>
+ * Tokens that passed validation are kept in a bounded cache, keyed by a digest of the token, so that clients reusing
+ * the same token do not pay for decoding the token and recomputing its signature on every request. A cached token
+ * is still checked for expiry on every request, and the cache is cleared whenever the secret keys change.
+ * </p>
  */
 public class AccessTokenValidator extends AbstractIdleService implements TokenValidator {
   private static final Logger LOG = LoggerFactory.getLogger(AccessTokenValidator.class);
   private final TokenManager tokenManager;
   private final Codec<AccessToken> accessTokenCodec;
+  // Maps from the digest of a valid token to its expiration timestamp. Null if caching is disabled.
+  private final Cache<HashCode, Long> validTokens;
 
   @Inject
-  public AccessTokenValidator(TokenManager tokenManager, Codec<AccessToken> accessTokenCodec) {
+  public AccessTokenValidator(CConfiguration cConf, TokenManager tokenManager, Codec<AccessToken> accessTokenCodec) {
+    this(tokenManager, accessTokenCodec, cConf.getInt(Constants.Security.TOKEN_VALIDATION_CACHE_SIZE));
+  }
+
+  @VisibleForTesting
+  AccessTokenValidator(TokenManager tokenManager, Codec<AccessToken> accessTokenCodec, int cacheSize) {
     this.tokenManager = tokenManager;
     this.accessTokenCodec = accessTokenCodec;
+    this.validTokens = cacheSize > 0
+      ? CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().<HashCode, Long>build()
+      : null;
   }
 
   @Override
   protected void startUp() throws Exception {
+    if (validTokens != null) {
+      tokenManager.addKeyChangeListener(new Runnable() {
+        @Override
+        public void run() {
+          LOG.debug("Secret keys changed, invalidating {} cached access tokens", validTokens.size());
+          validTokens.invalidateAll();
+        }
+      });
+    }
     tokenManager.startAndWait();
   }
 
   @Override
   protected void shutDown() throws Exception {
     tokenManager.stopAndWait();
+    if (validTokens != null) {
+      LOG.debug("Access token cache statistics: {}", validTokens.stats());
+    }
   }
 
   @Override
-  public TokenState validate(String token) {
-    AccessToken accessToken;
-    TokenState state = TokenState.VALID;
+  public TokenState validate(final String token) {
     if (token == null) {
       LOG.debug("Token is missing");
       return TokenState.MISSING;
     }
-    byte[] decodedToken = Base64.decodeBase64(token);
 
     try {
-      accessToken = accessTokenCodec.decode(decodedToken);
-      tokenManager.validateSecret(accessToken);
-    } catch (IOException ioe) {
-      state = TokenState.INVALID;
-      LOG.debug("Unknown Schema version for Access Token. {}", ioe);
+      if (validTokens == null) {
+        validateToken(token);
+        return TokenState.VALID;
+      }
+
+      HashCode key = Hashing.sha256().hashString(token, Charsets.UTF_8);
+      // only valid tokens are loaded into the cache, an invalid token fails the load
+      long expireTimestamp = validTokens.get(key, new Callable<Long>() {
+        @Override
+        public Long call() throws InvalidTokenException {
+          return validateToken(token).getIdentifier().getExpireTimestamp();
+        }
+      });
+      if (expireTimestamp < System.currentTimeMillis()) {
+        validTokens.invalidate(key);
+        throw new InvalidTokenException(TokenState.EXPIRED, "Token is expired.");
+      }
+      return TokenState.VALID;
     } catch (InvalidTokenException ite) {
-      state = ite.getReason();
-      LOG.debug("{} {}", state, ite);
+      LOG.debug("{} {}", ite.getReason(), ite);
+      return ite.getReason();
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof InvalidTokenException) {
+        InvalidTokenException ite = (InvalidTokenException) e.getCause();
+        LOG.debug("{} {}", ite.getReason(), ite);
+        return ite.getReason();
+      }
+      LOG.debug("Failed to validate Access Token. {}", e);
+      return TokenState.INTERNAL;
+    }
+  }
+
+  /**
+   * Returns the statistics of the cache of validated tokens, or {@code null} if the cache is disabled. The hit rate
+   * is the fraction of validations served from the cache, and the average load penalty is the average time in
+   * nanoseconds spent on validating a token that was not in the cache.
+   */
+  @Nullable
+  public CacheStats getCacheStats() {
+    return validTokens == null ? null : validTokens.stats();
+  }
+
+  /**
+   * Decodes the given token and validates its expiration and signature.
+   *
+   * @return the decoded token
+   * @throws InvalidTokenException if the token cannot be decoded or is not valid
+   */
+  private AccessToken validateToken(String token) throws InvalidTokenException {
+    AccessToken accessToken;
+    try {
+      accessToken = accessTokenCodec.decode(Base64.decodeBase64(token));
+    } catch (IOException ioe) {
+      throw new InvalidTokenException(TokenState.INVALID, "Unknown Schema version for Access Token.", ioe);
     }
-    return state;
+    tokenManager.validateSecret(accessToken);
+    return accessToken;
   }
 }
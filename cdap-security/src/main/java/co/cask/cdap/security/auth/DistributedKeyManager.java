@@ -173,6 +173,7 @@ public class DistributedKeyManager extends AbstractKeyManager implements Resourc
       if (currentKey == null || keyEntry.getExpiration() > currentKey.getExpiration()) {
         currentKey = keyEntry;
         LOG.info("Set current key: leader={}, key={}", leader, currentKey.getKeyId());
+        notifyKeyChange();
       }
     }
   }
@@ -183,12 +184,14 @@ public class DistributedKeyManager extends AbstractKeyManager implements Resourc
     if (currentKey == null || instance.getExpiration() > currentKey.getExpiration()) {
       currentKey = instance;
       LOG.info("Set current key: leader={}, key={}", leader, currentKey.getKeyId());
+      notifyKeyChange();
     }
   }
 
   @Override
   public void onResourceDelete(String name) {
     LOG.info("Removed key: leader={}, key={}", leader, name);
+    notifyKeyChange();
   }
 
   @Override
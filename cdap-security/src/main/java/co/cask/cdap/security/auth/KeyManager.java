@@ -64,4 +64,10 @@ public interface KeyManager extends Service {
   <T> void validateMAC(Codec<T> codec, Signed<T> signedMessage)
     throws InvalidDigestException, InvalidKeyException;
 
+  /**
+   * Registers a listener to be called whenever the set of secret keys changes, either because a new key became the
+   * current key or because a key was removed. Digests validated before the change may no longer be valid after it.
+   * @param listener The listener to call on every key change.
+   */
+  void addKeyChangeListener(Runnable listener);
 }
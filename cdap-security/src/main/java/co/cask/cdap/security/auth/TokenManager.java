@@ -86,4 +86,12 @@ public class TokenManager extends AbstractIdleService {
       throw new InvalidTokenException(TokenState.INTERNAL, "Invalid key for token.", ike);
     }
   }
+
+  /**
+   * Registers a listener to be called whenever the secret keys used to validate tokens change.
+   * @see KeyManager#addKeyChangeListener(Runnable)
+   */
+  public void addKeyChangeListener(Runnable listener) {
+    keyManager.addKeyChangeListener(listener);
+  }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.security.authorization;
+
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
+import com.google.common.base.Function;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Utility methods for authorization.
+ */
+public final class AuthorizationUtil {
+
+  private AuthorizationUtil() {
+  }
+
+  /**
+   * Returns the elements of the given collection that refer to an entity that the given principal has access to,
+   * using a single {@link AuthorizationEnforcer#isVisible(Collection, Principal)} call for all of them.
+   *
+   * @param elements the elements to filter
+   * @param toEntityId function that returns the {@link EntityId} an element refers to
+   * @param authorizationEnforcer the {@link AuthorizationEnforcer} to check the entities with
+   * @param principal the {@link Principal} for which to filter
+   * @return the visible elements, in the iteration order of the given collection
+   */
+  public static <T> List<T> filterVisible(Collection<T> elements, Function<? super T, ? extends EntityId> toEntityId,
+                                          AuthorizationEnforcer authorizationEnforcer,
+                                          Principal principal) throws Exception {
+    List<EntityId> entityIds = new ArrayList<>(elements.size());
+    for (T element : elements) {
+      entityIds.add(toEntityId.apply(element));
+    }
+    Set<EntityId> visible = authorizationEnforcer.isVisible(entityIds, principal);
+
+    List<T> result = new ArrayList<>(visible.size());
+    Iterator<EntityId> entityIdIterator = entityIds.iterator();
+    for (T element : elements) {
+      if (visible.contains(entityIdIterator.next())) {
+        result.add(element);
+      }
+    }
+    return result;
+  }
+}
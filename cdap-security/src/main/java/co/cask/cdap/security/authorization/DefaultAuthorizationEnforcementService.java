@@ -19,19 +19,18 @@ package co.cask.cdap.security.authorization;
 import co.cask.cdap.api.Predicate;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.proto.id.EntityId;
-import co.cask.cdap.proto.id.ParentedId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import co.cask.cdap.security.spi.authorization.PrivilegesFetcher;
-import co.cask.cdap.security.spi.authorization.UnauthorizedException;
-import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -63,11 +62,17 @@ public class DefaultAuthorizationEnforcementService extends AbstractAuthorizatio
 
   @Override
   public void enforce(EntityId entity, Principal principal, Set<Action> actions) throws Exception {
+    enforce(Collections.singleton(entity), principal, actions);
+  }
+
+  @Override
+  public void enforce(Collection<? extends EntityId> entities, Principal principal,
+                      Set<Action> actions) throws Exception {
     if (!isSecurityAuthorizationEnabled()) {
       return;
     }
-
-    doEnforce(entity, principal, actions, true);
+    LOG.trace("Enforcing actions {} on {} entities for {}", actions, entities.size(), principal);
+    getPrivilegesIndex(principal).enforce(entities, principal, actions);
   }
 
   @Override
@@ -75,50 +80,30 @@ public class DefaultAuthorizationEnforcementService extends AbstractAuthorizatio
     if (!isSecurityAuthorizationEnabled()) {
       return ALLOW_ALL;
     }
-    Map<EntityId, Set<Action>> privileges = getPrivileges(principal);
-    final Set<EntityId> allowedEntities = privileges != null ? privileges.keySet() : Collections.<EntityId>emptySet();
-
+    final PrivilegesIndex privilegesIndex = getPrivilegesIndex(principal);
     return new Predicate<EntityId>() {
       @Override
       public boolean apply(EntityId entityId) {
-        boolean parentPassed = false;
-        if (entityId instanceof ParentedId) {
-          parentPassed = apply(((ParentedId) entityId).getParent());
-        }
-        return (parentPassed || allowedEntities.contains(entityId));
+        return privilegesIndex.isVisible(entityId);
       }
     };
   }
 
+  @Override
+  public <T extends EntityId> Set<T> isVisible(Collection<T> entities, Principal principal) throws Exception {
+    if (!isSecurityAuthorizationEnabled()) {
+      return new LinkedHashSet<>(entities);
+    }
+    return getPrivilegesIndex(principal).filterVisible(entities);
+  }
+
   protected boolean isSecurityAuthorizationEnabled() {
     return securityEnabled && authorizationEnabled;
   }
 
-  private boolean doEnforce(EntityId entity, Principal principal,
-                            Set<Action> actions, boolean exceptionOnFailure) throws Exception {
-    if (entity instanceof ParentedId) {
-      if (doEnforce(((ParentedId) entity).getParent(), principal, actions, false)) {
-        return true;
-      }
-    }
-
-    Set<Action> allowedActions = getPrivileges(principal).get(entity);
-    LOG.trace("Enforcing actions {} on {} for {}. Allowed actions are {}", actions, entity, principal, allowedActions);
-    if (allowedActions == null) {
-      if (exceptionOnFailure) {
-        throw new UnauthorizedException(principal, actions, entity);
-      }
-      return false;
-    }
-
-    // Check for the specific actions requested
-    if (allowedActions.containsAll(actions)) {
-      return true;
-    }
-    if (exceptionOnFailure) {
-      throw new UnauthorizedException(principal, Sets.difference(actions, allowedActions), entity);
-    }
-    return false;
+  private PrivilegesIndex getPrivilegesIndex(Principal principal) throws Exception {
+    Map<EntityId, Set<Action>> privileges = getPrivileges(principal);
+    return new PrivilegesIndex(privileges == null ? Collections.<EntityId, Set<Action>>emptyMap() : privileges);
   }
 
   @Override
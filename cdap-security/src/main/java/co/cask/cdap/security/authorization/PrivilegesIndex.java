@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.security.authorization;
+
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.id.ParentedId;
+import co.cask.cdap.proto.security.Action;
+import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.spi.authorization.UnauthorizedException;
+import com.google.common.collect.Sets;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers authorization checks for many entities at once from the privileges of a single principal.
+ *
+ * <p>
+ * A principal is authorized on an entity if it is authorized on the entity itself or on any of its parents, for
+ * example on the namespace or the application of a program. Entities that are checked together typically share
+ * their parents, such as all applications of a namespace, or all programs of an application. The result for each
+ * parent is therefore resolved only once per check, so that checking an entity mostly costs a single lookup of the
+ * entity itself, regardless of the depth of the entity hierarchy.
+ * </p>
+ */
+final class PrivilegesIndex {
+
+  private final Map<EntityId, Set<Action>> privileges;
+
+  PrivilegesIndex(Map<EntityId, Set<Action>> privileges) {
+    this.privileges = privileges;
+  }
+
+  /**
+   * Returns whether the principal has any privilege on the given entity or on one of its parents.
+   */
+  boolean isVisible(EntityId entity) {
+    EntityId current = entity;
+    while (!privileges.containsKey(current)) {
+      if (!(current instanceof ParentedId)) {
+        return false;
+      }
+      current = ((ParentedId<?>) current).getParent();
+    }
+    return true;
+  }
+
+  /**
+   * Returns the subset of the given entities on which the principal has any privilege, either on the entity itself
+   * or on one of its parents, in the iteration order of the given entities.
+   */
+  <T extends EntityId> Set<T> filterVisible(Collection<T> entities) {
+    Set<T> result = new LinkedHashSet<>();
+    if (privileges.isEmpty()) {
+      return result;
+    }
+    Map<EntityId, Boolean> resolvedParents = new HashMap<>();
+    for (T entity : entities) {
+      if (isVisible(entity, resolvedParents)) {
+        result.add(entity);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Checks that the principal is allowed to perform all of the given actions on each of the given entities, either
+   * through its privileges on the entity itself or on one of its parents.
+   *
+   * @throws UnauthorizedException for the first entity on which the principal is not allowed to perform the actions
+   */
+  void enforce(Collection<? extends EntityId> entities, Principal principal,
+               Set<Action> actions) throws UnauthorizedException {
+    Map<EntityId, Boolean> resolvedParents = new HashMap<>();
+    for (EntityId entity : entities) {
+      if (isParentAllowed(entity, actions, resolvedParents)) {
+        continue;
+      }
+      Set<Action> allowedActions = privileges.get(entity);
+      if (allowedActions == null) {
+        throw new UnauthorizedException(principal, actions, entity);
+      }
+      if (!allowedActions.containsAll(actions)) {
+        throw new UnauthorizedException(principal, Sets.difference(actions, allowedActions), entity);
+      }
+    }
+  }
+
+  private boolean isVisible(EntityId entity, Map<EntityId, Boolean> resolvedParents) {
+    if (privileges.containsKey(entity)) {
+      return true;
+    }
+    if (!(entity instanceof ParentedId)) {
+      return false;
+    }
+    EntityId parent = ((ParentedId<?>) entity).getParent();
+    Boolean visible = resolvedParents.get(parent);
+    if (visible == null) {
+      visible = isVisible(parent, resolvedParents);
+      resolvedParents.put(parent, visible);
+    }
+    return visible;
+  }
+
+  private boolean isAllowed(EntityId entity, Set<Action> actions, Map<EntityId, Boolean> resolvedParents) {
+    Set<Action> allowedActions = privileges.get(entity);
+    return (allowedActions != null && allowedActions.containsAll(actions))
+      || isParentAllowed(entity, actions, resolvedParents);
+  }
+
+  private boolean isParentAllowed(EntityId entity, Set<Action> actions, Map<EntityId, Boolean> resolvedParents) {
+    if (!(entity instanceof ParentedId)) {
+      return false;
+    }
+    EntityId parent = ((ParentedId<?>) entity).getParent();
+    Boolean allowed = resolvedParents.get(parent);
+    if (allowed == null) {
+      allowed = isAllowed(parent, actions, resolvedParents);
+      resolvedParents.put(parent, allowed);
+    }
+    return allowed;
+  }
+}
@@ -39,8 +39,10 @@ import com.google.inject.Inject;
 import com.google.inject.name.Named;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -77,13 +79,14 @@ public class DefaultSecureStoreService implements SecureStore, SecureStoreManage
   @Override
   public final Map<String, String> listSecureData(String namespace) throws Exception {
     Principal principal = authenticationContext.getPrincipal();
-    final Predicate<EntityId> filter = authorizationEnforcer.createFilter(principal);
     Map<String, String> metadatas = secureStore.listSecureData(namespace);
-    Map<String, String> result = new HashMap<>(metadatas.size());
+    List<SecureKeyId> secureKeyIds = new ArrayList<>(metadatas.size());
     for (String name : metadatas.keySet()) {
-      if (filter.apply(new SecureKeyId(namespace, name))) {
-        result.put(name, metadatas.get(name));
-      }
+      secureKeyIds.add(new SecureKeyId(namespace, name));
+    }
+    Map<String, String> result = new HashMap<>(metadatas.size());
+    for (SecureKeyId secureKeyId : authorizationEnforcer.isVisible(secureKeyIds, principal)) {
+      result.put(secureKeyId.getName(), metadatas.get(secureKeyId.getName()));
     }
     return result;
   }
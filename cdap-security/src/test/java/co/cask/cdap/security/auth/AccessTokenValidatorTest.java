@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.security.auth;
+
+import co.cask.cdap.common.guice.ConfigModule;
+import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
+import co.cask.cdap.common.guice.IOModule;
+import co.cask.cdap.security.guice.SecurityModules;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link AccessTokenValidator}.
+ */
+public class AccessTokenValidatorTest {
+
+  @Test
+  public void testCachedValidation() throws Exception {
+    Injector injector = Guice.createInjector(new IOModule(), new SecurityModules().getInMemoryModules(),
+                                             new ConfigModule(), new DiscoveryRuntimeModule().getInMemoryModules());
+    TokenManager tokenManager = injector.getInstance(TokenManager.class);
+    AccessTokenCodec tokenCodec = injector.getInstance(AccessTokenCodec.class);
+    AccessTokenValidator validator = new AccessTokenValidator(tokenManager, tokenCodec, 10);
+    validator.startAndWait();
+
+    try {
+      long now = System.currentTimeMillis();
+      AccessToken token = tokenManager.signIdentifier(
+        new AccessTokenIdentifier("user", ImmutableList.of("users"), now, now + TimeUnit.HOURS.toMillis(1)));
+      String encoded = Base64.encodeBase64String(tokenCodec.encode(token));
+
+      // the second validation of the same token should be served from the cache
+      Assert.assertEquals(TokenState.VALID, validator.validate(encoded));
+      Assert.assertEquals(TokenState.VALID, validator.validate(encoded));
+      Assert.assertEquals(1, validator.getCacheStats().missCount());
+      Assert.assertEquals(1, validator.getCacheStats().hitCount());
+
+      // invalid tokens are never cached
+      byte[] digest = token.getDigestBytes();
+      digest[0] ^= 1;
+      String invalid = Base64.encodeBase64String(
+        tokenCodec.encode(new AccessToken(token.getIdentifier(), token.getKeyId(), digest)));
+      Assert.assertEquals(TokenState.INVALID, validator.validate(invalid));
+      Assert.assertEquals(TokenState.INVALID, validator.validate(invalid));
+      Assert.assertEquals(TokenState.INVALID, validator.validate("bad token"));
+      Assert.assertEquals(TokenState.MISSING, validator.validate(null));
+      Assert.assertEquals(1, validator.getCacheStats().hitCount());
+
+      // a cached token still expires
+      AccessToken shortToken = tokenManager.signIdentifier(
+        new AccessTokenIdentifier("user", ImmutableList.of("users"), now, System.currentTimeMillis() + 200));
+      String shortEncoded = Base64.encodeBase64String(tokenCodec.encode(shortToken));
+      Assert.assertEquals(TokenState.VALID, validator.validate(shortEncoded));
+      TimeUnit.MILLISECONDS.sleep(300);
+      Assert.assertEquals(TokenState.EXPIRED, validator.validate(shortEncoded));
+
+      // a key change invalidates the cache
+      long misses = validator.getCacheStats().missCount();
+      ((AbstractKeyManager) tokenManager.keyManager).generateKey();
+      Assert.assertEquals(TokenState.VALID, validator.validate(encoded));
+      Assert.assertEquals(misses + 1, validator.getCacheStats().missCount());
+    } finally {
+      validator.stopAndWait();
+    }
+  }
+}
@@ -21,6 +21,7 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.test.AppJarHelper;
 import co.cask.cdap.common.utils.Tasks;
+import co.cask.cdap.proto.id.ApplicationId;
 import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.InstanceId;
@@ -31,6 +32,7 @@ import co.cask.cdap.proto.security.Privilege;
 import co.cask.cdap.security.spi.authorization.Authorizer;
 import co.cask.cdap.security.spi.authorization.PrivilegesFetcher;
 import co.cask.cdap.security.spi.authorization.UnauthorizedException;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Service;
 import org.apache.hadoop.security.UserGroupInformation;
@@ -42,6 +44,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -117,6 +120,53 @@ public class DefaultAuthorizationEnforcementServiceTest extends AuthorizationTes
     }
   }
 
+  @Test
+  public void testBulkEnforceAndVisibility() throws Exception {
+    try (AuthorizerInstantiator authorizerInstantiator = new AuthorizerInstantiator(CCONF, AUTH_CONTEXT_FACTORY)) {
+      Authorizer authorizer = authorizerInstantiator.get();
+      NamespaceId ns1 = new NamespaceId("ns1");
+      NamespaceId ns2 = new NamespaceId("ns2");
+      ApplicationId app = ns2.app("app");
+      DatasetId ds = ns2.dataset("ds");
+      authorizer.grant(ns1, ALICE, ImmutableSet.of(Action.READ));
+      authorizer.grant(app, ALICE, ImmutableSet.of(Action.READ, Action.WRITE));
+      authorizer.grant(ds, ALICE, ImmutableSet.of(Action.ADMIN));
+
+      DefaultAuthorizationEnforcementService authEnforcementService =
+        new DefaultAuthorizationEnforcementService(authorizer, CCONF, AUTH_CONTEXT);
+      authEnforcementService.startAndWait();
+      try {
+        // privileges are inherited from the namespace and the application
+        List<EntityId> entities = ImmutableList.<EntityId>of(
+          ns1.dataset("ds1"), ns1.app("app1").flow("flow"), ns2, app, app.flow("flow"), app.worker("worker"),
+          ns2.app("other"), ns2.app("other").flow("flow"), ds, ns2.dataset("other"));
+        Assert.assertEquals(ImmutableSet.of(ns1.dataset("ds1"), ns1.app("app1").flow("flow"), app, app.flow("flow"),
+                                            app.worker("worker"), ds),
+                            authEnforcementService.isVisible(entities, ALICE));
+        Assert.assertTrue(authEnforcementService.isVisible(entities, BOB).isEmpty());
+        Predicate<EntityId> filter = authEnforcementService.createFilter(ALICE);
+        for (EntityId entity : entities) {
+          Assert.assertEquals(authEnforcementService.isVisible(ImmutableList.of(entity), ALICE).contains(entity),
+                              filter.apply(entity));
+        }
+
+        authEnforcementService.enforce(ImmutableList.of(ns1.dataset("ds1"), app.flow("flow"), app.worker("worker")),
+                                       ALICE, EnumSet.of(Action.READ));
+        authEnforcementService.enforce(ImmutableList.of(app.flow("flow"), app.worker("worker")),
+                                       ALICE, EnumSet.of(Action.READ, Action.WRITE));
+        try {
+          authEnforcementService.enforce(ImmutableList.of(app.flow("flow"), ns1.dataset("ds1")),
+                                         ALICE, EnumSet.of(Action.WRITE));
+          Assert.fail("Expected alice to not have WRITE privilege on " + ns1.dataset("ds1"));
+        } catch (UnauthorizedException expected) {
+          // expected
+        }
+      } finally {
+        authEnforcementService.stopAndWait();
+      }
+    }
+  }
+
   @Test
   public void testAuthCacheEnforce() throws Exception {
     try (AuthorizerInstantiator authorizerInstantiator = new AuthorizerInstantiator(CCONF, AUTH_CONTEXT_FACTORY)) {
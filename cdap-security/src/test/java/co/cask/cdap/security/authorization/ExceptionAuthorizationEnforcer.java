@@ -22,6 +22,7 @@ import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -46,6 +47,17 @@ public class ExceptionAuthorizationEnforcer implements AuthorizationEnforcer {
     return null;
   }
 
+  @Override
+  public void enforce(Collection<? extends EntityId> entities, Principal principal,
+                      Set<Action> actions) throws Exception {
+    throw new ExpectedException(entities.iterator().next());
+  }
+
+  @Override
+  public <T extends EntityId> Set<T> isVisible(Collection<T> entities, Principal principal) throws Exception {
+    return null;
+  }
+
   class ExpectedException extends Exception {
     // just a dummy exception for test which is thrown if authorization enforcement call was successful
     private final EntityId entityId; // entity on which authorization enforcement is being performed
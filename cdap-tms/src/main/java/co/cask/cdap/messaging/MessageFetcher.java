@@ -39,6 +39,9 @@ public abstract class MessageFetcher {
   // by default there is virtually no limit
   private int limit = Integer.MAX_VALUE;
 
+  // by default don't wait for new messages
+  private long maxWaitTime;
+
   /**
    * Setup the message fetching starting point based on the given message id. Calling this method
    * will clear the start time set by the {@link #setStartTime(long)} method.
@@ -96,6 +99,22 @@ public abstract class MessageFetcher {
     return this;
   }
 
+  /**
+   * Sets the maximum time to wait for new messages if there is no message available when fetching. The fetch
+   * returns as soon as there are new messages published, or with no message once the wait time elapsed.
+   * By default, this is set to {@code 0}, meaning the fetch will not wait.
+   *
+   * @param maxWaitTime maximum time to wait in milliseconds
+   * @return this instance
+   */
+  public MessageFetcher setMaxWaitTime(long maxWaitTime) {
+    if (maxWaitTime < 0) {
+      throw new IllegalArgumentException("Invalid message fetching wait time. Wait time must be >= 0");
+    }
+    this.maxWaitTime = maxWaitTime;
+    return this;
+  }
+
   @Nullable
   protected byte[] getStartOffset() {
     return startOffset;
@@ -119,6 +138,10 @@ public abstract class MessageFetcher {
     return limit;
   }
 
+  protected long getMaxWaitTime() {
+    return maxWaitTime;
+  }
+
   /**
    * Returns a {@link CloseableIterator} that iterates over messages fetched from the messaging system.
    *
@@ -31,18 +31,36 @@ public abstract class StoreRequest extends AbstractIterator<byte[]> {
   private final TopicId topicId;
   private final boolean transactional;
   private final long transactionWritePointer;
+  private final byte[] partitionKey;
   private boolean computedFirst;
 
   protected StoreRequest(TopicId topicId, boolean transactional, long transactionWritePointer) {
+    this(topicId, transactional, transactionWritePointer, null);
+  }
+
+  protected StoreRequest(TopicId topicId, boolean transactional, long transactionWritePointer,
+                         @Nullable byte[] partitionKey) {
     this.topicId = topicId;
     this.transactional = transactional;
     this.transactionWritePointer = transactionWritePointer;
+    this.partitionKey = partitionKey;
   }
 
   public TopicId getTopicId() {
     return topicId;
   }
 
+  /**
+   * Returns the key for selecting the partition to publish to if the topic is partitioned, or {@code null}
+   * if there is no partition key, in which case messages are published to the first partition.
+   *
+   * @see TopicPartitions
+   */
+  @Nullable
+  public byte[] getPartitionKey() {
+    return partitionKey;
+  }
+
   /**
    * Returns {@code true} if the message should be published transactionally.
    */
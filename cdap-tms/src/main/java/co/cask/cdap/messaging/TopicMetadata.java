@@ -30,6 +30,7 @@ public class TopicMetadata {
 
   public static final String GENERATION_KEY = MessagingUtils.Constants.GENERATION_KEY;
   public static final String TTL_KEY = MessagingUtils.Constants.TTL_KEY;
+  public static final String PARTITIONS_KEY = "partitions";
 
   private final TopicId topicId;
   private final Map<String, String> properties;
@@ -109,6 +110,20 @@ public class TopicMetadata {
     return Integer.parseInt(properties.get(TTL_KEY));
   }
 
+  /**
+   * Returns the number of partitions of the topic. If the partitions property is absent, the topic
+   * has a single partition.
+   *
+   * @see TopicPartitions
+   */
+  public int getPartitions() {
+    if (!validated) {
+      validatePartitions();
+    }
+    String partitions = properties.get(PARTITIONS_KEY);
+    return partitions == null ? 1 : Integer.parseInt(partitions);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -142,6 +157,7 @@ public class TopicMetadata {
   private void validateProperties() {
     validateTTL();
     validateGeneration();
+    validatePartitions();
   }
 
   /**
@@ -163,6 +179,26 @@ public class TopicMetadata {
     }
   }
 
+  /**
+   * Validates the "partitions" property of the given topic.
+   *
+   * @throws IllegalArgumentException if the partitions value is not a number or <= 0.
+   */
+  private void validatePartitions() {
+    String partitions = properties.get(PARTITIONS_KEY);
+    if (partitions == null) {
+      return;
+    }
+    try {
+      if (Integer.parseInt(partitions) <= 0) {
+        throw new IllegalArgumentException("The partitions property must be greater than zero for topic " + topicId);
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The partitions property must be a number greater than zero for topic "
+                                           + topicId, e);
+    }
+  }
+
   /**
    * Validates the "generation" property of the given topic.
    *
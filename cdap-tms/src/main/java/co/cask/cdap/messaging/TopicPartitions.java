@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.proto.id.TopicId;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Utility methods for partitioned topics. A topic with {@link TopicMetadata#getPartitions()} partitions is backed
+ * by one physical topic per partition, each being an ordered log on its own. Partition {@code 0} is the topic
+ * itself, while every other partition is a topic named by appending a partition suffix to the topic name.
+ * Messages are published to a partition based on the partition key of the {@link StoreRequest}, and each
+ * partition is fetched independently by calling {@link MessagingService#prepareFetch(TopicId)} with the topic
+ * returned by {@link #getPartitionTopic(TopicId, int)}.
+ */
+public final class TopicPartitions {
+
+  private static final String PARTITION_SUFFIX = "__partition_";
+
+  /**
+   * Returns the {@link TopicId} of the given partition of a topic.
+   *
+   * @param topicId the partitioned topic
+   * @param partition the partition number, starting from {@code 0}
+   * @return the {@link TopicId} of the partition
+   */
+  public static TopicId getPartitionTopic(TopicId topicId, int partition) {
+    if (partition < 0) {
+      throw new IllegalArgumentException("Partition must be >= 0 for topic " + topicId);
+    }
+    return partition == 0 ? topicId : topicId.getParent().topic(topicId.getTopic() + PARTITION_SUFFIX + partition);
+  }
+
+  /**
+   * Returns the {@link TopicId} of all partitions of the given topic.
+   */
+  public static List<TopicId> getPartitionTopics(TopicId topicId, int partitions) {
+    List<TopicId> topics = new ArrayList<>(partitions);
+    for (int i = 0; i < partitions; i++) {
+      topics.add(getPartitionTopic(topicId, i));
+    }
+    return topics;
+  }
+
+  /**
+   * Returns the partition that messages with the given partition key are published to.
+   *
+   * @param partitionKey the partition key
+   * @param partitions number of partitions of the topic
+   * @return the partition number, between {@code 0} (inclusive) and {@code partitions} (exclusive)
+   */
+  public static int getPartition(byte[] partitionKey, int partitions) {
+    return (Bytes.hashCode(partitionKey) & Integer.MAX_VALUE) % partitions;
+  }
+
+  /**
+   * Returns the partitioned topic that the given topic is a partition of, or {@code null} if the given topic
+   * name does not have the partition suffix. Partition {@code 0} is the partitioned topic itself,
+   * hence {@code null} is returned for it.
+   */
+  @Nullable
+  public static TopicId getPartitionedTopic(TopicId topicId) {
+    String topic = topicId.getTopic();
+    int idx = topic.lastIndexOf(PARTITION_SUFFIX);
+    if (idx <= 0) {
+      return null;
+    }
+    String partition = topic.substring(idx + PARTITION_SUFFIX.length());
+    if (partition.isEmpty()) {
+      return null;
+    }
+    for (int i = 0; i < partition.length(); i++) {
+      if (!Character.isDigit(partition.charAt(i))) {
+        return null;
+      }
+    }
+    return topicId.getParent().topic(topic.substring(0, idx));
+  }
+
+  private TopicPartitions() {
+    // no-op
+  }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.client;
+
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.proto.id.TopicId;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.twill.common.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.Nullable;
+
+/**
+ * Publishes messages asynchronously through a {@link MessagingService}. Messages published to the same topic are
+ * coalesced into one publish call, until either the maximum number of messages or bytes of a batch is reached, or
+ * the oldest message has been waiting for the linger time. Batches of different topics are published concurrently,
+ * up to a maximum number of in-flight calls, while batches of the same topic are published one at a time, so that
+ * messages of a topic are stored in the order they were published.
+ */
+public final class BatchingMessagePublisher implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BatchingMessagePublisher.class);
+  private static final long CLOSE_TIMEOUT_SECONDS = 10L;
+
+  private final MessagingService messagingService;
+  private final int maxBatchSize;
+  private final int maxBatchBytes;
+  private final long lingerMillis;
+  @Nullable
+  private final MetricsContext metricsContext;
+  private final ConcurrentMap<TopicId, TopicBatch> batches;
+  private final ExecutorService publishExecutor;
+  private final ScheduledExecutorService lingerExecutor;
+  private volatile boolean closed;
+
+  /**
+   * Creates an instance with the batch settings from the given configuration.
+   *
+   * @param messagingService the {@link MessagingService} to publish with
+   * @param cConf the configuration to read the batch settings from
+   * @param metricsContext the {@link MetricsContext} to emit metrics to, or {@code null} to not emit metrics
+   */
+  public BatchingMessagePublisher(MessagingService messagingService, CConfiguration cConf,
+                                  @Nullable MetricsContext metricsContext) {
+    this(messagingService,
+         cConf.getInt(Constants.MessagingSystem.PUBLISHER_BATCH_SIZE),
+         cConf.getInt(Constants.MessagingSystem.PUBLISHER_BATCH_BYTES),
+         cConf.getLong(Constants.MessagingSystem.PUBLISHER_LINGER_MS),
+         cConf.getInt(Constants.MessagingSystem.PUBLISHER_MAX_INFLIGHT),
+         metricsContext);
+  }
+
+  /**
+   * Creates an instance with the given batch settings.
+   *
+   * @param messagingService the {@link MessagingService} to publish with
+   * @param maxBatchSize maximum number of messages in one publish call
+   * @param maxBatchBytes maximum number of payload bytes in one publish call. A single message that is larger than
+   *                      this is still published, in a batch of its own
+   * @param lingerMillis maximum time in milliseconds that a message waits for more messages to be batched with
+   * @param maxInFlight maximum number of publish calls in progress at the same time
+   * @param metricsContext the {@link MetricsContext} to emit metrics to, or {@code null} to not emit metrics
+   */
+  public BatchingMessagePublisher(MessagingService messagingService, int maxBatchSize, int maxBatchBytes,
+                                  long lingerMillis, int maxInFlight, @Nullable MetricsContext metricsContext) {
+    Preconditions.checkArgument(maxBatchSize > 0, "Maximum batch size must be positive: %s", maxBatchSize);
+    Preconditions.checkArgument(maxBatchBytes > 0, "Maximum batch bytes must be positive: %s", maxBatchBytes);
+    Preconditions.checkArgument(lingerMillis >= 0, "Linger time must not be negative: %s", lingerMillis);
+    Preconditions.checkArgument(maxInFlight > 0, "Maximum in-flight calls must be positive: %s", maxInFlight);
+    this.messagingService = messagingService;
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchBytes = maxBatchBytes;
+    this.lingerMillis = lingerMillis;
+    this.metricsContext = metricsContext;
+    this.batches = new ConcurrentHashMap<>();
+    this.publishExecutor = Executors.newFixedThreadPool(maxInFlight,
+                                                        Threads.createDaemonThreadFactory("message-publisher-%d"));
+    this.lingerExecutor = Executors.newSingleThreadScheduledExecutor(
+      Threads.createDaemonThreadFactory("message-publisher-linger"));
+  }
+
+  /**
+   * Publishes a message to the given topic.
+   *
+   * @param topicId the topic to publish to
+   * @param payload the payload of the message
+   * @return a {@link ListenableFuture} that completes when the batch containing the message has been published,
+   *         or fails with the exception of the publish call
+   * @throws IllegalStateException if this publisher is closed
+   */
+  public ListenableFuture<Void> publish(TopicId topicId, byte[] payload) {
+    Preconditions.checkState(!closed, "Message publisher is closed");
+    TopicBatch batch = batches.get(topicId);
+    if (batch == null) {
+      batch = new TopicBatch(topicId);
+      TopicBatch existing = batches.putIfAbsent(topicId, batch);
+      batch = existing == null ? batch : existing;
+    }
+    return batch.add(payload);
+  }
+
+  /**
+   * Publishes all pending messages and waits for them to be published, up to a timeout. Messages that are not
+   * published by then are failed.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    List<ListenableFuture<Void>> outstanding = new ArrayList<>();
+    for (TopicBatch batch : batches.values()) {
+      outstanding.addAll(batch.flush());
+    }
+    try {
+      Futures.successfulAsList(outstanding).get(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      LOG.warn("Failed to publish all pending messages within {} seconds", CLOSE_TIMEOUT_SECONDS);
+    } finally {
+      lingerExecutor.shutdownNow();
+      publishExecutor.shutdownNow();
+      IllegalStateException failure = new IllegalStateException("Message publisher is closed");
+      for (ListenableFuture<Void> future : outstanding) {
+        ((SettableFuture<Void>) future).setException(failure);
+      }
+    }
+  }
+
+  /**
+   * A message waiting to be published.
+   */
+  private static final class PendingMessage {
+    private final byte[] payload;
+    private final long enqueueTime;
+    private final SettableFuture<Void> future;
+
+    PendingMessage(byte[] payload) {
+      this.payload = payload;
+      this.enqueueTime = System.currentTimeMillis();
+      this.future = SettableFuture.create();
+    }
+  }
+
+  /**
+   * The pending messages of one topic, with at most one publish call in progress.
+   */
+  private final class TopicBatch {
+
+    private final TopicId topicId;
+    private final Deque<PendingMessage> pending = new ArrayDeque<>();
+    private List<PendingMessage> inFlight;
+    private int pendingBytes;
+    private ScheduledFuture<?> lingerFuture;
+
+    TopicBatch(TopicId topicId) {
+      this.topicId = topicId;
+    }
+
+    synchronized ListenableFuture<Void> add(byte[] payload) {
+      PendingMessage message = new PendingMessage(payload);
+      pending.add(message);
+      pendingBytes += payload.length;
+      maybePublish(false);
+      return message.future;
+    }
+
+    /**
+     * Starts publishing pending messages without waiting for the linger time, and returns the futures of all
+     * messages that are not published yet.
+     */
+    synchronized List<ListenableFuture<Void>> flush() {
+      List<ListenableFuture<Void>> futures = new ArrayList<>();
+      if (inFlight != null) {
+        for (PendingMessage message : inFlight) {
+          futures.add(message.future);
+        }
+      }
+      for (PendingMessage message : pending) {
+        futures.add(message.future);
+      }
+      maybePublish(true);
+      return futures;
+    }
+
+    /**
+     * Publishes the next batch if no call is in progress for this topic, and if the batch is full, the oldest
+     * message has waited for the linger time, or {@code force} is {@code true}. Otherwise makes sure a publish is
+     * triggered once the linger time is reached. Must be called while holding the lock of this object.
+     */
+    private void maybePublish(boolean force) {
+      if (inFlight != null || pending.isEmpty()) {
+        return;
+      }
+      long waited = System.currentTimeMillis() - pending.peek().enqueueTime;
+      if (!force && !closed && pending.size() < maxBatchSize && pendingBytes < maxBatchBytes
+        && waited < lingerMillis) {
+        if (lingerFuture == null) {
+          lingerFuture = lingerExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+              synchronized (TopicBatch.this) {
+                lingerFuture = null;
+                maybePublish(true);
+              }
+            }
+          }, lingerMillis - waited, TimeUnit.MILLISECONDS);
+        }
+        return;
+      }
+
+      if (lingerFuture != null) {
+        lingerFuture.cancel(false);
+        lingerFuture = null;
+      }
+
+      // Take messages until the batch is full, but always at least one
+      final List<PendingMessage> batch = new ArrayList<>();
+      int batchBytes = 0;
+      while (!pending.isEmpty() && batch.size() < maxBatchSize
+        && (batch.isEmpty() || batchBytes + pending.peek().payload.length <= maxBatchBytes)) {
+        PendingMessage message = pending.poll();
+        batch.add(message);
+        batchBytes += message.payload.length;
+      }
+      pendingBytes -= batchBytes;
+      inFlight = batch;
+      try {
+        publishExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            publishBatch(batch);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // the publisher has been closed
+        inFlight = null;
+        for (PendingMessage message : batch) {
+          message.future.setException(e);
+        }
+      }
+    }
+
+    private void publishBatch(List<PendingMessage> batch) {
+      long lingerTime = System.currentTimeMillis() - batch.get(0).enqueueTime;
+      try {
+        final Iterator<PendingMessage> messages = batch.iterator();
+        messagingService.publish(StoreRequestBuilder.of(topicId).addPayloads(new Iterator<byte[]>() {
+          @Override
+          public boolean hasNext() {
+            return messages.hasNext();
+          }
+
+          @Override
+          public byte[] next() {
+            return messages.next().payload;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException("Remove not supported");
+          }
+        }).build());
+        for (PendingMessage message : batch) {
+          message.future.set(null);
+        }
+        if (metricsContext != null) {
+          metricsContext.increment("messaging.publisher.batches", 1L);
+          metricsContext.increment("messaging.publisher.messages", batch.size());
+          metricsContext.gauge("messaging.publisher.batch.size", batch.size());
+          metricsContext.gauge("messaging.publisher.linger.ms", lingerTime);
+        }
+      } catch (Throwable t) {
+        LOG.debug("Failed to publish {} messages to topic {}", batch.size(), topicId, t);
+        for (PendingMessage message : batch) {
+          message.future.setException(t);
+        }
+        if (metricsContext != null) {
+          metricsContext.increment("messaging.publisher.errors", 1L);
+        }
+      } finally {
+        synchronized (this) {
+          inFlight = null;
+          maybePublish(false);
+        }
+      }
+    }
+  }
+}
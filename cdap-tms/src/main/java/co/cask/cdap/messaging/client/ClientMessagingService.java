@@ -242,7 +242,11 @@ public final class ClientMessagingService implements MessagingService {
     // Make the publish request
     String writeType = publish ? "publish" : "store";
     TopicId topicId = request.getTopicId();
-    HttpRequest httpRequest = remoteClient.requestBuilder(HttpMethod.POST, createTopicPath(topicId) + "/" + writeType)
+    String path = createTopicPath(topicId) + "/" + writeType;
+    if (request.getPartitionKey() != null) {
+      path += "?partitionKey=" + Bytes.toHexString(request.getPartitionKey());
+    }
+    HttpRequest httpRequest = remoteClient.requestBuilder(HttpMethod.POST, path)
       .addHeader(HttpHeaders.CONTENT_TYPE, "avro/binary")
       .withBody(os.toByteBuffer())
       .build();
@@ -396,10 +400,21 @@ public final class ClientMessagingService implements MessagingService {
 
       // The cask common http library doesn't support read streaming, and we don't want to buffer all messages
       // in memory, hence we use the HttpURLConnection directly instead.
-      URL url = remoteClient.resolve(createTopicPath(topicId) + "/poll");
+      String path = createTopicPath(topicId) + "/poll";
+      int readTimeout = HTTP_REQUEST_CONFIG.getReadTimeout();
+      long maxWaitTime = getMaxWaitTime();
+      if (maxWaitTime > 0) {
+        // Ask the server to wait for new messages, and extend the read timeout to cover the waiting.
+        // A read timeout of 0 means no timeout, hence no need to extend.
+        path += "?wait=" + maxWaitTime;
+        if (readTimeout > 0) {
+          readTimeout = (int) Math.min(Integer.MAX_VALUE, readTimeout + maxWaitTime);
+        }
+      }
+      URL url = remoteClient.resolve(path);
       final HttpURLConnection urlConn = (HttpURLConnection)  url.openConnection();
       urlConn.setConnectTimeout(HTTP_REQUEST_CONFIG.getConnectTimeout());
-      urlConn.setReadTimeout(HTTP_REQUEST_CONFIG.getReadTimeout());
+      urlConn.setReadTimeout(readTimeout);
       urlConn.setRequestMethod("POST");
       urlConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, "avro/binary");
       urlConn.setDoInput(true);
@@ -40,6 +40,7 @@ public final class StoreRequestBuilder {
   private final TopicId topicId;
   private Iterator<byte[]> payloads;
   private Long txWritePointer;
+  private byte[] partitionKey;
 
   /**
    * Creates a new {@link StoreRequestBuilder} instance.
@@ -91,6 +92,17 @@ public final class StoreRequestBuilder {
     return this;
   }
 
+  /**
+   * Sets the key for selecting the partition of a partitioned topic to publish to. Messages with the same partition
+   * key are always published to the same partition. Partition key is only supported for non-transactional publish.
+   *
+   * @param partitionKey the partition key, or {@code null} to publish to the first partition
+   */
+  public StoreRequestBuilder setPartitionKey(@Nullable byte[] partitionKey) {
+    this.partitionKey = partitionKey;
+    return this;
+  }
+
   /**
    * Returns {@code true} if there is some payload in this builder.
    */
@@ -106,7 +118,7 @@ public final class StoreRequestBuilder {
       throw new IllegalArgumentException("Payload cannot be empty for non-transactional publish");
     }
     return new SimpleStoreRequest(topicId, txWritePointer != null, txWritePointer == null ? -1L : txWritePointer,
-                                  payloads);
+                                  partitionKey, payloads);
   }
 
   /**
@@ -116,9 +128,9 @@ public final class StoreRequestBuilder {
 
     private final Iterator<byte[]> payloads;
 
-    SimpleStoreRequest(TopicId topicId, boolean transactional,
-                       long transactionWritePointer, Iterator<byte[]> payloads) {
-      super(topicId, transactional, transactionWritePointer);
+    SimpleStoreRequest(TopicId topicId, boolean transactional, long transactionWritePointer,
+                       @Nullable byte[] partitionKey, Iterator<byte[]> payloads) {
+      super(topicId, transactional, transactionWritePointer, partitionKey);
       this.payloads = payloads;
     }
 
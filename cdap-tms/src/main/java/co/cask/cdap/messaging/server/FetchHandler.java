@@ -20,6 +20,7 @@ import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.api.messaging.TopicNotFoundException;
 import co.cask.cdap.common.BadRequestException;
+import co.cask.cdap.common.HttpExceptionHandler;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.ByteBuffers;
@@ -45,6 +46,7 @@ import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.tephra.TransactionCodec;
+import org.apache.twill.common.Threads;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferInputStream;
 import org.jboss.netty.buffer.ChannelBufferOutputStream;
@@ -60,10 +62,17 @@ import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 
 /**
  * A netty http handler for handling message fetching REST API for the messaging system.
@@ -73,23 +82,44 @@ public final class FetchHandler extends AbstractHttpHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(FetchHandler.class);
   private static final TransactionCodec TRANSACTION_CODEC = new TransactionCodec();
+  private static final HttpExceptionHandler EXCEPTION_HANDLER = new HttpExceptionHandler();
 
   private final MessagingService messagingService;
   private int messageChunkSize;
+  private final long maxPollWaitMillis;
+  private final ExecutorService pollWaitExecutor;
 
   @Inject
   FetchHandler(CConfiguration cConf, MessagingService messagingService) {
     this.messagingService = messagingService;
     this.messageChunkSize = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_CONSUME_CHUNK_SIZE);
+    this.maxPollWaitMillis = cConf.getLong(Constants.MessagingSystem.HTTP_SERVER_MAX_POLL_WAIT_MS);
+
+    // Waiting polls are served by this executor so that they don't block the http server threads.
+    // Creates a executor that will shrink to 0 threads if left idle
+    // Uses daemon thread, hence no need to worry about shutdown
+    int pollWaitThreads = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_POLL_WAIT_THREADS);
+    this.pollWaitExecutor = new ThreadPoolExecutor(0, pollWaitThreads, 60L, TimeUnit.SECONDS,
+                                                   new SynchronousQueue<Runnable>(),
+                                                   Threads.createDaemonThreadFactory("messaging-poll-wait-%d"));
   }
 
+  /**
+   * Fetches messages from a topic. If the {@code wait} query parameter is given and there is no message
+   * available, the request will be held until new messages are published to the topic or the wait time
+   * in milliseconds elapsed, whichever comes first. The wait time is capped by the server configuration.
+   */
   @POST
   @Path("poll")
-  public void poll(HttpRequest request, HttpResponder responder,
+  public void poll(final HttpRequest request, final HttpResponder responder,
                    @PathParam("namespace") String namespace,
-                   @PathParam("topic") String topic) throws Exception {
+                   @PathParam("topic") String topic,
+                   @QueryParam("wait") @DefaultValue("0") long wait) throws Exception {
 
-    TopicId topicId = new NamespaceId(namespace).topic(topic);
+    final TopicId topicId = new NamespaceId(namespace).topic(topic);
+    if (wait < 0) {
+      throw new BadRequestException("Wait time must be >= 0");
+    }
 
     // Currently only support avro
     if (!"avro/binary".equals(request.getHeader(HttpHeaders.Names.CONTENT_TYPE))) {
@@ -101,8 +131,37 @@ public final class FetchHandler extends AbstractHttpHandler {
                                                                null);
     DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(Schemas.V1.ConsumeRequest.SCHEMA);
 
+    final GenericRecord fetchRequest = datumReader.read(null, decoder);
+
+    final long maxWaitTime = Math.min(wait, maxPollWaitMillis);
+    if (maxWaitTime > 0) {
+      try {
+        pollWaitExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              sendMessages(responder, fetchMessages(fetchRequest, topicId, maxWaitTime));
+            } catch (Throwable t) {
+              EXCEPTION_HANDLER.handle(t, request, responder);
+            }
+          }
+        });
+        return;
+      } catch (RejectedExecutionException e) {
+        // Too many polls are waiting. Fetch without waiting and let the client poll again.
+        LOG.debug("Too many waiting polls, fetching from topic {} without waiting", topicId);
+      }
+    }
+
     // Fetch the messages
-    CloseableIterator<RawMessage> iterator = fetchMessages(datumReader.read(null, decoder), topicId);
+    sendMessages(responder, fetchMessages(fetchRequest, topicId, 0L));
+  }
+
+  /**
+   * Sends the messages from the given {@link CloseableIterator} as the response. The iterator will be closed
+   * when the response is completed.
+   */
+  private void sendMessages(HttpResponder responder, CloseableIterator<RawMessage> iterator) {
     try {
       responder.sendContent(HttpResponseStatus.OK, new MessagesBodyProducer(iterator, messageChunkSize),
                             ImmutableMultimap.of(HttpHeaders.Names.CONTENT_TYPE, "avro/binary"));
@@ -115,9 +174,10 @@ public final class FetchHandler extends AbstractHttpHandler {
   /**
    * Creates a {@link CloseableIterator} of {@link RawMessage} based on the given fetch request.
    */
-  private CloseableIterator<RawMessage> fetchMessages(GenericRecord fetchRequest,
-                                                      TopicId topicId) throws IOException, TopicNotFoundException {
+  private CloseableIterator<RawMessage> fetchMessages(GenericRecord fetchRequest, TopicId topicId,
+                                                      long maxWaitTime) throws IOException, TopicNotFoundException {
     MessageFetcher fetcher = messagingService.prepareFetch(topicId);
+    fetcher.setMaxWaitTime(maxWaitTime);
 
     Object startFrom = fetchRequest.get("startFrom");
     if (startFrom != null) {
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.messaging.server;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.common.BadRequestException;
 import co.cask.cdap.common.io.ByteBuffers;
 import co.cask.cdap.messaging.MessagingService;
@@ -54,6 +55,7 @@ import javax.annotation.Nullable;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 
 /**
  * A netty http handler for handling message storage REST API for the messaging system.
@@ -72,10 +74,11 @@ public final class StoreHandler extends AbstractHttpHandler {
   @Path("/publish")
   public void publish(HttpRequest request, HttpResponder responder,
                       @PathParam("namespace") String namespace,
-                      @PathParam("topic") String topic) throws Exception {
+                      @PathParam("topic") String topic,
+                      @QueryParam("partitionKey") String partitionKey) throws Exception {
 
     TopicId topicId = new NamespaceId(namespace).topic(topic);
-    StoreRequest storeRequest = createStoreRequest(topicId, request);
+    StoreRequest storeRequest = createStoreRequest(topicId, request, partitionKey);
 
     // Empty payload is only allowed for transactional publish
     if (!storeRequest.isTransactional() && !storeRequest.hasNext()) {
@@ -98,10 +101,11 @@ public final class StoreHandler extends AbstractHttpHandler {
   @Path("/store")
   public void store(HttpRequest request, HttpResponder responder,
                     @PathParam("namespace") String namespace,
-                    @PathParam("topic") String topic) throws Exception {
+                    @PathParam("topic") String topic,
+                    @QueryParam("partitionKey") String partitionKey) throws Exception {
 
     TopicId topicId = new NamespaceId(namespace).topic(topic);
-    StoreRequest storeRequest = createStoreRequest(topicId, request);
+    StoreRequest storeRequest = createStoreRequest(topicId, request, partitionKey);
 
     // It must be transactional with payload for store request
     if (!storeRequest.isTransactional() || !storeRequest.hasNext()) {
@@ -128,8 +132,11 @@ public final class StoreHandler extends AbstractHttpHandler {
 
   /**
    * Creates a {@link StoreRequest} instance based on the given {@link HttpRequest}.
+   *
+   * @param partitionKey the hex encoded partition key or {@code null} if there is no partition key
    */
-  private StoreRequest createStoreRequest(TopicId topicId, HttpRequest request) throws Exception {
+  private StoreRequest createStoreRequest(TopicId topicId, HttpRequest request,
+                                          @Nullable String partitionKey) throws Exception {
     // Currently only support avro
     if (!"avro/binary".equals(request.getHeader(HttpHeaders.Names.CONTENT_TYPE))) {
       throw new BadRequestException("Only avro/binary content type is supported.");
@@ -138,7 +145,19 @@ public final class StoreHandler extends AbstractHttpHandler {
     Decoder decoder = DecoderFactory.get().directBinaryDecoder(new ChannelBufferInputStream(request.getContent()),
                                                                null);
     DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(Schemas.V1.PublishRequest.SCHEMA);
-    return new GenericRecordStoreRequest(topicId, datumReader.read(null, decoder));
+    return new GenericRecordStoreRequest(topicId, datumReader.read(null, decoder),
+                                         partitionKey == null ? null : decodePartitionKey(partitionKey));
+  }
+
+  /**
+   * Decodes the hex encoded partition key.
+   */
+  private byte[] decodePartitionKey(String partitionKey) throws BadRequestException {
+    try {
+      return Bytes.fromHexString(partitionKey);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException("Invalid partition key " + partitionKey + ". It must be hex encoded.");
+    }
   }
 
   /**
@@ -177,11 +196,12 @@ public final class StoreHandler extends AbstractHttpHandler {
     private final Iterator<ByteBuffer> payloadIterator;
 
     @SuppressWarnings("unchecked")
-    GenericRecordStoreRequest(TopicId topicId, GenericRecord genericRecord) {
+    GenericRecordStoreRequest(TopicId topicId, GenericRecord genericRecord, @Nullable byte[] partitionKey) {
       super(topicId, genericRecord.get("transactionWritePointer") != null,
             genericRecord.get("transactionWritePointer") == null
               ? -1L
-              : Long.parseLong(genericRecord.get("transactionWritePointer").toString()));
+              : Long.parseLong(genericRecord.get("transactionWritePointer").toString()),
+            partitionKey);
 
       this.payloadIterator = ((List<ByteBuffer>) genericRecord.get("messages")).iterator();
     }
@@ -44,17 +44,59 @@ final class CoreMessageFetcher extends MessageFetcher {
   private final TopicMetadata topicMetadata;
   private final TableProvider<MessageTable> messageTableProvider;
   private final TableProvider<PayloadTable> payloadTableProvider;
+  private final TopicWriteNotifier.WriteSignal writeSignal;
 
   CoreMessageFetcher(TopicMetadata topicMetadata,
                      TableProvider<MessageTable> messageTableProvider,
-                     TableProvider<PayloadTable> payloadTableProvider) {
+                     TableProvider<PayloadTable> payloadTableProvider,
+                     TopicWriteNotifier.WriteSignal writeSignal) {
     this.topicMetadata = topicMetadata;
     this.messageTableProvider = messageTableProvider;
     this.payloadTableProvider = payloadTableProvider;
+    this.writeSignal = writeSignal;
   }
 
   @Override
   public CloseableIterator<RawMessage> fetch() throws IOException {
+    long maxWaitTime = getMaxWaitTime();
+    if (maxWaitTime <= 0) {
+      return fetchMessages();
+    }
+
+    long deadline = System.currentTimeMillis() + maxWaitTime;
+    while (true) {
+      // Capture the generation before fetching, so that any write after the scan started will wake up the wait
+      long generation = writeSignal.getGeneration();
+      CloseableIterator<RawMessage> iterator = fetchMessages();
+      long remaining = deadline - System.currentTimeMillis();
+      try {
+        if (remaining <= 0 || iterator.hasNext()) {
+          return iterator;
+        }
+      } catch (Throwable t) {
+        closeQuietly(iterator);
+        throw t;
+      }
+      iterator.close();
+
+      // Wait for new writes. The messages written may not be visible to the fetch (e.g. uncommitted transaction),
+      // hence loop until there is message or the wait time elapsed.
+      try {
+        if (!writeSignal.await(generation, remaining, TimeUnit.MILLISECONDS)) {
+          // Fetch once more as there can be writes from other messaging service instances
+          return fetchMessages();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return fetchMessages();
+      }
+    }
+  }
+
+  /**
+   * Creates a {@link CloseableIterator} that scans the message table for messages.
+   */
+  private CloseableIterator<RawMessage> fetchMessages() throws IOException {
     MessageTable messageTable = messageTableProvider.get();
     try {
       return new MessageCloseableIterator(messageTable);
@@ -30,6 +30,7 @@ import co.cask.cdap.messaging.MessagingUtils;
 import co.cask.cdap.messaging.RollbackDetail;
 import co.cask.cdap.messaging.StoreRequest;
 import co.cask.cdap.messaging.TopicMetadata;
+import co.cask.cdap.messaging.TopicPartitions;
 import co.cask.cdap.messaging.store.MessageTable;
 import co.cask.cdap.messaging.store.MetadataTable;
 import co.cask.cdap.messaging.store.PayloadTable;
@@ -45,6 +46,7 @@ import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
 import org.apache.tephra.TxConstants;
@@ -54,7 +56,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -82,6 +87,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   private final LoadingCache<TopicId, TopicMetadata> topicCache;
   private final LoadingCache<TopicId, ConcurrentMessageWriter> messageTableWriterCache;
   private final LoadingCache<TopicId, ConcurrentMessageWriter> payloadTableWriterCache;
+  private final TopicWriteNotifier writeNotifier;
   private final TimeProvider timeProvider;
   private final MetricsCollectionService metricsCollectionService;
   private final long txMaxLifeTimeInMillis;
@@ -100,6 +106,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     this.topicCache = createTopicCache();
     this.messageTableWriterCache = createTableWriterCache(true, cConf);
     this.payloadTableWriterCache = createTableWriterCache(false, cConf);
+    this.writeNotifier = new TopicWriteNotifier();
     this.timeProvider = timeProvider;
 
     // Due to circular dependency in our class hierarchy (which is bad), we cannot use metricsCollectionService
@@ -121,27 +128,79 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     try (MetadataTable metadataTable = createMetadataTable()) {
       Map<String, String> properties = createDefaultProperties();
       properties.putAll(topicMetadata.getProperties());
-      metadataTable.createTopic(new TopicMetadata(topicMetadata.getTopicId(), properties, true));
+      TopicMetadata metadata = new TopicMetadata(topicMetadata.getTopicId(), properties, true);
+      metadataTable.createTopic(metadata);
+
+      // Create a topic for each of the partitions other than the first one, which is the topic itself.
+      List<TopicId> partitionTopics = getPartitionTopics(metadata);
+      Map<String, String> partitionProperties = createPartitionProperties(properties);
+      for (int i = 0; i < partitionTopics.size(); i++) {
+        try {
+          metadataTable.createTopic(new TopicMetadata(partitionTopics.get(i), partitionProperties, true));
+        } catch (TopicAlreadyExistsException | IOException e) {
+          // Undo the creation so that the topic is never left with only some of the partitions
+          for (TopicId topicId : Iterables.concat(Collections.singleton(metadata.getTopicId()),
+                                                  partitionTopics.subList(0, i))) {
+            try {
+              metadataTable.deleteTopic(topicId);
+            } catch (Exception ex) {
+              e.addSuppressed(ex);
+            }
+          }
+          throw e;
+        }
+      }
     }
   }
 
   @Override
   public void updateTopic(TopicMetadata topicMetadata) throws TopicNotFoundException, IOException {
     try (MetadataTable metadataTable = createMetadataTable()) {
+      TopicId topicId = topicMetadata.getTopicId();
+      TopicMetadata oldMetadata = metadataTable.getMetadata(topicId);
+
       Map<String, String> properties = createDefaultProperties();
       properties.putAll(topicMetadata.getProperties());
-      metadataTable.updateTopic(new TopicMetadata(topicMetadata.getTopicId(), properties, true));
-      topicCache.invalidate(topicMetadata.getTopicId());
+      // The number of partitions is fixed when the topic is created
+      String partitions = oldMetadata.getProperties().get(TopicMetadata.PARTITIONS_KEY);
+      String newPartitions = properties.get(TopicMetadata.PARTITIONS_KEY);
+      if (newPartitions != null && !newPartitions.equals(Objects.firstNonNull(partitions, "1"))) {
+        throw new IllegalArgumentException("The number of partitions cannot be changed for topic " + topicId);
+      }
+      properties.remove(TopicMetadata.PARTITIONS_KEY);
+      if (partitions != null) {
+        properties.put(TopicMetadata.PARTITIONS_KEY, partitions);
+      }
+
+      TopicMetadata metadata = new TopicMetadata(topicId, properties, true);
+      metadataTable.updateTopic(metadata);
+      topicCache.invalidate(topicId);
+
+      Map<String, String> partitionProperties = createPartitionProperties(properties);
+      for (TopicId partitionTopic : getPartitionTopics(metadata)) {
+        metadataTable.updateTopic(new TopicMetadata(partitionTopic, partitionProperties, true));
+        topicCache.invalidate(partitionTopic);
+      }
     }
   }
 
   @Override
   public void deleteTopic(TopicId topicId) throws TopicNotFoundException, IOException {
     try (MetadataTable metadataTable = createMetadataTable()) {
-      metadataTable.deleteTopic(topicId);
-      topicCache.invalidate(topicId);
-      messageTableWriterCache.invalidate(topicId);
-      payloadTableWriterCache.invalidate(topicId);
+      TopicMetadata metadata = metadataTable.getMetadata(topicId);
+      for (TopicId partitionTopic : Iterables.concat(Collections.singleton(topicId), getPartitionTopics(metadata))) {
+        try {
+          metadataTable.deleteTopic(partitionTopic);
+        } catch (TopicNotFoundException e) {
+          // Partitions other than the first one may already be deleted
+          if (partitionTopic.equals(topicId)) {
+            throw e;
+          }
+        }
+        topicCache.invalidate(partitionTopic);
+        messageTableWriterCache.invalidate(partitionTopic);
+        payloadTableWriterCache.invalidate(partitionTopic);
+      }
     }
   }
 
@@ -159,7 +218,40 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   @Override
   public List<TopicId> listTopics(NamespaceId namespaceId) throws IOException {
     try (MetadataTable metadataTable = createMetadataTable()) {
-      return metadataTable.listTopics(namespaceId);
+      List<TopicId> topics = metadataTable.listTopics(namespaceId);
+
+      // Hide the topics of individual partitions. Having a partition suffix in the name is not enough, since a
+      // regular topic can be named like that, hence it has to be one of the partitions of the partitioned topic.
+      Set<TopicId> topicSet = new HashSet<>(topics);
+      Map<TopicId, Set<TopicId>> partitionTopics = new HashMap<>();
+      List<TopicId> result = new ArrayList<>(topics.size());
+      for (TopicId topicId : topics) {
+        TopicId partitionedTopic = TopicPartitions.getPartitionedTopic(topicId);
+        if (partitionedTopic == null || !topicSet.contains(partitionedTopic)) {
+          result.add(topicId);
+          continue;
+        }
+        Set<TopicId> partitions = partitionTopics.get(partitionedTopic);
+        if (partitions == null) {
+          partitions = getPartitionTopicSet(metadataTable, partitionedTopic);
+          partitionTopics.put(partitionedTopic, partitions);
+        }
+        if (!partitions.contains(topicId)) {
+          result.add(topicId);
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Returns the {@link TopicId} of the partitions of the given topic, or an empty set if the topic no longer exists.
+   */
+  private Set<TopicId> getPartitionTopicSet(MetadataTable metadataTable, TopicId topicId) throws IOException {
+    try {
+      return new HashSet<>(getPartitionTopics(metadataTable.getMetadata(topicId)));
+    } catch (TopicNotFoundException e) {
+      return Collections.emptySet();
     }
   }
 
@@ -176,7 +268,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
       public PayloadTable get() throws IOException {
         return createPayloadTable(metadata);
       }
-    });
+    }, writeNotifier.getSignal(topicId));
   }
 
   @Nullable
@@ -187,7 +279,12 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
       if (request.isTransactional()) {
         ensureValidTxLifetime(request.getTransactionWritePointer());
       }
-      return messageTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      request = toPartitionRequest(request, metadata);
+      metadata = topicCache.get(request.getTopicId());
+      RollbackDetail rollbackDetail = messageTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      // Wake up fetches that are waiting for new messages
+      writeNotifier.notifyWrite(request.getTopicId());
+      return rollbackDetail;
     } catch (ExecutionException e) {
       Throwable cause = Objects.firstNonNull(e.getCause(), e);
       Throwables.propagateIfPossible(cause, TopicNotFoundException.class, IOException.class);
@@ -199,6 +296,8 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   public void storePayload(StoreRequest request) throws TopicNotFoundException, IOException {
     try {
       TopicMetadata metadata = topicCache.get(request.getTopicId());
+      request = toPartitionRequest(request, metadata);
+      metadata = topicCache.get(request.getTopicId());
       payloadTableWriterCache.get(request.getTopicId()).persist(request, metadata);
     } catch (ExecutionException e) {
       Throwable cause = Objects.firstNonNull(e.getCause(), e);
@@ -397,6 +496,50 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     return tableFactory.createPayloadTable(cConf.get(Constants.MessagingSystem.PAYLOAD_TABLE_NAME));
   }
 
+  /**
+   * Returns the {@link TopicId} of the partitions of the given topic, excluding the first partition,
+   * which is the topic itself.
+   */
+  private List<TopicId> getPartitionTopics(TopicMetadata metadata) {
+    List<TopicId> topics = TopicPartitions.getPartitionTopics(metadata.getTopicId(), metadata.getPartitions());
+    return topics.subList(1, topics.size());
+  }
+
+  /**
+   * Creates the properties of the topic of an individual partition from the properties of the partitioned topic.
+   */
+  private Map<String, String> createPartitionProperties(Map<String, String> properties) {
+    Map<String, String> partitionProperties = new HashMap<>(properties);
+    partitionProperties.remove(TopicMetadata.PARTITIONS_KEY);
+    return partitionProperties;
+  }
+
+  /**
+   * Returns a {@link StoreRequest} that writes to the partition selected by the partition key of the given request,
+   * or the given request itself if the topic is not partitioned or there is no partition key.
+   */
+  private StoreRequest toPartitionRequest(final StoreRequest request, TopicMetadata metadata) {
+    byte[] partitionKey = request.getPartitionKey();
+    int partitions = metadata.getPartitions();
+    if (partitionKey == null || partitions <= 1) {
+      return request;
+    }
+    if (request.isTransactional()) {
+      // Rollback is done per topic, hence transactional publish has to be made to the topic of a partition directly
+      throw new IllegalArgumentException("Partition key is not supported for transactional publish to topic "
+                                           + request.getTopicId());
+    }
+    TopicId partitionTopic = TopicPartitions.getPartitionTopic(request.getTopicId(),
+                                                               TopicPartitions.getPartition(partitionKey, partitions));
+    return new StoreRequest(partitionTopic, request.isTransactional(), request.getTransactionWritePointer()) {
+      @Nullable
+      @Override
+      protected byte[] doComputeNext() {
+        return request.hasNext() ? request.next() : null;
+      }
+    };
+  }
+
   /**
    * Creates default topic properties based on {@link CConfiguration}.
    */
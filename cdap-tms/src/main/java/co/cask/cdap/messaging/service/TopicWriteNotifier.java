@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.service;
+
+import co.cask.cdap.proto.id.TopicId;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Keeps track of writes to the message table of each topic, so that message fetching can wait for new messages
+ * to be published instead of repeatedly scanning the message table. Only writes performed by this process are
+ * tracked.
+ */
+@ThreadSafe
+final class TopicWriteNotifier {
+
+  // Signals are only kept while someone is holding on to them, which is the case while a fetch is waiting
+  private final LoadingCache<TopicId, WriteSignal> signals = CacheBuilder.newBuilder()
+    .weakValues()
+    .build(new CacheLoader<TopicId, WriteSignal>() {
+      @Override
+      public WriteSignal load(TopicId topicId) {
+        return new WriteSignal();
+      }
+    });
+
+  /**
+   * Returns the {@link WriteSignal} for the given topic.
+   */
+  WriteSignal getSignal(TopicId topicId) {
+    return signals.getUnchecked(topicId);
+  }
+
+  /**
+   * Notifies all waiters of the given topic that new messages have been written.
+   */
+  void notifyWrite(TopicId topicId) {
+    WriteSignal signal = signals.getIfPresent(topicId);
+    if (signal != null) {
+      signal.signal();
+    }
+  }
+
+  /**
+   * A signal that gets a new generation on every write to a topic.
+   */
+  static final class WriteSignal {
+
+    private long generation;
+
+    private WriteSignal() {
+      // Only created by TopicWriteNotifier
+    }
+
+    /**
+     * Returns the current generation. It should be captured before fetching and passed to
+     * {@link #await(long, long, TimeUnit)} so that no write in between is missed.
+     */
+    synchronized long getGeneration() {
+      return generation;
+    }
+
+    /**
+     * Waits until the generation is different from the given one or the timeout elapsed.
+     *
+     * @return {@code true} if there were writes since the given generation; {@code false} if timed out
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    synchronized boolean await(long generation, long timeout, TimeUnit unit) throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (this.generation == generation) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+      return true;
+    }
+
+    private synchronized void signal() {
+      generation++;
+      notifyAll();
+    }
+  }
+}
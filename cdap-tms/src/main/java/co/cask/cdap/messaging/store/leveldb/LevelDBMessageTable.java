@@ -27,6 +27,7 @@ import co.cask.cdap.messaging.store.MessageTable;
 import co.cask.cdap.messaging.store.RawMessageTableEntry;
 import co.cask.cdap.proto.id.TopicId;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBException;
 import org.iq80.leveldb.WriteBatch;
@@ -139,15 +140,26 @@ final class LevelDBMessageTable extends AbstractMessageTable {
     // no-op
   }
 
+  /**
+   * Creates a {@link RowDeleter} for deleting rows from this table.
+   *
+   * @param rateLimiter the {@link RateLimiter} for limiting the number of rows deleted per second
+   * @param batchSize maximum number of deletes to write in one batch
+   */
+  RowDeleter createRowDeleter(RateLimiter rateLimiter, int batchSize) {
+    return new RowDeleter(levelDB, WRITE_OPTIONS, rateLimiter, batchSize);
+  }
+
   /**
    * Delete messages of a {@link TopicId} that has exceeded the TTL or if it belongs to an older generation
    *
    * @param topicMetadata {@link TopicMetadata}
    * @param currentTime current timestamp
+   * @param rowDeleter the {@link RowDeleter} created from {@link #createRowDeleter(RateLimiter, int)}
+   *                   for deleting rows
    * @throws IOException error occurred while trying to delete a row in LevelDB
    */
-  public void pruneMessages(TopicMetadata topicMetadata, long currentTime) throws IOException {
-    WriteBatch writeBatch = levelDB.createWriteBatch();
+  void pruneMessages(TopicMetadata topicMetadata, long currentTime, RowDeleter rowDeleter) throws IOException {
     long ttlInMs = TimeUnit.SECONDS.toMillis(topicMetadata.getTTL());
     byte[] startRow = MessagingUtils.toDataKeyPrefix(topicMetadata.getTopicId(),
                                                      Integer.parseInt(MessagingUtils.Constants.DEFAULT_GENERATION));
@@ -161,13 +173,13 @@ final class LevelDBMessageTable extends AbstractMessageTable {
         int dataGeneration = messageTableEntry.getGeneration();
         int currGeneration = topicMetadata.getGeneration();
         if (MessagingUtils.isOlderGeneration(dataGeneration, currGeneration)) {
-          writeBatch.delete(entry.getKey());
+          rowDeleter.delete(entry);
           continue;
         }
 
         if ((dataGeneration == Math.abs(currGeneration)) &&
           ((currentTime - messageTableEntry.getPublishTimestamp()) > ttlInMs)) {
-          writeBatch.delete(entry.getKey());
+          rowDeleter.delete(entry);
         } else {
           // terminate scanning table once an entry with publish time after TTL is found, to avoid scanning whole table,
           // since the entries are sorted by time.
@@ -175,12 +187,7 @@ final class LevelDBMessageTable extends AbstractMessageTable {
         }
       }
     }
-
-    try {
-      levelDB.write(writeBatch, WRITE_OPTIONS);
-    } catch (DBException ex) {
-      throw new IOException(ex);
-    }
+    rowDeleter.flush();
   }
 
   // Encoding:
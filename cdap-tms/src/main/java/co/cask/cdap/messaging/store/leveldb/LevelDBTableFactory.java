@@ -17,8 +17,11 @@
 package co.cask.cdap.messaging.store.leveldb;
 
 import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
 import co.cask.cdap.common.utils.DirUtils;
 import co.cask.cdap.messaging.TopicMetadata;
 import co.cask.cdap.messaging.store.MessageTable;
@@ -26,6 +29,9 @@ import co.cask.cdap.messaging.store.MetadataTable;
 import co.cask.cdap.messaging.store.PayloadTable;
 import co.cask.cdap.messaging.store.TableFactory;
 import co.cask.cdap.proto.id.NamespaceId;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.RateLimiter;
 import com.google.inject.Inject;
 import org.apache.twill.common.Threads;
 import org.iq80.leveldb.Options;
@@ -46,17 +52,29 @@ public final class LevelDBTableFactory implements TableFactory {
 
   private static final Logger LOG = LoggerFactory.getLogger(LevelDBTableFactory.class);
   private static final Iq80DBFactory LEVEL_DB_FACTORY = Iq80DBFactory.factory;
+  // Maximum number of deletes to write in one batch during data cleanup
+  private static final int CLEANUP_BATCH_SIZE = 1000;
 
   private final File baseDir;
   private final Options dbOptions;
   private final ScheduledExecutorService executor;
+  private final MetricsCollectionService metricsCollectionService;
+  private final RateLimiter cleanupRateLimiter;
 
   private LevelDBMetadataTable metadataTable;
   private LevelDBMessageTable messageTable;
   private LevelDBPayloadTable payloadTable;
 
-  @Inject
+  @VisibleForTesting
   LevelDBTableFactory(CConfiguration cConf) {
+    this(cConf, new NoOpMetricsCollectionService());
+  }
+
+  @Inject
+  LevelDBTableFactory(CConfiguration cConf, MetricsCollectionService metricsCollectionService) {
+    this.metricsCollectionService = metricsCollectionService;
+    this.cleanupRateLimiter = RateLimiter.create(
+      cConf.getInt(Constants.MessagingSystem.LOCAL_DATA_CLEANUP_MAX_DELETES_PER_SEC));
     this.baseDir = new File(cConf.get(Constants.MessagingSystem.LOCAL_DATA_DIR));
     this.dbOptions = new Options()
       .blockSize(cConf.getInt(Constants.CFG_DATA_LEVELDB_BLOCKSIZE, Constants.DEFAULT_DATA_LEVELDB_BLOCKSIZE))
@@ -113,23 +131,76 @@ public final class LevelDBTableFactory implements TableFactory {
     return dir;
   }
 
+  /**
+   * Deletes data that has exceeded the TTL of the topic, or that belongs to an older generation of the topic.
+   * Deletes are rate limited and the following metrics are emitted for each of the message and payload tables:
+   *
+   * <ul>
+   *   <li>cleanup.rows.deleted - number of rows deleted</li>
+   *   <li>cleanup.bytes.reclaimed - total size of the keys and values deleted</li>
+   *   <li>cleanup.max.skipped.rows - the maximum number of rows deleted from the head of a single topic, which
+   *   is the number of rows that fetching the topic from the beginning had to skip over</li>
+   * </ul>
+   */
   private class DataCleanup implements Runnable {
 
+    private MetricsContext messageTableMetrics;
+    private MetricsContext payloadTableMetrics;
+
     @Override
     public void run() {
       if (metadataTable == null || payloadTable == null || messageTable == null) {
         return;
       }
 
+      // Metrics context cannot be created in the constructor due to circular dependency in standalone
+      if (messageTableMetrics == null) {
+        messageTableMetrics = createMetricsContext("message");
+        payloadTableMetrics = createMetricsContext("payload");
+      }
+
       long timeStamp = System.currentTimeMillis();
+      RowDeleter messageDeleter = messageTable.createRowDeleter(cleanupRateLimiter, CLEANUP_BATCH_SIZE);
+      RowDeleter payloadDeleter = payloadTable.createRowDeleter(cleanupRateLimiter, CLEANUP_BATCH_SIZE);
+      long maxMessageRowsSkipped = 0L;
+      long maxPayloadRowsSkipped = 0L;
+
       try (CloseableIterator<TopicMetadata> metadataIterator = metadataTable.scanTopics()) {
         while (metadataIterator.hasNext()) {
           TopicMetadata metadata = metadataIterator.next();
-          messageTable.pruneMessages(metadata, timeStamp);
-          payloadTable.pruneMessages(metadata, timeStamp);
+
+          long rowsDeleted = messageDeleter.getRowsDeleted();
+          messageTable.pruneMessages(metadata, timeStamp, messageDeleter);
+          maxMessageRowsSkipped = Math.max(maxMessageRowsSkipped, messageDeleter.getRowsDeleted() - rowsDeleted);
+
+          rowsDeleted = payloadDeleter.getRowsDeleted();
+          payloadTable.pruneMessages(metadata, timeStamp, payloadDeleter);
+          maxPayloadRowsSkipped = Math.max(maxPayloadRowsSkipped, payloadDeleter.getRowsDeleted() - rowsDeleted);
         }
-      } catch (IOException ex) {
-        LOG.debug("Unable to perform data cleanup in TMS LevelDB tables", ex);
+      } catch (Exception ex) {
+        // Catch all exceptions so that the cleanup will still be scheduled to run next time
+        LOG.warn("Unable to perform data cleanup in TMS LevelDB tables", ex);
+      } finally {
+        emitMetrics(messageTableMetrics, messageDeleter, maxMessageRowsSkipped);
+        emitMetrics(payloadTableMetrics, payloadDeleter, maxPayloadRowsSkipped);
+      }
+    }
+
+    private MetricsContext createMetricsContext(String table) {
+      return metricsCollectionService.getContext(ImmutableMap.of(
+        Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+        Constants.Metrics.Tag.COMPONENT, Constants.Service.MESSAGING_SERVICE,
+        Constants.Metrics.Tag.TABLE, table
+      ));
+    }
+
+    private void emitMetrics(MetricsContext metricsContext, RowDeleter rowDeleter, long maxRowsSkipped) {
+      metricsContext.increment("cleanup.rows.deleted", rowDeleter.getRowsDeleted());
+      metricsContext.increment("cleanup.bytes.reclaimed", rowDeleter.getBytesDeleted());
+      metricsContext.gauge("cleanup.max.skipped.rows", maxRowsSkipped);
+      if (rowDeleter.getRowsDeleted() > 0) {
+        LOG.debug("Deleted {} rows with {} bytes from TMS LevelDB {} table", rowDeleter.getRowsDeleted(),
+                  rowDeleter.getBytesDeleted(), metricsContext.getTags().get(Constants.Metrics.Tag.TABLE));
       }
     }
   }
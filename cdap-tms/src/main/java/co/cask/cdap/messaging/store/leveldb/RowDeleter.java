@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.store.leveldb;
+
+import com.google.common.util.concurrent.RateLimiter;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBException;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Deletes rows from a LevelDB table in bounded batches at a limited rate, so that pruning a large amount of
+ * expired data neither buffers all deletes in memory nor starves concurrent writes. It also keeps track of
+ * the number of rows and bytes deleted.
+ */
+final class RowDeleter {
+
+  private final DB levelDB;
+  private final WriteOptions writeOptions;
+  private final RateLimiter rateLimiter;
+  private final int batchSize;
+  private WriteBatch writeBatch;
+  private int batchCount;
+  private long rowsDeleted;
+  private long bytesDeleted;
+
+  /**
+   * Constructor.
+   *
+   * @param levelDB the {@link DB} to delete from
+   * @param writeOptions the {@link WriteOptions} for writing the deletes
+   * @param rateLimiter the {@link RateLimiter} for limiting the number of rows deleted per second
+   * @param batchSize maximum number of deletes to write in one batch
+   */
+  RowDeleter(DB levelDB, WriteOptions writeOptions, RateLimiter rateLimiter, int batchSize) {
+    this.levelDB = levelDB;
+    this.writeOptions = writeOptions;
+    this.rateLimiter = rateLimiter;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Deletes the given row. The delete is only written when the current batch is full or {@link #flush()} is called.
+   */
+  void delete(Map.Entry<byte[], byte[]> row) throws IOException {
+    if (writeBatch == null) {
+      writeBatch = levelDB.createWriteBatch();
+    }
+    writeBatch.delete(row.getKey());
+    batchCount++;
+    rowsDeleted++;
+    bytesDeleted += row.getKey().length + row.getValue().length;
+    if (batchCount >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Writes all pending deletes.
+   */
+  void flush() throws IOException {
+    if (writeBatch == null) {
+      return;
+    }
+    rateLimiter.acquire(batchCount);
+    try (WriteBatch batch = writeBatch) {
+      levelDB.write(batch, writeOptions);
+    } catch (DBException ex) {
+      throw new IOException(ex);
+    } finally {
+      writeBatch = null;
+      batchCount = 0;
+    }
+  }
+
+  /**
+   * Returns the number of rows deleted.
+   */
+  long getRowsDeleted() {
+    return rowsDeleted;
+  }
+
+  /**
+   * Returns the total size in bytes of the keys and values of the rows deleted.
+   */
+  long getBytesDeleted() {
+    return bytesDeleted;
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.client;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.messaging.MessageFetcher;
+import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.RollbackDetail;
+import co.cask.cdap.messaging.StoreRequest;
+import co.cask.cdap.messaging.TopicMetadata;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.TopicId;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link BatchingMessagePublisher}.
+ */
+public class BatchingMessagePublisherTest {
+
+  private static final TopicId TOPIC = NamespaceId.SYSTEM.topic("topic");
+  private static final TopicId FAILING_TOPIC = NamespaceId.SYSTEM.topic("failing");
+
+  @Test
+  public void testBatchSize() throws Exception {
+    RecordingMessagingService messagingService = new RecordingMessagingService();
+    BatchingMessagePublisher publisher = new BatchingMessagePublisher(messagingService, 3, 1024, 60000L, 2, null);
+    List<ListenableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 7; i++) {
+      futures.add(publisher.publish(TOPIC, Bytes.toBytes(i)));
+    }
+    // the first six messages are published in full batches, without waiting for the linger time
+    Futures.allAsList(futures.subList(0, 6)).get(10, TimeUnit.SECONDS);
+    Assert.assertFalse(futures.get(6).isDone());
+
+    // closing publishes the remaining message
+    publisher.close();
+    futures.get(6).get();
+
+    List<List<Integer>> batches = messagingService.getBatches(TOPIC);
+    Assert.assertEquals(3, batches.size());
+    List<Integer> published = new ArrayList<>();
+    for (List<Integer> batch : batches) {
+      Assert.assertTrue(batch.size() <= 3);
+      published.addAll(batch);
+    }
+    // messages are published in order
+    for (int i = 0; i < 7; i++) {
+      Assert.assertEquals(i, (int) published.get(i));
+    }
+  }
+
+  @Test
+  public void testBatchBytes() throws Exception {
+    RecordingMessagingService messagingService = new RecordingMessagingService();
+    BatchingMessagePublisher publisher = new BatchingMessagePublisher(messagingService, 100, 8, 60000L, 1, null);
+    try {
+      // two 4 byte messages fill a batch
+      Futures.allAsList(publisher.publish(TOPIC, Bytes.toBytes(1)),
+                        publisher.publish(TOPIC, Bytes.toBytes(2))).get(10, TimeUnit.SECONDS);
+      // a message larger than the batch bytes is published on its own
+      publisher.publish(TOPIC, new byte[16]).get(10, TimeUnit.SECONDS);
+    } finally {
+      publisher.close();
+    }
+    Assert.assertEquals(2, messagingService.getBatches(TOPIC).size());
+  }
+
+  @Test
+  public void testLinger() throws Exception {
+    RecordingMessagingService messagingService = new RecordingMessagingService();
+    BatchingMessagePublisher publisher = new BatchingMessagePublisher(messagingService, 100, 1024, 50L, 1, null);
+    try {
+      publisher.publish(TOPIC, Bytes.toBytes(1)).get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(1, messagingService.getBatches(TOPIC).size());
+    } finally {
+      publisher.close();
+    }
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    RecordingMessagingService messagingService = new RecordingMessagingService();
+    BatchingMessagePublisher publisher = new BatchingMessagePublisher(messagingService, 100, 1024, 0L, 2, null);
+    try {
+      try {
+        publisher.publish(FAILING_TOPIC, Bytes.toBytes(1)).get(10, TimeUnit.SECONDS);
+        Assert.fail("Expected publish to fail");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof IOException);
+      }
+      // a failure on one topic doesn't affect other topics
+      publisher.publish(TOPIC, Bytes.toBytes(1)).get(10, TimeUnit.SECONDS);
+    } finally {
+      publisher.close();
+    }
+
+    try {
+      publisher.publish(TOPIC, Bytes.toBytes(1));
+      Assert.fail("Expected publish to fail after close");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  /**
+   * A {@link MessagingService} that only supports publishing, and records the integer payloads of each publish call.
+   */
+  private static final class RecordingMessagingService implements MessagingService {
+
+    private final List<TopicId> topics = new ArrayList<>();
+    private final List<List<Integer>> batches = new ArrayList<>();
+
+    synchronized List<List<Integer>> getBatches(TopicId topicId) {
+      List<List<Integer>> result = new ArrayList<>();
+      for (int i = 0; i < topics.size(); i++) {
+        if (topics.get(i).equals(topicId)) {
+          result.add(batches.get(i));
+        }
+      }
+      return result;
+    }
+
+    @Nullable
+    @Override
+    public synchronized RollbackDetail publish(StoreRequest request) throws IOException {
+      if (FAILING_TOPIC.equals(request.getTopicId())) {
+        throw new IOException("Failed to publish to " + request.getTopicId());
+      }
+      List<Integer> batch = new ArrayList<>();
+      while (request.hasNext()) {
+        byte[] payload = request.next();
+        batch.add(payload.length == Bytes.SIZEOF_INT ? Bytes.toInt(payload) : -1);
+      }
+      topics.add(request.getTopicId());
+      batches.add(batch);
+      return null;
+    }
+
+    @Override
+    public void createTopic(TopicMetadata topicMetadata) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateTopic(TopicMetadata topicMetadata) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteTopic(TopicId topicId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TopicMetadata getTopic(TopicId topicId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<TopicId> listTopics(NamespaceId namespaceId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public MessageFetcher prepareFetch(TopicId topicId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void storePayload(StoreRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void rollback(TopicId topicId, RollbackDetail rollbackDetail) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
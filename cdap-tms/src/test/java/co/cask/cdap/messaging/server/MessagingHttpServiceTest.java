@@ -29,6 +29,7 @@ import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
 import co.cask.cdap.messaging.MessagingService;
 import co.cask.cdap.messaging.RollbackDetail;
 import co.cask.cdap.messaging.TopicMetadata;
+import co.cask.cdap.messaging.TopicPartitions;
 import co.cask.cdap.messaging.client.ClientMessagingService;
 import co.cask.cdap.messaging.client.StoreRequestBuilder;
 import co.cask.cdap.messaging.data.MessageId;
@@ -36,6 +37,7 @@ import co.cask.cdap.messaging.data.RawMessage;
 import co.cask.cdap.messaging.guice.MessagingServerRuntimeModule;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.TopicId;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
 import com.google.common.collect.Iterators;
 import com.google.inject.AbstractModule;
@@ -57,6 +59,11 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests for {@link MessagingHttpService}.
@@ -437,6 +444,147 @@ public class MessagingHttpServiceTest {
     client.deleteTopic(topicId);
   }
 
+  @Test
+  public void testPartitionedTopic() throws Exception {
+    NamespaceId nsId = new NamespaceId("ns1");
+    TopicId topicId = nsId.topic("testPartitionedTopic");
+    client.createTopic(new TopicMetadata(topicId, TopicMetadata.PARTITIONS_KEY, 3));
+    Assert.assertEquals(3, client.getTopic(topicId).getPartitions());
+
+    // Only the partitioned topic is listed
+    List<TopicId> topics = client.listTopics(nsId);
+    Assert.assertTrue(topics.contains(topicId));
+    for (int i = 1; i < 3; i++) {
+      Assert.assertTrue(client.getTopic(TopicPartitions.getPartitionTopic(topicId, i)).exists());
+      Assert.assertFalse(topics.contains(TopicPartitions.getPartitionTopic(topicId, i)));
+    }
+
+    // Topics named like a partition are listed if they are not a partition of the topic
+    TopicId plainTopicId = nsId.topic("testPlainTopic");
+    List<TopicId> lookAlikeTopics = Arrays.asList(TopicPartitions.getPartitionTopic(topicId, 3),
+                                                   TopicPartitions.getPartitionTopic(plainTopicId, 1));
+    client.createTopic(new TopicMetadata(plainTopicId));
+    for (TopicId lookAlikeTopic : lookAlikeTopics) {
+      client.createTopic(new TopicMetadata(lookAlikeTopic));
+    }
+    topics = client.listTopics(nsId);
+    Assert.assertTrue(topics.containsAll(lookAlikeTopics));
+    Assert.assertTrue(topics.contains(plainTopicId));
+    client.deleteTopic(plainTopicId);
+    for (TopicId lookAlikeTopic : lookAlikeTopics) {
+      client.deleteTopic(lookAlikeTopic);
+    }
+
+    // Publish messages with different partition keys
+    for (int i = 0; i < 10; i++) {
+      byte[] key = Bytes.toBytes("key" + i);
+      client.publish(StoreRequestBuilder.of(topicId).setPartitionKey(key).addPayloads("m" + i + "-1").build());
+      client.publish(StoreRequestBuilder.of(topicId).setPartitionKey(key).addPayloads("m" + i + "-2").build());
+    }
+
+    // Each partition should have the messages of the keys that map to it, in publish order
+    int total = 0;
+    for (int partition = 0; partition < 3; partition++) {
+      List<String> expected = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        if (TopicPartitions.getPartition(Bytes.toBytes("key" + i), 3) == partition) {
+          expected.add("m" + i + "-1");
+          expected.add("m" + i + "-2");
+        }
+      }
+      List<String> actual = new ArrayList<>();
+      TopicId partitionTopic = TopicPartitions.getPartitionTopic(topicId, partition);
+      try (CloseableIterator<RawMessage> iterator = client.prepareFetch(partitionTopic).fetch()) {
+        while (iterator.hasNext()) {
+          actual.add(Bytes.toString(iterator.next().getPayload()));
+        }
+      }
+      Assert.assertEquals(expected, actual);
+      total += actual.size();
+    }
+    Assert.assertEquals(20, total);
+
+    // Partition key is not supported for transactional publish
+    try {
+      client.publish(StoreRequestBuilder.of(topicId).setPartitionKey(Bytes.toBytes("key"))
+                       .setTransaction(1L).addPayloads("tx").build());
+      Assert.fail("Expected failure for transactional publish with partition key");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    // The number of partitions cannot be changed
+    try {
+      client.updateTopic(new TopicMetadata(topicId, TopicMetadata.PARTITIONS_KEY, 4));
+      Assert.fail("Expected failure for changing the number of partitions");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    // Update the ttl should apply to all partitions
+    client.updateTopic(new TopicMetadata(topicId, TopicMetadata.TTL_KEY, 100));
+    Assert.assertEquals(3, client.getTopic(topicId).getPartitions());
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(100, client.getTopic(TopicPartitions.getPartitionTopic(topicId, i)).getTTL());
+    }
+
+    // Deleting the topic deletes all partitions
+    client.deleteTopic(topicId);
+    for (int i = 0; i < 3; i++) {
+      try {
+        client.getTopic(TopicPartitions.getPartitionTopic(topicId, i));
+        Assert.fail("Expected partition topic to be deleted");
+      } catch (TopicNotFoundException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testWaitingPoll() throws Exception {
+    final TopicId topicId = new NamespaceId("ns1").topic("testWaitingPoll");
+    client.createTopic(new TopicMetadata(topicId));
+
+    // Poll with wait on an empty topic should return no message after the wait time
+    Stopwatch stopwatch = new Stopwatch().start();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).setMaxWaitTime(500L).fetch()) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+    Assert.assertTrue(stopwatch.elapsedMillis() >= 500L);
+
+    // Poll with a long wait and publish a message while it is waiting. The poll should return with the message.
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<List<String>> future = executor.submit(new Callable<List<String>>() {
+        @Override
+        public List<String> call() throws Exception {
+          List<String> payloads = new ArrayList<>();
+          try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).setMaxWaitTime(60000L).fetch()) {
+            while (iterator.hasNext()) {
+              payloads.add(Bytes.toString(iterator.next().getPayload()));
+            }
+          }
+          return payloads;
+        }
+      });
+
+      TimeUnit.MILLISECONDS.sleep(200);
+      client.publish(StoreRequestBuilder.of(topicId).addPayloads("m1").build());
+      // The poll should return well before the wait time
+      Assert.assertEquals(Arrays.asList("m1"), future.get(30, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Poll with wait should return immediately if there are messages
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).setMaxWaitTime(60000L).fetch()) {
+      Assert.assertEquals("m1", Bytes.toString(iterator.next().getPayload()));
+      Assert.assertFalse(iterator.hasNext());
+    }
+
+    client.deleteTopic(topicId);
+  }
+
   @Test
   public void testPayloadTable() throws Exception {
     // This test is to verify storing transaction messages to the payload table
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.messaging.store.leveldb;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.messaging.store.DataCleanupTest;
@@ -23,11 +24,19 @@ import co.cask.cdap.messaging.store.MessageTable;
 import co.cask.cdap.messaging.store.MetadataTable;
 import co.cask.cdap.messaging.store.PayloadTable;
 import co.cask.cdap.messaging.store.TableFactory;
+import com.google.common.util.concurrent.RateLimiter;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.WriteOptions;
+import org.iq80.leveldb.impl.Iq80DBFactory;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
+import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -48,6 +57,39 @@ public class LevelDBTTLCleanupTest extends DataCleanupTest {
     tableFactory = new LevelDBTableFactory(cConf);
   }
 
+  @Test
+  public void testRowDeleter() throws Exception {
+    DB levelDB = Iq80DBFactory.factory.open(tmpFolder.newFolder(), new Options().createIfMissing(true));
+    try {
+      for (int i = 0; i < 25; i++) {
+        levelDB.put(Bytes.toBytes(i), Bytes.toBytes("value" + i));
+      }
+
+      // Delete all rows with a batch size smaller than the number of rows
+      RowDeleter deleter = new RowDeleter(levelDB, new WriteOptions(), RateLimiter.create(1000), 10);
+      long bytes = 0L;
+      try (DBScanIterator iterator = new DBScanIterator(levelDB, null, null)) {
+        while (iterator.hasNext()) {
+          Map.Entry<byte[], byte[]> row = iterator.next();
+          bytes += row.getKey().length + row.getValue().length;
+          deleter.delete(row);
+        }
+      }
+      // Deletes are written in full batches, with the rest written on flush
+      Assert.assertNotNull(levelDB.get(Bytes.toBytes(24)));
+      Assert.assertNull(levelDB.get(Bytes.toBytes(19)));
+      deleter.flush();
+
+      try (DBScanIterator iterator = new DBScanIterator(levelDB, null, null)) {
+        Assert.assertFalse(iterator.hasNext());
+      }
+      Assert.assertEquals(25L, deleter.getRowsDeleted());
+      Assert.assertEquals(bytes, deleter.getBytesDeleted());
+    } finally {
+      levelDB.close();
+    }
+  }
+
   @Override
   protected void forceFlushAndCompact(Table table) throws Exception {
     // since we have a periodic thread doing the clean up, we don't/can't do much here.
@@ -56,6 +56,12 @@ public interface MetricStore {
    */
   void deleteBefore(long timestamp) throws Exception;
 
+  /**
+   * Deletes the metric data that is older than the retention period of its resolution. Used for applying TTL
+   * policy if it is not supported by the underlying storage.
+   */
+  void deleteTTLExpired() throws Exception;
+
   /**
    * Deletes all metric data specified by the {@link MetricDeleteQuery}
    * @param query specifies what to delete
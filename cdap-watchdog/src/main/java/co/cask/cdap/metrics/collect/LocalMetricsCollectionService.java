@@ -19,6 +19,8 @@ import co.cask.cdap.api.metrics.MetricStore;
 import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.metrics.store.MetricDatasetFactory;
+import co.cask.cdap.metrics.store.MetricsRollupService;
 import co.cask.cdap.proto.Id;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
@@ -30,10 +32,12 @@ import java.util.Iterator;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * A {@link co.cask.cdap.api.metrics.MetricsCollectionService} that writes to MetricsTable directly.
- * It also has a scheduling job that clean up old metrics periodically.
+ * It also has a scheduling job that clean up old metrics periodically, and rolls up the metrics to the coarser
+ * resolutions if rollup is enabled.
  */
 @Singleton
 public final class LocalMetricsCollectionService extends AggregatedMetricsCollectionService {
@@ -44,7 +48,10 @@ public final class LocalMetricsCollectionService extends AggregatedMetricsCollec
 
   private final CConfiguration cConf;
   private final MetricStore metricStore;
+  @Nullable
+  private MetricDatasetFactory metricDatasetFactory;
   private ScheduledExecutorService scheduler;
+  private MetricsRollupService rollupService;
 
   @Inject
   public LocalMetricsCollectionService(CConfiguration cConf, MetricStore metricStore) {
@@ -53,6 +60,14 @@ public final class LocalMetricsCollectionService extends AggregatedMetricsCollec
     metricStore.setMetricsContext(this.getContext(METRICS_PROCESSOR_CONTEXT));
   }
 
+  /**
+   * Sets the {@link MetricDatasetFactory} for rolling up the metrics, if it is available.
+   */
+  @Inject(optional = true)
+  void setMetricDatasetFactory(MetricDatasetFactory metricDatasetFactory) {
+    this.metricDatasetFactory = metricDatasetFactory;
+  }
+
   @Override
   protected void publish(Iterator<MetricValues> metrics) throws Exception {
     while (metrics.hasNext()) {
@@ -66,15 +81,21 @@ public final class LocalMetricsCollectionService extends AggregatedMetricsCollec
     super.startUp();
     // It will only do cleanup if the underlying table doesn't supports TTL.
     scheduler = Executors.newSingleThreadScheduledExecutor(Threads.createDaemonThreadFactory("metrics-cleanup"));
-    long retentionSecs = cConf.getLong(Constants.Metrics.RETENTION_SECONDS + ".1.seconds",
-                                       TimeUnit.HOURS.toSeconds(Constants.Metrics.DEFAULT_RETENTION_HOURS));
 
     // Try right away if there's anything to cleanup, then we'll schedule to do that periodically
-    scheduler.schedule(createCleanupTask(retentionSecs), 1, TimeUnit.SECONDS);
+    scheduler.schedule(createCleanupTask(), 1, TimeUnit.SECONDS);
+
+    if (cConf.getBoolean(Constants.Metrics.ROLLUP_ENABLED) && metricDatasetFactory != null) {
+      rollupService = new MetricsRollupService(cConf, metricDatasetFactory);
+      rollupService.startAndWait();
+    }
   }
 
   @Override
   protected void shutDown() throws Exception {
+    if (rollupService != null) {
+      rollupService.stopAndWait();
+    }
     if (scheduler != null) {
       scheduler.shutdownNow();
     }
@@ -83,18 +104,15 @@ public final class LocalMetricsCollectionService extends AggregatedMetricsCollec
 
   /**
    * Creates a task for cleanup.
-   * @param retention Retention in seconds.
    */
-  private Runnable createCleanupTask(final long retention) {
+  private Runnable createCleanupTask() {
     return new Runnable() {
       @Override
       public void run() {
         // We perform CleanUp only in LocalMetricsCollectionService , where TTL is NOT supported
         // by underlying data store.
-        long currentTime = TimeUnit.SECONDS.convert(System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-        long deleteBefore = currentTime - retention;
         try {
-          metricStore.deleteBefore(deleteBefore);
+          metricStore.deleteTTLExpired();
         } catch (Exception e) {
           throw Throwables.propagate(e);
         }
@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.query;
+
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import co.cask.cdap.api.metrics.MetricDataQuery;
+import co.cask.cdap.api.metrics.MetricTimeSeries;
+import co.cask.cdap.proto.MetricQueryResult;
+import co.cask.http.BodyProducer;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * BodyProducer that streams the results of metrics queries in the JSON format of {@link MetricQueryResult}, or of
+ * a map from query name to {@link MetricQueryResult} for a batch of queries. The queries are executed one at a
+ * time when the previous query is written, and each chunk is filled with time values of the series until it
+ * reaches the chunk size. Since the HTTP server only asks for the next chunk once the previous one is written to
+ * the channel, a slow client holds back the serialization rather than having the response buffered in memory.
+ */
+final class MetricQueryResultProducer extends BodyProducer {
+  private static final Logger LOG = LoggerFactory.getLogger(MetricQueryResultProducer.class);
+  private static final Gson GSON = new Gson();
+  private static final Type GROUPING_TYPE = new TypeToken<Map<String, String>>() { }.getType();
+
+  private final MetricsQueryHelper queryHelper;
+  private final Iterator<Map.Entry<String, MetricDataQuery>> queries;
+  private final boolean batch;
+  private final int chunkBytes;
+  private final ChannelBuffer channelBuffer;
+  private final JsonWriter jsonWriter;
+
+  private boolean hasStarted = false;
+  private boolean hasFinished = false;
+  // series of the query being written and the time values of the series being written, null if there is none
+  private MetricDataQuery query;
+  private Iterator<MetricTimeSeries> series;
+  private Iterator<TimeValue> timeValues;
+
+  /**
+   * @param queryHelper helper for executing the queries
+   * @param queries queries to execute by name, in the order to write them
+   * @param batch whether to write the results as a map by query name, otherwise only a single query is written
+   * @param chunkBytes number of bytes after which a chunk is returned
+   */
+  MetricQueryResultProducer(MetricsQueryHelper queryHelper, Map<String, MetricDataQuery> queries,
+                            boolean batch, int chunkBytes) {
+    this.queryHelper = queryHelper;
+    this.queries = queries.entrySet().iterator();
+    this.batch = batch;
+    this.chunkBytes = chunkBytes;
+    this.channelBuffer = ChannelBuffers.dynamicBuffer(chunkBytes);
+    this.jsonWriter = new JsonWriter(new OutputStreamWriter(new ChannelBufferOutputStream(channelBuffer),
+                                                            StandardCharsets.UTF_8));
+    // same as the Gson used for non-chunked responses
+    this.jsonWriter.setHtmlSafe(true);
+    this.jsonWriter.setSerializeNulls(false);
+  }
+
+  @Override
+  public ChannelBuffer nextChunk() throws Exception {
+    channelBuffer.clear();
+    if (!hasStarted) {
+      hasStarted = true;
+      if (batch) {
+        jsonWriter.beginObject();
+      }
+    }
+    while (!hasFinished && channelBuffer.readableBytes() < chunkBytes) {
+      writeNext();
+      jsonWriter.flush();
+    }
+    return channelBuffer;
+  }
+
+  @Override
+  public void finished() throws Exception {
+    jsonWriter.close();
+  }
+
+  @Override
+  public void handleError(@Nullable Throwable cause) {
+    LOG.error("Received error while streaming metrics query results.", cause);
+  }
+
+  /**
+   * Writes the next time value, or the start or end of a series, a query or the batch.
+   */
+  private void writeNext() throws Exception {
+    if (timeValues != null) {
+      if (timeValues.hasNext()) {
+        TimeValue timeValue = timeValues.next();
+        jsonWriter.beginObject()
+          .name("time").value(timeValue.getTimestamp())
+          .name("value").value(timeValue.getValue())
+          .endObject();
+      } else {
+        jsonWriter.endArray().endObject();
+        timeValues = null;
+      }
+      return;
+    }
+
+    if (series != null) {
+      if (series.hasNext()) {
+        writeSeriesStart(series.next());
+      } else {
+        jsonWriter.endArray().name("resolution").value(query.getResolution() + "s").endObject();
+        series = null;
+        query = null;
+      }
+      return;
+    }
+
+    if (queries.hasNext()) {
+      Map.Entry<String, MetricDataQuery> entry = queries.next();
+      if (batch) {
+        jsonWriter.name(entry.getKey());
+      }
+      query = entry.getValue();
+      series = queryHelper.querySeries(query).iterator();
+      jsonWriter.beginObject()
+        .name("startTime").value(query.getStartTs())
+        .name("endTime").value(queryHelper.getEndTime(query))
+        .name("series").beginArray();
+      return;
+    }
+
+    if (batch) {
+      jsonWriter.endObject();
+    }
+    hasFinished = true;
+  }
+
+  private void writeSeriesStart(MetricTimeSeries timeSeries) throws IOException {
+    jsonWriter.beginObject().name("metricName").value(timeSeries.getMetricName()).name("grouping");
+    GSON.toJson(queryHelper.tagNamesToHuman(timeSeries.getTagValues()), GROUPING_TYPE, jsonWriter);
+    jsonWriter.name("data").beginArray();
+    timeValues = timeSeries.getTimeValues().iterator();
+  }
+}
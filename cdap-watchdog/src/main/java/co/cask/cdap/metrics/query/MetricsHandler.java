@@ -20,6 +20,8 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.http.AbstractHttpHandler;
 import co.cask.http.HttpResponder;
 import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
@@ -32,6 +34,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Map;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
@@ -43,6 +46,9 @@ import javax.ws.rs.QueryParam;
 public class MetricsHandler extends AbstractHttpHandler {
   private static final Logger LOG = LoggerFactory.getLogger(MetricsHandler.class);
   private static final Gson GSON = new Gson();
+  private static final String PARAM_CHUNKED = "chunked";
+  private static final Multimap<String, String> CHUNKED_RESPONSE_HEADERS =
+    ImmutableMultimap.of(HttpHeaders.Names.CONTENT_TYPE, "application/json");
 
   private final MetricsQueryHelper metricsQueryHelper;
 
@@ -86,21 +92,34 @@ public class MetricsHandler extends AbstractHttpHandler {
   public void query(HttpRequest request, HttpResponder responder,
                     @QueryParam("metric") List<String> metrics,
                     @QueryParam("groupBy") List<String> groupBy,
-                    @QueryParam("tag") List<String> tags) throws Exception {
+                    @QueryParam("tag") List<String> tags,
+                    @QueryParam(PARAM_CHUNKED) @DefaultValue("false") boolean chunked) throws Exception {
     try {
-      if (new QueryStringDecoder(request.getUri()).getParameters().isEmpty()) {
+      Map<String, List<String>> queryParams = new QueryStringDecoder(request.getUri()).getParameters();
+      // the chunked parameter alone still makes a batch request
+      if (queryParams.isEmpty() || (queryParams.size() == 1 && queryParams.containsKey(PARAM_CHUNKED))) {
         if (HttpHeaders.getContentLength(request) > 0) {
           Map<String, MetricsQueryHelper.QueryRequestFormat> queries =
             GSON.fromJson(request.getContent().toString(Charsets.UTF_8),
                           new TypeToken<Map<String, MetricsQueryHelper.QueryRequestFormat>>() { }.getType());
-          responder.sendJson(HttpResponseStatus.OK, metricsQueryHelper.executeBatchQueries(queries));
+          if (chunked) {
+            responder.sendContent(HttpResponseStatus.OK, metricsQueryHelper.createBatchQueryProducer(queries),
+                                  CHUNKED_RESPONSE_HEADERS);
+          } else {
+            responder.sendJson(HttpResponseStatus.OK, metricsQueryHelper.executeBatchQueries(queries));
+          }
           return;
         }
         responder.sendJson(HttpResponseStatus.BAD_REQUEST, "Batch request with empty content");
       }
+      if (chunked) {
+        responder.sendContent(HttpResponseStatus.OK,
+                              metricsQueryHelper.createTagQueryProducer(tags, metrics, groupBy, queryParams),
+                              CHUNKED_RESPONSE_HEADERS);
+        return;
+      }
       responder.sendJson(HttpResponseStatus.OK,
-                         metricsQueryHelper.executeTagQuery(tags, metrics, groupBy,
-                                                            new QueryStringDecoder(request.getUri()).getParameters()));
+                         metricsQueryHelper.executeTagQuery(tags, metrics, groupBy, queryParams));
     } catch (IllegalArgumentException e) {
       LOG.warn("Invalid request", e);
       responder.sendString(HttpResponseStatus.BAD_REQUEST, e.getMessage());
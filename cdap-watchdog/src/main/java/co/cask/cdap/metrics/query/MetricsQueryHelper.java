@@ -25,14 +25,17 @@ import co.cask.cdap.api.metrics.MetricSearchQuery;
 import co.cask.cdap.api.metrics.MetricStore;
 import co.cask.cdap.api.metrics.MetricTimeSeries;
 import co.cask.cdap.api.metrics.TagValue;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.utils.TimeMathParser;
 import co.cask.cdap.proto.MetricQueryRequest;
 import co.cask.cdap.proto.MetricQueryResult;
 import co.cask.cdap.proto.MetricTagValue;
+import co.cask.http.BodyProducer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicates;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -40,12 +43,19 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -72,6 +82,10 @@ public class MetricsQueryHelper {
   private static final String ANY_TAG_VALUE = "*";
 
   private final MetricStore metricStore;
+  private final MetricsResultCache resultCache;
+  private final int responseChunkBytes;
+  // executor for running the queries of a batch in parallel, null if they run sequentially
+  private final ExecutorService batchQueryExecutor;
 
   private static final Map<String, String> tagNameToHuman;
   private static final Map<String, String> humanToTagName;
@@ -116,8 +130,29 @@ public class MetricsQueryHelper {
   }
 
   @Inject
-  public MetricsQueryHelper(MetricStore metricStore) {
+  public MetricsQueryHelper(MetricStore metricStore, CConfiguration cConf) {
     this.metricStore = metricStore;
+    long cacheGraceSecs = cConf.getLong(Constants.Metrics.QUERY_RESULT_CACHE_GRACE_SECS);
+    if (cConf.getBoolean(Constants.Metrics.ROLLUP_ENABLED)) {
+      // the coarser resolutions are only final once they are rolled up
+      cacheGraceSecs = Math.max(cacheGraceSecs, cConf.getLong(Constants.Metrics.ROLLUP_DELAY_SECS)
+        + 2 * cConf.getLong(Constants.Metrics.ROLLUP_INTERVAL_SECS));
+    }
+    this.resultCache = new MetricsResultCache(metricStore,
+                                              cConf.getInt(Constants.Metrics.QUERY_RESULT_CACHE_SIZE),
+                                              cConf.getLong(Constants.Metrics.QUERY_RESULT_CACHE_EXPIRY_SECS),
+                                              cacheGraceSecs);
+    this.responseChunkBytes = cConf.getInt(Constants.Metrics.QUERY_RESPONSE_CHUNK_BYTES);
+    int batchThreads = cConf.getInt(Constants.Metrics.QUERY_BATCH_THREADS);
+    if (batchThreads > 0) {
+      // when all threads are busy, the query runs in the thread that executes the batch
+      this.batchQueryExecutor = new ThreadPoolExecutor(0, batchThreads, 60L, TimeUnit.SECONDS,
+                                                       new SynchronousQueue<Runnable>(),
+                                                       Threads.createDaemonThreadFactory("metrics-batch-query-%d"),
+                                                       new ThreadPoolExecutor.CallerRunsPolicy());
+    } else {
+      this.batchQueryExecutor = null;
+    }
   }
 
   public List<MetricTagValue> searchTags(List<String> tags) throws Exception {
@@ -135,9 +170,44 @@ public class MetricsQueryHelper {
   public Map<String, MetricQueryResult> executeBatchQueries(Map<String, QueryRequestFormat> queries) throws Exception {
     LOG.trace("Received Queries {}", queries);
     Map<String, MetricQueryResult> queryFinalResponse = Maps.newHashMap();
+    if (batchQueryExecutor == null || queries.size() <= 1) {
+      for (Map.Entry<String, QueryRequestFormat> query : queries.entrySet()) {
+        MetricQueryRequest queryRequest = getQueryRequestFromFormat(query.getValue());
+        queryFinalResponse.put(query.getKey(), executeQuery(queryRequest));
+      }
+      return queryFinalResponse;
+    }
+
+    // parse all requests first, so that an invalid request fails the batch before any query is executed
+    Map<String, MetricQueryRequest> queryRequests = Maps.newHashMap();
     for (Map.Entry<String, QueryRequestFormat> query : queries.entrySet()) {
-      MetricQueryRequest queryRequest = getQueryRequestFromFormat(query.getValue());
-      queryFinalResponse.put(query.getKey(), executeQuery(queryRequest));
+      queryRequests.put(query.getKey(), getQueryRequestFromFormat(query.getValue()));
+    }
+
+    Map<String, Future<MetricQueryResult>> futures = Maps.newHashMap();
+    try {
+      for (Map.Entry<String, MetricQueryRequest> queryRequest : queryRequests.entrySet()) {
+        final MetricQueryRequest request = queryRequest.getValue();
+        futures.put(queryRequest.getKey(), batchQueryExecutor.submit(new Callable<MetricQueryResult>() {
+          @Override
+          public MetricQueryResult call() throws Exception {
+            return executeQuery(request);
+          }
+        }));
+      }
+      for (Map.Entry<String, Future<MetricQueryResult>> future : futures.entrySet()) {
+        try {
+          queryFinalResponse.put(future.getKey(), future.getValue().get());
+        } catch (ExecutionException e) {
+          Throwables.propagateIfPossible(e.getCause(), Exception.class);
+          throw Throwables.propagate(e.getCause());
+        }
+      }
+    } finally {
+      // cancel the remaining queries if one of them failed
+      for (Future<MetricQueryResult> future : futures.values()) {
+        future.cancel(true);
+      }
     }
     return queryFinalResponse;
   }
@@ -149,6 +219,32 @@ public class MetricsQueryHelper {
     return executeQuery(queryRequest);
   }
 
+  /**
+   * Creates a {@link BodyProducer} that streams the results of a batch of queries in the same format as
+   * {@link #executeBatchQueries(Map)}. The queries are validated here, but only executed one at a time as the
+   * response is written, so that only the series of a single query are held in memory.
+   */
+  public BodyProducer createBatchQueryProducer(Map<String, QueryRequestFormat> queries) {
+    LOG.trace("Received Queries {}", queries);
+    Map<String, MetricDataQuery> dataQueries = Maps.newLinkedHashMap();
+    for (Map.Entry<String, QueryRequestFormat> query : queries.entrySet()) {
+      dataQueries.put(query.getKey(), toMetricDataQuery(getQueryRequestFromFormat(query.getValue())));
+    }
+    return new MetricQueryResultProducer(this, dataQueries, true, responseChunkBytes);
+  }
+
+  /**
+   * Creates a {@link BodyProducer} that streams the result of a query in the same format as
+   * {@link #executeTagQuery(List, List, List, Map)}.
+   */
+  public BodyProducer createTagQueryProducer(List<String> tags, List<String> metrics, List<String> groupByTags,
+                                             Map<String, List<String>> queryTimeParams) {
+    MetricQueryRequest queryRequest = new MetricQueryRequest(parseTagValuesAsMap(tags), metrics, groupByTags);
+    setTimeRangeInQueryRequest(queryRequest, queryTimeParams);
+    return new MetricQueryResultProducer(this, ImmutableMap.of("", toMetricDataQuery(queryRequest)),
+                                         false, responseChunkBytes);
+  }
+
   @VisibleForTesting
   public MetricStore getMetricStore() {
     return metricStore;
@@ -304,6 +400,11 @@ public class MetricsQueryHelper {
   }
 
   private MetricQueryResult executeQuery(MetricQueryRequest queryRequest) throws Exception {
+    MetricDataQuery query = toMetricDataQuery(queryRequest);
+    return decorate(querySeries(query), query.getStartTs(), getEndTime(query), query.getResolution());
+  }
+
+  private MetricDataQuery toMetricDataQuery(MetricQueryRequest queryRequest) {
     if (queryRequest.getMetrics().size() == 0) {
       throw new IllegalArgumentException("Missing metrics parameter in the query");
     }
@@ -312,20 +413,26 @@ public class MetricsQueryHelper {
 
     MetricQueryRequest.TimeRange timeRange = queryRequest.getTimeRange();
 
-    MetricDataQuery query = new MetricDataQuery(timeRange.getStart(), timeRange.getEnd(),
-                                                timeRange.getResolutionInSeconds(),
-                                                timeRange.getCount(), toMetrics(queryRequest.getMetrics()),
-                                                tagsSliceBy, transformGroupByTags(queryRequest.getGroupBy()),
-                                                timeRange.getInterpolate());
-    Collection<MetricTimeSeries> queryResult = metricStore.query(query);
+    return new MetricDataQuery(timeRange.getStart(), timeRange.getEnd(),
+                               timeRange.getResolutionInSeconds(),
+                               timeRange.getCount(), toMetrics(queryRequest.getMetrics()),
+                               tagsSliceBy, transformGroupByTags(queryRequest.getGroupBy()),
+                               timeRange.getInterpolate());
+  }
+
+  Collection<MetricTimeSeries> querySeries(MetricDataQuery query) throws Exception {
+    return resultCache.query(query);
+  }
 
-    long endTime = timeRange.getEnd();
-    if (timeRange.getResolutionInSeconds() == Integer.MAX_VALUE && endTime == 0) {
+  /**
+   * Returns the end time to report in the result of the given query.
+   */
+  long getEndTime(MetricDataQuery query) {
+    if (query.getResolution() == Integer.MAX_VALUE && query.getEndTs() == 0) {
       // for aggregate query, we set the end time to be query time (current time)
-      endTime = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+      return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
     }
-
-    return decorate(queryResult, timeRange.getStart(), endTime, timeRange.getResolutionInSeconds());
+    return query.getEndTs();
   }
 
   private Map<String, String> transformTagMap(Map<String, String> tags) {
@@ -400,7 +507,7 @@ public class MetricsQueryHelper {
     return timeValues;
   }
 
-  private Map<String, String> tagNamesToHuman(Map<String, String> tagValues) {
+  Map<String, String> tagNamesToHuman(Map<String, String> tagValues) {
     Map<String, String> humanTagValues = Maps.newHashMap();
     for (Map.Entry<String, String> tag : tagValues.entrySet()) {
       humanTagValues.put(tagNameToHuman.get(tag.getKey()), tag.getValue());
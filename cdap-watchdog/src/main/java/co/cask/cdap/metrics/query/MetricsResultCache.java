@@ -0,0 +1,215 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.query;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import co.cask.cdap.api.metrics.MetricDataQuery;
+import co.cask.cdap.api.metrics.MetricStore;
+import co.cask.cdap.api.metrics.MetricTimeSeries;
+import co.cask.cdap.common.utils.ImmutablePair;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the results of time range metric queries for the time buckets that are already closed, that is, buckets
+ * that end before the current time minus a grace period for late metrics. Dashboards repeatedly query the same
+ * metrics over a sliding time window, so with the cache only the buckets after the cached range are scanned
+ * from the {@link MetricStore} on each refresh.
+ *
+ * <p>
+ * Results are cached per metrics, tags, group by tags and resolution. Aggregate queries, interpolated queries
+ * and queries whose limit is smaller than the number of buckets in their time range always go to the store.
+ * </p>
+ */
+final class MetricsResultCache {
+
+  private final MetricStore metricStore;
+  private final long graceSeconds;
+  private final Cache<CacheKey, CachedResult> cache;
+
+  MetricsResultCache(MetricStore metricStore, int maxEntries, long expirySeconds, long graceSeconds) {
+    this.metricStore = metricStore;
+    this.graceSeconds = graceSeconds;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(maxEntries)
+      .expireAfterWrite(expirySeconds, TimeUnit.SECONDS)
+      .build();
+  }
+
+  /**
+   * Executes the given query, using cached values for the closed time buckets.
+   */
+  Collection<MetricTimeSeries> query(MetricDataQuery query) {
+    return query(query, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+  }
+
+  /**
+   * Executes the given query, using cached values for the time buckets that are closed at the given time.
+   *
+   * @param query the query to execute
+   * @param nowInSeconds the current time, in seconds
+   * @return the time series for the query
+   */
+  Collection<MetricTimeSeries> query(MetricDataQuery query, long nowInSeconds) {
+    if (!isCacheable(query)) {
+      return metricStore.query(query);
+    }
+
+    long startTs = query.getStartTs();
+    long endTs = query.getEndTs();
+    int resolution = query.getResolution();
+
+    CacheKey key = new CacheKey(query);
+    CachedResult cached = cache.getIfPresent(key);
+    if (cached != null && (startTs < cached.startTs || startTs > cached.endTs)) {
+      // the cached range doesn't contain the start of the query
+      cached = null;
+    }
+
+    // merge the cached values with the scan of the buckets after the cached range
+    Map<ImmutablePair<String, Map<String, String>>, NavigableMap<Long, Long>> series = Maps.newLinkedHashMap();
+    long scanStartTs = startTs;
+    if (cached != null) {
+      scanStartTs = Math.max(startTs, cached.endTs);
+      for (Map.Entry<ImmutablePair<String, Map<String, String>>, NavigableMap<Long, Long>> entry
+        : cached.series.entrySet()) {
+        NavigableMap<Long, Long> values = entry.getValue().subMap(startTs, true, endTs, true);
+        if (!values.isEmpty()) {
+          series.put(entry.getKey(), new TreeMap<>(values));
+        }
+      }
+    }
+    if (scanStartTs <= endTs) {
+      MetricDataQuery scanQuery = new MetricDataQuery(scanStartTs, endTs, resolution, query.getLimit(),
+                                                      query.getMetrics(), query.getSliceByTags(),
+                                                      query.getGroupByTags(), null);
+      for (MetricTimeSeries timeSeries : metricStore.query(scanQuery)) {
+        ImmutablePair<String, Map<String, String>> seriesKey =
+          ImmutablePair.of(timeSeries.getMetricName(), timeSeries.getTagValues());
+        NavigableMap<Long, Long> values = series.get(seriesKey);
+        if (values == null) {
+          values = new TreeMap<>();
+          series.put(seriesKey, values);
+        }
+        for (TimeValue timeValue : timeSeries.getTimeValues()) {
+          values.put(timeValue.getTimestamp(), timeValue.getValue());
+        }
+      }
+    }
+
+    // a bucket is closed if it ends before the grace period. Only buckets up to the end of the query were read.
+    long closedEndTs = Math.min((nowInSeconds - graceSeconds) / resolution * resolution, endTs + 1);
+    // don't replace a cached result with one that covers less recent buckets
+    if (closedEndTs > startTs && (cached == null || closedEndTs > cached.endTs)) {
+      Map<ImmutablePair<String, Map<String, String>>, NavigableMap<Long, Long>> closedSeries = Maps.newHashMap();
+      for (Map.Entry<ImmutablePair<String, Map<String, String>>, NavigableMap<Long, Long>> entry : series.entrySet()) {
+        NavigableMap<Long, Long> closedValues = entry.getValue().headMap(closedEndTs, false);
+        if (!closedValues.isEmpty()) {
+          closedSeries.put(entry.getKey(), new TreeMap<>(closedValues));
+        }
+      }
+      cache.put(key, new CachedResult(startTs, closedEndTs, closedSeries));
+    }
+
+    List<MetricTimeSeries> result = Lists.newArrayListWithCapacity(series.size());
+    for (Map.Entry<ImmutablePair<String, Map<String, String>>, NavigableMap<Long, Long>> entry : series.entrySet()) {
+      List<TimeValue> timeValues = Lists.newArrayListWithCapacity(entry.getValue().size());
+      for (Map.Entry<Long, Long> value : entry.getValue().entrySet()) {
+        timeValues.add(new TimeValue(value.getKey(), value.getValue()));
+      }
+      result.add(new MetricTimeSeries(entry.getKey().getFirst(), entry.getKey().getSecond(), timeValues));
+    }
+    return result;
+  }
+
+  private boolean isCacheable(MetricDataQuery query) {
+    int resolution = query.getResolution();
+    if (resolution == Integer.MAX_VALUE || query.getInterpolator() != null || query.getEndTs() < query.getStartTs()) {
+      return false;
+    }
+    // the limit must not cut off any bucket, otherwise the scanned values are not the complete closed range
+    long buckets = query.getEndTs() / resolution - query.getStartTs() / resolution + 1;
+    return query.getLimit() >= buckets;
+  }
+
+  /**
+   * Key of the cached results, which is the query without its time range.
+   */
+  private static final class CacheKey {
+    private final Map<String, AggregationFunction> metrics;
+    private final Map<String, String> sliceByTags;
+    private final List<String> groupByTags;
+    private final int resolution;
+
+    CacheKey(MetricDataQuery query) {
+      this.metrics = new HashMap<>(query.getMetrics());
+      this.sliceByTags = new HashMap<>(query.getSliceByTags());
+      this.groupByTags = ImmutableList.copyOf(query.getGroupByTags());
+      this.resolution = query.getResolution();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      CacheKey other = (CacheKey) o;
+      return resolution == other.resolution
+        && metrics.equals(other.metrics)
+        && sliceByTags.equals(other.sliceByTags)
+        && groupByTags.equals(other.groupByTags);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(metrics, sliceByTags, groupByTags, resolution);
+    }
+  }
+
+  /**
+   * Values of the closed buckets in the time range {@code [startTs, endTs)} for each metric and tag values.
+   */
+  private static final class CachedResult {
+    private final long startTs;
+    private final long endTs;
+    private final Map<ImmutablePair<String, Map<String, String>>, NavigableMap<Long, Long>> series;
+
+    CachedResult(long startTs, long endTs,
+                 Map<ImmutablePair<String, Map<String, String>>, NavigableMap<Long, Long>> series) {
+      this.startTs = startTs;
+      this.endTs = endTs;
+      this.series = Collections.unmodifiableMap(series);
+    }
+  }
+}
@@ -39,10 +39,15 @@ import com.google.common.base.Throwables;
 import com.google.gson.Gson;
 import com.google.inject.Inject;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -55,17 +60,42 @@ public class DefaultMetricDatasetFactory implements MetricDatasetFactory {
   private final CConfiguration cConf;
   private final Supplier<EntityTable> entityTable;
   private final DatasetFramework dsFramework;
+  private final int scanParallelism;
+  // shared by all fact tables for scanning table splits concurrently
+  private final Supplier<ExecutorService> scanExecutor;
 
   @Inject
   public DefaultMetricDatasetFactory(final CConfiguration cConf, DatasetFramework dsFramework) {
     this.cConf = cConf;
     this.dsFramework = dsFramework;
+    this.scanParallelism = cConf.getInt(Constants.Metrics.QUERY_SCAN_PARALLELISM);
+    this.scanExecutor = Suppliers.memoize(new Supplier<ExecutorService>() {
+      @Override
+      public ExecutorService get() {
+        // the scan tasks never block, so they can run in the querying thread when all threads are busy
+        return new ThreadPoolExecutor(0, cConf.getInt(Constants.Metrics.QUERY_SCAN_THREADS),
+                                      60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                                      Threads.createDaemonThreadFactory("metrics-scan-%d"),
+                                      new ThreadPoolExecutor.CallerRunsPolicy());
+      }
+    });
     this.entityTable = Suppliers.memoize(new Supplier<EntityTable>() {
       @Override
       public EntityTable get() {
         String tableName = cConf.get(Constants.Metrics.ENTITY_TABLE_NAME,
                                      Constants.Metrics.DEFAULT_ENTITY_TABLE_NAME);
-        return new EntityTable(getOrCreateMetricsTable(tableName, DatasetProperties.EMPTY));
+        EntityTable table = new EntityTable(getOrCreateMetricsTable(tableName, DatasetProperties.EMPTY),
+                                            cConf.getInt(Constants.Metrics.ENTITY_CACHE_SIZE),
+                                            cConf.getInt(Constants.Metrics.ENTITY_ID_BATCH_SIZE));
+        if (cConf.getBoolean(Constants.Metrics.ENTITY_CACHE_PRELOAD)) {
+          try {
+            table.preload();
+          } catch (Exception e) {
+            // the mappings are loaded on demand anyway
+            LOG.warn("Failed to preload the entity table {}", tableName, e);
+          }
+        }
+        return table;
       }
     });
   }
@@ -90,7 +120,11 @@ public class DefaultMetricDatasetFactory implements MetricDatasetFactory {
 
     MetricsTable table = getOrCreateMetricsTable(tableName, props.build());
     LOG.debug("FactTable created: {}", tableName);
-    return new FactTable(table, entityTable.get(), resolution, getRollTime(resolution));
+    FactTable factTable = new FactTable(table, entityTable.get(), resolution, getRollTime(resolution));
+    if (scanParallelism > 1) {
+      factTable.setScanExecutor(scanExecutor.get(), scanParallelism);
+    }
+    return factTable;
   }
 
   @Override
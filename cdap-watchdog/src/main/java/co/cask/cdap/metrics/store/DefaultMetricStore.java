@@ -16,7 +16,6 @@
 
 package co.cask.cdap.metrics.store;
 
-import co.cask.cdap.api.dataset.lib.cube.Cube;
 import co.cask.cdap.api.dataset.lib.cube.CubeDeleteQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeExploreQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeFact;
@@ -35,6 +34,7 @@ import co.cask.cdap.api.metrics.MetricValue;
 import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.api.metrics.TagValue;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.data2.dataset2.lib.cube.Aggregation;
 import co.cask.cdap.data2.dataset2.lib.cube.AggregationAlias;
@@ -43,6 +43,7 @@ import co.cask.cdap.data2.dataset2.lib.cube.DefaultCube;
 import co.cask.cdap.data2.dataset2.lib.cube.FactTableSupplier;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
@@ -57,6 +58,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
@@ -65,6 +67,9 @@ import javax.annotation.Nullable;
 public class DefaultMetricStore implements MetricStore {
   public static final int TOTALS_RESOLUTION = Integer.MAX_VALUE;
   static final Map<String, Aggregation> AGGREGATIONS;
+  // resolutions that are rolled up from another resolution if rollup is enabled, finest first, mapped to the
+  // resolution they are rolled up from
+  static final Map<Integer, Integer> ROLLUP_SOURCE_RESOLUTIONS = ImmutableMap.of(60, 1, 3600, 60);
 
   private static final String BY_NAMESPACE = "namespace";
   private static final String BY_APP = "app";
@@ -84,7 +89,9 @@ public class DefaultMetricStore implements MetricStore {
                                                          Constants.Metrics.Tag.WORKFLOW_RUN_ID)));
 
   private final int resolutions[];
-  private final Supplier<Cube> cube;
+  private final Supplier<DefaultCube> cube;
+  // retention in seconds of each resolution which has one
+  private final Map<Integer, Long> retentionSecs;
   private MetricsContext metricsContext;
 
 
@@ -197,14 +204,23 @@ public class DefaultMetricStore implements MetricStore {
   }
 
   @Inject
-  public DefaultMetricStore(final MetricDatasetFactory dsFactory) {
+  public DefaultMetricStore(MetricDatasetFactory dsFactory, CConfiguration cConf) {
     // 1 sec, 1 min, 1 hour and "all time totals"
-    this(dsFactory, new int[] {1, 60, 3600, TOTALS_RESOLUTION});
+    this(dsFactory, new int[] {1, 60, 3600, TOTALS_RESOLUTION},
+         cConf.getBoolean(Constants.Metrics.ROLLUP_ENABLED)
+           ? ROLLUP_SOURCE_RESOLUTIONS.keySet() : ImmutableSet.<Integer>of(),
+         getRetentionSecs(cConf, 1, 60, 3600));
   }
 
   // NOTE: should never be used apart from data migration during cdap upgrade
-  public DefaultMetricStore(final MetricDatasetFactory dsFactory, final int resolutions[]) {
+  public DefaultMetricStore(MetricDatasetFactory dsFactory, int resolutions[]) {
+    this(dsFactory, resolutions, ImmutableSet.<Integer>of(), ImmutableMap.<Integer, Long>of());
+  }
+
+  private DefaultMetricStore(final MetricDatasetFactory dsFactory, final int resolutions[],
+                             final Set<Integer> rollupResolutions, Map<Integer, Long> retentionSecs) {
     this.resolutions = resolutions;
+    this.retentionSecs = retentionSecs;
     final FactTableSupplier factTableSupplier = new FactTableSupplier() {
       @Override
       public FactTable get(int resolution, int ignoredRollTime) {
@@ -212,16 +228,28 @@ public class DefaultMetricStore implements MetricStore {
         return dsFactory.getOrCreateFactTable(resolution);
       }
     };
-    this.cube = Suppliers.memoize(new Supplier<Cube>() {
+    this.cube = Suppliers.memoize(new Supplier<DefaultCube>() {
       @Override
-      public Cube get() {
-        DefaultCube cube = new DefaultCube(resolutions, factTableSupplier, AGGREGATIONS, AGGREGATIONS_ALIAS_DIMENSIONS);
+      public DefaultCube get() {
+        DefaultCube cube = new DefaultCube(resolutions, factTableSupplier, AGGREGATIONS, AGGREGATIONS_ALIAS_DIMENSIONS,
+                                           rollupResolutions);
         cube.setMetricsCollector(metricsContext);
         return cube;
       }
     });
   }
 
+  private static Map<Integer, Long> getRetentionSecs(CConfiguration cConf, int... resolutions) {
+    Map<Integer, Long> retentionSecs = Maps.newHashMap();
+    for (int resolution : resolutions) {
+      long retention = cConf.getLong(Constants.Metrics.RETENTION_SECONDS + "." + resolution + ".seconds", -1);
+      if (retention > 0) {
+        retentionSecs.put(resolution, retention);
+      }
+    }
+    return retentionSecs;
+  }
+
   @Override
   public void setMetricsContext(MetricsContext metricsContext) {
     this.metricsContext = metricsContext;
@@ -302,6 +330,24 @@ public class DefaultMetricStore implements MetricStore {
     }
   }
 
+  @Override
+  public void deleteTTLExpired() throws Exception {
+    long currentTime = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    for (Map.Entry<Integer, Long> entry : retentionSecs.entrySet()) {
+      cube.get().deleteBefore(entry.getKey(), currentTime - entry.getValue());
+    }
+  }
+
+  /**
+   * Rolls up the metrics of an aggregation in the time range [startTs, endTs) to a resolution from the resolution
+   * given in {@link #ROLLUP_SOURCE_RESOLUTIONS}.
+   */
+  void rollup(String aggregation, int resolution, long startTs, long endTs) {
+    Integer sourceResolution = ROLLUP_SOURCE_RESOLUTIONS.get(resolution);
+    Preconditions.checkArgument(sourceResolution != null, "Resolution %s is not rolled up", resolution);
+    cube.get().rollup(aggregation, sourceResolution, resolution, startTs, endTs);
+  }
+
   @Override
   public void delete(MetricDeleteQuery query) throws Exception {
     cube.get().delete(buildCubeDeleteQuery(query));
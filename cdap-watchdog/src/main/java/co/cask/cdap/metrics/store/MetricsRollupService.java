@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.store;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.metrics.process.MetricsConsumerMetaTable;
+import co.cask.cdap.metrics.process.MetricsMetaKey;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.inject.Inject;
+import org.apache.twill.common.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically rolls up the metrics written at the finest resolution to the coarser resolutions, if
+ * {@link Constants.Metrics#ROLLUP_ENABLED rollup} is enabled.
+ *
+ * <p>
+ * Each aggregation is rolled up separately, one resolution after the other, and the progress is checkpointed in
+ * the metrics meta table. A time bucket is only rolled up after it has been closed for the rollup delay, and a
+ * coarser resolution only up to the buckets that are rolled up for the resolution it is rolled up from. Rolling up
+ * overwrites the values of the target buckets, so running it more than once for the same buckets is harmless.
+ * </p>
+ */
+public class MetricsRollupService extends AbstractScheduledService {
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsRollupService.class);
+  // maximum number of time buckets to roll up at once, which bounds the memory needed for a rollup
+  private static final int MAX_ROLLUP_BUCKETS = 60;
+  // time when the rollup first ran, which is when rollup was enabled
+  private static final RollupMetaKey ENABLED_TS_KEY = new RollupMetaKey("enabled.ts");
+
+  private final CConfiguration cConf;
+  private final MetricDatasetFactory dsFactory;
+  private final long delaySecs;
+  private final long intervalSecs;
+  private final long initialLookbackSecs;
+  private DefaultMetricStore metricStore;
+  private MetricsConsumerMetaTable metaTable;
+  private long enabledTs = -1L;
+  private ScheduledExecutorService executor;
+
+  @Inject
+  public MetricsRollupService(CConfiguration cConf, MetricDatasetFactory dsFactory) {
+    this.cConf = cConf;
+    this.dsFactory = dsFactory;
+    this.delaySecs = cConf.getLong(Constants.Metrics.ROLLUP_DELAY_SECS);
+    this.intervalSecs = cConf.getLong(Constants.Metrics.ROLLUP_INTERVAL_SECS);
+    this.initialLookbackSecs = cConf.getLong(Constants.Metrics.ROLLUP_INITIAL_LOOKBACK_SECS);
+  }
+
+  @Override
+  protected void startUp() throws Exception {
+    metricStore = new DefaultMetricStore(dsFactory, cConf);
+    LOG.info("Started metrics rollup with delay of {} seconds and interval of {} seconds", delaySecs, intervalSecs);
+  }
+
+  @Override
+  protected void shutDown() throws Exception {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Override
+  protected void runOneIteration() throws Exception {
+    try {
+      rollup(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+    } catch (Exception e) {
+      // the rollup continues from the last checkpoint in the next iteration
+      LOG.warn("Failed to roll up metrics, will retry in {} seconds", intervalSecs, e);
+    }
+  }
+
+  @Override
+  protected Scheduler scheduler() {
+    return Scheduler.newFixedDelaySchedule(intervalSecs, intervalSecs, TimeUnit.SECONDS);
+  }
+
+  @Override
+  protected final ScheduledExecutorService executor() {
+    executor = Executors.newSingleThreadScheduledExecutor(Threads.createDaemonThreadFactory("metrics-rollup"));
+    return executor;
+  }
+
+  /**
+   * Rolls up the time buckets of all aggregations that are closed at the given time.
+   *
+   * @param currentTimeSecs current time, in seconds
+   */
+  @VisibleForTesting
+  void rollup(long currentTimeSecs) throws Exception {
+    if (metaTable == null) {
+      metaTable = dsFactory.createConsumerMeta();
+    }
+    if (enabledTs < 0) {
+      enabledTs = metaTable.get(ENABLED_TS_KEY);
+      if (enabledTs < 0) {
+        enabledTs = currentTimeSecs;
+        metaTable.save(ImmutableMap.of(ENABLED_TS_KEY, enabledTs));
+      }
+    }
+    for (String aggregation : DefaultMetricStore.AGGREGATIONS.keySet()) {
+      // buckets before this time are complete in the resolution to roll up from
+      long sourceEndTs = currentTimeSecs - delaySecs;
+      for (int resolution : DefaultMetricStore.ROLLUP_SOURCE_RESOLUTIONS.keySet()) {
+        RollupMetaKey metaKey = new RollupMetaKey(aggregation, resolution);
+        long endTs = sourceEndTs / resolution * resolution;
+        long startTs = metaTable.get(metaKey);
+        if (startTs < 0) {
+          // the buckets before rollup was enabled have been written when the metrics were added
+          startTs = getInitialStartTs(resolution, endTs);
+          metaTable.save(ImmutableMap.of(metaKey, startTs));
+        }
+        while (startTs < endTs) {
+          long rollupEndTs = Math.min(endTs, startTs + MAX_ROLLUP_BUCKETS * resolution);
+          metricStore.rollup(aggregation, resolution, startTs, rollupEndTs);
+          metaTable.save(ImmutableMap.of(metaKey, rollupEndTs));
+          startTs = rollupEndTs;
+        }
+        sourceEndTs = startTs;
+      }
+    }
+  }
+
+  /**
+   * Returns the time to start rolling up to the given resolution from, when there is no checkpoint yet. This is
+   * the initial lookback before the given end time, but not before the retention of the source resolution, and
+   * not before rollup was enabled. Gauges added before that are not known as gauges, hence rolling up their
+   * buckets would overwrite the values written when they were added with sums.
+   */
+  private long getInitialStartTs(int resolution, long endTs) {
+    int sourceResolution = DefaultMetricStore.ROLLUP_SOURCE_RESOLUTIONS.get(resolution);
+    long lookbackSecs = Math.min(initialLookbackSecs,
+                                 cConf.getLong(Constants.Metrics.RETENTION_SECONDS + "." + sourceResolution
+                                                 + ".seconds", Long.MAX_VALUE));
+    long startTs = Math.max(enabledTs, endTs - Math.max(0L, lookbackSecs));
+    // the first bucket may be partially covered, so start at the bucket after it
+    return (startTs + resolution - 1) / resolution * resolution;
+  }
+
+  /**
+   * Key of the checkpoint of the rollup of an aggregation to a resolution in the metrics meta table.
+   */
+  private static final class RollupMetaKey implements MetricsMetaKey {
+    private final byte[] key;
+
+    RollupMetaKey(String aggregation, int resolution) {
+      this(resolution + "." + aggregation);
+    }
+
+    private RollupMetaKey(String name) {
+      this.key = Bytes.toBytes("rollup." + name);
+    }
+
+    @Override
+    public byte[] getKey() {
+      return key;
+    }
+  }
+}
@@ -160,6 +160,11 @@ public class MessagingMetricsProcessorServiceTest extends MetricsProcessorServic
 
     }
 
+    @Override
+    public void deleteTTLExpired() throws Exception {
+
+    }
+
     @Override
     public void delete(MetricDeleteQuery query) throws Exception {
 
@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.query;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.Interpolators;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import co.cask.cdap.api.metrics.MetricDataQuery;
+import co.cask.cdap.api.metrics.MetricDeleteQuery;
+import co.cask.cdap.api.metrics.MetricSearchQuery;
+import co.cask.cdap.api.metrics.MetricStore;
+import co.cask.cdap.api.metrics.MetricTimeSeries;
+import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.TagValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Tests for {@link MetricsResultCache}.
+ */
+public class MetricsResultCacheTest {
+
+  private static final Map<String, String> TAGS = ImmutableMap.of("ns", "default");
+
+  @Test
+  public void testClosedBucketsCached() {
+    SingleSeriesMetricStore store = new SingleSeriesMetricStore();
+    for (long ts = 1000; ts < 1100; ts++) {
+      store.values.put(ts, ts * 2);
+    }
+    MetricsResultCache cache = new MetricsResultCache(store, 10, 3600, 10);
+
+    // buckets before 1090 - 10 are closed
+    assertValues(1000, 1099, cache.query(createQuery(1000, 1099), 1090));
+    Assert.assertEquals(ImmutableList.of(1000L), store.scanStarts);
+
+    // a refresh with a later window only scans from the first bucket that was not closed
+    store.values.put(1100L, 2200L);
+    assertValues(1005, 1100, cache.query(createQuery(1005, 1100), 1095));
+    Assert.assertEquals(ImmutableList.of(1000L, 1080L), store.scanStarts);
+
+    // a window that starts before the cached range is scanned completely
+    assertValues(1000, 1100, cache.query(createQuery(1000, 1100), 1095));
+    Assert.assertEquals(ImmutableList.of(1000L, 1080L, 1000L), store.scanStarts);
+
+    // a window that is completely closed and cached doesn't scan the store
+    assertValues(1010, 1050, cache.query(createQuery(1010, 1050), 1095));
+    Assert.assertEquals(3, store.scanStarts.size());
+  }
+
+  @Test
+  public void testNotCacheable() {
+    SingleSeriesMetricStore store = new SingleSeriesMetricStore();
+    store.values.put(1000L, 1L);
+    MetricsResultCache cache = new MetricsResultCache(store, 10, 3600, 10);
+
+    // interpolated query
+    MetricDataQuery query = new MetricDataQuery(1000, 1010, 1, 11, ImmutableMap.of("m", AggregationFunction.SUM),
+                                                TAGS, ImmutableList.<String>of(), new Interpolators.Step());
+    cache.query(query, 2000);
+    cache.query(query, 2000);
+    // limit smaller than the time range
+    query = new MetricDataQuery(1000, 1010, 1, 5, ImmutableMap.of("m", AggregationFunction.SUM),
+                                TAGS, ImmutableList.<String>of(), null);
+    cache.query(query, 2000);
+    cache.query(query, 2000);
+    Assert.assertEquals(ImmutableList.of(1000L, 1000L, 1000L, 1000L), store.scanStarts);
+  }
+
+  private MetricDataQuery createQuery(long startTs, long endTs) {
+    return new MetricDataQuery(startTs, endTs, 1, (int) (endTs - startTs + 1),
+                               ImmutableMap.of("m", AggregationFunction.SUM), TAGS, ImmutableList.<String>of(), null);
+  }
+
+  private void assertValues(long startTs, long endTs, Collection<MetricTimeSeries> result) {
+    MetricTimeSeries timeSeries = Iterables.getOnlyElement(result);
+    Assert.assertEquals("m", timeSeries.getMetricName());
+    Assert.assertEquals(TAGS, timeSeries.getTagValues());
+    List<TimeValue> expected = Lists.newArrayList();
+    for (long ts = startTs; ts <= endTs; ts++) {
+      expected.add(new TimeValue(ts, ts * 2));
+    }
+    Assert.assertEquals(expected, timeSeries.getTimeValues());
+  }
+
+  /**
+   * A {@link MetricStore} that holds one time series and records the start of the time range of each query.
+   */
+  private static final class SingleSeriesMetricStore implements MetricStore {
+
+    private final NavigableMap<Long, Long> values = new TreeMap<>();
+    private final List<Long> scanStarts = Lists.newArrayList();
+
+    @Override
+    public Collection<MetricTimeSeries> query(MetricDataQuery query) {
+      scanStarts.add(query.getStartTs());
+      List<TimeValue> timeValues = Lists.newArrayList();
+      for (Map.Entry<Long, Long> entry : values.subMap(query.getStartTs(), true, query.getEndTs(), true).entrySet()) {
+        timeValues.add(new TimeValue(entry.getKey(), entry.getValue()));
+      }
+      if (timeValues.isEmpty()) {
+        return Collections.emptyList();
+      }
+      return Collections.singletonList(new MetricTimeSeries("m", TAGS, timeValues));
+    }
+
+    @Override
+    public void setMetricsContext(MetricsContext metricsContext) {
+      // no-op
+    }
+
+    @Override
+    public void add(MetricValues metricValues) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void add(Collection<? extends MetricValues> metricValues) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteBefore(long timestamp) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteTTLExpired() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(MetricDeleteQuery query) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteAll() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Collection<TagValue> findNextAvailableTags(MetricSearchQuery query) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Collection<String> findMetricNames(MetricSearchQuery query) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
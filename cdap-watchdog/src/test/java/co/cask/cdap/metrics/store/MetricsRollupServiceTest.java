@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.metrics.store;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import co.cask.cdap.api.metrics.MetricDataQuery;
+import co.cask.cdap.api.metrics.MetricTimeSeries;
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
+import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import co.cask.cdap.metrics.process.MetricsConsumerMetaTable;
+import co.cask.cdap.metrics.process.MetricsMetaKey;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests for {@link MetricsRollupService}.
+ */
+public class MetricsRollupServiceTest {
+
+  private static final Map<String, String> TAGS = ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, "system",
+                                                                  Constants.Metrics.Tag.COMPONENT, "rollup");
+  // hour aligned time when rollup is enabled
+  private static final long ENABLED_TS = 1490000400L;
+
+  @Test
+  public void testRollup() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setBoolean(Constants.Metrics.ROLLUP_ENABLED, true);
+    cConf.setLong(Constants.Metrics.ROLLUP_DELAY_SECS, 120);
+    cConf.setLong(Constants.Metrics.ROLLUP_INITIAL_LOOKBACK_SECS, 3600);
+    // rollups are only triggered by the test
+    cConf.setLong(Constants.Metrics.ROLLUP_INTERVAL_SECS, 24 * 3600);
+
+    AtomicBoolean failHourPuts = new AtomicBoolean(false);
+    InMemoryMetricDatasetFactory dsFactory = new InMemoryMetricDatasetFactory("testRollup", failHourPuts);
+    DefaultMetricStore metricStore = new DefaultMetricStore(dsFactory, cConf);
+
+    // metrics before rollup was enabled are not rolled up, even if they are within the initial lookback
+    metricStore.add(new MetricValues(TAGS, "counter", ENABLED_TS - 120, 1, MetricType.COUNTER));
+
+    MetricsRollupService rollupService = new MetricsRollupService(cConf, dsFactory);
+    rollupService.startAndWait();
+    try {
+      rollupService.rollup(ENABLED_TS);
+      assertCheckpoints(dsFactory, 60, ENABLED_TS);
+      assertCheckpoints(dsFactory, 3600, ENABLED_TS);
+
+      // a counter and a gauge every second for two hours
+      for (int minute = 0; minute < 120; minute++) {
+        List<MetricValues> metricValues = Lists.newArrayList();
+        for (int second = 0; second < 60; second++) {
+          long ts = ENABLED_TS + minute * 60 + second;
+          metricValues.add(new MetricValues(TAGS, "counter", ts, 1, MetricType.COUNTER));
+          metricValues.add(new MetricValues(TAGS, "gauge", ts, ts - ENABLED_TS, MetricType.GAUGE));
+        }
+        metricStore.add(metricValues);
+      }
+
+      // the minutes closed for the rollup delay are rolled up, but no hour is complete in the minutes yet
+      rollupService.rollup(ENABLED_TS + 1800);
+      assertCheckpoints(dsFactory, 60, ENABLED_TS + 1680);
+      assertCheckpoints(dsFactory, 3600, ENABLED_TS);
+      assertRollup(metricStore, 60, 28);
+      assertRollup(metricStore, 3600, 0);
+
+      // a failure while rolling up the hours keeps their checkpoints
+      failHourPuts.set(true);
+      try {
+        rollupService.rollup(ENABLED_TS + 7320);
+        Assert.fail("Expected rollup to fail");
+      } catch (Exception e) {
+        // expected
+      }
+      assertCheckpoints(dsFactory, 3600, ENABLED_TS);
+      assertRollup(metricStore, 3600, 0);
+
+      // the next rollup continues from the checkpoints
+      failHourPuts.set(false);
+      rollupService.rollup(ENABLED_TS + 7320);
+      assertCheckpoints(dsFactory, 60, ENABLED_TS + 7200);
+      assertCheckpoints(dsFactory, 3600, ENABLED_TS + 7200);
+      assertRollup(metricStore, 60, 120);
+      assertRollup(metricStore, 3600, 2);
+    } finally {
+      rollupService.stopAndWait();
+    }
+
+    // a late metric in a rolled up minute is not rolled up by a new service, which continues from the checkpoints
+    metricStore.add(new MetricValues(TAGS, "counter", ENABLED_TS + 10, 1, MetricType.COUNTER));
+    rollupService = new MetricsRollupService(cConf, dsFactory);
+    rollupService.startAndWait();
+    try {
+      rollupService.rollup(ENABLED_TS + 7380);
+      assertCheckpoints(dsFactory, 60, ENABLED_TS + 7260);
+      assertCheckpoints(dsFactory, 3600, ENABLED_TS + 7200);
+      assertRollup(metricStore, 60, 120);
+      assertRollup(metricStore, 3600, 2);
+    } finally {
+      rollupService.stopAndWait();
+    }
+  }
+
+  /**
+   * Asserts the checkpoints of the rollup to the given resolution of all aggregations.
+   */
+  private void assertCheckpoints(MetricDatasetFactory dsFactory, int resolution, long expected) throws Exception {
+    MetricsConsumerMetaTable metaTable = dsFactory.createConsumerMeta();
+    for (String aggregation : DefaultMetricStore.AGGREGATIONS.keySet()) {
+      Assert.assertEquals("Checkpoint of aggregation " + aggregation, expected,
+                          metaTable.get(new RollupKey("rollup." + resolution + "." + aggregation)));
+    }
+  }
+
+  /**
+   * Asserts that the given number of buckets of the given resolution are rolled up, starting when rollup was
+   * enabled, with the sum of the counter and the latest value of the gauge in each bucket.
+   */
+  private void assertRollup(DefaultMetricStore metricStore, int resolution, int buckets) {
+    for (String metric : new String[] { "counter", "gauge" }) {
+      Collection<MetricTimeSeries> result = metricStore.query(
+        new MetricDataQuery(ENABLED_TS - 3600, ENABLED_TS + 7200, resolution, Integer.MAX_VALUE,
+                            ImmutableMap.of("system." + metric, AggregationFunction.SUM), TAGS,
+                            ImmutableList.<String>of(), null));
+      if (buckets == 0) {
+        Assert.assertTrue(result.isEmpty());
+        continue;
+      }
+      List<TimeValue> expected = Lists.newArrayList();
+      for (int i = 0; i < buckets; i++) {
+        long ts = ENABLED_TS + i * resolution;
+        expected.add(new TimeValue(ts, "counter".equals(metric) ? resolution : ts + resolution - 1 - ENABLED_TS));
+      }
+      Assert.assertEquals(expected, Iterables.getOnlyElement(result).getTimeValues());
+    }
+  }
+
+  /**
+   * A {@link MetricDatasetFactory} of in-memory tables, whose hour resolution table fails puts if requested.
+   */
+  private static final class InMemoryMetricDatasetFactory implements MetricDatasetFactory {
+    private final String prefix;
+    private final AtomicBoolean failHourPuts;
+    private final EntityTable entityTable;
+
+    InMemoryMetricDatasetFactory(String prefix, AtomicBoolean failHourPuts) {
+      this.prefix = prefix;
+      this.failHourPuts = failHourPuts;
+      this.entityTable = new EntityTable(createTable("entity"));
+    }
+
+    @Override
+    public FactTable getOrCreateFactTable(final int resolution) {
+      String name = prefix + ".ts." + resolution;
+      InMemoryTableService.create(name);
+      InMemoryMetricsTable table = new InMemoryMetricsTable(name) {
+        @Override
+        public void put(SortedMap<byte[], ? extends SortedMap<byte[], Long>> updates) {
+          if (resolution == 3600 && failHourPuts.get()) {
+            throw new RuntimeException("Failing put to the hour resolution table");
+          }
+          super.put(updates);
+        }
+      };
+      return new FactTable(table, entityTable, resolution, Constants.Metrics.DEFAULT_TIME_SERIES_TABLE_ROLL_TIME);
+    }
+
+    @Override
+    public MetricsConsumerMetaTable createConsumerMeta() {
+      return new MetricsConsumerMetaTable(createTable("meta"));
+    }
+
+    private InMemoryMetricsTable createTable(String name) {
+      InMemoryTableService.create(prefix + "." + name);
+      return new InMemoryMetricsTable(prefix + "." + name);
+    }
+  }
+
+  private static final class RollupKey implements MetricsMetaKey {
+    private final byte[] key;
+
+    RollupKey(String key) {
+      this.key = Bytes.toBytes(key);
+    }
+
+    @Override
+    public byte[] getKey() {
+      return key;
+    }
+  }
+}